@@ -77,6 +77,11 @@ import org.orekit.utils.TimeStampedFieldAngularCoordinates;
  * interruption occurred in the middle of an attitude transition the second propagation will
  * properly complete the transition that was started by the first propagator.
  * </p>
+ * <p>
+ * If the switch dates are known beforehand, {@link AttitudesTimeline} is a simpler
+ * and faster alternative, as it does not rely on events detection.
+ * </p>
+ * @see AttitudesTimeline
  * @author Luc Maisonobe
  * @since 5.1
  */
@@ -0,0 +1,250 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.attitudes;
+
+import java.util.Arrays;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.utils.AngularDerivativesFilter;
+import org.orekit.utils.FieldPVCoordinatesProvider;
+import org.orekit.utils.PVCoordinatesProvider;
+import org.orekit.utils.TimeStampedAngularCoordinates;
+import org.orekit.utils.TimeStampedFieldAngularCoordinates;
+
+/** Attitude provider switching between attitude laws according to a known schedule.
+ * <p>
+ * This class is an alternative to {@link AttitudesSequence} when the switch dates
+ * are known beforehand, for example when replaying an operations timeline with
+ * imaging slews and downlink pointing. As there are no events to detect, nothing
+ * needs to be registered to the propagator: the active law at any date is found
+ * by a binary search in the sorted array of switch dates, so the cost does not
+ * depend on the number of switches, even for timelines with thousands of them.
+ * </p>
+ * <p>
+ * Transitions between consecutive laws behave as in {@link AttitudesSequence}:
+ * a switch date defines the start of the transition (i.e. when leaving the
+ * preceding law), and the following law is used after switch date plus transition
+ * time. During the transition, the attitude is interpolated between the preceding
+ * law at switch date and the following law at transition end.
+ * </p>
+ * <p>
+ * Contrary to {@link AttitudesSequence}, this provider keeps no propagation
+ * history, so once all switches have been {@link #addSwitch(AbsoluteDate,
+ * AttitudeProvider, double, AngularDerivativesFilter) added}, it can be used for
+ * forward and backward propagation alike, and it can be shared among several
+ * propagators, even running in different threads.
+ * </p>
+ * @see AttitudesSequence
+ * @since 9.3
+ */
+public class AttitudesTimeline implements AttitudeProvider {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Reference date for switch offsets. */
+    private AbsoluteDate reference;
+
+    /** Number of switches. */
+    private int n;
+
+    /** Switch dates, as offsets from reference date. */
+    private double[] switchOffsets;
+
+    /** Transitions durations. */
+    private double[] transitionTimes;
+
+    /** Transitions filters. */
+    private AngularDerivativesFilter[] transitionFilters;
+
+    /** Attitude laws (law at index i applies before switch i, law at index n after last switch). */
+    private AttitudeProvider[] laws;
+
+    /** Simple constructor.
+     * @param initial attitude law applicable before the first switch
+     */
+    public AttitudesTimeline(final AttitudeProvider initial) {
+        this.reference         = null;
+        this.n                 = 0;
+        this.switchOffsets     = new double[INITIAL_CAPACITY];
+        this.transitionTimes   = new double[INITIAL_CAPACITY];
+        this.transitionFilters = new AngularDerivativesFilter[INITIAL_CAPACITY];
+        this.laws              = new AttitudeProvider[INITIAL_CAPACITY + 1];
+        this.laws[0]           = initial;
+    }
+
+    /** Add a switch at the end of the timeline.
+     * <p>
+     * Switches must be added in chronological order, and a switch cannot
+     * start before the transition of the preceding switch is completed.
+     * </p>
+     * @param switchDate date at which transition from the preceding law starts
+     * @param following attitude law applicable after the transition
+     * @param transitionTime duration of the transition between the preceding and following laws
+     * @param transitionFilter specification of transition law time derivatives that
+     * should match preceding and following attitude laws
+     * @exception OrekitException if transition time is negative or if switch
+     * date is before the end of preceding transition
+     */
+    public void addSwitch(final AbsoluteDate switchDate, final AttitudeProvider following,
+                          final double transitionTime, final AngularDerivativesFilter transitionFilter)
+        throws OrekitException {
+
+        if (transitionTime < 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, transitionTime, 0);
+        }
+
+        if (reference == null) {
+            reference = switchDate;
+        }
+        final double offset = switchDate.durationFrom(reference);
+        if (n > 0 && offset < switchOffsets[n - 1] + transitionTimes[n - 1]) {
+            throw new OrekitException(OrekitMessages.NON_CHRONOLOGICALLY_SORTED_ENTRIES,
+                                      reference.shiftedBy(switchOffsets[n - 1] + transitionTimes[n - 1]),
+                                      switchDate);
+        }
+
+        if (n == switchOffsets.length) {
+            // grow the arrays
+            final int capacity = 2 * n;
+            switchOffsets     = Arrays.copyOf(switchOffsets,     capacity);
+            transitionTimes   = Arrays.copyOf(transitionTimes,   capacity);
+            transitionFilters = Arrays.copyOf(transitionFilters, capacity);
+            laws              = Arrays.copyOf(laws,              capacity + 1);
+        }
+
+        switchOffsets[n]     = offset;
+        transitionTimes[n]   = transitionTime;
+        transitionFilters[n] = transitionFilter;
+        laws[n + 1]          = following;
+        ++n;
+
+    }
+
+    /** Get the number of switches in the timeline.
+     * @return number of switches in the timeline
+     */
+    public int getSwitchesNumber() {
+        return n;
+    }
+
+    /** Get the attitude law applicable at a date.
+     * <p>
+     * During transitions, the law returned is the one applicable
+     * after the transition.
+     * </p>
+     * @param date date to check
+     * @return attitude law applicable at date
+     */
+    public AttitudeProvider getLaw(final AbsoluteDate date) {
+        return laws[search(date) + 1];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Attitude getAttitude(final PVCoordinatesProvider pvProv,
+                                final AbsoluteDate date, final Frame frame)
+        throws OrekitException {
+
+        final int i = search(date);
+        if (i < 0 || date.durationFrom(reference) >= switchOffsets[i] + transitionTimes[i]) {
+            // we are outside of any transition
+            return laws[i + 1].getAttitude(pvProv, date, frame);
+        }
+
+        // interpolate between the two boundary attitudes
+        final AbsoluteDate switchDate    = reference.shiftedBy(switchOffsets[i]);
+        final AbsoluteDate transitionEnd = switchDate.shiftedBy(transitionTimes[i]);
+        final TimeStampedAngularCoordinates start =
+                        laws[i].getAttitude(pvProv, switchDate, frame).getOrientation();
+        final TimeStampedAngularCoordinates end =
+                        laws[i + 1].getAttitude(pvProv, transitionEnd, frame).getOrientation();
+        final TimeStampedAngularCoordinates interpolated =
+                        TimeStampedAngularCoordinates.interpolate(date, transitionFilters[i],
+                                                                  Arrays.asList(start, end));
+
+        return new Attitude(frame, interpolated);
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends RealFieldElement<T>> FieldAttitude<T> getAttitude(final FieldPVCoordinatesProvider<T> pvProv,
+                                                                        final FieldAbsoluteDate<T> date,
+                                                                        final Frame frame)
+        throws OrekitException {
+
+        final int i = search(date.toAbsoluteDate());
+        if (i < 0 || date.durationFrom(reference).getReal() >= switchOffsets[i] + transitionTimes[i]) {
+            // we are outside of any transition
+            return laws[i + 1].getAttitude(pvProv, date, frame);
+        }
+
+        // interpolate between the two boundary attitudes
+        final AbsoluteDate switchDate    = reference.shiftedBy(switchOffsets[i]);
+        final AbsoluteDate transitionEnd = switchDate.shiftedBy(transitionTimes[i]);
+        final TimeStampedFieldAngularCoordinates<T> start =
+                        laws[i].getAttitude(pvProv, new FieldAbsoluteDate<>(date.getField(), switchDate),
+                                            frame).getOrientation();
+        final TimeStampedFieldAngularCoordinates<T> end =
+                        laws[i + 1].getAttitude(pvProv, new FieldAbsoluteDate<>(date.getField(), transitionEnd),
+                                                frame).getOrientation();
+        final TimeStampedFieldAngularCoordinates<T> interpolated =
+                        TimeStampedFieldAngularCoordinates.interpolate(date, transitionFilters[i],
+                                                                       Arrays.asList(start, end));
+
+        return new FieldAttitude<>(frame, interpolated);
+
+    }
+
+    /** Find the last switch occurring at or before a date.
+     * @param date date to check
+     * @return index of the last switch occurring at or before date, -1 if date is before all switches
+     */
+    private int search(final AbsoluteDate date) {
+
+        if (n == 0) {
+            return -1;
+        }
+
+        final double offset = date.durationFrom(reference);
+        int low  = -1;
+        int high = n;
+        while (high - low > 1) {
+            // invariant: switchOffsets[low] <= offset < switchOffsets[high]
+            final int middle = (low + high) >>> 1;
+            if (switchOffsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+
+    }
+
+}
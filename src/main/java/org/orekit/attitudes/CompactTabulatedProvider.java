@@ -0,0 +1,458 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.attitudes;
+
+import java.util.List;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.utils.AngularDerivativesFilter;
+import org.orekit.utils.FieldPVCoordinatesProvider;
+import org.orekit.utils.PVCoordinatesProvider;
+import org.orekit.utils.TimeStampedAngularCoordinates;
+import org.orekit.utils.TimeStampedFieldAngularCoordinates;
+
+/** Attitude provider interpolating from a table stored in primitive arrays.
+ * <p>
+ * This class serves the same purpose as {@link TabulatedProvider}, but is
+ * intended for very large tables, typically attitude reconstructed from high rate
+ * star trackers telemetry over several days. The table is stored as flat arrays
+ * of dates offsets, quaternions and rotation rates rather than as lists of objects,
+ * and interpolation is performed between the two samples surrounding the date,
+ * using a kernel that does not allocate any intermediate object:
+ * </p>
+ * <ul>
+ *   <li>if the filter is {@link AngularDerivativesFilter#USE_R}, the rotation is
+ *   computed using spherical linear interpolation (SLERP) between the two samples
+ *   and rotation rates are ignored,</li>
+ *   <li>otherwise, the rotation is computed using cubic Hermite interpolation
+ *   on the quaternion components, using the quaternions derivatives deduced from
+ *   the tabulated rotation rates, and the result is normalized (rotation accelerations
+ *   are ignored even for {@link AngularDerivativesFilter#USE_RRA}).</li>
+ * </ul>
+ * <p>
+ * In both cases, the rotation rate is computed consistently with the interpolated
+ * rotation, and the rotation acceleration is set to zero. As the interpolation
+ * only involves two samples, the sampling must be dense enough with respect to
+ * the attitude dynamics.
+ * </p>
+ * <p>
+ * When attitude is needed at many dates, the {@link #getAttitudes(double[], double[], double[])
+ * bulk evaluation} method avoids creating any object at all, and takes advantage of
+ * dates being sorted to locate the samples in constant time.
+ * </p>
+ * <p>Instances of this class are guaranteed to be immutable.</p>
+ * @see TabulatedProvider
+ * @since 9.3
+ */
+public class CompactTabulatedProvider implements AttitudeProvider {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Threshold on angle between samples under which SLERP is replaced by linear interpolation. */
+    private static final double SMALL_ANGLE = 1.0e-6;
+
+    /** Reference frame for tabulated attitudes. */
+    private final Frame referenceFrame;
+
+    /** Reference date for offsets. */
+    private final AbsoluteDate reference;
+
+    /** Samples dates, as offsets from reference date. */
+    private final double[] offsets;
+
+    /** Samples quaternions, 4 components per sample. */
+    private final double[] q;
+
+    /** Samples quaternions derivatives, 4 components per sample (null for SLERP). */
+    private final double[] qDot;
+
+    /** Creates a new instance from primitive arrays.
+     * <p>
+     * The arrays are copied. The sign of quaternions is changed if needed so
+     * that consecutive quaternions are in the same hemisphere.
+     * </p>
+     * @param referenceFrame reference frame for tabulated attitudes
+     * @param reference reference date for offsets
+     * @param offsets samples dates, as offsets from reference date, in strictly increasing order
+     * @param quaternions samples quaternions (q0, q1, q2, q3 for each sample,
+     * using the same convention as {@link Rotation}, need not be normalized)
+     * @param rates samples rotation rates (x, y, z for each sample, using the same
+     * convention as {@link TimeStampedAngularCoordinates#getRotationRate()}),
+     * ignored (and may be null) if filter is {@link AngularDerivativesFilter#USE_R}
+     * @param filter filter for derivatives from the sample to use in interpolation
+     * @exception OrekitException if there are less than two samples, if arrays sizes
+     * are inconsistent or if dates are not sorted
+     */
+    public CompactTabulatedProvider(final Frame referenceFrame, final AbsoluteDate reference,
+                                    final double[] offsets, final double[] quaternions,
+                                    final double[] rates, final AngularDerivativesFilter filter)
+        throws OrekitException {
+
+        final int n = offsets.length;
+        if (n < 2) {
+            throw new OrekitException(OrekitMessages.NOT_ENOUGH_DATA_FOR_INTERPOLATION, n);
+        }
+        if (quaternions.length != 4 * n) {
+            throw new OrekitException(LocalizedCoreFormats.DIMENSIONS_MISMATCH, quaternions.length, 4 * n);
+        }
+        final boolean useRates = filter != AngularDerivativesFilter.USE_R;
+        if (useRates && rates.length != 3 * n) {
+            throw new OrekitException(LocalizedCoreFormats.DIMENSIONS_MISMATCH, rates.length, 3 * n);
+        }
+        for (int i = 1; i < n; ++i) {
+            if (offsets[i] <= offsets[i - 1]) {
+                throw new OrekitException(OrekitMessages.NON_CHRONOLOGICALLY_SORTED_ENTRIES,
+                                          reference.shiftedBy(offsets[i - 1]), reference.shiftedBy(offsets[i]));
+            }
+        }
+
+        this.referenceFrame = referenceFrame;
+        this.reference      = reference;
+        this.offsets        = offsets.clone();
+        this.q              = new double[4 * n];
+        this.qDot           = useRates ? new double[4 * n] : null;
+
+        for (int i = 0; i < n; ++i) {
+
+            // normalize quaternion, ensuring continuity with previous one
+            final int    k     = 4 * i;
+            final double norm  = FastMath.sqrt(quaternions[k]     * quaternions[k]     +
+                                               quaternions[k + 1] * quaternions[k + 1] +
+                                               quaternions[k + 2] * quaternions[k + 2] +
+                                               quaternions[k + 3] * quaternions[k + 3]);
+            double scale = 1.0 / norm;
+            if (i > 0 && q[k - 4] * quaternions[k]     + q[k - 3] * quaternions[k + 1] +
+                         q[k - 2] * quaternions[k + 2] + q[k - 1] * quaternions[k + 3] < 0) {
+                scale = -scale;
+            }
+            final double q0 = scale * quaternions[k];
+            final double q1 = scale * quaternions[k + 1];
+            final double q2 = scale * quaternions[k + 2];
+            final double q3 = scale * quaternions[k + 3];
+            q[k]     = q0;
+            q[k + 1] = q1;
+            q[k + 2] = q2;
+            q[k + 3] = q3;
+
+            if (useRates) {
+                // quaternion derivative, see AngularCoordinates
+                final double oX = rates[3 * i];
+                final double oY = rates[3 * i + 1];
+                final double oZ = rates[3 * i + 2];
+                qDot[k]     = 0.5 * (-q1 * oX - q2 * oY - q3 * oZ);
+                qDot[k + 1] = 0.5 * ( q0 * oX - q3 * oY + q2 * oZ);
+                qDot[k + 2] = 0.5 * ( q3 * oX + q0 * oY - q1 * oZ);
+                qDot[k + 3] = 0.5 * (-q2 * oX + q1 * oY + q0 * oZ);
+            }
+
+        }
+
+    }
+
+    /** Creates a new instance from a list of angular coordinates.
+     * @param referenceFrame reference frame for tabulated attitudes
+     * @param table tabulated attitudes, in chronological order
+     * @param filter filter for derivatives from the sample to use in interpolation
+     * @exception OrekitException if there are less than two samples or if dates are not sorted
+     */
+    public CompactTabulatedProvider(final Frame referenceFrame, final List<TimeStampedAngularCoordinates> table,
+                                    final AngularDerivativesFilter filter)
+        throws OrekitException {
+        this(referenceFrame, table.isEmpty() ? AbsoluteDate.J2000_EPOCH : table.get(0).getDate(),
+             extractOffsets(table), extractQuaternions(table), extractRates(table), filter);
+    }
+
+    /** Extract dates offsets from a table.
+     * @param table tabulated attitudes
+     * @return dates offsets with respect to first date
+     */
+    private static double[] extractOffsets(final List<TimeStampedAngularCoordinates> table) {
+        final double[] offsets = new double[table.size()];
+        for (int i = 0; i < offsets.length; ++i) {
+            offsets[i] = table.get(i).getDate().durationFrom(table.get(0).getDate());
+        }
+        return offsets;
+    }
+
+    /** Extract quaternions from a table.
+     * @param table tabulated attitudes
+     * @return quaternions
+     */
+    private static double[] extractQuaternions(final List<TimeStampedAngularCoordinates> table) {
+        final double[] quaternions = new double[4 * table.size()];
+        for (int i = 0; i < table.size(); ++i) {
+            final Rotation r = table.get(i).getRotation();
+            quaternions[4 * i]     = r.getQ0();
+            quaternions[4 * i + 1] = r.getQ1();
+            quaternions[4 * i + 2] = r.getQ2();
+            quaternions[4 * i + 3] = r.getQ3();
+        }
+        return quaternions;
+    }
+
+    /** Extract rotation rates from a table.
+     * @param table tabulated attitudes
+     * @return rotation rates
+     */
+    private static double[] extractRates(final List<TimeStampedAngularCoordinates> table) {
+        final double[] rates = new double[3 * table.size()];
+        for (int i = 0; i < table.size(); ++i) {
+            final Vector3D rate = table.get(i).getRotationRate();
+            rates[3 * i]     = rate.getX();
+            rates[3 * i + 1] = rate.getY();
+            rates[3 * i + 2] = rate.getZ();
+        }
+        return rates;
+    }
+
+    /** Get the reference date for offsets.
+     * @return reference date for offsets
+     */
+    public AbsoluteDate getReferenceDate() {
+        return reference;
+    }
+
+    /** Get the number of samples.
+     * @return number of samples
+     */
+    public int getSamplesNumber() {
+        return offsets.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Attitude getAttitude(final PVCoordinatesProvider pvProv,
+                                final AbsoluteDate date, final Frame frame)
+        throws OrekitException {
+
+        final double   offset = date.durationFrom(reference);
+        final double[] result = new double[7];
+        interpolate(offset, locate(offset), result, 0, result, 4);
+
+        return new Attitude(referenceFrame,
+                            new TimeStampedAngularCoordinates(date,
+                                                              new Rotation(result[0], result[1],
+                                                                           result[2], result[3],
+                                                                           false),
+                                                              new Vector3D(result[4], result[5], result[6]),
+                                                              Vector3D.ZERO));
+
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * The field version interpolates at the date real value, and then
+     * shifts the result to take the date derivatives into account.
+     * </p>
+     */
+    @Override
+    public <T extends RealFieldElement<T>> FieldAttitude<T> getAttitude(final FieldPVCoordinatesProvider<T> pvProv,
+                                                                        final FieldAbsoluteDate<T> date,
+                                                                        final Frame frame)
+        throws OrekitException {
+        final AbsoluteDate dateReal = date.toAbsoluteDate();
+        final TimeStampedAngularCoordinates ac = getAttitude(null, dateReal, frame).getOrientation();
+        return new FieldAttitude<>(referenceFrame,
+                                   new TimeStampedFieldAngularCoordinates<>(date.getField(), ac).
+                                   shiftedBy(date.durationFrom(dateReal)));
+    }
+
+    /** Evaluate attitude at many dates in one call.
+     * <p>
+     * This method does not allocate any object. If the dates are sorted
+     * (either increasingly or decreasingly), the samples are located in
+     * constant time from one date to the next one. Unsorted dates are
+     * supported, but with a slower binary search.
+     * </p>
+     * @param dates dates, as offsets from {@link #getReferenceDate() reference date}
+     * @param quaternions placeholder for interpolated normalized quaternions, 4 components
+     * per date, using the same convention as {@link Rotation} (must be at least 4 times
+     * larger than dates array)
+     * @param rates placeholder for interpolated rotation rates, 3 components per date
+     * (may be null if rates are not needed, must be at least 3 times larger than dates
+     * array otherwise)
+     * @exception OrekitException if some date is outside of the table
+     */
+    public void getAttitudes(final double[] dates, final double[] quaternions, final double[] rates)
+        throws OrekitException {
+        final int last = offsets.length - 2;
+        int i = -1;
+        for (int j = 0; j < dates.length; ++j) {
+            final double offset = dates[j];
+            if (i >= 0 && offset >= offsets[i] && (offset < offsets[i + 1] || i == last && offset == offsets[i + 1])) {
+                // same interval as previous date
+            } else if (i >= 0 && i < last && offset >= offsets[i + 1] && offset < offsets[i + 2]) {
+                // next interval
+                ++i;
+            } else if (i > 0 && offset >= offsets[i - 1] && offset < offsets[i]) {
+                // previous interval
+                --i;
+            } else {
+                i = locate(offset);
+            }
+            interpolate(offset, i, quaternions, 4 * j, rates, 3 * j);
+        }
+    }
+
+    /** Locate the interval containing an offset.
+     * @param offset offset from reference date
+     * @return index of the first sample of the interval containing the offset
+     * @exception OrekitException if the offset is outside of the table
+     */
+    private int locate(final double offset) throws OrekitException {
+
+        final int n = offsets.length;
+        if (offset < offsets[0]) {
+            throw new OrekitException(OrekitMessages.UNABLE_TO_GENERATE_NEW_DATA_BEFORE,
+                                      reference.shiftedBy(offsets[0]));
+        } else if (offset > offsets[n - 1]) {
+            throw new OrekitException(OrekitMessages.UNABLE_TO_GENERATE_NEW_DATA_AFTER,
+                                      reference.shiftedBy(offsets[n - 1]));
+        }
+
+        // binary search, with invariant offsets[low] <= offset < offsets[high]
+        int low  = 0;
+        int high = n - 1;
+        while (high - low > 1) {
+            final int middle = (low + high) >>> 1;
+            if (offsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+
+    }
+
+    /** Interpolate attitude within one interval.
+     * @param offset offset from reference date
+     * @param i index of the first sample of the interval
+     * @param quaternion placeholder for interpolated normalized quaternion
+     * @param qIndex index of first quaternion component in placeholder
+     * @param rate placeholder for interpolated rotation rate (may be null)
+     * @param rIndex index of first rate component in placeholder
+     */
+    private void interpolate(final double offset, final int i,
+                             final double[] quaternion, final int qIndex,
+                             final double[] rate, final int rIndex) {
+
+        final int    ka = 4 * i;
+        final int    kb = ka + 4;
+        final double h  = offsets[i + 1] - offsets[i];
+        final double t  = (offset - offsets[i]) / h;
+
+        // weights for quaternions (wa, wb) and their derivatives (wda, wdb),
+        // and weights for quaternions time derivatives (va, vb, vda, vdb)
+        final double wa;
+        final double wb;
+        final double wda;
+        final double wdb;
+        double       va  = 0;
+        double       vb  = 0;
+        double       vda = 0;
+        double       vdb = 0;
+
+        if (qDot == null) {
+            // spherical linear interpolation
+            final double cos = FastMath.min(1.0, q[ka] * q[kb] + q[ka + 1] * q[kb + 1] +
+                                                 q[ka + 2] * q[kb + 2] + q[ka + 3] * q[kb + 3]);
+            final double theta = FastMath.acos(cos);
+            if (theta < SMALL_ANGLE) {
+                // linear interpolation, normalization will be done later
+                wa  = 1 - t;
+                wb  = t;
+                wda = -1 / h;
+                wdb = 1 / h;
+            } else {
+                final double sin = FastMath.sin(theta);
+                wa  = FastMath.sin((1 - t) * theta) / sin;
+                wb  = FastMath.sin(t * theta) / sin;
+                wda = -theta * FastMath.cos((1 - t) * theta) / (h * sin);
+                wdb = theta * FastMath.cos(t * theta) / (h * sin);
+            }
+        } else {
+            // cubic Hermite interpolation
+            final double t2 = t * t;
+            final double t3 = t2 * t;
+            wa  = 2 * t3 - 3 * t2 + 1;
+            wb  = -2 * t3 + 3 * t2;
+            va  = h * (t3 - 2 * t2 + t);
+            vb  = h * (t3 - t2);
+            wda = (6 * t2 - 6 * t) / h;
+            wdb = (-6 * t2 + 6 * t) / h;
+            vda = 3 * t2 - 4 * t + 1;
+            vdb = 3 * t2 - 2 * t;
+        }
+
+        // interpolated quaternion and its time derivative
+        double q0 = wa * q[ka]     + wb * q[kb];
+        double q1 = wa * q[ka + 1] + wb * q[kb + 1];
+        double q2 = wa * q[ka + 2] + wb * q[kb + 2];
+        double q3 = wa * q[ka + 3] + wb * q[kb + 3];
+        final double q0Dot;
+        final double q1Dot;
+        final double q2Dot;
+        final double q3Dot;
+        if (qDot == null) {
+            q0Dot = wda * q[ka]     + wdb * q[kb];
+            q1Dot = wda * q[ka + 1] + wdb * q[kb + 1];
+            q2Dot = wda * q[ka + 2] + wdb * q[kb + 2];
+            q3Dot = wda * q[ka + 3] + wdb * q[kb + 3];
+        } else {
+            q0 += va * qDot[ka]     + vb * qDot[kb];
+            q1 += va * qDot[ka + 1] + vb * qDot[kb + 1];
+            q2 += va * qDot[ka + 2] + vb * qDot[kb + 2];
+            q3 += va * qDot[ka + 3] + vb * qDot[kb + 3];
+            q0Dot = wda * q[ka]     + wdb * q[kb]     + vda * qDot[ka]     + vdb * qDot[kb];
+            q1Dot = wda * q[ka + 1] + wdb * q[kb + 1] + vda * qDot[ka + 1] + vdb * qDot[kb + 1];
+            q2Dot = wda * q[ka + 2] + wdb * q[kb + 2] + vda * qDot[ka + 2] + vdb * qDot[kb + 2];
+            q3Dot = wda * q[ka + 3] + wdb * q[kb + 3] + vda * qDot[ka + 3] + vdb * qDot[kb + 3];
+        }
+
+        // normalize
+        final double norm2 = q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3;
+        final double inv   = 1.0 / FastMath.sqrt(norm2);
+        quaternion[qIndex]     = q0 * inv;
+        quaternion[qIndex + 1] = q1 * inv;
+        quaternion[qIndex + 2] = q2 * inv;
+        quaternion[qIndex + 3] = q3 * inv;
+
+        if (rate != null) {
+            // rotation rate, see AngularCoordinates (the component of the quaternion
+            // derivative along the quaternion itself, due to normalization, does not
+            // contribute to the vector part)
+            final double s = 2 / norm2;
+            rate[rIndex]     = s * (-q1 * q0Dot + q0 * q1Dot + q3 * q2Dot - q2 * q3Dot);
+            rate[rIndex + 1] = s * (-q2 * q0Dot - q3 * q1Dot + q0 * q2Dot + q1 * q3Dot);
+            rate[rIndex + 2] = s * (-q3 * q0Dot + q2 * q1Dot - q1 * q2Dot + q0 * q3Dot);
+        }
+
+    }
+
+}
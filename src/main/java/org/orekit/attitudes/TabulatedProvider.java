@@ -39,6 +39,7 @@ import org.orekit.utils.TimeStampedFieldAngularCoordinates;
  * <p>Instances of this class are guaranteed to be immutable.</p>
  * @author Luc Maisonobe
  * @see TabulatedLofOffset
+ * @see CompactTabulatedProvider
  * @since 6.1
  */
 public class TabulatedProvider implements AttitudeProvider {
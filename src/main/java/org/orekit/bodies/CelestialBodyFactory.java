@@ -23,6 +23,8 @@ import java.util.Map;
 
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.time.AbsoluteDate;
 
 /** Factory class for bodies of the solar system.
  * <p>The {@link #getSun() Sun}, the {@link #getMoon() Moon} and the planets
@@ -307,6 +309,41 @@ public class CelestialBodyFactory {
         }
     }
 
+    /** Replace a celestial body in the internal cache by a tabulated version.
+     * <p>
+     * The body is first retrieved as per {@link #getBody(String)}, then its
+     * position-velocity is sampled over the specified window and the resulting
+     * {@link TabulatedCelestialBody} replaces it in the internal cache. All subsequent
+     * calls to {@link #getBody(String)} or similar methods will therefore return
+     * the tabulated body, so this method should be called before the force models,
+     * detectors or attitude laws that use the body are built. If the body was already
+     * tabulated, the new table replaces the previous one. Calling {@link
+     * #clearCelestialBodyCache(String)} reverts to the non-tabulated body.
+     * </p>
+     * @param name name of the celestial body
+     * @param frame inertial frame in which positions are tabulated
+     * @param start start of the tabulation window
+     * @param end end of the tabulation window
+     * @param step approximate step between grid nodes
+     * @return tabulated body
+     * @exception OrekitException if the celestial body cannot be built or tabulated
+     * @since 9.3
+     */
+    public static TabulatedCelestialBody tabulateBody(final String name, final Frame frame,
+                                                      final AbsoluteDate start, final AbsoluteDate end,
+                                                      final double step)
+        throws OrekitException {
+        synchronized (CELESTIAL_BODIES_MAP) {
+            CelestialBody body = getBody(name);
+            if (body instanceof TabulatedCelestialBody) {
+                body = ((TabulatedCelestialBody) body).getUnderlyingBody();
+            }
+            final TabulatedCelestialBody tabulated = new TabulatedCelestialBody(body, frame, start, end, step);
+            CELESTIAL_BODIES_MAP.put(name, tabulated);
+            return tabulated;
+        }
+    }
+
     /** Get the solar system barycenter aggregated body.
      * <p>
      * Both the {@link CelestialBody#getInertiallyOrientedFrame() inertially
@@ -0,0 +1,288 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.bodies;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.TimeStampedFieldPVCoordinates;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/** Celestial body with position-velocity tabulated on a regular time grid.
+ * <p>
+ * Computing the position of the Sun or the Moon from JPL ephemerides involves
+ * finding the proper Chebyshev polynomials, evaluating them and transforming
+ * the result from the ephemerides frame. When many force models and detectors
+ * request the same bodies at nearly identical dates, for example when propagating
+ * all satellites of a constellation over the same time span, this cost becomes
+ * significant. This class samples the position, velocity and acceleration of
+ * an underlying body once, on a regular grid covering a user-defined time window,
+ * and then provides position-velocity by quintic Hermite interpolation between
+ * the two surrounding grid nodes. With one hour steps, the interpolation error
+ * is at the level of the ephemerides numerical noise, except in the intervals
+ * that contain an ephemerides segment boundary, where it reflects the small
+ * discontinuities between Chebyshev segments.
+ * </p>
+ * <p>
+ * The table is expressed in one inertial frame, which should be the frame
+ * used by the propagators (typically GCRF or EME2000), as requests in other frames
+ * need an additional frame transform. Requests for dates outside of the window,
+ * as well as requests using {@link RealFieldElement field} dates, are delegated
+ * to the underlying body.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and can be shared between threads. They can
+ * be registered in place of the underlying body in {@link CelestialBodyFactory} using
+ * {@link CelestialBodyFactory#tabulateBody(String, Frame, AbsoluteDate, AbsoluteDate, double)}.
+ * </p>
+ * @see CelestialBodyFactory#tabulateBody(String, Frame, AbsoluteDate, AbsoluteDate, double)
+ * @since 9.3
+ */
+public class TabulatedCelestialBody implements CelestialBody {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Tolerance on the ratio between the window duration and the step, to avoid a spurious node. */
+    private static final double STEP_TOLERANCE = 1.0e-9;
+
+    /** Underlying body. */
+    private final CelestialBody body;
+
+    /** Frame in which positions are tabulated. */
+    private final Frame frame;
+
+    /** Start of the tabulation window. */
+    private final AbsoluteDate start;
+
+    /** Duration of the tabulation window. */
+    private final double duration;
+
+    /** Step between grid nodes. */
+    private final double step;
+
+    /** Number of grid nodes. */
+    private final int nbNodes;
+
+    /** Position, velocity and acceleration at grid nodes (9 components per node). */
+    private final double[] nodes;
+
+    /** Simple constructor.
+     * <p>
+     * The step is slightly reduced if needed so the grid nodes include both
+     * window boundaries.
+     * </p>
+     * @param body underlying body
+     * @param frame inertial frame in which positions are tabulated
+     * @param start start of the tabulation window
+     * @param end end of the tabulation window
+     * @param step approximate step between grid nodes
+     * @exception OrekitException if the body position cannot be computed, if step
+     * is not strictly positive or if end is not after start
+     */
+    public TabulatedCelestialBody(final CelestialBody body, final Frame frame,
+                                  final AbsoluteDate start, final AbsoluteDate end,
+                                  final double step)
+        throws OrekitException {
+
+        if (step <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, step, 0);
+        }
+        final double span = end.durationFrom(start);
+        if (span <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, span, 0);
+        }
+
+        this.body     = body;
+        this.frame    = frame;
+        this.start    = start;
+        this.duration = span;
+        final int nbSteps = FastMath.max(1, (int) FastMath.ceil(span / step - STEP_TOLERANCE));
+        this.step     = span / nbSteps;
+        this.nbNodes  = nbSteps + 1;
+        this.nodes    = new double[9 * nbNodes];
+
+        for (int i = 0; i < nbNodes; ++i) {
+            final PVCoordinates pv = body.getPVCoordinates(start.shiftedBy(i * this.step), frame);
+            final int k = 9 * i;
+            store(pv.getPosition(),     k);
+            store(pv.getVelocity(),     k + 3);
+            store(pv.getAcceleration(), k + 6);
+        }
+
+    }
+
+    /** Store a vector in the nodes array.
+     * @param v vector to store
+     * @param k index of the first component
+     */
+    private void store(final Vector3D v, final int k) {
+        nodes[k]     = v.getX();
+        nodes[k + 1] = v.getY();
+        nodes[k + 2] = v.getZ();
+    }
+
+    /** Get the underlying body.
+     * @return underlying body
+     */
+    public CelestialBody getUnderlyingBody() {
+        return body;
+    }
+
+    /** Get the frame in which positions are tabulated.
+     * @return frame in which positions are tabulated
+     */
+    public Frame getTabulationFrame() {
+        return frame;
+    }
+
+    /** Get the start of the tabulation window.
+     * @return start of the tabulation window
+     */
+    public AbsoluteDate getStart() {
+        return start;
+    }
+
+    /** Get the end of the tabulation window.
+     * @return end of the tabulation window
+     */
+    public AbsoluteDate getEnd() {
+        return start.shiftedBy(duration);
+    }
+
+    /** Get the step between grid nodes.
+     * @return step between grid nodes
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TimeStampedPVCoordinates getPVCoordinates(final AbsoluteDate date, final Frame outputFrame)
+        throws OrekitException {
+
+        final double offset = date.durationFrom(start);
+        if (offset < 0 || offset > duration) {
+            // outside of the tabulation window
+            return body.getPVCoordinates(date, outputFrame);
+        }
+
+        // quintic Hermite interpolation between the two surrounding nodes
+        final int    i   = FastMath.min(nbNodes - 2, (int) FastMath.floor(offset / step));
+        final double t   = (offset - i * step) / step;
+        final double t2  = t  * t;
+        final double t3  = t2 * t;
+        final double t4  = t3 * t;
+        final double t5  = t4 * t;
+        final double h   = step;
+        final double h2  = h * h;
+
+        // basis functions for position
+        final double p0 = 1 - 10 * t3 + 15 * t4 - 6 * t5;
+        final double v0 = h  * (t - 6 * t3 + 8 * t4 - 3 * t5);
+        final double a0 = h2 * (0.5 * t2 - 1.5 * t3 + 1.5 * t4 - 0.5 * t5);
+        final double p1 = 10 * t3 - 15 * t4 + 6 * t5;
+        final double v1 = h  * (-4 * t3 + 7 * t4 - 3 * t5);
+        final double a1 = h2 * (0.5 * t3 - t4 + 0.5 * t5);
+
+        // basis functions for velocity
+        final double p0d = (-30 * t2 + 60 * t3 - 30 * t4) / h;
+        final double v0d = 1 - 18 * t2 + 32 * t3 - 15 * t4;
+        final double a0d = h * (t - 4.5 * t2 + 6 * t3 - 2.5 * t4);
+        final double p1d = (30 * t2 - 60 * t3 + 30 * t4) / h;
+        final double v1d = -12 * t2 + 28 * t3 - 15 * t4;
+        final double a1d = h * (1.5 * t2 - 4 * t3 + 2.5 * t4);
+
+        // basis functions for acceleration
+        final double p0dd = (-60 * t + 180 * t2 - 120 * t3) / h2;
+        final double v0dd = (-36 * t + 96 * t2 - 60 * t3) / h;
+        final double a0dd = 1 - 9 * t + 18 * t2 - 10 * t3;
+        final double p1dd = (60 * t - 180 * t2 + 120 * t3) / h2;
+        final double v1dd = (-24 * t + 84 * t2 - 60 * t3) / h;
+        final double a1dd = 3 * t - 12 * t2 + 10 * t3;
+
+        final int k0 = 9 * i;
+        final int k1 = k0 + 9;
+        final double[] p = new double[3];
+        final double[] v = new double[3];
+        final double[] a = new double[3];
+        for (int j = 0; j < 3; ++j) {
+            final double pa = nodes[k0 + j];
+            final double va = nodes[k0 + 3 + j];
+            final double aa = nodes[k0 + 6 + j];
+            final double pb = nodes[k1 + j];
+            final double vb = nodes[k1 + 3 + j];
+            final double ab = nodes[k1 + 6 + j];
+            p[j] = p0   * pa + v0   * va + a0   * aa + p1   * pb + v1   * vb + a1   * ab;
+            v[j] = p0d  * pa + v0d  * va + a0d  * aa + p1d  * pb + v1d  * vb + a1d  * ab;
+            a[j] = p0dd * pa + v0dd * va + a0dd * aa + p1dd * pb + v1dd * vb + a1dd * ab;
+        }
+
+        final TimeStampedPVCoordinates pv =
+                        new TimeStampedPVCoordinates(date, new Vector3D(p), new Vector3D(v), new Vector3D(a));
+        if (outputFrame == frame) {
+            return pv;
+        } else {
+            return frame.getTransformTo(outputFrame, date).transformPVCoordinates(pv);
+        }
+
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * Field dates are delegated to the underlying body.
+     * </p>
+     */
+    @Override
+    public <T extends RealFieldElement<T>> TimeStampedFieldPVCoordinates<T> getPVCoordinates(final FieldAbsoluteDate<T> date,
+                                                                                              final Frame outputFrame)
+        throws OrekitException {
+        return body.getPVCoordinates(date, outputFrame);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Frame getInertiallyOrientedFrame() throws OrekitException {
+        return body.getInertiallyOrientedFrame();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Frame getBodyOrientedFrame() throws OrekitException {
+        return body.getBodyOrientedFrame();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return body.getName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getGM() {
+        return body.getGM();
+    }
+
+}
@@ -218,7 +218,16 @@ public enum OrekitMessages implements Localizable {
     DIMENSION_INCONSISTENT_WITH_PARAMETERS("dimension {0} is inconsistent with parameters list: {1}"),
     NOT_A_SUPPORTED_UNIX_COMPRESSED_FILE("file {0} is not a supported Unix-compressed file"),
     UNEXPECTED_END_OF_FILE("unexpected end of file {0}"),
-    CORRUPTED_FILE("file {0} is corrupted");
+    CORRUPTED_FILE("file {0} is corrupted"),
+    NON_CHRONOLOGICAL_MEASUREMENTS("measurements for object {0} are not in chronological order: {1} > {2}"),
+    NOT_A_SUPPORTED_UNDULATION_GRID_FILE("file {0} is not a supported undulation grid file"),
+    INITIAL_STATES_DATES_MISMATCH("initial state date {0} does not match first initial state date {1}"),
+    INITIAL_STATES_MU_MISMATCH("initial state central attraction coefficient {0} does not match first initial state central attraction coefficient {1}"),
+    MEASUREMENTS_NOT_ESTIMATED("measurements must be estimated before being compressed"),
+    KEPLERIAN_JACOBIANS_WITH_PROPAGATION_PARAMETERS("propagation parameters of propagator {0} cannot be estimated with Keplerian Jacobians"),
+    MISSING_FROZEN_JACOBIANS("no frozen Jacobians available for measurement at {0}"),
+    CHEBYSHEV_FIT_TOLERANCE_NOT_MET("cannot fit rotation at {0} within tolerance {1} rad, error at check points is {2} rad"),
+    STEPS_STORE_CLOSED("compact steps store has already been closed");
 
 
     // CHECKSTYLE: resume JavadocVariable check
@@ -0,0 +1,666 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.iod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.frames.Frame;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.OrbitConversionKernel;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+
+/** Batch initial orbit determination service.
+ * <p>
+ * This class solves large sets of independent initial orbit determination
+ * problems, as needed for example when associating uncorrelated tracks by
+ * trying all tracklet pairs or triplets. Observations are provided as flat
+ * primitive arrays, problems are solved concurrently on a fixed-size pool
+ * of threads, and results are gathered in a compact {@link IodBatchResult}.
+ * </p>
+ * <p>
+ * Lambert problems explore all numbers of revolutions up to a user-specified
+ * maximum, both directions of motion and, for multi-revolution transfers,
+ * both branches. Each (problem, number of revolutions) pair is an independent
+ * work unit, so the multi-revolution branches of one problem are explored
+ * concurrently. Infeasible candidates are rejected before solving (collinear
+ * positions, time of flight shorter than the minimum for the number of
+ * revolutions), and solutions are rejected after solving if their perigee or
+ * apogee radius is outside of the admissible range.
+ * </p>
+ * <p>
+ * Gibbs and Gooding problems are rejected early if their geometry is
+ * inconsistent (non-coplanar positions, unordered dates).
+ * </p>
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ * </p>
+ * @see IodLambert
+ * @see IodGibbs
+ * @see IodGooding
+ * @since 9.3
+ */
+public class BatchIodSolver {
+
+    /** Default threshold for checking coplanar vectors in Gibbs problems. */
+    public static final double DEFAULT_COPLANARITY_THRESHOLD = FastMath.toRadians(5.);
+
+    /** Default relative tolerance on position mismatch for Lambert problems. */
+    public static final double DEFAULT_LAMBERT_TOLERANCE = 1.0e-6;
+
+    /** Default tolerance on line of sight misalignment for Gooding problems (rad). */
+    public static final double DEFAULT_LINE_OF_SIGHT_TOLERANCE = 1.0e-6;
+
+    /** Minimum sine of the angle between Lambert positions. */
+    private static final double MIN_SINE = 1.0e-10;
+
+    /** Number of work units per thread (for load balancing). */
+    private static final int UNITS_PER_THREAD = 8;
+
+    /** Frame in which observations are given. */
+    private final Frame frame;
+
+    /** Central attraction coefficient. */
+    private final double mu;
+
+    /** Number of threads. */
+    private final int threads;
+
+    /** Minimum admissible perigee radius. */
+    private final double minPerigeeRadius;
+
+    /** Maximum admissible apogee radius. */
+    private final double maxApogeeRadius;
+
+    /** Coplanarity threshold for Gibbs problems. */
+    private final double coplanarityThreshold;
+
+    /** Relative position tolerance for Lambert problems. */
+    private final double lambertTolerance;
+
+    /** Line of sight tolerance for Gooding problems. */
+    private final double lineOfSightTolerance;
+
+    /** Simple constructor.
+     * <p>
+     * All orbits are admissible, and default tolerances are used.
+     * </p>
+     * @param frame frame in which observations are given
+     * @param mu central attraction coefficient (m³/s²)
+     * @param threads number of threads to use
+     */
+    public BatchIodSolver(final Frame frame, final double mu, final int threads) {
+        this(frame, mu, threads, 0.0, Double.POSITIVE_INFINITY, DEFAULT_COPLANARITY_THRESHOLD,
+             DEFAULT_LAMBERT_TOLERANCE, DEFAULT_LINE_OF_SIGHT_TOLERANCE);
+    }
+
+    /** Private constructor.
+     * @param frame frame in which observations are given
+     * @param mu central attraction coefficient (m³/s²)
+     * @param threads number of threads to use
+     * @param minPerigeeRadius minimum admissible perigee radius (m)
+     * @param maxApogeeRadius maximum admissible apogee radius (m)
+     * @param coplanarityThreshold coplanarity threshold for Gibbs problems (rad)
+     * @param lambertTolerance relative position tolerance for Lambert problems
+     * @param lineOfSightTolerance line of sight tolerance for Gooding problems (rad)
+     */
+    private BatchIodSolver(final Frame frame, final double mu, final int threads,
+                           final double minPerigeeRadius, final double maxApogeeRadius,
+                           final double coplanarityThreshold,
+                           final double lambertTolerance, final double lineOfSightTolerance) {
+        if (threads < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, threads, 1);
+        }
+        this.frame                = frame;
+        this.mu                   = mu;
+        this.threads              = threads;
+        this.minPerigeeRadius     = minPerigeeRadius;
+        this.maxApogeeRadius      = maxApogeeRadius;
+        this.coplanarityThreshold = coplanarityThreshold;
+        this.lambertTolerance     = lambertTolerance;
+        this.lineOfSightTolerance = lineOfSightTolerance;
+    }
+
+    /** Set the admissible orbits.
+     * <p>
+     * Hyperbolic orbits have an infinite apogee radius, they are therefore
+     * rejected as soon as the maximum apogee radius is finite.
+     * </p>
+     * @param newMinPerigeeRadius minimum admissible perigee radius (m)
+     * @param newMaxApogeeRadius maximum admissible apogee radius (m)
+     * @return a new solver with updated configuration (the instance is not changed)
+     */
+    public BatchIodSolver withAdmissibleRadii(final double newMinPerigeeRadius, final double newMaxApogeeRadius) {
+        return new BatchIodSolver(frame, mu, threads, newMinPerigeeRadius, newMaxApogeeRadius,
+                                  coplanarityThreshold, lambertTolerance, lineOfSightTolerance);
+    }
+
+    /** Set the coplanarity threshold for Gibbs problems.
+     * @param newCoplanarityThreshold maximum angle between the first position
+     * and the plane of the two other positions (rad)
+     * @return a new solver with updated configuration (the instance is not changed)
+     */
+    public BatchIodSolver withCoplanarityThreshold(final double newCoplanarityThreshold) {
+        return new BatchIodSolver(frame, mu, threads, minPerigeeRadius, maxApogeeRadius,
+                                  newCoplanarityThreshold, lambertTolerance, lineOfSightTolerance);
+    }
+
+    /** Set the convergence tolerances.
+     * @param newLambertTolerance relative position mismatch tolerance at second date
+     * for Lambert problems
+     * @param newLineOfSightTolerance line of sight misalignment tolerance for Gooding problems (rad)
+     * @return a new solver with updated configuration (the instance is not changed)
+     */
+    public BatchIodSolver withTolerances(final double newLambertTolerance, final double newLineOfSightTolerance) {
+        return new BatchIodSolver(frame, mu, threads, minPerigeeRadius, maxApogeeRadius,
+                                  coplanarityThreshold, newLambertTolerance, newLineOfSightTolerance);
+    }
+
+    /** Get the number of candidate slots per problem for Lambert batches.
+     * <p>
+     * Slots 0 and 1 correspond to zero revolutions, with posigrade and retrograde motion.
+     * For n ≥ 1 revolutions, slots 2 + 4 (n - 1) to 5 + 4 (n - 1) correspond to posigrade
+     * left branch, posigrade right branch, retrograde left branch and retrograde right branch.
+     * </p>
+     * @param maxRevolutions maximum number of revolutions
+     * @return number of candidate slots per problem
+     */
+    public static int getLambertCandidatesNumber(final int maxRevolutions) {
+        return 2 + 4 * maxRevolutions;
+    }
+
+    /** Solve a batch of Lambert problems.
+     * <p>
+     * Positions are given in the observations frame, 3 components per problem.
+     * The position-velocity of the solutions are given at the first date.
+     * </p>
+     * @param positions1 positions at first dates (3 × n elements)
+     * @param positions2 positions at second dates (3 × n elements)
+     * @param timesOfFlight durations between first and second dates (n elements, s)
+     * @param maxRevolutions maximum number of revolutions to explore
+     * @return batch results
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    public IodBatchResult solveLambert(final double[] positions1, final double[] positions2,
+                                       final double[] timesOfFlight, final int maxRevolutions)
+        throws OrekitException {
+
+        final int            problems = timesOfFlight.length;
+        final int            perUnit  = maxRevolutions + 1;
+        final IodBatchResult result   = new IodBatchResult(problems, getLambertCandidatesNumber(maxRevolutions));
+        run(problems * perUnit, () -> new LambertWorker(result), (worker, unit) -> {
+            final int problem = unit / perUnit;
+            worker.solve(problem, unit - problem * perUnit,
+                         new Vector3D(positions1[3 * problem], positions1[3 * problem + 1], positions1[3 * problem + 2]),
+                         new Vector3D(positions2[3 * problem], positions2[3 * problem + 1], positions2[3 * problem + 2]),
+                         timesOfFlight[problem]);
+        });
+        return result;
+
+    }
+
+    /** Solve a batch of Gibbs problems.
+     * <p>
+     * Positions are given in the observations frame, 3 components per problem.
+     * The position-velocity of the solutions are given at the second date.
+     * </p>
+     * @param positions1 positions at first dates (3 × n elements)
+     * @param positions2 positions at second dates (3 × n elements)
+     * @param positions3 positions at third dates (3 × n elements)
+     * @return batch results
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    public IodBatchResult solveGibbs(final double[] positions1, final double[] positions2,
+                                     final double[] positions3)
+        throws OrekitException {
+
+        final int            problems = positions1.length / 3;
+        final IodBatchResult result   = new IodBatchResult(problems, 1);
+        final AbsoluteDate   date     = AbsoluteDate.J2000_EPOCH;
+        run(problems, () -> new IodGibbs(mu), (gibbs, problem) -> {
+
+            final Vector3D r1 = new Vector3D(positions1[3 * problem], positions1[3 * problem + 1], positions1[3 * problem + 2]);
+            final Vector3D r2 = new Vector3D(positions2[3 * problem], positions2[3 * problem + 1], positions2[3 * problem + 2]);
+            final Vector3D r3 = new Vector3D(positions3[3 * problem], positions3[3 * problem + 1], positions3[3 * problem + 2]);
+
+            // early rejection of non-coplanar positions
+            final double num   = r1.normalize().dotProduct(r2.normalize().crossProduct(r3.normalize()));
+            final double alpha = FastMath.abs(0.5 * FastMath.PI - FastMath.acos(num));
+            if (!(alpha <= coplanarityThreshold)) {
+                result.setOutcome(problem, 0, IodBatchResult.Status.REJECTED, null, alpha);
+                return;
+            }
+
+            try {
+                final PVCoordinates pv = gibbs.estimate(frame, r1, date, r2, date, r3, date).getPVCoordinates();
+                store(result, problem, 0, pv.getPosition(), pv.getVelocity(), alpha);
+            } catch (MathRuntimeException | IllegalArgumentException e) {
+                result.setOutcome(problem, 0, IodBatchResult.Status.FAILED, null, alpha);
+            }
+
+        });
+        return result;
+
+    }
+
+    /** Solve a batch of Gooding problems.
+     * <p>
+     * Observer positions and lines of sight are given in the observations frame,
+     * 9 components per problem (three 3D vectors). The position-velocity of the
+     * solutions are given at the second date.
+     * </p>
+     * @param observers observer positions at the three dates (9 × n elements)
+     * @param linesOfSight unit lines of sight at the three dates (9 × n elements)
+     * @param durations durations from first date to second and third dates (2 × n elements, s)
+     * @param rangeGuesses initial guesses for the ranges at first and third dates (2 × n elements, m)
+     * @return batch results
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    public IodBatchResult solveGooding(final double[] observers, final double[] linesOfSight,
+                                       final double[] durations, final double[] rangeGuesses)
+        throws OrekitException {
+
+        final int            problems = durations.length / 2;
+        final IodBatchResult result   = new IodBatchResult(problems, 1);
+        run(problems, () -> new GoodingWorker(result), (worker, problem) -> {
+
+            // early rejection of unordered dates
+            final double dt12 = durations[2 * problem];
+            final double dt13 = durations[2 * problem + 1];
+            if (!(dt12 > 0 && dt13 > dt12)) {
+                return;
+            }
+
+            worker.solve(problem, observers, linesOfSight, 9 * problem, dt12, dt13,
+                         rangeGuesses[2 * problem], rangeGuesses[2 * problem + 1]);
+
+        });
+        return result;
+
+    }
+
+    /** Store a solution, checking its admissibility.
+     * @param result batch result to update
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @param p position
+     * @param v velocity
+     * @param residual convergence residual
+     */
+    private void store(final IodBatchResult result, final int problem, final int candidate,
+                       final Vector3D p, final Vector3D v, final double residual) {
+
+        // compute perigee and apogee radii
+        final double r      = p.getNorm();
+        final double energy = 0.5 * v.getNormSq() - mu / r;
+        final double h2     = Vector3D.crossProduct(p, v).getNormSq();
+        final double e      = FastMath.sqrt(FastMath.max(0.0, 1 + 2 * energy * h2 / (mu * mu)));
+        final double rp     = h2 / (mu * (1 + e));
+        final double ra     = (energy < 0 && e < 1) ? -mu * (1 + e) / (2 * energy) : Double.POSITIVE_INFINITY;
+
+        if (rp >= minPerigeeRadius && ra <= maxApogeeRadius) {
+            result.setOutcome(problem, candidate, IodBatchResult.Status.CONVERGED,
+                              new double[] {
+                                  p.getX(), p.getY(), p.getZ(), v.getX(), v.getY(), v.getZ()
+                              }, residual);
+        } else {
+            result.setOutcome(problem, candidate, IodBatchResult.Status.REJECTED, null, residual);
+        }
+
+    }
+
+    /** Propagate Cartesian parameters using Keplerian motion.
+     * @param kernel conversion kernel dedicated to the current thread
+     * @param pv position-velocity to propagate, replaced by propagated position-velocity
+     * @param elements buffer for Keplerian parameters
+     * @param dt propagation duration
+     */
+    private void propagateKepler(final OrbitConversionKernel kernel, final double[] pv,
+                                 final double[] elements, final double dt) {
+        kernel.fromCartesian(OrbitType.KEPLERIAN, PositionAngle.MEAN, pv, 0, mu, elements, 0);
+        final double absA = FastMath.abs(elements[0]);
+        elements[5] += FastMath.sqrt(mu / (absA * absA * absA)) * dt;
+        kernel.toCartesian(OrbitType.KEPLERIAN, PositionAngle.MEAN, elements, 0, mu, pv, 0);
+    }
+
+    /** Set a position-velocity buffer.
+     * @param p position
+     * @param v velocity
+     * @param pv buffer to set
+     */
+    private static void setPV(final Vector3D p, final Vector3D v, final double[] pv) {
+        pv[0] = p.getX();
+        pv[1] = p.getY();
+        pv[2] = p.getZ();
+        pv[3] = v.getX();
+        pv[4] = v.getY();
+        pv[5] = v.getZ();
+    }
+
+    /** Extract a vector from a flat array.
+     * @param array flat array
+     * @param offset index of the first component
+     * @return extracted vector
+     */
+    private static Vector3D vector(final double[] array, final int offset) {
+        return new Vector3D(array[offset], array[offset + 1], array[offset + 2]);
+    }
+
+    /** Run work units on the thread pool.
+     * @param units number of work units
+     * @param workerFactory factory for per-chunk worker state
+     * @param task task to run for each work unit
+     * @param <W> type of the per-chunk worker state
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    private <W> void run(final int units, final WorkerFactory<W> workerFactory, final UnitTask<W> task)
+        throws OrekitException {
+
+        if (units == 0) {
+            return;
+        }
+
+        // split work units in contiguous chunks
+        final int nbChunks  = FastMath.min(units, threads * UNITS_PER_THREAD);
+        final int chunkSize = (units + nbChunks - 1) / nbChunks;
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(FastMath.min(threads, nbChunks));
+        try {
+
+            final List<Future<?>> futures = new ArrayList<>(nbChunks);
+            for (int start = 0; start < units; start += chunkSize) {
+                final int chunkStart = start;
+                final int chunkEnd   = FastMath.min(units, start + chunkSize);
+                futures.add(executorService.submit(() -> {
+                    final W worker = workerFactory.create();
+                    for (int unit = chunkStart; unit < chunkEnd; ++unit) {
+                        task.run(worker, unit);
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+                } catch (ExecutionException ee) {
+                    // solver errors are isolated in the tasks, only unexpected errors reach this point
+                    if (ee.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ee.getCause();
+                    } else {
+                        throw new OrekitException(ee.getCause(), LocalizedCoreFormats.SIMPLE_MESSAGE,
+                                                  ee.getCause().getLocalizedMessage());
+                    }
+                }
+            }
+
+        } finally {
+            executorService.shutdownNow();
+        }
+
+    }
+
+    /** Factory for per-chunk worker state.
+     * @param <W> type of the worker state
+     */
+    private interface WorkerFactory<W> {
+
+        /** Create a worker state.
+         * @return new worker state
+         */
+        W create();
+
+    }
+
+    /** Task for one work unit.
+     * @param <W> type of the worker state
+     */
+    private interface UnitTask<W> {
+
+        /** Run the task.
+         * @param worker worker state, dedicated to the current thread
+         * @param unit index of the work unit
+         */
+        void run(W worker, int unit);
+
+    }
+
+    /** Worker solving Lambert problems for one number of revolutions. */
+    private class LambertWorker {
+
+        /** Batch result to update. */
+        private final IodBatchResult result;
+
+        /** Lambert solver for non-dimensional units. */
+        private final IodLambert lambert;
+
+        /** Conversion kernel for checking solutions. */
+        private final OrbitConversionKernel kernel;
+
+        /** Velocity in the (R, T) basis. */
+        private final double[] vDep;
+
+        /** Buffer for Cartesian parameters. */
+        private final double[] pv;
+
+        /** Buffer for Keplerian parameters. */
+        private final double[] elements;
+
+        /** Simple constructor.
+         * @param result batch result to update
+         */
+        LambertWorker(final IodBatchResult result) {
+            this.result   = result;
+            this.lambert  = new IodLambert(1.);
+            this.kernel   = new OrbitConversionKernel();
+            this.vDep     = new double[2];
+            this.pv       = new double[6];
+            this.elements = new double[6];
+        }
+
+        /** Solve all candidates of one problem for one number of revolutions.
+         * @param problem index of the problem
+         * @param nRev number of revolutions
+         * @param p1 position at first date
+         * @param p2 position at second date
+         * @param tof time of flight
+         */
+        void solve(final int problem, final int nRev, final Vector3D p1, final Vector3D p2, final double tof) {
+
+            final int first = (nRev == 0) ? 0 : 2 + 4 * (nRev - 1);
+            final int slots = (nRev == 0) ? 2 : 4;
+            for (int k = 0; k < slots; ++k) {
+                result.setDescription(problem, first + k, nRev, k < slots / 2, nRev > 0 && (k % 2) == 0);
+            }
+
+            final double r1 = p1.getNorm();
+            final double r2 = p2.getNorm();
+
+            // early rejection of infeasible geometries
+            final Vector3D pn = Vector3D.crossProduct(p1, p2);
+            if (!(tof > 0) || pn.getNorm() < MIN_SINE * r1 * r2) {
+                return;
+            }
+            if (nRev > 0) {
+                // any transfer with nRev revolutions lasts longer than nRev periods
+                // of the minimum energy ellipse
+                final double chord = Vector3D.distance(p1, p2);
+                final double aMin  = 0.25 * (r1 + r2 + chord);
+                if (tof < nRev * 2 * FastMath.PI * FastMath.sqrt(aMin * aMin * aMin / mu)) {
+                    return;
+                }
+            }
+
+            // normalizing constants
+            final double   R     = FastMath.max(r1, r2);
+            final double   V     = FastMath.sqrt(mu / R);
+            final double   T     = R / V;
+            final double   angle = Vector3D.angle(p1, p2);
+            final Vector3D pt    = Vector3D.crossProduct(pn, p1);
+
+            for (int k = 0; k < slots; ++k) {
+                final boolean posigrade = k < slots / 2;
+                final boolean left      = (k % 2) == 0;
+                final double  dth       = (posigrade ? angle : 2 * FastMath.PI - angle) + nRev * 2 * FastMath.PI;
+                try {
+                    if (lambert.solveLambertPb(r1 / R, r2 / R, dth, tof / T, left ? nRev : -nRev, vDep)) {
+                        final double   rt = posigrade ? pt.getNorm() : -pt.getNorm();
+                        final Vector3D v1 = new Vector3D(V * vDep[0] / r1, p1, V * vDep[1] / rt, pt);
+                        final double residual = checkArrival(p1, v1, p2, tof);
+                        if (residual <= lambertTolerance) {
+                            store(result, problem, first + k, p1, v1, residual);
+                        } else {
+                            result.setOutcome(problem, first + k, IodBatchResult.Status.FAILED, null, residual);
+                        }
+                    } else {
+                        result.setOutcome(problem, first + k, IodBatchResult.Status.FAILED, null, Double.NaN);
+                    }
+                } catch (MathRuntimeException | IllegalArgumentException e) {
+                    result.setOutcome(problem, first + k, IodBatchResult.Status.FAILED, null, Double.NaN);
+                }
+            }
+
+        }
+
+        /** Check arrival of a Lambert solution.
+         * @param p1 position at first date
+         * @param v1 velocity at first date
+         * @param p2 expected position at second date
+         * @param tof time of flight
+         * @return relative position mismatch at second date (NaN if solution is not usable)
+         */
+        private double checkArrival(final Vector3D p1, final Vector3D v1, final Vector3D p2, final double tof) {
+            setPV(p1, v1, pv);
+            propagateKepler(kernel, pv, elements, tof);
+            final double dx = pv[0] - p2.getX();
+            final double dy = pv[1] - p2.getY();
+            final double dz = pv[2] - p2.getZ();
+            return FastMath.sqrt(dx * dx + dy * dy + dz * dz) / p2.getNorm();
+        }
+
+    }
+
+    /** Worker solving Gooding problems. */
+    private class GoodingWorker {
+
+        /** Batch result to update. */
+        private final IodBatchResult result;
+
+        /** Gooding solver. */
+        private final IodGooding gooding;
+
+        /** Conversion kernel for checking solutions. */
+        private final OrbitConversionKernel kernel;
+
+        /** Buffer for Cartesian parameters. */
+        private final double[] pv;
+
+        /** Buffer for Keplerian parameters. */
+        private final double[] elements;
+
+        /** Simple constructor.
+         * @param result batch result to update
+         */
+        GoodingWorker(final IodBatchResult result) {
+            this.result   = result;
+            this.gooding  = new IodGooding(frame, mu);
+            this.kernel   = new OrbitConversionKernel();
+            this.pv       = new double[6];
+            this.elements = new double[6];
+        }
+
+        /** Solve one problem.
+         * @param problem index of the problem
+         * @param observers observer positions at the three dates
+         * @param linesOfSight unit lines of sight at the three dates
+         * @param offset index of the first component of the problem in the arrays
+         * @param dt12 duration from first date to second date
+         * @param dt13 duration from first date to third date
+         * @param rho1 initial guess for range at first date
+         * @param rho3 initial guess for range at third date
+         */
+        void solve(final int problem, final double[] observers, final double[] linesOfSight, final int offset,
+                   final double dt12, final double dt13, final double rho1, final double rho3) {
+
+            final Vector3D     o1    = vector(observers, offset);
+            final Vector3D     o2    = vector(observers, offset + 3);
+            final Vector3D     o3    = vector(observers, offset + 6);
+            final Vector3D     los1  = vector(linesOfSight, offset);
+            final Vector3D     los2  = vector(linesOfSight, offset + 3);
+            final Vector3D     los3  = vector(linesOfSight, offset + 6);
+            final AbsoluteDate date1 = AbsoluteDate.J2000_EPOCH;
+            try {
+                final KeplerianOrbit orbit = gooding.estimate(o1, o2, o3,
+                                                              los1, date1,
+                                                              los2, date1.shiftedBy(dt12),
+                                                              los3, date1.shiftedBy(dt13),
+                                                              rho1, rho3);
+                if (orbit == null) {
+                    // one of the Lambert sub-problems could not be solved
+                    result.setOutcome(problem, 0, IodBatchResult.Status.FAILED, null, Double.NaN);
+                    return;
+                }
+                final PVCoordinates solution = orbit.getPVCoordinates();
+
+                // the solution is exactly on the second line of sight by construction,
+                // the residual is the misalignment with respect to the other lines of sight
+                final double residual = FastMath.max(misalignment(solution, o1, los1, -dt12),
+                                                     misalignment(solution, o3, los3, dt13 - dt12));
+                if (residual <= lineOfSightTolerance) {
+                    store(result, problem, 0, solution.getPosition(), solution.getVelocity(), residual);
+                } else {
+                    result.setOutcome(problem, 0, IodBatchResult.Status.FAILED, null, residual);
+                }
+            } catch (MathRuntimeException | IllegalArgumentException e) {
+                result.setOutcome(problem, 0, IodBatchResult.Status.FAILED, null, Double.NaN);
+            }
+
+        }
+
+        /** Compute misalignment of a solution with respect to an observation.
+         * @param solution solution at second date
+         * @param observer observer position at observation date
+         * @param lineOfSight observed line of sight
+         * @param dt duration from second date to observation date
+         * @return misalignment angle (NaN if solution is not usable)
+         */
+        private double misalignment(final PVCoordinates solution, final Vector3D observer,
+                                    final Vector3D lineOfSight, final double dt) {
+            setPV(solution.getPosition(), solution.getVelocity(), pv);
+            propagateKepler(kernel, pv, elements, dt);
+            final Vector3D relative = new Vector3D(pv[0], pv[1], pv[2]).subtract(observer);
+            return Vector3D.angle(lineOfSight, relative);
+        }
+
+    }
+
+}
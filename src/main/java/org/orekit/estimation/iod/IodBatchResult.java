@@ -0,0 +1,246 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.iod;
+
+import java.util.Arrays;
+
+/** Compact container for the results of a {@link BatchIodSolver batch} of initial orbit determinations.
+ * <p>
+ * Each problem of the batch has the same number of candidate slots. Lambert problems
+ * use several slots, one for each direction of motion, number of revolutions and branch
+ * explored, whereas Gibbs and Gooding problems use only one slot. Each slot holds a status,
+ * a position-velocity (in the observations frame, at the reference date of the problem),
+ * and a convergence residual.
+ * </p>
+ * @see BatchIodSolver
+ * @since 9.3
+ */
+public class IodBatchResult {
+
+    /** Status of one candidate solution. */
+    public enum Status {
+
+        /** Solution converged and is admissible. */
+        CONVERGED,
+
+        /** Problem was rejected before or after solving (infeasible geometry,
+         * inadmissible orbit...). */
+        REJECTED,
+
+        /** Solver failed to converge. */
+        FAILED;
+
+    }
+
+    /** Number of problems. */
+    private final int problems;
+
+    /** Number of candidate slots per problem. */
+    private final int candidates;
+
+    /** Status of all slots. */
+    private final Status[] status;
+
+    /** Position-velocity of all slots (6 elements per slot). */
+    private final double[] pv;
+
+    /** Convergence residuals of all slots. */
+    private final double[] residuals;
+
+    /** Number of revolutions of all slots. */
+    private final int[] revolutions;
+
+    /** Direction of motion of all slots. */
+    private final boolean[] posigrade;
+
+    /** Multi-revolution branch of all slots. */
+    private final boolean[] leftBranch;
+
+    /** Simple constructor.
+     * <p>
+     * All slots are initialized as {@link Status#REJECTED rejected}.
+     * </p>
+     * @param problems number of problems
+     * @param candidates number of candidate slots per problem
+     */
+    IodBatchResult(final int problems, final int candidates) {
+        final int slots  = problems * candidates;
+        this.problems    = problems;
+        this.candidates  = candidates;
+        this.status      = new Status[slots];
+        this.pv          = new double[6 * slots];
+        this.residuals   = new double[slots];
+        this.revolutions = new int[slots];
+        this.posigrade   = new boolean[slots];
+        this.leftBranch  = new boolean[slots];
+        Arrays.fill(status, Status.REJECTED);
+        Arrays.fill(pv, Double.NaN);
+        Arrays.fill(residuals, Double.NaN);
+    }
+
+    /** Get the number of problems.
+     * @return number of problems
+     */
+    public int getProblemsNumber() {
+        return problems;
+    }
+
+    /** Get the number of candidate slots per problem.
+     * @return number of candidate slots per problem
+     */
+    public int getCandidatesNumber() {
+        return candidates;
+    }
+
+    /** Get the number of converged candidates over the whole batch.
+     * @return number of converged candidates
+     */
+    public int getConvergedNumber() {
+        int count = 0;
+        for (final Status s : status) {
+            if (s == Status.CONVERGED) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /** Get the status of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return status of the candidate
+     */
+    public Status getStatus(final int problem, final int candidate) {
+        return status[slot(problem, candidate)];
+    }
+
+    /** Get the position-velocity of a candidate.
+     * <p>
+     * Position-velocity is set to NaN for candidates that are not {@link Status#CONVERGED converged}.
+     * </p>
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @param array array where to put the position and velocity components
+     * @param offset index of the first component in the array
+     */
+    public void getPV(final int problem, final int candidate, final double[] array, final int offset) {
+        System.arraycopy(pv, 6 * slot(problem, candidate), array, offset, 6);
+    }
+
+    /** Get the convergence residual of a candidate.
+     * <p>
+     * The meaning of the residual depends on the problem type: relative position
+     * mismatch at second date for Lambert problems, coplanarity angle for Gibbs
+     * problems and line of sight misalignment angle for Gooding problems.
+     * </p>
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return convergence residual (NaN if the candidate was rejected before solving)
+     */
+    public double getResidual(final int problem, final int candidate) {
+        return residuals[slot(problem, candidate)];
+    }
+
+    /** Get the number of revolutions of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return number of revolutions
+     */
+    public int getRevolutions(final int problem, final int candidate) {
+        return revolutions[slot(problem, candidate)];
+    }
+
+    /** Check the direction of motion of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return true if candidate corresponds to posigrade motion
+     * @see IodLambert#estimate(org.orekit.frames.Frame, boolean, int,
+     * org.hipparchus.geometry.euclidean.threed.Vector3D, org.orekit.time.AbsoluteDate,
+     * org.hipparchus.geometry.euclidean.threed.Vector3D, org.orekit.time.AbsoluteDate)
+     */
+    public boolean isPosigrade(final int problem, final int candidate) {
+        return posigrade[slot(problem, candidate)];
+    }
+
+    /** Check the multi-revolution branch of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return true if candidate corresponds to left branch (meaningless for zero revolutions)
+     */
+    public boolean isLeftBranch(final int problem, final int candidate) {
+        return leftBranch[slot(problem, candidate)];
+    }
+
+    /** Get the converged candidate with smallest residual for one problem.
+     * @param problem index of the problem
+     * @return index of the best candidate, or -1 if no candidate converged
+     */
+    public int getBestCandidate(final int problem) {
+        int    best         = -1;
+        double bestResidual = Double.POSITIVE_INFINITY;
+        for (int candidate = 0; candidate < candidates; ++candidate) {
+            final int s = slot(problem, candidate);
+            if (status[s] == Status.CONVERGED && residuals[s] < bestResidual) {
+                best         = candidate;
+                bestResidual = residuals[s];
+            }
+        }
+        return best;
+    }
+
+    /** Set the description of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @param nRev number of revolutions
+     * @param isPosigrade direction of motion
+     * @param isLeftBranch multi-revolution branch
+     */
+    void setDescription(final int problem, final int candidate, final int nRev,
+                        final boolean isPosigrade, final boolean isLeftBranch) {
+        final int s    = slot(problem, candidate);
+        revolutions[s] = nRev;
+        posigrade[s]   = isPosigrade;
+        leftBranch[s]  = isLeftBranch;
+    }
+
+    /** Set the outcome of a candidate.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @param candidateStatus status of the candidate
+     * @param candidatePV position-velocity (only used if status is {@link Status#CONVERGED})
+     * @param residual convergence residual
+     */
+    void setOutcome(final int problem, final int candidate, final Status candidateStatus,
+                    final double[] candidatePV, final double residual) {
+        final int s  = slot(problem, candidate);
+        status[s]    = candidateStatus;
+        residuals[s] = residual;
+        if (candidateStatus == Status.CONVERGED) {
+            System.arraycopy(candidatePV, 0, pv, 6 * s, 6);
+        }
+    }
+
+    /** Get the index of a slot.
+     * @param problem index of the problem
+     * @param candidate index of the candidate slot
+     * @return index of the slot
+     */
+    private int slot(final int problem, final int candidate) {
+        return problem * candidates + candidate;
+    }
+
+}
@@ -140,7 +140,8 @@ public class IodGooding {
      * @param dateObs3 date of observation 1
      * @param rho1init initial guess of the range problem. range 1, in meters
      * @param rho3init initial guess of the range problem. range 3, in meters
-     * @return an estimate of the Keplerian orbit
+     * @return an estimate of the Keplerian orbit, or null if Lambert's problem
+     * could not be solved while solving the range problem
      */
     public KeplerianOrbit estimate(final Vector3D O1, final Vector3D O2, final Vector3D O3,
                                    final Vector3D lineOfSight1, final AbsoluteDate dateObs1,
@@ -165,12 +166,14 @@ public class IodGooding {
         final int maxiter = 100; // maximum iter
 
         // solve the range problem
-        solveRangeProblem(rho1init / R, rho3init / R,
-                          dateObs3.durationFrom(dateObs1) / T, dateObs2.durationFrom(dateObs1) / T,
-                          0,
-                          true,
-                          lineOfSight1, lineOfSight2, lineOfSight3,
-                          maxiter);
+        if (!solveRangeProblem(rho1init / R, rho3init / R,
+                               dateObs3.durationFrom(dateObs1) / T, dateObs2.durationFrom(dateObs1) / T,
+                               0,
+                               true,
+                               lineOfSight1, lineOfSight2, lineOfSight3,
+                               maxiter)) {
+            return null;
+        }
 
         // use the Gibbs problem to get the orbit now that we have three position vectors.
         final IodGibbs gibbs = new IodGibbs(mu);
@@ -192,7 +195,7 @@ public class IodGooding {
      * @param lineOfSight2  line of sight 2
      * @param lineOfSight3  line of sight 3
      * @param maxIterations         max iter
-     * @return nothing
+     * @return false if Lambert's problem solver failed while computing derivatives
      */
     private boolean solveRangeProblem(final double rho1init, final double rho3init,
                                       final double T13, final double T12,
@@ -263,16 +266,18 @@ public class IodGooding {
                 // Now get partials, by finite differences
                 final double[] FD = new double[2];
                 final double[] GD = new double[2];
-                computeDerivatives(rho1, rho3,
-                                   R10, R30,
-                                   lineOfSight1, lineOfSight3,
-                                   P, EN,
-                                   Fc,
-                                   T13, T12,
-                                   withHalley,
-                                   nrev,
-                                   direction,
-                                   FD, GD);
+                if (!computeDerivatives(rho1, rho3,
+                                        R10, R30,
+                                        lineOfSight1, lineOfSight3,
+                                        P, EN,
+                                        Fc,
+                                        T13, T12,
+                                        withHalley,
+                                        nrev,
+                                        direction,
+                                        FD, GD)) {
+                    return false;
+                }
 
                 // terms of the Jacobian
                 final double fr1 = FD[0];
@@ -349,8 +354,9 @@ public class IodGooding {
      * @param direction direction of motion
      * @param FD    derivatives of f wrt (rho1, rho3) by finite differences
      * @param GD    derivatives of g wrt (rho1, rho3) by finite differences
+     * @return false if Lambert's problem solver failed at one of the differentiation points
      */
-    private void computeDerivatives(final double x, final double y,
+    private boolean computeDerivatives(final double x, final double y,
                                     final double R10, final double R30,
                                     final Vector3D lineOfSight1, final Vector3D lineOfSight3,
                                     final Vector3D Pin,
@@ -370,16 +376,29 @@ public class IodGooding {
         final double dx = facFiniteDiff * x;
         final double dy = facFiniteDiff * y;
 
-        final Vector3D Cm1 = getPositionOnLoS2 (lineOfSight1, x - dx,
+        final Vector3D Pm1 = getPositionOnLoS2 (lineOfSight1, x - dx,
+                                                lineOfSight3, y,
+                                                T13, T12, nrev, direction);
+        final Vector3D Pp1 = getPositionOnLoS2 (lineOfSight1, x + dx,
                                                 lineOfSight3, y,
-                                                T13, T12, nrev, direction).subtract(vObserverPosition2);
+                                                T13, T12, nrev, direction);
+        final Vector3D Pm3 = getPositionOnLoS2 (lineOfSight1, x,
+                                                lineOfSight3, y - dy,
+                                                T13, T12, nrev, direction);
+        final Vector3D Pp3 = getPositionOnLoS2 (lineOfSight1, x,
+                                                lineOfSight3, y + dy,
+                                                T13, T12, nrev, direction);
+        if (Pm1 == null || Pp1 == null || Pm3 == null || Pp3 == null) {
+            // Lambert's problem solver failed, derivatives cannot be computed
+            return false;
+        }
+
+        final Vector3D Cm1 = Pm1.subtract(vObserverPosition2);
 
         final double Fm1 = P.dotProduct(Cm1);
         final double Gm1 = EN.dotProduct(Cm1);
 
-        final Vector3D Cp1 = getPositionOnLoS2 (lineOfSight1, x + dx,
-                                                lineOfSight3, y,
-                                                T13, T12, nrev, direction).subtract(vObserverPosition2);
+        final Vector3D Cp1 = Pp1.subtract(vObserverPosition2);
 
         final double Fp1  = P.dotProduct(Cp1);
         final double Gp1 = EN.dotProduct(Cp1);
@@ -388,16 +407,12 @@ public class IodGooding {
         final double Fx = (Fp1 - Fm1) / (2 * dx);
         final double Gx = (Gp1 - Gm1) / (2 * dx);
 
-        final Vector3D Cm3 = getPositionOnLoS2 (lineOfSight1, x,
-                                                lineOfSight3, y - dy,
-                                                T13, T12, nrev, direction).subtract(vObserverPosition2);
+        final Vector3D Cm3 = Pm3.subtract(vObserverPosition2);
 
         final double Fm3 = P.dotProduct(Cm3);
         final double Gm3 = EN.dotProduct(Cm3);
 
-        final Vector3D Cp3 = getPositionOnLoS2 (lineOfSight1, x,
-                                                lineOfSight3, y + dy,
-                                                T13, T12, nrev, direction).subtract(vObserverPosition2);
+        final Vector3D Cp3 = Pp3.subtract(vObserverPosition2);
 
         final double Fp3 = P.dotProduct(Cp3);
         final double Gp3 = EN.dotProduct(Cp3);
@@ -426,18 +441,25 @@ public class IodGooding {
             final double Fyy = (Fp3 + Fp3 - 2 * F) / hrho3Sq;
             final double Gyy = (Gm3 + Gm3 - 2 * F) / hrho3Sq;
 
-            final Vector3D Cp13 = getPositionOnLoS2 (lineOfSight1, x + dx,
+            final Vector3D Pp13 = getPositionOnLoS2 (lineOfSight1, x + dx,
+                                                     lineOfSight3, y + dy,
+                                                     T13, T12, nrev, direction);
+            final Vector3D Pm13 = getPositionOnLoS2 (lineOfSight1, x + dx,
                                                      lineOfSight3, y + dy,
-                                                     T13, T12, nrev, direction).subtract(vObserverPosition2);
+                                                     T13, T12, nrev, direction);
+            if (Pp13 == null || Pm13 == null) {
+                // Lambert's problem solver failed, derivatives cannot be computed
+                return false;
+            }
+
+            final Vector3D Cp13 = Pp13.subtract(vObserverPosition2);
 
             // f function value at (x1+dx1, x3+dx3)
             final double Fp13 = P.dotProduct(Cp13) - F;
             // g function value at (x1+dx1, x3+dx3)
             final double Gp13 = EN.dotProduct(Cp13);
 
-            final Vector3D Cm13 = getPositionOnLoS2 (lineOfSight1, x + dx,
-                                                     lineOfSight3, y + dy,
-                                                     T13, T12, nrev, direction).subtract(vObserverPosition2);
+            final Vector3D Cm13 = Pm13.subtract(vObserverPosition2);
 
             // f function value at (x1+dx1, x3+dx3)
             final double Fm13 = P.dotProduct(Cm13) - F;
@@ -472,6 +494,9 @@ public class IodGooding {
             GD[0] = GxH;
             GD[1] = GyH;
         }
+
+        return true;
+
     }
 
     /** Calculate the position along sight-line.
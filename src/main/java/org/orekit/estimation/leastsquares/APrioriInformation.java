@@ -0,0 +1,147 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.leastsquares;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+
+/** Compressed normal equations of already processed measurements.
+ * <p>
+ * This class holds the information matrix (i.e. the inverse of the covariance
+ * matrix) and the linearization point of a set of estimated parameters, in
+ * physical units. It is used by {@link BatchLSEstimator} to retain the information
+ * brought by older measurements without having to evaluate them again, so that
+ * successive orbit determinations only process newly added measurements.
+ * </p>
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ * @see BatchLSEstimator#compressMeasurements(AbsoluteDate)
+ * @see BatchLSEstimator#setAPrioriInformation(APrioriInformation)
+ * @since 9.3
+ */
+public class APrioriInformation {
+
+    /** Date of the last compressed measurement. */
+    private final AbsoluteDate date;
+
+    /** Names of the parameters. */
+    private final List<String> names;
+
+    /** Physical values of the parameters at linearization point. */
+    private final double[] values;
+
+    /** Information matrix in physical units. */
+    private final RealMatrix information;
+
+    /** Simple constructor.
+     * @param date date of the last compressed measurement
+     * @param names names of the parameters
+     * @param values physical values of the parameters at linearization point
+     * @param information information matrix in physical units
+     * @exception OrekitException if dimensions are inconsistent
+     */
+    public APrioriInformation(final AbsoluteDate date, final List<String> names,
+                              final double[] values, final RealMatrix information)
+        throws OrekitException {
+        if (values.length != names.size()) {
+            throw new OrekitException(LocalizedCoreFormats.DIMENSIONS_MISMATCH,
+                                      values.length, names.size());
+        }
+        if (information.getRowDimension() != names.size() ||
+            information.getColumnDimension() != names.size()) {
+            throw new OrekitException(LocalizedCoreFormats.DIMENSIONS_MISMATCH_2x2,
+                                      information.getRowDimension(), information.getColumnDimension(),
+                                      names.size(), names.size());
+        }
+        this.date        = date;
+        this.names       = Collections.unmodifiableList(new ArrayList<>(names));
+        this.values      = values.clone();
+        this.information = information.copy();
+    }
+
+    /** Get the date of the last compressed measurement.
+     * @return date of the last compressed measurement
+     */
+    public AbsoluteDate getDate() {
+        return date;
+    }
+
+    /** Get the names of the parameters.
+     * @return unmodifiable list of parameters names
+     */
+    public List<String> getParametersNames() {
+        return names;
+    }
+
+    /** Get the physical values of the parameters at linearization point.
+     * @return physical values of the parameters at linearization point
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    /** Get the information matrix in physical units.
+     * @return information matrix in physical units
+     */
+    public RealMatrix getInformationMatrix() {
+        return information.copy();
+    }
+
+    /** Down-weight the information.
+     * @param factor multiplication factor for the information matrix,
+     * between 0 (information dropped) and 1 (information unchanged)
+     * @return down-weighted information
+     * @exception OrekitException if factor is not between 0 and 1 (this includes NaN)
+     */
+    public APrioriInformation fade(final double factor)
+        throws OrekitException {
+        if (!(factor >= 0 && factor <= 1)) {
+            throw new OrekitException(LocalizedCoreFormats.OUT_OF_RANGE_SIMPLE, factor, 0, 1);
+        }
+        return new APrioriInformation(date, names, values, information.scalarMultiply(factor));
+    }
+
+    /** Down-weight the information according to its age.
+     * <p>
+     * The information matrix is multiplied by exp(-Δt/τ), where Δt is the
+     * duration between the last compressed measurement and the specified date
+     * and τ is the time constant.
+     * </p>
+     * @param current current date
+     * @param timeConstant time constant τ (s), must be strictly positive
+     * @return down-weighted information
+     * @exception OrekitException if time constant is not strictly positive, or if
+     * current date is before the date of the last compressed measurement, as the
+     * multiplication factor would then be greater than 1
+     */
+    public APrioriInformation fade(final AbsoluteDate current, final double timeConstant)
+        throws OrekitException {
+        if (!(timeConstant > 0)) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, timeConstant, 0);
+        }
+        return fade(FastMath.exp(-current.durationFrom(date) / timeConstant));
+    }
+
+}
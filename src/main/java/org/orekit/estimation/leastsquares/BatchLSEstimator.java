@@ -20,12 +20,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.hipparchus.exception.LocalizedCoreFormats;
 import org.hipparchus.exception.MathIllegalArgumentException;
 import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.linear.ArrayRealVector;
+import org.hipparchus.linear.EigenDecomposition;
+import org.hipparchus.linear.LUDecomposition;
+import org.hipparchus.linear.MatrixUtils;
 import org.hipparchus.linear.RealMatrix;
 import org.hipparchus.linear.RealVector;
 import org.hipparchus.optim.ConvergenceChecker;
@@ -35,16 +40,24 @@ import org.hipparchus.optim.nonlinear.vector.leastsquares.LeastSquaresOptimizer;
 import org.hipparchus.optim.nonlinear.vector.leastsquares.LeastSquaresOptimizer.Optimum;
 import org.hipparchus.optim.nonlinear.vector.leastsquares.LeastSquaresProblem;
 import org.hipparchus.optim.nonlinear.vector.leastsquares.ParameterValidator;
+import org.hipparchus.util.FastMath;
 import org.hipparchus.util.Incrementor;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitExceptionWrapper;
+import org.orekit.errors.OrekitIllegalStateException;
+import org.orekit.errors.OrekitMessages;
 import org.orekit.estimation.measurements.EstimatedMeasurement;
 import org.orekit.estimation.measurements.EstimationsProvider;
 import org.orekit.estimation.measurements.ObservedMeasurement;
 import org.orekit.orbits.Orbit;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.conversion.JacobianStrategy;
 import org.orekit.propagation.conversion.NumericalPropagatorBuilder;
 import org.orekit.propagation.conversion.PropagatorBuilder;
+import org.orekit.propagation.numerical.JacobiansMapper;
 import org.orekit.propagation.numerical.NumericalPropagator;
+import org.orekit.propagation.numerical.PartialDerivativesEquations;
+import org.orekit.time.AbsoluteDate;
 import org.orekit.utils.ParameterDriver;
 import org.orekit.utils.ParameterDriversList;
 import org.orekit.utils.ParameterDriversList.DelegatingDriver;
@@ -89,6 +102,12 @@ public class BatchLSEstimator {
     /** Counter for the iterations. */
     private Incrementor iterationsCounter;
 
+    /** A priori information from previously compressed measurements (may be null). */
+    private APrioriInformation apriori;
+
+    /** Model used for last estimation. */
+    private Model lastModel;
+
     /** Simple constructor.
      * <p>
      * If multiple {@link PropagatorBuilder propagator builders} are set up,
@@ -121,6 +140,7 @@ public class BatchLSEstimator {
         this.observer                       = null;
         this.estimations                    = null;
         this.orbits                         = new Orbit[builders.length];
+        this.apriori                        = null;
 
         // our model computes value and Jacobian in one call,
         // so we don't use the lazy evaluation feature
@@ -150,6 +170,53 @@ public class BatchLSEstimator {
         measurements.add(measurement);
     }
 
+    /** Set the a priori information to use in next estimations.
+     * <p>
+     * A priori information corresponds to compressed normal equations of already
+     * processed measurements, as produced by {@link #compressMeasurements(AbsoluteDate)}.
+     * It is added to the least squares problem as one pseudo-measurement row per
+     * estimated parameter, so older measurements still constrain the solution without
+     * being evaluated again. Estimated parameters not present in the a priori information
+     * are not constrained, and parameters present in the a priori information but not
+     * estimated are ignored.
+     * </p>
+     * <p>
+     * This method can be used to {@link APrioriInformation#fade(AbsoluteDate, double)
+     * down-weight} older information, or to drop it by setting it to null.
+     * </p>
+     * @param information a priori information (null to drop any a priori information)
+     * @see #getAPrioriInformation()
+     * @see #compressMeasurements(AbsoluteDate)
+     * @since 9.3
+     */
+    public void setAPrioriInformation(final APrioriInformation information) {
+        this.apriori = information;
+    }
+
+    /** Get the a priori information used in next estimations.
+     * @return a priori information (may be null)
+     * @see #setAPrioriInformation(APrioriInformation)
+     * @since 9.3
+     */
+    public APrioriInformation getAPrioriInformation() {
+        return apriori;
+    }
+
+    /** Set the strategy for Jacobians computation for all propagators.
+     * <p>
+     * This is a convenience method that sets the same strategy in all the
+     * propagator builders. The strategy can also be set independently for
+     * each builder using {@link NumericalPropagatorBuilder#setJacobianStrategy(JacobianStrategy)}.
+     * </p>
+     * @param strategy strategy for Jacobians computation
+     * @since 9.3
+     */
+    public void setJacobianStrategy(final JacobianStrategy strategy) {
+        for (final NumericalPropagatorBuilder builder : builders) {
+            builder.setJacobianStrategy(strategy);
+        }
+    }
+
     /** Set the maximum number of iterations.
      * <p>
      * The iterations correspond to the top level iterations of
@@ -381,7 +448,7 @@ public class BatchLSEstimator {
                 p += measurement.getDimension();
             }
         }
-        final double[] target = new double[p];
+        final double[] target = new double[p + (apriori == null ? 0 : start.length)];
         lsBuilder.target(target);
 
         // set up the model
@@ -394,8 +461,51 @@ public class BatchLSEstimator {
                 BatchLSEstimator.this.estimations = newEstimations;
             }
         };
+        // set up the a priori information in normalized form
+        RealMatrix aprioriSqrtInformation = null;
+        RealVector aprioriPoint           = null;
+        if (apriori != null) {
+            final List<ParameterDriver> estimated = new ArrayList<>();
+            estimated.addAll(estimatedOrbitalParameters.getDrivers());
+            estimated.addAll(estimatedPropagatorParameters.getDrivers());
+            estimated.addAll(estimatedMeasurementsParameters.getDrivers());
+            final RealMatrix information = apriori.getInformationMatrix();
+            final double[]   values      = apriori.getValues();
+            final int[]      indices     = new int[start.length];
+            for (int i = 0; i < indices.length; ++i) {
+                indices[i] = apriori.getParametersNames().indexOf(estimated.get(i).getName());
+            }
+            final RealMatrix normalizedInformation = MatrixUtils.createRealMatrix(start.length, start.length);
+            aprioriPoint = new ArrayRealVector(start.length);
+            for (int i = 0; i < indices.length; ++i) {
+                if (indices[i] >= 0) {
+                    final ParameterDriver di = estimated.get(i);
+                    aprioriPoint.setEntry(i, (values[indices[i]] - di.getReferenceValue()) / di.getScale());
+                    for (int j = 0; j < indices.length; ++j) {
+                        if (indices[j] >= 0) {
+                            final double lij = 0.5 * (information.getEntry(indices[i], indices[j]) +
+                                                      information.getEntry(indices[j], indices[i]));
+                            normalizedInformation.setEntry(i, j, lij * di.getScale() * estimated.get(j).getScale());
+                        }
+                    }
+                }
+            }
+
+            // square root S of the information matrix, such that Sᵀ S = Λ
+            final EigenDecomposition decomposition = new EigenDecomposition(normalizedInformation);
+            aprioriSqrtInformation = decomposition.getVT();
+            for (int i = 0; i < start.length; ++i) {
+                final double lambda = FastMath.sqrt(FastMath.max(0.0, decomposition.getRealEigenvalue(i)));
+                for (int j = 0; j < start.length; ++j) {
+                    aprioriSqrtInformation.multiplyEntry(i, j, lambda);
+                }
+            }
+
+        }
+
         final Model model = new Model(builders, measurements, estimatedMeasurementsParameters,
-                                      modelObserver);
+                                      modelObserver, aprioriSqrtInformation, aprioriPoint);
+        lastModel = null;
         lsBuilder.model(model);
 
         // add a validator for orbital parameters
@@ -424,7 +534,8 @@ public class BatchLSEstimator {
         try {
 
             // solve the problem
-            optimum = optimizer.optimize(problem);
+            optimum   = optimizer.optimize(problem);
+            lastModel = model;
 
             // create a new configured propagator with all estimated parameters
             return model.createPropagators(optimum.getPoint());
@@ -437,6 +548,137 @@ public class BatchLSEstimator {
 
     }
 
+    /** Compress the measurements used in last estimation into a priori information.
+     * <p>
+     * This method must be called after {@link #estimate()}. It computes the normal
+     * equations at the optimum found (including the previous a priori information
+     * if any), stores them as the {@link #getAPrioriInformation() a priori information}
+     * for the next estimations and removes all measurements from the estimator. This
+     * allows sliding window orbit determination: at each run, only the newly {@link
+     * #addMeasurement(ObservedMeasurement) added} measurements are evaluated, and the
+     * information brought by older measurements is retained in compressed form. It
+     * can be {@link APrioriInformation#fade(AbsoluteDate, double) down-weighted} or
+     * dropped as it ages.
+     * </p>
+     * <p>
+     * If {@code newEpoch} is not null, the estimated orbits are propagated to this new
+     * epoch and the propagator builders are {@link PropagatorBuilder#resetOrbit(Orbit)
+     * reset} to the propagated orbits, so next estimations do not need to propagate
+     * throughout the compressed arc anymore. The a priori information is mapped to
+     * the new epoch using the state transition matrix and the Jacobians with respect
+     * to propagation parameters.
+     * </p>
+     * @param newEpoch new orbit determination epoch (may be null to keep current epoch)
+     * @return a priori information corresponding to the compressed measurements
+     * @exception OrekitException if propagation to new epoch fails
+     * @exception OrekitIllegalStateException if no successful {@link #estimate()
+     * estimation} has been performed since the last compression
+     * @since 9.3
+     */
+    public APrioriInformation compressMeasurements(final AbsoluteDate newEpoch)
+        throws OrekitException, OrekitIllegalStateException {
+
+        if (lastModel == null) {
+            throw new OrekitIllegalStateException(OrekitMessages.MEASUREMENTS_NOT_ESTIMATED);
+        }
+
+        // estimated parameters, in columns order
+        final List<ParameterDriver> estimated = new ArrayList<>();
+        estimated.addAll(getOrbitalParametersDrivers(true).getDrivers());
+        estimated.addAll(getPropagatorParametersDrivers(true).getDrivers());
+        estimated.addAll(getMeasurementsParametersDrivers(true).getDrivers());
+        final int n = estimated.size();
+        final List<String> names = new ArrayList<>(n);
+        final Map<String, Integer> columns = new HashMap<>(n);
+        for (final ParameterDriver driver : estimated) {
+            columns.put(driver.getName(), names.size());
+            names.add(driver.getName());
+        }
+
+        // normal equations at optimum, in physical units
+        final RealVector point    = optimum.getPoint();
+        final RealMatrix jacobian = optimum.getJacobian();
+        final RealMatrix information = jacobian.transposeMultiply(jacobian);
+        final double[] values = new double[n];
+        for (int i = 0; i < n; ++i) {
+            final ParameterDriver di = estimated.get(i);
+            values[i] = di.getReferenceValue() + di.getScale() * point.getEntry(i);
+            for (int j = 0; j < n; ++j) {
+                information.setEntry(i, j,
+                                     information.getEntry(i, j) / (di.getScale() * estimated.get(j).getScale()));
+            }
+        }
+
+        // date of the last compressed measurement
+        AbsoluteDate last = (apriori == null) ? null : apriori.getDate();
+        for (final ObservedMeasurement<?> measurement : measurements) {
+            if (last == null || measurement.getDate().compareTo(last) > 0) {
+                last = measurement.getDate();
+            }
+        }
+
+        RealMatrix compressed = information;
+        if (newEpoch != null) {
+
+            // linearized mapping of the parameters from current epoch to new epoch
+            final RealMatrix mapping = MatrixUtils.createRealIdentityMatrix(n);
+            final NumericalPropagator[] propagators = lastModel.createPropagators(point);
+            for (int i = 0; i < builders.length; ++i) {
+
+                final PartialDerivativesEquations partials =
+                                new PartialDerivativesEquations(BatchLSEstimator.class.getName() + "-derivatives",
+                                                                propagators[i]);
+                propagators[i].resetInitialState(partials.setInitialJacobians(propagators[i].getInitialState()));
+                final SpacecraftState state = propagators[i].propagate(newEpoch);
+                final JacobiansMapper mapper = partials.getMapper();
+
+                final List<DelegatingDriver> orbitalDrivers = builders[i].getOrbitalParametersDrivers().getDrivers();
+                final ParameterDriversList propagationDrivers = lastModel.getSelectedPropagationDriversForBuilder(i);
+                final double[][] dYdY0 = new double[6][6];
+                final double[][] dYdPp = new double[6][propagationDrivers.getNbParams()];
+                mapper.getStateJacobian(state, dYdY0);
+                mapper.getParametersJacobian(state, dYdPp);
+
+                for (int k = 0; k < orbitalDrivers.size(); ++k) {
+                    if (orbitalDrivers.get(k).isSelected()) {
+                        final int row = columns.get(orbitalDrivers.get(k).getRawDrivers().get(0).getName());
+                        mapping.setEntry(row, row, 0.0);
+                        for (int l = 0; l < orbitalDrivers.size(); ++l) {
+                            if (orbitalDrivers.get(l).isSelected()) {
+                                final int col = columns.get(orbitalDrivers.get(l).getRawDrivers().get(0).getName());
+                                mapping.setEntry(row, col, dYdY0[k][l]);
+                            }
+                        }
+                        for (int l = 0; l < propagationDrivers.getNbParams(); ++l) {
+                            final int col = columns.get(propagationDrivers.getDrivers().get(l).getName());
+                            mapping.addToEntry(row, col, dYdPp[k][l]);
+                        }
+                    }
+                }
+
+                // move the builder to the new epoch
+                builders[i].resetOrbit(state.getOrbit());
+                for (final DelegatingDriver driver : orbitalDrivers) {
+                    if (driver.isSelected()) {
+                        values[columns.get(driver.getRawDrivers().get(0).getName())] = driver.getValue();
+                    }
+                }
+
+            }
+
+            // Λ' = M⁻ᵀ Λ M⁻¹
+            final RealMatrix inverse = new LUDecomposition(mapping).getSolver().getInverse();
+            compressed = inverse.transposeMultiply(information).multiply(inverse);
+
+        }
+
+        apriori = new APrioriInformation(last, names, values, compressed);
+        measurements.clear();
+        lastModel = null;
+        return apriori;
+
+    }
+
     /** Get the last estimations performed.
      * @return last estimations performed
      */
@@ -35,12 +35,16 @@ import org.hipparchus.util.Incrementor;
 import org.hipparchus.util.Pair;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitExceptionWrapper;
+import org.orekit.errors.OrekitMessages;
 import org.orekit.estimation.measurements.EstimatedMeasurement;
 import org.orekit.estimation.measurements.ObservedMeasurement;
+import org.orekit.orbits.EquinoctialOrbit;
 import org.orekit.orbits.Orbit;
+import org.orekit.orbits.PositionAngle;
 import org.orekit.propagation.Propagator;
 import org.orekit.propagation.PropagatorsParallelizer;
 import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.conversion.JacobianStrategy;
 import org.orekit.propagation.conversion.NumericalPropagatorBuilder;
 import org.orekit.propagation.numerical.JacobiansMapper;
 import org.orekit.propagation.numerical.NumericalPropagator;
@@ -105,15 +109,36 @@ class Model implements MultivariateJacobianFunction {
     /** Boolean indicating if the propagation will go forward or backward. */
     private final boolean forwardPropagation;
 
-    /** Mappers for Jacobians. */
+    /** Mappers for Jacobians (null for propagators without variational equations). */
     private JacobiansMapper[] mappers;
 
+    /** Initial orbits of current evaluation. */
+    private Orbit[] initialOrbits;
+
+    /** Frozen state Jacobians, for {@link JacobianStrategy#FROZEN_VARIATIONAL_EQUATIONS}. */
+    private final List<Map<ObservedMeasurement<?>, double[][]>> frozenStateJacobians;
+
+    /** Frozen parameters Jacobians, for {@link JacobianStrategy#FROZEN_VARIATIONAL_EQUATIONS}. */
+    private final List<Map<ObservedMeasurement<?>, double[][]>> frozenParametersJacobians;
+
+    /** Indicators for builders whose Jacobians have already been frozen. */
+    private final boolean[] frozen;
+
     /** Model function value. */
     private RealVector value;
 
     /** Model function Jacobian. */
     private RealMatrix jacobian;
 
+    /** Square root of the normalized a priori information matrix (null if no a priori information). */
+    private final RealMatrix aprioriSqrtInformation;
+
+    /** Normalized a priori linearization point (null if no a priori information). */
+    private final RealVector aprioriPoint;
+
+    /** Index of the first a priori row. */
+    private final int aprioriRow;
+
     /** Simple constructor.
      * @param builders builders to use for propagation
      * @param measurements measurements
@@ -125,6 +150,31 @@ class Model implements MultivariateJacobianFunction {
           final List<ObservedMeasurement<?>> measurements, final ParameterDriversList estimatedMeasurementsParameters,
           final ModelObserver observer)
         throws OrekitException {
+        this(builders, measurements, estimatedMeasurementsParameters, observer, null, null);
+    }
+
+    /** Simple constructor.
+     * <p>
+     * If a priori information is provided, the model adds one row per estimated parameter
+     * after the measurements rows, with value S (x - x₀) and Jacobian S, where S is the
+     * square root of the normalized information matrix and x₀ is the normalized a priori
+     * linearization point.
+     * </p>
+     * @param builders builders to use for propagation
+     * @param measurements measurements
+     * @param estimatedMeasurementsParameters estimated measurements parameters
+     * @param observer observer to be notified at model calls
+     * @param aprioriSqrtInformation square root of the normalized a priori information
+     * matrix (null if no a priori information)
+     * @param aprioriPoint normalized a priori linearization point (null if no a priori information)
+     * @exception OrekitException if some propagator parameter cannot be set properly
+     * @since 9.3
+     */
+    Model(final NumericalPropagatorBuilder[] builders,
+          final List<ObservedMeasurement<?>> measurements, final ParameterDriversList estimatedMeasurementsParameters,
+          final ModelObserver observer,
+          final RealMatrix aprioriSqrtInformation, final RealVector aprioriPoint)
+        throws OrekitException {
 
         this.builders                        = builders;
         this.measurements                    = measurements;
@@ -134,6 +184,14 @@ class Model implements MultivariateJacobianFunction {
         this.evaluations                     = new IdentityHashMap<>(measurements.size());
         this.observer                        = observer;
         this.mappers                         = new JacobiansMapper[builders.length];
+        this.initialOrbits                   = new Orbit[builders.length];
+        this.frozenStateJacobians            = new ArrayList<>(builders.length);
+        this.frozenParametersJacobians       = new ArrayList<>(builders.length);
+        this.frozen                          = new boolean[builders.length];
+        for (int i = 0; i < builders.length; ++i) {
+            frozenStateJacobians.add(new IdentityHashMap<>());
+            frozenParametersJacobians.add(new IdentityHashMap<>());
+        }
 
         // allocate vector and matrix
         int rows = 0;
@@ -159,7 +217,12 @@ class Model implements MultivariateJacobianFunction {
         for (int i = 0; i < builders.length; ++i) {
             // The index i in array estimatedPropagationParameters (attribute of the class) is populated
             // when the first call to getSelectedPropagationDriversForBuilder(i) is made
-            for (final DelegatingDriver delegating : getSelectedPropagationDriversForBuilder(i).getDrivers()) {
+            final ParameterDriversList selected = getSelectedPropagationDriversForBuilder(i);
+            if (builders[i].getJacobianStrategy() == JacobianStrategy.KEPLERIAN && selected.getNbParams() > 0) {
+                // Keplerian Jacobians do not provide derivatives with respect to propagation parameters
+                throw new OrekitException(OrekitMessages.KEPLERIAN_JACOBIANS_WITH_PROPAGATION_PARAMETERS, i);
+            }
+            for (final DelegatingDriver delegating : selected.getDrivers()) {
                 final String driverName = delegating.getName();
                 // Add the driver name if it has not been added yet
                 if (!estimatedPropagationParametersNames.contains(driverName)) {
@@ -181,6 +244,14 @@ class Model implements MultivariateJacobianFunction {
             ++columns;
         }
 
+        // a priori information rows are appended after measurements rows
+        this.aprioriSqrtInformation = aprioriSqrtInformation;
+        this.aprioriPoint           = aprioriPoint;
+        this.aprioriRow             = rows;
+        if (aprioriSqrtInformation != null) {
+            rows += aprioriSqrtInformation.getRowDimension();
+        }
+
         // Initialize point and value
         value    = new ArrayRealVector(rows);
         jacobian = MatrixUtils.createRealMatrix(rows, columns);
@@ -236,8 +307,16 @@ class Model implements MultivariateJacobianFunction {
             final NumericalPropagator[] propagators = createPropagators(point);
             final Orbit[] orbits = new Orbit[propagators.length];
             for (int i = 0; i < propagators.length; ++i) {
-                mappers[i] = configureDerivatives(propagators[i]);
-                orbits[i]  = propagators[i].getInitialState().getOrbit();
+                final JacobianStrategy strategy = builders[i].getJacobianStrategy();
+                if (strategy == JacobianStrategy.VARIATIONAL_EQUATIONS ||
+                    (strategy == JacobianStrategy.FROZEN_VARIATIONAL_EQUATIONS && !frozen[i])) {
+                    mappers[i] = configureDerivatives(propagators[i]);
+                } else {
+                    // plain propagation, Jacobians will be computed differently
+                    mappers[i] = null;
+                }
+                orbits[i]        = propagators[i].getInitialState().getOrbit();
+                initialOrbits[i] = orbits[i];
             }
             final PropagatorsParallelizer parallelizer =
                             new PropagatorsParallelizer(Arrays.asList(propagators), configureMeasurements(point));
@@ -260,6 +339,21 @@ class Model implements MultivariateJacobianFunction {
                 parallelizer.propagate(lastDate.shiftedBy(+1.0), firstDate.shiftedBy(-1.0));
             }
 
+            // Jacobians computed during a successful evaluation are frozen for the next ones
+            for (int i = 0; i < propagators.length; ++i) {
+                if (mappers[i] != null &&
+                    builders[i].getJacobianStrategy() == JacobianStrategy.FROZEN_VARIATIONAL_EQUATIONS) {
+                    frozen[i] = true;
+                }
+            }
+
+            // Add a priori information
+            if (aprioriSqrtInformation != null) {
+                final RealVector offset = aprioriSqrtInformation.operate(point.subtract(aprioriPoint));
+                value.setSubVector(aprioriRow, offset);
+                jacobian.setSubMatrix(aprioriSqrtInformation.getData(), aprioriRow, 0);
+            }
+
             observer.modelCalled(orbits, evaluations);
 
             return new Pair<RealVector, RealMatrix>(value, jacobian);
@@ -412,6 +506,36 @@ class Model implements MultivariateJacobianFunction {
 
     }
 
+    /** Freeze the Jacobians of a measurement evaluated with variational equations.
+     * <p>
+     * This method does nothing for propagators that do not use the
+     * {@link JacobianStrategy#FROZEN_VARIATIONAL_EQUATIONS} strategy
+     * or whose Jacobians have already been frozen.
+     * </p>
+     * @param evaluation measurement evaluation
+     * @exception OrekitException if Jacobians cannot be computed
+     */
+    private void freezeJacobians(final EstimatedMeasurement<?> evaluation)
+        throws OrekitException {
+        final SpacecraftState[]      evaluationStates    = evaluation.getStates();
+        final ObservedMeasurement<?> observedMeasurement = evaluation.getObservedMeasurement();
+        for (int k = 0; k < evaluationStates.length; ++k) {
+            final int p = observedMeasurement.getPropagatorsIndices().get(k);
+            if (mappers[p] != null &&
+                builders[p].getJacobianStrategy() == JacobianStrategy.FROZEN_VARIATIONAL_EQUATIONS) {
+                final int nbParams = getSelectedPropagationDriversForBuilder(p).getNbParams();
+                final double[][] aYY0 = new double[6][6];
+                final double[][] aYPp = new double[6][nbParams];
+                mappers[p].getStateJacobian(evaluationStates[k], aYY0);
+                if (nbParams > 0) {
+                    mappers[p].getParametersJacobian(evaluationStates[k], aYPp);
+                }
+                frozenStateJacobians.get(p).put(observedMeasurement, aYY0);
+                frozenParametersJacobians.get(p).put(observedMeasurement, aYPp);
+            }
+        }
+    }
+
     /** Fetch a measurement that was evaluated during propagation.
      * @param index index of the measurement first component
      * @param evaluation measurement evaluation
@@ -426,6 +550,10 @@ class Model implements MultivariateJacobianFunction {
 
         evaluations.put(observedMeasurement, evaluation);
 
+        // Jacobians are frozen even for rejected measurements,
+        // as they may be accepted again in later evaluations
+        freezeJacobians(evaluation);
+
         if (evaluation.getStatus() == EstimatedMeasurement.Status.REJECTED) {
             return;
         }
@@ -453,9 +581,34 @@ class Model implements MultivariateJacobianFunction {
             final RealMatrix dMdC = new Array2DRowRealMatrix(evaluation.getStateDerivatives(k), false);
             final RealMatrix dMdY = dMdC.multiply(dCdY);
 
+            // Jacobians of the current orbital state with respect to initial orbital state
+            // and with respect to propagation parameters
+            final ParameterDriversList selectedPropagationDrivers = getSelectedPropagationDriversForBuilder(p);
+            final int nbParams = selectedPropagationDrivers.getNbParams();
+            final double[][] aYY0;
+            final double[][] aYPp;
+            if (builders[p].getJacobianStrategy() == JacobianStrategy.FROZEN_VARIATIONAL_EQUATIONS) {
+                aYY0 = frozenStateJacobians.get(p).get(observedMeasurement);
+                aYPp = frozenParametersJacobians.get(p).get(observedMeasurement);
+                if (aYY0 == null) {
+                    // the measurement was not evaluated when the Jacobians were frozen
+                    throw new OrekitException(OrekitMessages.MISSING_FROZEN_JACOBIANS,
+                                              observedMeasurement.getDate());
+                }
+            } else if (mappers[p] != null) {
+                aYY0 = new double[6][6];
+                aYPp = new double[6][nbParams];
+                mappers[p].getStateJacobian(evaluationStates[k], aYY0);
+                if (nbParams > 0) {
+                    mappers[p].getParametersJacobian(evaluationStates[k], aYPp);
+                }
+            } else {
+                // Keplerian strategy, propagation parameters are never estimated in this case
+                aYY0 = keplerianStateJacobian(initialOrbits[p], currentOrbit, builders[p].getPositionAngle());
+                aYPp = new double[6][nbParams];
+            }
+
             // Jacobian of the measurement with respect to initial orbital state
-            final double[][] aYY0 = new double[6][6];
-            mappers[p].getStateJacobian(evaluationStates[k], aYY0);
             final RealMatrix dYdY0 = new Array2DRowRealMatrix(aYY0, false);
             final RealMatrix dMdY0 = dMdY.multiply(dYdY0);
             for (int i = 0; i < dMdY0.getRowDimension(); ++i) {
@@ -470,11 +623,7 @@ class Model implements MultivariateJacobianFunction {
             }
 
             // Jacobian of the measurement with respect to propagation parameters
-            final ParameterDriversList selectedPropagationDrivers = getSelectedPropagationDriversForBuilder(p);
-            final int nbParams = selectedPropagationDrivers.getNbParams();
             if (nbParams > 0) {
-                final double[][] aYPp  = new double[6][nbParams];
-                mappers[p].getParametersJacobian(evaluationStates[k], aYPp);
                 final RealMatrix dYdPp = new Array2DRowRealMatrix(aYPp, false);
                 final RealMatrix dMdPp = dMdY.multiply(dYdPp);
                 for (int i = 0; i < dMdPp.getRowDimension(); ++i) {
@@ -501,4 +650,43 @@ class Model implements MultivariateJacobianFunction {
 
     }
 
+    /** Compute the Keplerian state transition matrix.
+     * <p>
+     * The matrix is computed using equinoctial elements with mean longitude argument,
+     * for which Keplerian motion only changes the mean longitude, linearly with respect
+     * to the mean motion. The result is then converted to the orbit type of the orbits.
+     * </p>
+     * @param initial initial orbit
+     * @param current current orbit
+     * @param positionAngle position angle used in the orbit parameters
+     * @return Jacobian of the current orbital state with respect to initial orbital state
+     */
+    private static double[][] keplerianStateJacobian(final Orbit initial, final Orbit current,
+                                                     final PositionAngle positionAngle) {
+
+        // Jacobian of initial equinoctial elements with respect to initial orbital state
+        final double[][] aE0C0 = new double[6][6];
+        new EquinoctialOrbit(initial).getJacobianWrtCartesian(PositionAngle.MEAN, aE0C0);
+        final double[][] aC0Y0 = new double[6][6];
+        initial.getJacobianWrtParameters(positionAngle, aC0Y0);
+        final RealMatrix dE0dY0 = new Array2DRowRealMatrix(aE0C0, false).
+                                  multiply(new Array2DRowRealMatrix(aC0Y0, false));
+
+        // Keplerian motion: λM(t) = λM(t₀) + n(a) (t - t₀)
+        final RealMatrix dE1dE0 = MatrixUtils.createRealIdentityMatrix(6);
+        final double a = initial.getA();
+        dE1dE0.setEntry(5, 0, -1.5 * initial.getKeplerianMeanMotion() / a * current.getDate().durationFrom(initial.getDate()));
+
+        // Jacobian of current orbital state with respect to current equinoctial elements
+        final double[][] aC1E1 = new double[6][6];
+        new EquinoctialOrbit(current).getJacobianWrtParameters(PositionAngle.MEAN, aC1E1);
+        final double[][] aY1C1 = new double[6][6];
+        current.getJacobianWrtCartesian(positionAngle, aY1C1);
+        final RealMatrix dY1dE1 = new Array2DRowRealMatrix(aY1C1, false).
+                                  multiply(new Array2DRowRealMatrix(aC1E1, false));
+
+        return dY1dE1.multiply(dE1dE0).multiply(dE0dY0).getData();
+
+    }
+
 }
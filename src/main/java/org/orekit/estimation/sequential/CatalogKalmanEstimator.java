@@ -0,0 +1,418 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitExceptionWrapper;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.estimation.measurements.ObservedMeasurement;
+import org.orekit.time.AbsoluteDate;
+
+/** Catalog-level sequential estimator managing one independent {@link KalmanEstimator} per object.
+ * <p>
+ * Each object of the catalog has its own {@link KalmanEstimator Kalman estimator}, built
+ * with a single {@link org.orekit.propagation.conversion.NumericalPropagatorBuilder propagator
+ * builder}. Measurements are routed to the filter of the object they belong to, either
+ * explicitly by {@link #submit(int, ObservedMeasurement) submitting} them with the object
+ * index, or by providing a routing function to {@link #processMeasurements(Iterable, ToIntFunction)
+ * processMeasurements}. As the measurements are processed by a single-object filter, they
+ * must refer to propagator index 0 (i.e. {@link ObservedMeasurement#getPropagatorsIndices()}
+ * must be the singleton list containing 0).
+ * </p>
+ * <p>
+ * The filters of different objects are run concurrently on a fixed-size pool of threads,
+ * whereas the measurements of each object are processed one at a time, in submission order,
+ * which must be chronological. Each object has a bounded queue of pending measurements, when
+ * this queue is full, submission blocks until the filter has caught up, hence providing
+ * backpressure to the measurements producer.
+ * </p>
+ * <p>
+ * Failures are isolated: if the filter of one object triggers an error, the error is stored
+ * (see {@link #getError(int)}) and the following measurements for this object are discarded,
+ * but the other objects are not affected.
+ * </p>
+ * <p>
+ * As the filters run in different threads, they must be completely independent from each
+ * other, i.e. they must be built from different propagator builders and force models.
+ * </p>
+ * <p>
+ * The pool uses daemon threads, so it does not prevent the JVM from exiting. As measurements
+ * still pending at exit would be lost, users should call {@link #waitForCompletion()} once all
+ * measurements have been submitted, and {@link #shutdown()} to release the threads once the
+ * estimator is not needed anymore.
+ * </p>
+ * @since 9.3
+ */
+public class CatalogKalmanEstimator {
+
+    /** Per-object lanes. */
+    private final List<Lane> lanes;
+
+    /** Executor service running the filters. */
+    private final ExecutorService executorService;
+
+    /** Number of submitted measurements not yet processed or discarded. */
+    private final AtomicLong pending;
+
+    /** Total number of processed measurements. */
+    private final AtomicLong processed;
+
+    /** Start time of the processing (ns). */
+    private volatile long start;
+
+    /** Simple constructor.
+     * @param estimators Kalman estimators for all objects, in catalog index order
+     * @param threads number of threads to use for running the filters
+     * @param capacity capacity of the per-object queues of pending measurements
+     * @exception OrekitIllegalArgumentException if threads or capacity is smaller than 1
+     */
+    public CatalogKalmanEstimator(final List<KalmanEstimator> estimators,
+                                  final int threads, final int capacity) {
+        if (threads < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, threads, 1);
+        }
+        if (capacity < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, capacity, 1);
+        }
+        this.lanes           = new ArrayList<>(estimators.size());
+        for (final KalmanEstimator estimator : estimators) {
+            lanes.add(new Lane(lanes.size(), estimator, capacity));
+        }
+        this.executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending         = new AtomicLong(0);
+        this.processed       = new AtomicLong(0);
+        this.start           = -1;
+    }
+
+    /** Get the number of objects in the catalog.
+     * @return number of objects in the catalog
+     */
+    public int getObjectsNumber() {
+        return lanes.size();
+    }
+
+    /** Get an unmodifiable list of the underlying estimators.
+     * @return unmodifiable list of the underlying estimators, in catalog index order
+     */
+    public List<KalmanEstimator> getEstimators() {
+        final List<KalmanEstimator> estimators = new ArrayList<>(lanes.size());
+        for (final Lane lane : lanes) {
+            estimators.add(lane.estimator);
+        }
+        return Collections.unmodifiableList(estimators);
+    }
+
+    /** Submit a measurement for one object.
+     * <p>
+     * The measurement is queued for processing by the filter of the object. This method
+     * returns as soon as the measurement has been queued, it blocks only if the queue
+     * of pending measurements for this object is full.
+     * </p>
+     * @param index index of the object in the catalog
+     * @param measurement measurement to process
+     * @exception OrekitException if index is out of range, if measurement is earlier than
+     * the previous measurement submitted for the same object, or if the calling thread
+     * is interrupted while waiting for room in the queue
+     */
+    public void submit(final int index, final ObservedMeasurement<?> measurement)
+        throws OrekitException {
+
+        if (index < 0 || index >= lanes.size()) {
+            throw new OrekitException(LocalizedCoreFormats.OUT_OF_RANGE_SIMPLE,
+                                      index, 0, lanes.size() - 1);
+        }
+
+        if (start < 0) {
+            start = System.nanoTime();
+        }
+
+        lanes.get(index).enqueue(measurement);
+
+    }
+
+    /** Process several measurements, routing them to their objects filters.
+     * <p>
+     * This method submits all measurements and then waits for their processing
+     * to be completed.
+     * </p>
+     * @param measurements the measurements to process, <em>chronologically sorted</em>
+     * for each object
+     * @param router function providing the index of the object a measurement belongs to
+     * @exception OrekitException if a measurement cannot be submitted or if waiting is
+     * interrupted
+     * @see #submit(int, ObservedMeasurement)
+     * @see #waitForCompletion()
+     */
+    public void processMeasurements(final Iterable<ObservedMeasurement<?>> measurements,
+                                    final ToIntFunction<ObservedMeasurement<?>> router)
+        throws OrekitException {
+        for (final ObservedMeasurement<?> measurement : measurements) {
+            submit(router.applyAsInt(measurement), measurement);
+        }
+        waitForCompletion();
+    }
+
+    /** Wait until all submitted measurements have been processed.
+     * <p>
+     * Errors triggered by the filters do not interrupt the wait, they
+     * can be retrieved afterwards using {@link #getError(int)}.
+     * </p>
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    public void waitForCompletion() throws OrekitException {
+        synchronized (pending) {
+            try {
+                while (pending.get() > 0) {
+                    pending.wait();
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+            }
+        }
+    }
+
+    /** Shut down the underlying threads pool.
+     * <p>
+     * Measurements already submitted are processed, but no new measurements can be submitted.
+     * </p>
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /** Get the error that stopped the filter of one object.
+     * @param index index of the object in the catalog
+     * @return error that stopped the filter, or null if filter did not fail
+     */
+    public OrekitException getError(final int index) {
+        return lanes.get(index).error;
+    }
+
+    /** Get the number of measurements processed by the filter of one object.
+     * @param index index of the object in the catalog
+     * @return number of measurements processed by the filter of the object
+     */
+    public long getProcessedMeasurements(final int index) {
+        return lanes.get(index).processed.get();
+    }
+
+    /** Get the number of measurements discarded for one object due to a previous error.
+     * @param index index of the object in the catalog
+     * @return number of measurements discarded for the object
+     */
+    public long getDiscardedMeasurements(final int index) {
+        return lanes.get(index).discarded.get();
+    }
+
+    /** Get the number of measurements waiting to be processed for one object.
+     * @param index index of the object in the catalog
+     * @return number of measurements waiting to be processed for the object
+     */
+    public int getPendingMeasurements(final int index) {
+        return lanes.get(index).queue.size();
+    }
+
+    /** Get the total number of processed measurements.
+     * @return total number of processed measurements, for all objects
+     */
+    public long getProcessedMeasurements() {
+        return processed.get();
+    }
+
+    /** Get the total number of measurements waiting to be processed.
+     * @return total number of measurements waiting to be processed, for all objects
+     */
+    public long getPendingMeasurements() {
+        return pending.get();
+    }
+
+    /** Get the mean throughput since first submission.
+     * @return mean number of measurements processed per second since first submission
+     * (0 if no measurements have been submitted yet)
+     */
+    public double getThroughput() {
+        final long t0 = start;
+        if (t0 < 0) {
+            return 0.0;
+        }
+        final double elapsed = 1.0e-9 * (System.nanoTime() - t0);
+        return elapsed > 0 ? processed.get() / elapsed : 0.0;
+    }
+
+    /** Signal one measurement has been handled (either processed or discarded). */
+    private void measurementHandled() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    /** Processing lane for one object. */
+    private class Lane {
+
+        /** Index of the object in the catalog. */
+        private final int index;
+
+        /** Filter for the object. */
+        private final KalmanEstimator estimator;
+
+        /** Pending measurements. */
+        private final BlockingQueue<ObservedMeasurement<?>> queue;
+
+        /** Maximum number of measurements processed by one drain task. */
+        private final int batchSize;
+
+        /** Indicator for scheduled drain task. */
+        private final AtomicBoolean scheduled;
+
+        /** Number of processed measurements. */
+        private final AtomicLong processed;
+
+        /** Number of discarded measurements. */
+        private final AtomicLong discarded;
+
+        /** Date of last submitted measurement. */
+        private AbsoluteDate lastDate;
+
+        /** Error that stopped the filter. */
+        private volatile OrekitException error;
+
+        /** Simple constructor.
+         * @param index index of the object in the catalog
+         * @param estimator filter for the object
+         * @param capacity capacity of the pending measurements queue
+         */
+        Lane(final int index, final KalmanEstimator estimator, final int capacity) {
+            this.index     = index;
+            this.estimator = estimator;
+            this.queue     = new ArrayBlockingQueue<>(capacity);
+            this.batchSize = capacity;
+            this.scheduled = new AtomicBoolean(false);
+            this.processed = new AtomicLong(0);
+            this.discarded = new AtomicLong(0);
+            this.lastDate  = null;
+            this.error     = null;
+        }
+
+        /** Add a measurement to the queue.
+         * @param measurement measurement to add
+         * @exception OrekitException if measurement is not chronological or if
+         * the calling thread is interrupted while waiting for room in the queue
+         */
+        void enqueue(final ObservedMeasurement<?> measurement)
+            throws OrekitException {
+
+            // the check and the insertion must be atomic, otherwise concurrent
+            // producers could both pass the check and enqueue out of order
+            synchronized (this) {
+                if (lastDate != null && measurement.getDate().compareTo(lastDate) < 0) {
+                    throw new OrekitException(OrekitMessages.NON_CHRONOLOGICAL_MEASUREMENTS,
+                                              index, lastDate, measurement.getDate());
+                }
+
+                pending.incrementAndGet();
+                try {
+                    queue.put(measurement);
+                } catch (InterruptedException ie) {
+                    measurementHandled();
+                    Thread.currentThread().interrupt();
+                    throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+                }
+                lastDate = measurement.getDate();
+            }
+
+            scheduleIfNeeded();
+
+        }
+
+        /** Schedule a drain task if none is already scheduled and measurements are pending. */
+        private void scheduleIfNeeded() {
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executorService.execute(this::drain);
+            }
+        }
+
+        /** Process pending measurements.
+         * <p>
+         * At most one drain task is scheduled at any time for a given lane,
+         * so measurements of one object are processed sequentially. In order
+         * to share the threads fairly between objects, one drain task processes
+         * at most one queue capacity worth of measurements and then reschedules
+         * itself at the end of the executor queue.
+         * </p>
+         */
+        private void drain() {
+            try {
+                int count = 0;
+                for (ObservedMeasurement<?> measurement = queue.poll();
+                     measurement != null;
+                     measurement = (++count < batchSize) ? queue.poll() : null) {
+                    process(measurement);
+                }
+            } finally {
+                scheduled.set(false);
+                // measurements may have been added after the last poll but before the flag was reset
+                scheduleIfNeeded();
+            }
+        }
+
+        /** Process one measurement.
+         * @param measurement measurement to process
+         */
+        private void process(final ObservedMeasurement<?> measurement) {
+            try {
+                if (error == null) {
+                    estimator.estimationStep(measurement);
+                    processed.incrementAndGet();
+                    CatalogKalmanEstimator.this.processed.incrementAndGet();
+                } else {
+                    discarded.incrementAndGet();
+                }
+            } catch (OrekitException oe) {
+                error = oe;
+            } catch (OrekitExceptionWrapper oew) {
+                error = oew.getException();
+            } catch (RuntimeException re) {
+                // an unexpected runtime exception occurred, stop processing this object
+                error = new OrekitException(re, LocalizedCoreFormats.SIMPLE_MESSAGE, re.getLocalizedMessage());
+            } finally {
+                measurementHandled();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,333 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.filtering.kalman.KalmanFilter;
+import org.hipparchus.filtering.kalman.Measurement;
+import org.hipparchus.filtering.kalman.ProcessEstimate;
+import org.hipparchus.filtering.kalman.extended.NonLinearEvolution;
+import org.hipparchus.filtering.kalman.extended.NonLinearProcess;
+import org.hipparchus.linear.Array2DRowRealMatrix;
+import org.hipparchus.linear.ArrayRealVector;
+import org.hipparchus.linear.MatrixDecomposer;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.linear.RealVector;
+
+/** Extended Kalman filter working on preallocated arrays.
+ * <p>
+ * This filter is functionally equivalent to Hipparchus {@link
+ * org.hipparchus.filtering.kalman.extended.ExtendedKalmanFilter ExtendedKalmanFilter},
+ * but it updates the covariance using the Joseph stabilized form
+ * P = (I - K H) P<sub>pred</sub> (I - K H)<sup>T</sup> + K R K<sup>T</sup>
+ * and enforces symmetry after each correction. All m&times;m work arrays are
+ * allocated once at construction and reused at each step, only small arrays
+ * whose dimension depend on the measurement size are allocated when this size
+ * changes.
+ * </p>
+ * <p>
+ * As the covariance arrays are reused, the matrices returned by {@link #getPredicted()}
+ * and {@link #getCorrected()} are only valid until the next call to {@link
+ * #estimationStep(Measurement)}.
+ * </p>
+ * @param <T> the type of the measurements
+ * @since 9.3
+ */
+class JosephKalmanFilter<T extends Measurement> implements KalmanFilter<T> {
+
+    /** Decomposer to use for the correction phase. */
+    private final MatrixDecomposer decomposer;
+
+    /** Process to be estimated. */
+    private final NonLinearProcess<T> process;
+
+    /** State dimension. */
+    private final int m;
+
+    /** Predicted covariance array. */
+    private final double[][] pPred;
+
+    /** Corrected covariance arrays (used alternately). */
+    private final double[][][] pCorr;
+
+    /** Corrected state arrays (used alternately). */
+    private final double[][] xCorr;
+
+    /** First m&times;m work array. */
+    private final double[][] work1;
+
+    /** Second m&times;m work array. */
+    private final double[][] work2;
+
+    /** Index of the corrected arrays to use for next correction. */
+    private int next;
+
+    /** Measurement dimension for which small arrays are allocated. */
+    private int n;
+
+    /** Product H P<sub>pred</sub> (n&times;m). */
+    private double[][] hp;
+
+    /** Innovation covariance matrix S (n&times;n). */
+    private double[][] s;
+
+    /** Kalman gain K (m&times;n). */
+    private double[][] k;
+
+    /** Predicted state. */
+    private ProcessEstimate predicted;
+
+    /** Corrected state. */
+    private ProcessEstimate corrected;
+
+    /** Simple constructor.
+     * @param decomposer decomposer to use for the correction phase
+     * @param process non-linear process to be estimated
+     * @param initialState initial state
+     */
+    JosephKalmanFilter(final MatrixDecomposer decomposer,
+                       final NonLinearProcess<T> process,
+                       final ProcessEstimate initialState) {
+
+        this.decomposer = decomposer;
+        this.process    = process;
+        this.m          = initialState.getState().getDimension();
+        this.pPred      = new double[m][m];
+        this.pCorr      = new double[2][m][m];
+        this.xCorr      = new double[2][m];
+        this.work1      = new double[m][m];
+        this.work2      = new double[m][m];
+        this.next       = 0;
+        this.n          = -1;
+
+        // copy initial state in the first buffers, so the caller is free to reuse its own arrays
+        final RealMatrix p0 = initialState.getCovariance();
+        for (int i = 0; i < m; ++i) {
+            xCorr[next][i] = initialState.getState().getEntry(i);
+            for (int j = 0; j < m; ++j) {
+                pCorr[next][i][j] = p0.getEntry(i, j);
+            }
+        }
+        this.corrected = new ProcessEstimate(initialState.getTime(),
+                                             new ArrayRealVector(xCorr[next], false),
+                                             new Array2DRowRealMatrix(pCorr[next], false));
+        this.predicted = corrected;
+        next = 1 - next;
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ProcessEstimate estimationStep(final T measurement)
+        throws MathRuntimeException {
+
+        final NonLinearEvolution evolution =
+                        process.getEvolution(corrected.getTime(), corrected.getState(), measurement);
+
+        // prediction: Ppred = Φ P Φᵀ + Q
+        final double[][] phi = getData(evolution.getStateTransitionMatrix());
+        final double[][] q   = getData(evolution.getProcessNoiseMatrix());
+        final double[][] p   = getData(corrected.getCovariance());
+        multiply(phi, p, work1, m, m, m);
+        multiplyTransposed(work1, phi, pPred, m, m, m);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < m; ++j) {
+                pPred[i][j] += q[i][j];
+            }
+        }
+        final RealVector predictedState = evolution.getCurrentState();
+        predicted = new ProcessEstimate(evolution.getCurrentTime(), predictedState,
+                                        new Array2DRowRealMatrix(pPred, false));
+
+        final RealMatrix h = evolution.getMeasurementJacobian();
+        if (h == null) {
+            // no correction is possible
+            copyCorrected(evolution.getCurrentTime(), predictedState);
+            return corrected;
+        }
+
+        // innovation covariance: S = H Ppred Hᵀ + R
+        final double[][] hData = getData(h);
+        final double[][] r     = getData(measurement.getCovariance());
+        ensureMeasurementDimension(hData.length);
+        multiply(hData, pPred, hp, n, m, m);
+        multiplyTransposed(hp, hData, s, n, m, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                s[i][j] += r[i][j];
+            }
+        }
+
+        final RealVector innovation = process.getInnovation(measurement, evolution,
+                                                            new Array2DRowRealMatrix(s, false));
+        if (innovation == null) {
+            // the measurement has been rejected
+            copyCorrected(evolution.getCurrentTime(), predictedState);
+            return corrected;
+        }
+
+        // Kalman gain: K = Ppred Hᵀ S⁻¹, computed as (S⁻¹ H Ppred)ᵀ since S and Ppred are symmetric
+        final RealMatrix sInvHP = decomposer.decompose(new Array2DRowRealMatrix(s, false)).
+                                  solve(new Array2DRowRealMatrix(hp, false));
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < n; ++j) {
+                k[i][j] = sInvHP.getEntry(j, i);
+            }
+        }
+
+        // corrected state: x = xpred + K innovation
+        final double[] x = xCorr[next];
+        for (int i = 0; i < m; ++i) {
+            double sum = predictedState.getEntry(i);
+            for (int j = 0; j < n; ++j) {
+                sum += k[i][j] * innovation.getEntry(j);
+            }
+            x[i] = sum;
+        }
+
+        // Joseph form: P = (I - K H) Ppred (I - K H)ᵀ + K R Kᵀ
+        multiply(k, hData, work1, m, n, m);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j < m; ++j) {
+                work1[i][j] = -work1[i][j];
+            }
+            work1[i][i] += 1.0;
+        }
+        multiply(work1, pPred, work2, m, m, m);
+        final double[][] pc = pCorr[next];
+        multiplyTransposed(work2, work1, pc, m, m, m);
+        multiply(k, r, work1, m, n, n);
+        for (int i = 0; i < m; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                double sum = 0;
+                for (int l = 0; l < n; ++l) {
+                    sum += work1[i][l] * k[j][l];
+                }
+                // enforce symmetry while adding the measurement noise contribution
+                final double pij = 0.5 * (pc[i][j] + pc[j][i]) + sum;
+                pc[i][j] = pij;
+                pc[j][i] = pij;
+            }
+        }
+
+        corrected = new ProcessEstimate(evolution.getCurrentTime(),
+                                        new ArrayRealVector(x, false),
+                                        new Array2DRowRealMatrix(pc, false));
+        next = 1 - next;
+        return corrected;
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ProcessEstimate getPredicted() {
+        return predicted;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ProcessEstimate getCorrected() {
+        return corrected;
+    }
+
+    /** Use predicted state as the corrected state.
+     * @param time current time
+     * @param predictedState predicted state
+     */
+    private void copyCorrected(final double time, final RealVector predictedState) {
+        final double[]   x  = xCorr[next];
+        final double[][] pc = pCorr[next];
+        for (int i = 0; i < m; ++i) {
+            x[i] = predictedState.getEntry(i);
+            System.arraycopy(pPred[i], 0, pc[i], 0, m);
+        }
+        corrected = new ProcessEstimate(time,
+                                        new ArrayRealVector(x, false),
+                                        new Array2DRowRealMatrix(pc, false));
+        next = 1 - next;
+    }
+
+    /** Make sure the arrays depending on measurement dimension are allocated.
+     * @param dimension measurement dimension
+     */
+    private void ensureMeasurementDimension(final int dimension) {
+        if (dimension != n) {
+            n  = dimension;
+            hp = new double[n][m];
+            s  = new double[n][n];
+            k  = new double[m][n];
+        }
+    }
+
+    /** Get the data of a matrix, avoiding copy if possible.
+     * @param matrix matrix
+     * @return matrix data (may be a reference to internal data)
+     */
+    private static double[][] getData(final RealMatrix matrix) {
+        return (matrix instanceof Array2DRowRealMatrix) ?
+               ((Array2DRowRealMatrix) matrix).getDataRef() :
+               matrix.getData();
+    }
+
+    /** Compute c = a b.
+     * @param a left matrix (rows&times;inner)
+     * @param b right matrix (inner&times;cols)
+     * @param c placeholder for result (rows&times;cols), must not be a or b
+     * @param rows number of rows of a
+     * @param inner number of columns of a
+     * @param cols number of columns of b
+     */
+    private static void multiply(final double[][] a, final double[][] b, final double[][] c,
+                                 final int rows, final int inner, final int cols) {
+        for (int i = 0; i < rows; ++i) {
+            final double[] ai = a[i];
+            final double[] ci = c[i];
+            for (int j = 0; j < cols; ++j) {
+                double sum = 0;
+                for (int l = 0; l < inner; ++l) {
+                    sum += ai[l] * b[l][j];
+                }
+                ci[j] = sum;
+            }
+        }
+    }
+
+    /** Compute c = a bᵀ.
+     * @param a left matrix (rows&times;inner)
+     * @param b right matrix (cols&times;inner)
+     * @param c placeholder for result (rows&times;cols), must not be a or b
+     * @param rows number of rows of a
+     * @param inner number of columns of a and b
+     * @param cols number of rows of b
+     */
+    private static void multiplyTransposed(final double[][] a, final double[][] b, final double[][] c,
+                                           final int rows, final int inner, final int cols) {
+        for (int i = 0; i < rows; ++i) {
+            final double[] ai = a[i];
+            final double[] ci = c[i];
+            for (int j = 0; j < cols; ++j) {
+                final double[] bj = b[j];
+                double sum = 0;
+                for (int l = 0; l < inner; ++l) {
+                    sum += ai[l] * bj[l];
+                }
+                ci[j] = sum;
+            }
+        }
+    }
+
+}
@@ -64,6 +64,29 @@ public interface KalmanEstimation {
      */
     RealMatrix getPhysicalEstimatedCovarianceMatrix();
 
+    /** Get the "physical" predicted state (i.e. not normalized).
+     * @return the "physical" predicted state for the current measurement
+     * @since 9.3
+     */
+    RealVector getPhysicalPredictedState();
+
+    /** Get the "physical" predicted covariance matrix (i.e. not normalized).
+     * @return the "physical" predicted covariance matrix for the current measurement
+     * @since 9.3
+     */
+    RealMatrix getPhysicalPredictedCovarianceMatrix();
+
+    /** Get the "physical" state transition matrix (i.e. not normalized).
+     * <p>
+     * The state transition matrix contains the partial derivatives of the predicted
+     * state at current measurement date with respect to the corrected state at
+     * previous measurement date.
+     * </p>
+     * @return the "physical" state transition matrix for the current measurement
+     * @since 9.3
+     */
+    RealMatrix getPhysicalStateTransitionMatrix();
+
     /** Get the current measurement number.
      * @return current measurement number
      */
@@ -19,6 +19,7 @@ package org.orekit.estimation.sequential;
 import java.util.List;
 
 import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.filtering.kalman.KalmanFilter;
 import org.hipparchus.filtering.kalman.ProcessEstimate;
 import org.hipparchus.filtering.kalman.extended.ExtendedKalmanFilter;
 import org.hipparchus.linear.MatrixDecomposer;
@@ -82,7 +83,7 @@ public class KalmanEstimator {
     private final Model processModel;
 
     /** Filter. */
-    private final ExtendedKalmanFilter<MeasurementDecorator> filter;
+    private final KalmanFilter<MeasurementDecorator> filter;
 
     /** Observer to retrieve current estimation info. */
     private KalmanObserver observer;
@@ -92,12 +93,15 @@ public class KalmanEstimator {
      * @param propagatorBuilders propagators builders used to evaluate the orbit.
      * @param processNoiseMatricesProviders providers for process noise matrices
      * @param estimatedMeasurementParameters measurement parameters to estimate
+     * @param inPlaceUpdate if true, use preallocated arrays, reused propagators
+     * and Joseph form for covariance update
      * @throws OrekitException propagation exception.
      */
     KalmanEstimator(final MatrixDecomposer decomposer,
                     final List<NumericalPropagatorBuilder> propagatorBuilders,
                     final List<CovarianceMatrixProvider> processNoiseMatricesProviders,
-                    final ParameterDriversList estimatedMeasurementParameters)
+                    final ParameterDriversList estimatedMeasurementParameters,
+                    final boolean inPlaceUpdate)
         throws OrekitException {
 
         this.propagatorBuilders = propagatorBuilders;
@@ -106,9 +110,13 @@ public class KalmanEstimator {
 
         // Build the process model and measurement model
         this.processModel = new Model(propagatorBuilders, processNoiseMatricesProviders,
-                                      estimatedMeasurementParameters);
+                                      estimatedMeasurementParameters, inPlaceUpdate);
 
-        this.filter = new ExtendedKalmanFilter<>(decomposer, processModel, processModel.getEstimate());
+        if (inPlaceUpdate) {
+            this.filter = new JosephKalmanFilter<>(decomposer, processModel, processModel.getEstimate());
+        } else {
+            this.filter = new ExtendedKalmanFilter<>(decomposer, processModel, processModel.getEstimate());
+        }
 
     }
 
@@ -220,7 +228,7 @@ public class KalmanEstimator {
         throws OrekitException {
         try {
             final ProcessEstimate estimate = filter.estimationStep(decorate(observedMeasurement));
-            processModel.finalizeEstimation(observedMeasurement, estimate);
+            processModel.finalizeEstimation(observedMeasurement, filter.getPredicted(), estimate);
             if (observer != null) {
                 observer.evaluationPerformed(processModel);
             }
@@ -46,6 +46,9 @@ public class KalmanEstimatorBuilder {
     /** Process noise matrices providers. */
     private List<CovarianceMatrixProvider> processNoiseMatricesProviders;
 
+    /** Indicator for in-place update mode. */
+    private boolean inPlaceUpdate;
+
     /** Default constructor.
      *  Set an extended Kalman filter, with linearized covariance prediction.
      */
@@ -54,6 +57,7 @@ public class KalmanEstimatorBuilder {
         this.propagatorBuilders              = new ArrayList<>();
         this.estimatedMeasurementsParameters = new ParameterDriversList();
         this.processNoiseMatricesProviders   = new ArrayList<>();
+        this.inPlaceUpdate                   = false;
     }
 
     /** Construct a {@link KalmanEstimatorReal} from the data in this builder.
@@ -74,7 +78,7 @@ public class KalmanEstimatorBuilder {
             throw new OrekitException(OrekitMessages.NO_PROPAGATOR_CONFIGURED);
         }
         return new KalmanEstimator(decomposer, propagatorBuilders, processNoiseMatricesProviders,
-                                   estimatedMeasurementsParameters);
+                                   estimatedMeasurementsParameters, inPlaceUpdate);
     }
 
     /** Configure the matrix decomposer.
@@ -86,6 +90,28 @@ public class KalmanEstimatorBuilder {
         return this;
     }
 
+    /** Configure the in-place update mode.
+     * <p>
+     * In this mode, intended for real-time processing of long measurements
+     * streams, the reference trajectories propagators are built only once and
+     * reset after each measurement instead of being rebuilt from the builders,
+     * and the filter updates preallocated covariance arrays using the Joseph
+     * stabilized form, so allocation per measurement is kept low in steady state.
+     * As the propagators are not rebuilt, their integrators keep the tolerances
+     * computed from the initial orbits.
+     * </p>
+     * <p>
+     * If this method is not called, the in-place update mode is not used.
+     * </p>
+     * @param inPlace if true, use the in-place update mode
+     * @return this object.
+     * @since 9.3
+     */
+    public KalmanEstimatorBuilder inPlaceUpdate(final boolean inPlace) {
+        inPlaceUpdate = inPlace;
+        return this;
+    }
+
     /** Add a propagation configuration.
      * <p>
      * This method must be called once for each propagator to managed with the
@@ -32,6 +32,7 @@ import org.hipparchus.linear.MatrixUtils;
 import org.hipparchus.linear.RealMatrix;
 import org.hipparchus.linear.RealVector;
 import org.hipparchus.util.FastMath;
+import org.orekit.attitudes.Attitude;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitExceptionWrapper;
 import org.orekit.errors.OrekitMessages;
@@ -91,12 +92,51 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
     /** Scaling factors. */
     private final double[] scale;
 
+    /** Partial derivatives equations linked to the reference trajectories. */
+    private final PartialDerivativesEquations[] partialDerivatives;
+
     /** Mappers for extracting Jacobians from integrated states. */
     private final JacobiansMapper[] mappers;
 
+    /** Indicator for reusing reference trajectories propagators between measurements. */
+    private final boolean reusePropagators;
+
+    /** Spacecraft masses used when resetting reused reference trajectories. */
+    private final double[] masses;
+
+    /** Reusable error state transition matrix. */
+    private final Array2DRowRealMatrix stm;
+
+    /** Reusable physical process noise matrix. */
+    private final Array2DRowRealMatrix physicalNoise;
+
+    /** Reusable normalized process noise matrix. */
+    private final RealMatrix normalizedNoise;
+
+    /** Reusable Jacobian of orbital state with respect to initial orbital state. */
+    private final double[][] dYdY0;
+
+    /** Reusable Jacobians of orbital state with respect to propagation parameters. */
+    private final double[][][] dYdPp;
+
+    /** Reusable Jacobian of Cartesian coordinates with respect to orbital state. */
+    private final double[][] dCdY;
+
+    /** Reusable array for orbital parameters. */
+    private final double[] orbitArray;
+
+    /** Reusable normalized measurement matrices, indexed by measurement dimension. */
+    private Array2DRowRealMatrix[] measurementMatrices;
+
+    /** Reusable Jacobians of measurements with respect to orbital state, indexed by measurement dimension. */
+    private double[][][] dMdY;
+
     /** Propagators for the reference trajectories, up to current date. */
     private NumericalPropagator[] referenceTrajectories;
 
+    /** Current predicted estimate. */
+    private ProcessEstimate predictedEstimate;
+
     /** Current corrected estimate. */
     private ProcessEstimate correctedEstimate;
 
@@ -131,8 +171,32 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
           final List<CovarianceMatrixProvider> covarianceMatricesProviders,
           final ParameterDriversList estimatedMeasurementParameters)
         throws OrekitException {
+        this(propagatorBuilders, covarianceMatricesProviders, estimatedMeasurementParameters, false);
+    }
+
+    /** Kalman process model constructor (package private).
+     * <p>
+     * If {@code reusePropagators} is true, the reference trajectories propagators
+     * are built only once, and simply reset to the corrected states after each
+     * measurement, instead of being rebuilt from the propagators builders. In this
+     * case, the integrators keep the tolerances computed from the initial orbits.
+     * </p>
+     * @param propagatorBuilders propagators builders used to evaluate the orbits.
+     * @param covarianceMatricesProviders providers for covariance matrices
+     * @param estimatedMeasurementParameters measurement parameters to estimate
+     * @param reusePropagators if true, reference trajectories propagators are reused
+     * between measurements
+     * @throws OrekitException propagation exception.
+     * @since 9.3
+     */
+    Model(final List<NumericalPropagatorBuilder> propagatorBuilders,
+          final List<CovarianceMatrixProvider> covarianceMatricesProviders,
+          final ParameterDriversList estimatedMeasurementParameters,
+          final boolean reusePropagators)
+        throws OrekitException {
 
         this.builders                        = propagatorBuilders;
+        this.reusePropagators                = reusePropagators;
         this.estimatedMeasurementsParameters = estimatedMeasurementParameters;
         this.measurementParameterColumns     = new HashMap<>(estimatedMeasurementsParameters.getDrivers().size());
         this.currentMeasurementNumber        = 0;
@@ -243,14 +307,34 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
         }
 
         // Build the reference propagators and add their partial derivatives equations implementation
-        mappers = new JacobiansMapper[builders.size()];
+        partialDerivatives = new PartialDerivativesEquations[builders.size()];
+        mappers            = new JacobiansMapper[builders.size()];
         updateReferenceTrajectories(getEstimatedPropagators());
         this.predictedSpacecraftStates = new SpacecraftState[referenceTrajectories.length];
+        this.masses                    = new double[referenceTrajectories.length];
         for (int i = 0; i < predictedSpacecraftStates.length; ++i) {
             predictedSpacecraftStates[i] = referenceTrajectories[i].getInitialState();
+            masses[i]                    = predictedSpacecraftStates[i].getMass();
         };
         this.correctedSpacecraftStates = predictedSpacecraftStates.clone();
 
+        // Allocate the arrays reused at each measurement
+        this.stm                    = new Array2DRowRealMatrix(columns, columns);
+        for (int i = 0; i < columns; ++i) {
+            stm.setEntry(i, i, 1.0);
+        }
+        this.physicalNoise          = new Array2DRowRealMatrix(columns, columns);
+        this.normalizedNoise        = new Array2DRowRealMatrix(columns, columns);
+        this.dYdY0                  = new double[6][6];
+        this.dYdPp                  = new double[builders.size()][][];
+        for (int k = 0; k < builders.size(); ++k) {
+            dYdPp[k] = new double[6][estimatedPropagationParameters[k].getNbParams()];
+        }
+        this.dCdY                   = new double[6][6];
+        this.orbitArray             = new double[6];
+        this.measurementMatrices    = new Array2DRowRealMatrix[0];
+        this.dMdY                   = new double[0][][];
+
         // Initialize the estimated normalized state and fill its values
         final RealVector correctedState      = MatrixUtils.createRealVector(columns);
 
@@ -289,6 +373,7 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
         final RealMatrix correctedCovariance = normalizeCovarianceMatrix(physicalProcessNoise);
 
         correctedEstimate = new ProcessEstimate(0.0, correctedState, correctedCovariance);
+        predictedEstimate = correctedEstimate;
 
     }
 
@@ -391,6 +476,32 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
         return unNormalizeCovarianceMatrix(correctedEstimate.getCovariance());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public RealVector getPhysicalPredictedState() {
+        return unNormalizeStateVector(predictedEstimate.getState());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RealMatrix getPhysicalPredictedCovarianceMatrix() {
+        return unNormalizeCovarianceMatrix(predictedEstimate.getCovariance());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RealMatrix getPhysicalStateTransitionMatrix() {
+        //  Un-normalize the STM: STM[i,j] = normalized(STM)[i,j] * scale[i] / scale[j]
+        final int nbParams = scale.length;
+        final RealMatrix physicalStm = MatrixUtils.createRealMatrix(nbParams, nbParams);
+        for (int i = 0; i < nbParams; ++i) {
+            for (int j = 0; j < nbParams; ++j) {
+                physicalStm.setEntry(i, j, stm.getEntry(i, j) * scale[i] / scale[j]);
+            }
+        }
+        return physicalStm;
+    }
+
     /** {@inheritDoc} */
     @Override
     public ParameterDriversList getEstimatedOrbitalParameters() {
@@ -462,15 +573,18 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
          *       |        |         |         |   |   .    |   .    | 0 0 1..|
          */
 
-        // Initialize to the proper size identity matrix
-        final RealMatrix stm = MatrixUtils.createRealIdentityMatrix(correctedEstimate.getState().getDimension());
+        // Reset the reusable matrix to identity
+        final double[][] stmData = stm.getDataRef();
+        for (int i = 0; i < stmData.length; ++i) {
+            Arrays.fill(stmData[i], 0.0);
+            stmData[i][i] = 1.0;
+        }
 
         // loop over all orbits
         for (int k = 0; k < predictedSpacecraftStates.length; ++k) {
 
             // Derivatives of the state vector with respect to initial state vector
-            final double[][] dYdY0 = new double[6][6];
-            mappers[k].getStateJacobian(predictedSpacecraftStates[k], dYdY0 );
+            mappers[k].getStateJacobian(predictedSpacecraftStates[k], dYdY0);
 
             // Fill upper left corner (dY/dY0)
             final List<ParameterDriversList.DelegatingDriver> drivers =
@@ -480,7 +594,7 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
                     int jOrb = orbitsStartColumns[k];
                     for (int j = 0; j < dYdY0[i].length; ++j) {
                         if (drivers.get(j).isSelected()) {
-                            stm.setEntry(i, jOrb++, dYdY0[i][j]);
+                            stmData[i][jOrb++] = dYdY0[i][j];
                         }
                     }
                 }
@@ -489,13 +603,12 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
             // Derivatives of the state vector with respect to propagation parameters
             final int nbParams = estimatedPropagationParameters[k].getNbParams();
             if (nbParams > 0) {
-                final double[][] dYdPp  = new double[6][nbParams];
-                mappers[k].getParametersJacobian(predictedSpacecraftStates[k], dYdPp);
+                mappers[k].getParametersJacobian(predictedSpacecraftStates[k], dYdPp[k]);
 
                 // Fill 1st row, 2nd column (dY/dPp)
-                for (int i = 0; i < dYdPp.length; ++i) {
+                for (int i = 0; i < dYdPp[k].length; ++i) {
                     for (int j = 0; j < nbParams; ++j) {
-                        stm.setEntry(i, orbitsEndColumns[k] + j, dYdPp[i][j]);
+                        stmData[i][orbitsEndColumns[k] + j] = dYdPp[k][i][j];
                     }
                 }
 
@@ -507,7 +620,7 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
         // normalized(STM)ij = STMij*Sj/Si
         for (int i = 0; i < scale.length; i++) {
             for (int j = 0; j < scale.length; j++ ) {
-                stm.setEntry(i, j, stm.getEntry(i, j) * scale[j] / scale[i]);
+                stmData[i][j] *= scale[j] / scale[i];
             }
         }
 
@@ -533,9 +646,14 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
         // Initialize measurement matrix H: nxm
         // n: Number of measurements in current measurement
         // m: State vector size
-        final RealMatrix measurementMatrix = MatrixUtils.
-                        createRealMatrix(observedMeasurement.getDimension(),
-                                         correctedEstimate.getState().getDimension());
+        final int n = observedMeasurement.getDimension();
+        ensureMeasurementDimension(n);
+        final Array2DRowRealMatrix measurementMatrix = measurementMatrices[n];
+        final double[][] hData = measurementMatrix.getDataRef();
+        for (final double[] row : hData) {
+            Arrays.fill(row, 0.0);
+        }
+        final double[][] dMdYn = dMdY[n];
 
         // loop over all orbits involved in the measurement
         for (int k = 0; k < evaluationStates.length; ++k) {
@@ -548,24 +666,22 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
             // ----------------------------------------------------------
 
             // Partial derivatives of the current Cartesian coordinates with respect to current orbital state
-            final double[][] aCY = new double[6][6];
-            predictedOrbit.getJacobianWrtParameters(builders.get(p).getPositionAngle(), aCY);   //dC/dY
-            final RealMatrix dCdY = new Array2DRowRealMatrix(aCY, false);
+            predictedOrbit.getJacobianWrtParameters(builders.get(p).getPositionAngle(), dCdY);
 
             // Jacobian of the measurement with respect to current Cartesian coordinates
-            final RealMatrix dMdC = new Array2DRowRealMatrix(predictedMeasurement.getStateDerivatives(k), false);
+            final double[][] dMdC = predictedMeasurement.getStateDerivatives(k);
 
             // Jacobian of the measurement with respect to current orbital state
-            final RealMatrix dMdY = dMdC.multiply(dCdY);
+            multiply(dMdC, dCdY, dMdYn);
 
             // Fill the normalized measurement matrix's columns related to estimated orbital parameters
-            for (int i = 0; i < dMdY.getRowDimension(); ++i) {
+            final List<DelegatingDriver> orbitalDrivers = builders.get(p).getOrbitalParametersDrivers().getDrivers();
+            for (int i = 0; i < n; ++i) {
                 int jOrb = orbitsStartColumns[p];
-                for (int j = 0; j < dMdY.getColumnDimension(); ++j) {
-                    final ParameterDriver driver = builders.get(p).getOrbitalParametersDrivers().getDrivers().get(j);
+                for (int j = 0; j < 6; ++j) {
+                    final ParameterDriver driver = orbitalDrivers.get(j);
                     if (driver.isSelected()) {
-                        measurementMatrix.setEntry(i, jOrb++,
-                                                   dMdY.getEntry(i, j) / sigma[i] * driver.getScale());
+                        hData[i][jOrb++] = dMdYn[i][j] / sigma[i] * driver.getScale();
                     }
                 }
             }
@@ -576,15 +692,16 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
             // Jacobian of the measurement with respect to propagation parameters
             final int nbParams = estimatedPropagationParameters[p].getNbParams();
             if (nbParams > 0) {
-                final double[][] aYPp  = new double[6][nbParams];
+                final double[][] aYPp = dYdPp[p];
                 mappers[p].getParametersJacobian(evaluationStates[k], aYPp);
-                final RealMatrix dYdPp = new Array2DRowRealMatrix(aYPp, false);
-                final RealMatrix dMdPp = dMdY.multiply(dYdPp);
-                for (int i = 0; i < dMdPp.getRowDimension(); ++i) {
+                for (int i = 0; i < n; ++i) {
                     for (int j = 0; j < nbParams; ++j) {
+                        double dMdPpij = 0;
+                        for (int l = 0; l < 6; ++l) {
+                            dMdPpij += dMdYn[i][l] * aYPp[l][j];
+                        }
                         final ParameterDriver delegating = allEstimatedPropagationParameters.getDrivers().get(j);
-                        measurementMatrix.setEntry(i, orbitsEndColumns[p] + j,
-                                                   dMdPp.getEntry(i, j) / sigma[i] * delegating.getScale());
+                        hData[i][orbitsEndColumns[p] + j] = dMdPpij / sigma[i] * delegating.getScale();
                     }
                 }
             }
@@ -606,8 +723,7 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
 
                         // Fill the corresponding indexes of the measurement matrix
                         for (int i = 0; i < aMPm.length; ++i) {
-                            measurementMatrix.setEntry(i, driverColumn,
-                                                       aMPm[i] / sigma[i] * driver.getScale());
+                            hData[i][driverColumn] = aMPm[i] / sigma[i] * driver.getScale();
                         }
                     }
                 }
@@ -619,6 +735,37 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
 
     }
 
+    /** Make sure the reusable arrays for a measurement dimension are allocated.
+     * @param n measurement dimension
+     */
+    private void ensureMeasurementDimension(final int n) {
+        if (n >= measurementMatrices.length) {
+            measurementMatrices = Arrays.copyOf(measurementMatrices, n + 1);
+            dMdY                = Arrays.copyOf(dMdY, n + 1);
+        }
+        if (measurementMatrices[n] == null) {
+            measurementMatrices[n] = new Array2DRowRealMatrix(n, scale.length);
+            dMdY[n]                = new double[n][6];
+        }
+    }
+
+    /** Compute c = a b for matrices with 6 columns.
+     * @param a left matrix (nx6)
+     * @param b right matrix (6x6)
+     * @param c placeholder for the result (nx6)
+     */
+    private static void multiply(final double[][] a, final double[][] b, final double[][] c) {
+        for (int i = 0; i < c.length; ++i) {
+            for (int j = 0; j < 6; ++j) {
+                double sum = 0;
+                for (int l = 0; l < 6; ++l) {
+                    sum += a[i][l] * b[l][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+    }
+
 
     /** Update the reference trajectories using the propagators as input.
      * @param propagators The new propagators to use
@@ -639,11 +786,52 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
             final SpacecraftState rawState = referenceTrajectories[k].getInitialState();
             final SpacecraftState stateWithDerivatives = pde.setInitialJacobians(rawState);
             referenceTrajectories[k].resetInitialState(stateWithDerivatives);
-            mappers[k] = pde.getMapper();
+            partialDerivatives[k] = pde;
+            mappers[k]            = pde.getMapper();
         }
 
     }
 
+    /** Reset the existing reference trajectories to the corrected states.
+     * <p>
+     * This method avoids building new propagators, it reuses the existing
+     * propagators and partial derivatives equations.
+     * </p>
+     * @throws OrekitException if the Jacobians cannot be reset
+     */
+    private void resetReferenceTrajectories()
+        throws OrekitException {
+        for (int k = 0; k < referenceTrajectories.length; ++k) {
+            final SpacecraftState stateWithDerivatives =
+                            partialDerivatives[k].setInitialJacobians(correctedSpacecraftStates[k]);
+            referenceTrajectories[k].resetInitialState(stateWithDerivatives);
+        }
+    }
+
+    /** Build a corrected spacecraft state from the current values in a propagator builder.
+     * <p>
+     * This method is a stripped down version of {@link NumericalPropagatorBuilder#buildPropagator(double[])}
+     * that only builds the initial state, using the attitude provider of the reference trajectory.
+     * </p>
+     * @param k index of the propagator builder
+     * @return corrected spacecraft state
+     * @throws OrekitException if attitude cannot be computed
+     */
+    private SpacecraftState buildCorrectedState(final int k)
+        throws OrekitException {
+        final NumericalPropagatorBuilder builder = builders.get(k);
+        final List<DelegatingDriver> orbitalDrivers = builder.getOrbitalParametersDrivers().getDrivers();
+        for (int i = 0; i < orbitArray.length; ++i) {
+            orbitArray[i] = orbitalDrivers.get(i).getValue();
+        }
+        final Orbit orbit = builder.getOrbitType().mapArrayToOrbit(orbitArray, null, builder.getPositionAngle(),
+                                                                    builder.getInitialOrbitDate(), builder.getMu(),
+                                                                    builder.getFrame());
+        final Attitude attitude = referenceTrajectories[k].getAttitudeProvider().
+                                  getAttitude(orbit, orbit.getDate(), builder.getFrame());
+        return new SpacecraftState(orbit, attitude, masses[k]);
+    }
+
     /** Un-normalize a state vector.
      * A state vector S is of size m = nbOrb + nbPropag + nbMeas
      * For each parameter i the normalized value of the state vector is:
@@ -672,12 +860,22 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
      * @return the normalized covariance matrix
      */
     private RealMatrix normalizeCovarianceMatrix(final RealMatrix physicalCovarianceMatrix) {
-
-        // Initialize output matrix
         final int nbParams = physicalCovarianceMatrix.getRowDimension();
-        final RealMatrix normalizedCovarianceMatrix = MatrixUtils.createRealMatrix(nbParams, nbParams);
+        return normalizeCovarianceMatrix(physicalCovarianceMatrix,
+                                         MatrixUtils.createRealMatrix(nbParams, nbParams));
+    }
+
+    /** Normalize a covariance matrix into an existing matrix.
+     * @param physicalCovarianceMatrix The "physical" covariance matrix in input
+     * @param normalizedCovarianceMatrix placeholder for the normalized covariance matrix
+     * @return the normalized covariance matrix (i.e. normalizedCovarianceMatrix)
+     * @see #normalizeCovarianceMatrix(RealMatrix)
+     */
+    private RealMatrix normalizeCovarianceMatrix(final RealMatrix physicalCovarianceMatrix,
+                                                 final RealMatrix normalizedCovarianceMatrix) {
 
         // Normalize the state matrix
+        final int nbParams = physicalCovarianceMatrix.getRowDimension();
         for (int i = 0; i < nbParams; ++i) {
             for (int j = 0; j < nbParams; ++j) {
                 normalizedCovarianceMatrix.setEntry(i, j,
@@ -818,8 +1016,9 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
             final RealMatrix measurementMatrix = getMeasurementMatrix();
 
             // compute process noise matrix
-            final RealMatrix physicalProcessNoise = MatrixUtils.createRealMatrix(previousState.getDimension(),
-                                                                                 previousState.getDimension());
+            for (final double[] row : physicalNoise.getDataRef()) {
+                Arrays.fill(row, 0.0);
+            }
             for (int k = 0; k < covarianceMatricesProviders.size(); ++k) {
                 final RealMatrix noiseK = covarianceMatricesProviders.get(k).
                                           getProcessNoiseMatrix(correctedSpacecraftStates[k],
@@ -833,17 +1032,17 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
                     if (indK[i] >= 0) {
                         for (int j = 0; j < indK.length; ++j) {
                             if (indK[j] >= 0) {
-                                physicalProcessNoise.setEntry(indK[i], indK[j], noiseK.getEntry(i, j));
+                                physicalNoise.setEntry(indK[i], indK[j], noiseK.getEntry(i, j));
                             }
                         }
                     }
                 }
 
             }
-            final RealMatrix normalizedProcessNoise = normalizeCovarianceMatrix(physicalProcessNoise);
+            normalizeCovarianceMatrix(physicalNoise, normalizedNoise);
 
             return new NonLinearEvolution(measurement.getTime(), predictedState,
-                                          stateTransitionMatrix, normalizedProcessNoise, measurementMatrix);
+                                          stateTransitionMatrix, normalizedNoise, measurementMatrix);
 
         } catch (OrekitException oe) {
             throw new OrekitExceptionWrapper(oe);
@@ -882,31 +1081,54 @@ class Model implements KalmanEstimation, NonLinearProcess<MeasurementDecorator>
 
     /** Finalize estimation.
      * @param observedMeasurement measurement that has just been processed
+     * @param predicted predicted estimate
      * @param estimate corrected estimate
      * @exception OrekitException if measurement cannot be re-estimated from corrected state
      */
     public void finalizeEstimation(final ObservedMeasurement<?> observedMeasurement,
+                                   final ProcessEstimate predicted,
                                    final ProcessEstimate estimate)
         throws OrekitException {
         // Update the parameters with the estimated state
         // The min/max values of the parameters are handled by the ParameterDriver implementation
+        predictedEstimate = predicted;
         correctedEstimate = estimate;
         updateParameters();
 
-        // Get the estimated propagator (mirroring parameter update in the builder)
-        // and the estimated spacecraft state
-        final NumericalPropagator[] estimatedPropagators = getEstimatedPropagators();
-        for (int k = 0; k < estimatedPropagators.length; ++k) {
-            correctedSpacecraftStates[k] = estimatedPropagators[k].getInitialState();
-        }
+        if (reusePropagators) {
 
-        // Compute the estimated measurement using estimated spacecraft state
-        correctedMeasurement = observedMeasurement.estimate(currentMeasurementNumber,
-                                                            currentMeasurementNumber,
-                                                            correctedSpacecraftStates);
-        // Update the trajectory
-        // ---------------------
-        updateReferenceTrajectories(estimatedPropagators);
+            // Build the estimated spacecraft state directly from the builder
+            for (int k = 0; k < correctedSpacecraftStates.length; ++k) {
+                correctedSpacecraftStates[k] = buildCorrectedState(k);
+            }
+
+            // Compute the estimated measurement using estimated spacecraft state
+            correctedMeasurement = observedMeasurement.estimate(currentMeasurementNumber,
+                                                                currentMeasurementNumber,
+                                                                correctedSpacecraftStates);
+
+            // Reset the existing trajectories
+            // -------------------------------
+            resetReferenceTrajectories();
+
+        } else {
+
+            // Get the estimated propagator (mirroring parameter update in the builder)
+            // and the estimated spacecraft state
+            final NumericalPropagator[] estimatedPropagators = getEstimatedPropagators();
+            for (int k = 0; k < estimatedPropagators.length; ++k) {
+                correctedSpacecraftStates[k] = estimatedPropagators[k].getInitialState();
+            }
+
+            // Compute the estimated measurement using estimated spacecraft state
+            correctedMeasurement = observedMeasurement.estimate(currentMeasurementNumber,
+                                                                currentMeasurementNumber,
+                                                                correctedSpacecraftStates);
+            // Update the trajectory
+            // ---------------------
+            updateReferenceTrajectories(estimatedPropagators);
+
+        }
 
     }
 
@@ -0,0 +1,423 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hipparchus.exception.DummyLocalizable;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.linear.Array2DRowRealMatrix;
+import org.hipparchus.linear.ArrayRealVector;
+import org.hipparchus.linear.MatrixDecomposer;
+import org.hipparchus.linear.QRDecomposer;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.linear.RealVector;
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+
+/** Rauch-Tung-Striebel fixed-interval smoother for {@link KalmanEstimator}.
+ * <p>
+ * This class is a {@link KalmanObserver} that records the predicted and corrected
+ * estimates and the state transition matrices during the forward pass of a
+ * {@link KalmanEstimator}. Once all measurements have been processed, the {@link
+ * #smooth(SmoothedEstimateHandler) backward pass} combines the recorded history to
+ * provide smoothed estimates at each measurement date, which use all measurements
+ * (past and future) and hence are more accurate than the filtered ones.
+ * </p>
+ * <p>
+ * In order to keep memory consumption bounded for long arcs, only the most recent
+ * steps are kept in memory. Older steps are spilled to a temporary file as fixed
+ * size records, which are read back by random access during the backward pass.
+ * The temporary file is deleted when {@link #clear()} is called and at JVM exit.
+ * </p>
+ * <p>
+ * Only the last observer can be set on a {@link KalmanEstimator}, so this smoother
+ * can wrap another observer to which it forwards all forward pass notifications.
+ * </p>
+ * @see KalmanEstimator#setObserver(KalmanObserver)
+ * @since 9.3
+ */
+public class RtsSmoother implements KalmanObserver {
+
+    /** Size of a double in bytes. */
+    private static final int DOUBLE_SIZE = Double.SIZE / Byte.SIZE;
+
+    /** Maximum number of steps kept in memory. */
+    private final int maxInMemory;
+
+    /** Directory for the temporary file (null for system default). */
+    private final File directory;
+
+    /** Wrapped observer (may be null). */
+    private final KalmanObserver observer;
+
+    /** Decomposer used to invert the predicted covariance matrices. */
+    private final MatrixDecomposer decomposer;
+
+    /** Steps kept in memory (the oldest ones are on disk). */
+    private final List<Step> inMemory;
+
+    /** Reference date for the recorded steps. */
+    private AbsoluteDate referenceDate;
+
+    /** State dimension. */
+    private int dimension;
+
+    /** Total number of recorded steps. */
+    private int nbSteps;
+
+    /** Number of steps spilled to disk. */
+    private int nbSpilled;
+
+    /** Temporary file for spilled steps. */
+    private File spillFile;
+
+    /** Random access to the spilled steps. */
+    private RandomAccessFile spill;
+
+    /** Buffer for one spilled step. */
+    private byte[] buffer;
+
+    /** Simple constructor.
+     * <p>
+     * This constructor uses a {@link QRDecomposer} with a 10<sup>-15</sup> singularity
+     * threshold to invert the predicted covariance matrices.
+     * </p>
+     * @param maxInMemory maximum number of steps kept in memory before spilling
+     * the oldest ones to disk (must be at least 1)
+     * @param directory directory for the temporary file (if null, the system default
+     * temporary directory will be used)
+     * @param observer observer to which forward pass notifications are forwarded
+     * (may be null)
+     * @exception OrekitException if maxInMemory is not strictly positive
+     */
+    public RtsSmoother(final int maxInMemory, final File directory, final KalmanObserver observer)
+        throws OrekitException {
+        this(maxInMemory, directory, observer, new QRDecomposer(1.0e-15));
+    }
+
+    /** Simple constructor.
+     * @param maxInMemory maximum number of steps kept in memory before spilling
+     * the oldest ones to disk (must be at least 1)
+     * @param directory directory for the temporary file (if null, the system default
+     * temporary directory will be used)
+     * @param observer observer to which forward pass notifications are forwarded
+     * (may be null)
+     * @param decomposer decomposer used to invert the predicted covariance matrices
+     * @exception OrekitException if maxInMemory is not strictly positive
+     */
+    public RtsSmoother(final int maxInMemory, final File directory, final KalmanObserver observer,
+                       final MatrixDecomposer decomposer)
+        throws OrekitException {
+        if (maxInMemory < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, maxInMemory, 1);
+        }
+        this.maxInMemory = maxInMemory;
+        this.directory   = directory;
+        this.observer    = observer;
+        this.decomposer  = decomposer;
+        this.inMemory    = new ArrayList<>();
+        this.nbSteps     = 0;
+        this.nbSpilled   = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void evaluationPerformed(final KalmanEstimation estimation)
+        throws OrekitException {
+
+        final RealVector corrected = estimation.getPhysicalEstimatedState();
+        if (nbSteps == 0) {
+            referenceDate = estimation.getCurrentDate();
+            dimension     = corrected.getDimension();
+            buffer        = new byte[recordSize(dimension)];
+        }
+
+        inMemory.add(new Step(estimation.getCurrentDate().durationFrom(referenceDate),
+                              estimation.getPhysicalPredictedState().toArray(),
+                              estimation.getPhysicalPredictedCovarianceMatrix().getData(),
+                              corrected.toArray(),
+                              estimation.getPhysicalEstimatedCovarianceMatrix().getData(),
+                              estimation.getPhysicalStateTransitionMatrix().getData()));
+        ++nbSteps;
+
+        if (inMemory.size() > maxInMemory) {
+            // spill the oldest half of the in-memory steps to disk,
+            // so removal from the list is amortized over several steps
+            final int toSpill = inMemory.size() - maxInMemory / 2;
+            for (int i = 0; i < toSpill; ++i) {
+                write(nbSpilled++, inMemory.get(i));
+            }
+            inMemory.subList(0, toSpill).clear();
+        }
+
+        if (observer != null) {
+            observer.evaluationPerformed(estimation);
+        }
+
+    }
+
+    /** Get the number of recorded steps.
+     * @return number of recorded steps
+     */
+    public int getStepsNumber() {
+        return nbSteps;
+    }
+
+    /** Get the number of steps spilled to disk.
+     * @return number of steps spilled to disk
+     */
+    public int getSpilledStepsNumber() {
+        return nbSpilled;
+    }
+
+    /** Perform the backward smoothing pass.
+     * <p>
+     * The recorded history is preserved, so this method can be called several times.
+     * </p>
+     * @param handler handler for smoothed estimates, which are provided in reverse
+     * chronological order
+     * @exception OrekitException if spilled steps cannot be read or a predicted
+     * covariance matrix is singular or handler triggers one
+     */
+    public void smooth(final SmoothedEstimateHandler handler)
+        throws OrekitException {
+
+        if (nbSteps == 0) {
+            return;
+        }
+
+        // at last step, smoothed estimate is the filtered estimate
+        Step next = getStep(nbSteps - 1);
+        RealVector xs = new ArrayRealVector(next.xc, false);
+        RealMatrix ps = new Array2DRowRealMatrix(next.pc, false);
+        handler.handleSmoothedEstimate(referenceDate.shiftedBy(next.dt), xs, ps);
+
+        for (int k = nbSteps - 2; k >= 0; --k) {
+
+            final Step current = getStep(k);
+            final RealMatrix pc = new Array2DRowRealMatrix(current.pc, false);
+            final RealMatrix pp = new Array2DRowRealMatrix(next.pp, false);
+            final RealMatrix phi = new Array2DRowRealMatrix(next.phi, false);
+
+            // smoother gain: C = Pc[k] Φ[k+1]ᵀ Pp[k+1]⁻¹, computed as (Pp[k+1]⁻¹ Φ[k+1] Pc[k])ᵀ
+            // since both covariance matrices are symmetric
+            final RealMatrix c = decomposer.decompose(pp).solve(phi.multiply(pc)).transpose();
+
+            // smoothed state: xs[k] = xc[k] + C (xs[k+1] - xp[k+1])
+            xs = new ArrayRealVector(current.xc, false).
+                 add(c.operate(xs.subtract(new ArrayRealVector(next.xp, false))));
+
+            // smoothed covariance: Ps[k] = Pc[k] + C (Ps[k+1] - Pp[k+1]) Cᵀ
+            final RealMatrix p = pc.add(c.multiply(ps.subtract(pp)).multiplyTransposed(c));
+            for (int i = 0; i < dimension; ++i) {
+                for (int j = 0; j < i; ++j) {
+                    final double pij = 0.5 * (p.getEntry(i, j) + p.getEntry(j, i));
+                    p.setEntry(i, j, pij);
+                    p.setEntry(j, i, pij);
+                }
+            }
+            ps = p;
+
+            handler.handleSmoothedEstimate(referenceDate.shiftedBy(current.dt), xs, ps);
+            next = current;
+
+        }
+
+    }
+
+    /** Clear the recorded history and delete the temporary file.
+     * @exception OrekitException if temporary file cannot be closed
+     */
+    public void clear() throws OrekitException {
+        inMemory.clear();
+        nbSteps   = 0;
+        nbSpilled = 0;
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ioe) {
+                throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+            } finally {
+                spill = null;
+                if (!spillFile.delete()) {
+                    spillFile.deleteOnExit();
+                }
+                spillFile = null;
+            }
+        }
+    }
+
+    /** Get a recorded step.
+     * @param index index of the step
+     * @return recorded step
+     * @exception OrekitException if step cannot be read from disk
+     */
+    private Step getStep(final int index) throws OrekitException {
+        return (index < nbSpilled) ? read(index) : inMemory.get(index - nbSpilled);
+    }
+
+    /** Compute the size of a record.
+     * @param m state dimension
+     * @return size of one record in bytes
+     */
+    private static int recordSize(final int m) {
+        return DOUBLE_SIZE * (1 + 2 * m + 3 * m * m);
+    }
+
+    /** Write a step to disk.
+     * @param index index of the step
+     * @param step step to write
+     * @exception OrekitException if step cannot be written
+     */
+    private void write(final int index, final Step step) throws OrekitException {
+        try {
+            if (spill == null) {
+                spillFile = File.createTempFile("orekit-rts-", ".bin", directory);
+                spillFile.deleteOnExit();
+                spill = new RandomAccessFile(spillFile, "rw");
+            }
+            final ByteBuffer bb = ByteBuffer.wrap(buffer);
+            bb.putDouble(step.dt);
+            put(bb, step.xp);
+            put(bb, step.pp);
+            put(bb, step.xc);
+            put(bb, step.pc);
+            put(bb, step.phi);
+            spill.seek(((long) index) * buffer.length);
+            spill.write(buffer);
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** Read a step from disk.
+     * @param index index of the step
+     * @return read step
+     * @exception OrekitException if step cannot be read
+     */
+    private Step read(final int index) throws OrekitException {
+        try {
+            spill.seek(((long) index) * buffer.length);
+            spill.readFully(buffer);
+            final ByteBuffer bb = ByteBuffer.wrap(buffer);
+            final double dt = bb.getDouble();
+            final double[]   xp  = new double[dimension];
+            final double[][] pp  = new double[dimension][dimension];
+            final double[]   xc  = new double[dimension];
+            final double[][] pc  = new double[dimension][dimension];
+            final double[][] phi = new double[dimension][dimension];
+            get(bb, xp);
+            get(bb, pp);
+            get(bb, xc);
+            get(bb, pc);
+            get(bb, phi);
+            return new Step(dt, xp, pp, xc, pc, phi);
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** Put a vector into a byte buffer.
+     * @param bb byte buffer
+     * @param v vector to put
+     */
+    private static void put(final ByteBuffer bb, final double[] v) {
+        for (final double d : v) {
+            bb.putDouble(d);
+        }
+    }
+
+    /** Put a matrix into a byte buffer.
+     * @param bb byte buffer
+     * @param m matrix to put
+     */
+    private static void put(final ByteBuffer bb, final double[][] m) {
+        for (final double[] row : m) {
+            put(bb, row);
+        }
+    }
+
+    /** Get a vector from a byte buffer.
+     * @param bb byte buffer
+     * @param v placeholder for the vector
+     */
+    private static void get(final ByteBuffer bb, final double[] v) {
+        for (int i = 0; i < v.length; ++i) {
+            v[i] = bb.getDouble();
+        }
+    }
+
+    /** Get a matrix from a byte buffer.
+     * @param bb byte buffer
+     * @param m placeholder for the matrix
+     */
+    private static void get(final ByteBuffer bb, final double[][] m) {
+        for (final double[] row : m) {
+            get(bb, row);
+        }
+    }
+
+    /** Container for one forward pass step. */
+    private static class Step {
+
+        /** Offset of step date with respect to reference date. */
+        private final double dt;
+
+        /** Predicted state. */
+        private final double[] xp;
+
+        /** Predicted covariance. */
+        private final double[][] pp;
+
+        /** Corrected state. */
+        private final double[] xc;
+
+        /** Corrected covariance. */
+        private final double[][] pc;
+
+        /** State transition matrix from previous step. */
+        private final double[][] phi;
+
+        /** Simple constructor.
+         * @param dt offset of step date with respect to reference date
+         * @param xp predicted state
+         * @param pp predicted covariance
+         * @param xc corrected state
+         * @param pc corrected covariance
+         * @param phi state transition matrix from previous step
+         */
+        Step(final double dt,
+             final double[] xp, final double[][] pp,
+             final double[] xc, final double[][] pc,
+             final double[][] phi) {
+            this.dt  = dt;
+            this.xp  = xp;
+            this.pp  = pp;
+            this.xc  = xc;
+            this.pc  = pc;
+            this.phi = phi;
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.linear.RealVector;
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+
+/** Handler for smoothed estimates produced by {@link RtsSmoother}.
+ * <p>
+ * Smoothed estimates are provided in reverse chronological order, starting
+ * from the last processed measurement and going back to the first one.
+ * </p>
+ * @see RtsSmoother#smooth(SmoothedEstimateHandler)
+ * @since 9.3
+ */
+public interface SmoothedEstimateHandler {
+
+    /** Handle one smoothed estimate.
+     * @param date date of the estimate
+     * @param state "physical" smoothed state (i.e. not normalized)
+     * @param covariance "physical" smoothed covariance matrix (i.e. not normalized)
+     * @exception OrekitException if estimate cannot be handled
+     */
+    void handleSmoothedEstimate(AbsoluteDate date, RealVector state, RealMatrix covariance)
+        throws OrekitException;
+
+}
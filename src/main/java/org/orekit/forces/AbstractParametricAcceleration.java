@@ -94,6 +94,12 @@ public abstract class AbstractParametricAcceleration extends AbstractForceModel
         return isInertial;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return !isInertial && attitudeOverride == null;
+    }
+
     /** Compute the signed amplitude of the acceleration.
      * <p>
      * The acceleration is the direction multiplied by the signed amplitude. So if
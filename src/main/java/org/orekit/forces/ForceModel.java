@@ -144,6 +144,20 @@ public interface ForceModel {
      */
     boolean dependsOnPositionOnly();
 
+    /** Check if force model depends on spacecraft attitude.
+     * <p>
+     * The default implementation returns true, which is always safe. Force
+     * models that never use the attitude from the spacecraft state should
+     * return false, so propagators can avoid computing attitude when they
+     * only need state derivatives.
+     * </p>
+     * @return true if force model depends on the attitude from the spacecraft state
+     * @since 9.3
+     */
+    default boolean dependsOnAttitude() {
+        return true;
+    }
+
     /** Compute acceleration.
      * @param s current state information: date, kinematics, attitude
      * @param parameters values of the force model parameters
@@ -77,6 +77,12 @@ public class DragForce extends AbstractForceModel {
         return false;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return spacecraft.dragDependsOnAttitude();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D acceleration(final SpacecraftState s, final double[] parameters)
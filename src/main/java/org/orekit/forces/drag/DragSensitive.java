@@ -57,6 +57,18 @@ public interface DragSensitive {
      */
     ParameterDriver[] getDragParametersDrivers();
 
+    /** Check if the drag acceleration depends on spacecraft attitude.
+     * <p>
+     * The default implementation returns true, which is always safe.
+     * Models that ignore the rotation parameter should return false.
+     * </p>
+     * @return true if the acceleration depends on spacecraft attitude
+     * @since 9.3
+     */
+    default boolean dragDependsOnAttitude() {
+        return true;
+    }
+
     /** Compute the acceleration due to drag.
      * <p>
      * The computation includes all spacecraft specific characteristics
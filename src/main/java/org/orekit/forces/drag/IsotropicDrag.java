@@ -98,6 +98,12 @@ public class IsotropicDrag implements DragSensitive {
         return dragParametersDrivers.clone();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dragDependsOnAttitude() {
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D dragAcceleration(final AbsoluteDate date, final Frame frame, final Vector3D position,
@@ -45,6 +45,7 @@ import org.orekit.propagation.events.FieldEventDetector;
 import org.orekit.time.AbsoluteDate;
 import org.orekit.time.FieldAbsoluteDate;
 import org.orekit.utils.FieldPVCoordinates;
+import org.orekit.utils.Gradient;
 import org.orekit.utils.ParameterDriver;
 
 /** This class represents the gravitational field of a celestial body.
@@ -170,6 +171,12 @@ public class HolmesFeatherstoneAttractionModel extends AbstractForceModel implem
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return false;
+    }
+
     /** {@inheritDoc} */
     public TideSystem getTideSystem() {
         return provider.getTideSystem();
@@ -1072,6 +1079,16 @@ public class HolmesFeatherstoneAttractionModel extends AbstractForceModel implem
             return a;
         }
 
+        // check for faster computation dedicated to first order derivatives
+        if (mu instanceof Gradient) {
+            @SuppressWarnings("unchecked")
+            final FieldVector3D<Gradient> p = (FieldVector3D<Gradient>) s.getPVCoordinates().getPosition();
+            @SuppressWarnings("unchecked")
+            final FieldVector3D<T> a = (FieldVector3D<T>) accelerationGradient(s.getDate().toAbsoluteDate(),
+                                                                               s.getFrame(), p, (Gradient) mu);
+            return a;
+        }
+
         // get the position in body frame
         final FieldAbsoluteDate<T> date          = s.getDate();
         final Transform            fromBodyFrame = bodyFrame.getTransformTo(s.getFrame(), date.toAbsoluteDate());
@@ -1208,6 +1225,70 @@ public class HolmesFeatherstoneAttractionModel extends AbstractForceModel implem
 
     }
 
+    /** Compute acceleration and its first order derivatives.
+     * <p>
+     * From a theoretical point of view, this method computes the same values
+     * as {@link #acceleration(FieldSpacecraftState, RealFieldElement[])} in the
+     * specific case of {@link Gradient}. As the non-central part of the gravity
+     * field depends only on position and is linear in the central attraction
+     * coefficient, the derivatives with respect to any free parameters are
+     * obtained by combining the Hessian of the field with the derivatives of
+     * position, and the acceleration with the derivatives of mu. It is much
+     * faster than propagating the derivatives through the spherical harmonics
+     * recursions.
+     * </p>
+     * @param date current date
+     * @param frame inertial reference frame for state (both orbit and attitude)
+     * @param position position of spacecraft in inertial frame
+     * @param mu central attraction coefficient
+     * @return acceleration with first order derivatives
+     * @exception OrekitException if the derivatives cannot be computed
+     * @since 9.3
+     */
+    private FieldVector3D<Gradient> accelerationGradient(final AbsoluteDate date, final Frame frame,
+                                                         final FieldVector3D<Gradient> position,
+                                                         final Gradient mu)
+        throws OrekitException {
+
+        // get the position in body frame
+        final Transform fromBodyFrame = bodyFrame.getTransformTo(frame, date);
+        final Transform toBodyFrame   = fromBodyFrame.getInverse();
+        final Vector3D positionBody   = toBodyFrame.transformPosition(position.toVector3D());
+
+        // compute gradient and Hessian
+        final GradientHessian gh   = gradientHessian(date, positionBody, mu.getReal());
+
+        // gradient of the non-central part of the gravity field
+        final double[] gInertial = fromBodyFrame.transformVector(new Vector3D(gh.getGradient())).toArray();
+
+        // Hessian of the non-central part of the gravity field
+        final RealMatrix hBody     = new Array2DRowRealMatrix(gh.getHessian(), false);
+        final RealMatrix rot       = new Array2DRowRealMatrix(toBodyFrame.getRotation().getMatrix());
+        final RealMatrix hInertial = rot.transpose().multiply(hBody).multiply(rot);
+
+        // chain rule on position and mu
+        final int        n      = mu.getFreeParameters();
+        final double[]   dX     = position.getX().getGradient();
+        final double[]   dY     = position.getY().getGradient();
+        final double[]   dZ     = position.getZ().getGradient();
+        final double[]   dMu    = mu.getGradient();
+        final Gradient[] accDer = new Gradient[3];
+        for (int i = 0; i < 3; ++i) {
+            final double hX      = hInertial.getEntry(i, 0);
+            final double hY      = hInertial.getEntry(i, 1);
+            final double hZ      = hInertial.getEntry(i, 2);
+            final double gOverMu = gInertial[i] / mu.getReal();
+            final double[] derivatives = new double[n];
+            for (int k = 0; k < n; ++k) {
+                derivatives[k] = hX * dX[k] + hY * dY[k] + hZ * dZ[k] + gOverMu * dMu[k];
+            }
+            accDer[i] = new Gradient(gInertial[i], derivatives);
+        }
+
+        return new FieldVector3D<>(accDer);
+
+    }
+
     /** {@inheritDoc} */
     public ParameterDriver[] getParametersDrivers() {
         return new ParameterDriver[] {
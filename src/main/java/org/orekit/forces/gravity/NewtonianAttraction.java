@@ -74,6 +74,12 @@ public class NewtonianAttraction extends AbstractForceModel {
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return false;
+    }
+
     /** Get the central attraction coefficient μ.
      * @return mu central attraction coefficient (m³/s²)
      */
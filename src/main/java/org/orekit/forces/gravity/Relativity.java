@@ -82,6 +82,12 @@ public class Relativity extends AbstractForceModel {
         return false;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D acceleration(final SpacecraftState s, final double[] parameters)
@@ -16,6 +16,10 @@
  */
 package org.orekit.forces.gravity;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import org.hipparchus.Field;
@@ -28,6 +32,7 @@ import org.orekit.forces.AbstractForceModel;
 import org.orekit.forces.ForceModel;
 import org.orekit.forces.gravity.potential.CachedNormalizedSphericalHarmonicsProvider;
 import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider;
+import org.orekit.forces.gravity.potential.SharedCachedNormalizedSphericalHarmonicsProvider;
 import org.orekit.forces.gravity.potential.TideSystem;
 import org.orekit.frames.Frame;
 import org.orekit.propagation.FieldSpacecraftState;
@@ -52,6 +57,26 @@ public class SolidTides extends AbstractForceModel {
     /** Default number of points tides field sampling. */
     public static final int DEFAULT_POINTS = 12;
 
+    /** Maximum number of shared tides fields kept for reuse. */
+    private static final int MAX_SHARED_FIELDS = 8;
+
+    /** Shared tides fields, indexed by construction parameters, least recently used first. */
+    private static final Map<List<Object>, SharedCachedNormalizedSphericalHarmonicsProvider> SHARED_FIELDS =
+            new LinkedHashMap<List<Object>, SharedCachedNormalizedSphericalHarmonicsProvider>(MAX_SHARED_FIELDS,
+                                                                                             0.75f, true) {
+
+                /** Serializable UID. */
+                private static final long serialVersionUID = 20181018L;
+
+                /** {@inheritDoc} */
+                @Override
+                protected boolean
+                    removeEldestEntry(final Map.Entry<List<Object>, SharedCachedNormalizedSphericalHarmonicsProvider> eldest) {
+                    return size() > MAX_SHARED_FIELDS;
+                }
+
+            };
+
     /** Underlying attraction model. */
     private final ForceModel attractionModel;
 
@@ -122,12 +147,104 @@ public class SolidTides extends AbstractForceModel {
         attractionModel = new HolmesFeatherstoneAttractionModel(centralBodyFrame, provider);
     }
 
+    /** Constructor using an already built tides field.
+     * <p>
+     * This constructor is mainly intended to be used with fields returned by
+     * {@link #getSharedTidesField(Frame, double, double, TideSystem, boolean, double, int,
+     * IERSConventions, UT1Scale, int, CelestialBody...) getSharedTidesField}, so that
+     * several force models share the same sampled field.
+     * </p>
+     * @param centralBodyFrame rotating body frame
+     * @param tidesField solid tides field
+     * @since 9.3
+     */
+    public SolidTides(final Frame centralBodyFrame, final NormalizedSphericalHarmonicsProvider tidesField) {
+        attractionModel = new HolmesFeatherstoneAttractionModel(centralBodyFrame, tidesField);
+    }
+
+    /** Get a thread-safe solid tides field shared by all callers using the same parameters.
+     * <p>
+     * The first call with a given set of parameters builds the field, subsequent
+     * calls with the same parameters return the same instance. The returned field
+     * samples the solid tides on a fixed date grid and caches at most {@code maxSamples}
+     * samples, so it can be used concurrently by force models in different threads
+     * through the {@link #SolidTides(Frame, NormalizedSphericalHarmonicsProvider)}
+     * constructor.
+     * </p>
+     * <p>
+     * At most a few shared fields are kept for reuse, the least recently requested
+     * ones being dropped first. Dropping a field does not affect the force models
+     * already using it, but later calls with the same parameters build a new field.
+     * As the parameters include the UT1 time scale, applications that reload Earth
+     * Orientation Parameters should call {@link #clearSharedTidesFields()} so fields
+     * built from the previous time scale are released.
+     * </p>
+     * @param centralBodyFrame rotating body frame
+     * @param ae central body reference radius
+     * @param mu central body attraction coefficient
+     * @param centralTideSystem tide system used in the central attraction model
+     * @param poleTide if true, pole tide is computed
+     * @param step time step between sample points for interpolation
+     * @param nbPoints number of points to use for interpolation (must be at least 2)
+     * @param conventions IERS conventions used for loading Love numbers
+     * @param ut1 UT1 time scale
+     * @param maxSamples maximum number of cached samples
+     * @param bodies tide generating bodies (typically Sun and Moon)
+     * @return shared solid tides field
+     * @exception OrekitException if the Love numbers embedded in the
+     * library cannot be read, or if sampling settings are inconsistent
+     * @since 9.3
+     */
+    public static synchronized SharedCachedNormalizedSphericalHarmonicsProvider
+        getSharedTidesField(final Frame centralBodyFrame, final double ae, final double mu,
+                            final TideSystem centralTideSystem, final boolean poleTide,
+                            final double step, final int nbPoints,
+                            final IERSConventions conventions, final UT1Scale ut1,
+                            final int maxSamples, final CelestialBody... bodies)
+        throws OrekitException {
+
+        final List<Object> key = Arrays.asList(centralBodyFrame, ae, mu, centralTideSystem, poleTide,
+                                               step, nbPoints, conventions, ut1, maxSamples,
+                                               Arrays.asList(bodies));
+        SharedCachedNormalizedSphericalHarmonicsProvider shared = SHARED_FIELDS.get(key);
+        if (shared == null) {
+            final SolidTidesField raw =
+                    new SolidTidesField(conventions.getLoveNumbers(),
+                                        conventions.getTideFrequencyDependenceFunction(ut1),
+                                        conventions.getPermanentTide(),
+                                        poleTide ? conventions.getSolidPoleTide(ut1.getEOPHistory()) : null,
+                                        centralBodyFrame, ae, mu, centralTideSystem, bodies);
+            shared = new SharedCachedNormalizedSphericalHarmonicsProvider(raw, step, nbPoints, maxSamples);
+            SHARED_FIELDS.put(key, shared);
+        }
+
+        return shared;
+
+    }
+
+    /** Release all the shared solid tides fields.
+     * <p>
+     * Force models already using a shared field are not affected, but subsequent
+     * calls to {@code getSharedTidesField} will build new fields.
+     * </p>
+     * @since 9.3
+     */
+    public static synchronized void clearSharedTidesFields() {
+        SHARED_FIELDS.clear();
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean dependsOnPositionOnly() {
         return attractionModel.dependsOnPositionOnly();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return attractionModel.dependsOnAttitude();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D acceleration(final SpacecraftState s, final double[] parameters)
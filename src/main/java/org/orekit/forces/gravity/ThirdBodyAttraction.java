@@ -82,6 +82,12 @@ public class ThirdBodyAttraction extends AbstractForceModel {
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D acceleration(final SpacecraftState s, final double[] parameters)
@@ -0,0 +1,333 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.forces.gravity.potential;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+
+/** Thread-safe caching wrapper for {@link NormalizedSphericalHarmonicsProvider}.
+ * <p>
+ * This wrapper serves the same purpose as {@link CachedNormalizedSphericalHarmonicsProvider}:
+ * it samples the values of a computing intensive provider (such as tides fields)
+ * at a user defined rate and uses interpolation between samples. It differs in
+ * the way samples are managed, so that one instance can be shared by all force
+ * models using the same field, even when they are used concurrently in different
+ * threads (for example when propagating a constellation in parallel):
+ * </p>
+ * <ul>
+ *   <li>samples are computed at fixed dates, which are multiples of the step
+ *   from {@link AbsoluteDate#J2000_EPOCH J2000 epoch}, regardless of the dates
+ *   at which the field is requested, so one sample computed for one satellite
+ *   is reused by all other satellites,</li>
+ *   <li>the cache is bounded by a maximum number of samples, the least
+ *   recently used samples being evicted first,</li>
+ *   <li>the underlying raw provider is called by only one thread at a time,
+ *   so it does not need to be thread-safe itself.</li>
+ * </ul>
+ * <p>
+ * The efficiency of the cache can be monitored using {@link #getHits()},
+ * {@link #getMisses()}, {@link #getCachedSamples()} and {@link #getMemoryFootprint()}.
+ * </p>
+ * @see CachedNormalizedSphericalHarmonicsProvider
+ * @see org.orekit.forces.gravity.OceanTides
+ * @see org.orekit.forces.gravity.SolidTides
+ * @since 9.3
+ */
+public class SharedCachedNormalizedSphericalHarmonicsProvider implements NormalizedSphericalHarmonicsProvider {
+
+    /** Underlying raw provider. */
+    private final NormalizedSphericalHarmonicsProvider rawProvider;
+
+    /** Time step between sample points. */
+    private final double step;
+
+    /** Number of points to use for interpolation. */
+    private final int nbPoints;
+
+    /** Maximum number of cached samples. */
+    private final int maxSamples;
+
+    /** Number of coefficients in C<sub>n, m</sub> and S<sub>n, m</sub> arrays (counted separately). */
+    private final int size;
+
+    /** Cached samples, indexed by grid index. */
+    private final Map<Long, double[]> samples;
+
+    /** Number of samples found in the cache. */
+    private final AtomicLong hits;
+
+    /** Number of samples computed. */
+    private final AtomicLong misses;
+
+    /** Simple constructor.
+     * @param rawProvider underlying raw provider
+     * @param step time step between sample points for interpolation
+     * @param nbPoints number of points to use for interpolation, must be at least 2
+     * @param maxSamples maximum number of cached samples, must be at least {@code nbPoints}
+     * @exception OrekitException if step is not strictly positive, or
+     * if number of points or number of samples are too small
+     */
+    public SharedCachedNormalizedSphericalHarmonicsProvider(final NormalizedSphericalHarmonicsProvider rawProvider,
+                                                            final double step, final int nbPoints,
+                                                            final int maxSamples)
+        throws OrekitException {
+
+        if (step <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, step, 0);
+        }
+        if (nbPoints < 2) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, nbPoints, 2);
+        }
+        if (maxSamples < nbPoints) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, maxSamples, nbPoints);
+        }
+
+        this.rawProvider = rawProvider;
+        this.step        = step;
+        this.nbPoints    = nbPoints;
+        this.maxSamples  = maxSamples;
+        final int k      = rawProvider.getMaxDegree() + 1;
+        this.size        = (k * (k + 1)) / 2;
+        this.samples     = new LinkedHashMap<Long, double[]>(maxSamples, 0.75f, true) {
+
+            /** Serializable UID. */
+            private static final long serialVersionUID = 20181018L;
+
+            /** {@inheritDoc} */
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, double[]> eldest) {
+                return size() > SharedCachedNormalizedSphericalHarmonicsProvider.this.maxSamples;
+            }
+
+        };
+        this.hits   = new AtomicLong();
+        this.misses = new AtomicLong();
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxDegree() {
+        return rawProvider.getMaxDegree();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxOrder() {
+        return rawProvider.getMaxOrder();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMu() {
+        return rawProvider.getMu();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getAe() {
+        return rawProvider.getAe();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbsoluteDate getReferenceDate() {
+        return rawProvider.getReferenceDate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getOffset(final AbsoluteDate date) {
+        return rawProvider.getOffset(date);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TideSystem getTideSystem() {
+        return rawProvider.getTideSystem();
+    }
+
+    /** Get the number of samples that were found in the cache.
+     * @return number of samples that were found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Get the number of samples that were computed.
+     * @return number of samples that were computed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Get the number of samples currently cached.
+     * @return number of samples currently cached
+     */
+    public int getCachedSamples() {
+        synchronized (samples) {
+            return samples.size();
+        }
+    }
+
+    /** Get an estimate of the memory used by cached coefficients.
+     * @return estimate of the memory used by cached coefficients (bytes)
+     */
+    public long getMemoryFootprint() {
+        return (long) getCachedSamples() * 2 * size * Double.BYTES;
+    }
+
+    /** Clear the cache and reset statistics.
+     */
+    public void clear() {
+        synchronized (samples) {
+            samples.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NormalizedSphericalHarmonics onDate(final AbsoluteDate date) throws OrekitException {
+
+        // locate the interpolation points on the fixed grid
+        final double x     = date.durationFrom(AbsoluteDate.J2000_EPOCH) / step;
+        final long   first = (long) FastMath.floor(x) - (nbPoints - 1) / 2;
+        final double s     = x - first;
+
+        // Lagrange interpolation on regularly spaced points
+        final double[] cnmsnm = new double[2 * size];
+        for (int i = 0; i < nbPoints; ++i) {
+            double w = 1.0;
+            for (int j = 0; j < nbPoints; ++j) {
+                if (j != i) {
+                    w *= (s - j) / (i - j);
+                }
+            }
+            final double[] sample = getSample(first + i);
+            for (int c = 0; c < cnmsnm.length; ++c) {
+                cnmsnm[c] += w * sample[c];
+            }
+        }
+
+        return new Harmonics(date, cnmsnm);
+
+    }
+
+    /** Get one sample, computing it if needed.
+     * @param index index of the sample on the fixed grid
+     * @return flattened C<sub>n,m</sub> and S<sub>n,m</sub> coefficients
+     * @exception OrekitException if coefficients cannot be computed
+     */
+    private double[] getSample(final long index) throws OrekitException {
+
+        synchronized (samples) {
+            final double[] cached = samples.get(index);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        // the raw provider is not necessarily thread-safe
+        synchronized (rawProvider) {
+
+            // another thread may have computed the sample while we were waiting
+            synchronized (samples) {
+                final double[] cached = samples.get(index);
+                if (cached != null) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+            }
+
+            misses.incrementAndGet();
+            final NormalizedSphericalHarmonics raw =
+                            rawProvider.onDate(AbsoluteDate.J2000_EPOCH.shiftedBy(index * step));
+            final double[] cnmsnm = new double[2 * size];
+            int k = 0;
+            for (int n = 0; n <= rawProvider.getMaxDegree(); ++n) {
+                for (int m = 0; m <= n; ++m) {
+                    cnmsnm[k++] = raw.getNormalizedCnm(n, m);
+                }
+            }
+            for (int n = 0; n <= rawProvider.getMaxDegree(); ++n) {
+                for (int m = 0; m <= n; ++m) {
+                    cnmsnm[k++] = raw.getNormalizedSnm(n, m);
+                }
+            }
+
+            synchronized (samples) {
+                samples.put(index, cnmsnm);
+            }
+            return cnmsnm;
+
+        }
+
+    }
+
+    /** Interpolated spherical harmonics. */
+    private static class Harmonics implements NormalizedSphericalHarmonics {
+
+        /** Current date. */
+        private final AbsoluteDate date;
+
+        /** number of C or S coefficients. */
+        private final int size;
+
+        /** Flattened array for C<sub>n,m</sub> and S<sub>n,m</sub> coefficients. */
+        private final double[] cnmsnm;
+
+        /** Simple constructor.
+         * @param date current date
+         * @param cnmsnm flattened array for C<sub>n,m</sub> and S<sub>n,m</sub>
+         *               coefficients (not copied)
+         */
+        Harmonics(final AbsoluteDate date, final double[] cnmsnm) {
+            this.date   = date;
+            this.cnmsnm = cnmsnm;
+            this.size   = cnmsnm.length / 2;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public AbsoluteDate getDate() {
+            return date;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public double getNormalizedCnm(final int n, final int m) {
+            return cnmsnm[(n * (n + 1)) / 2 + m];
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public double getNormalizedSnm(final int n, final int m) {
+            return cnmsnm[(n * (n + 1)) / 2 + m + size];
+        }
+
+    }
+
+}
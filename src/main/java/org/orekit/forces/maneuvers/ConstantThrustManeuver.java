@@ -244,6 +244,12 @@ public class ConstantThrustManeuver extends AbstractForceModel {
         return false;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return attitudeOverride == null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void init(final SpacecraftState s0, final AbsoluteDate t) {
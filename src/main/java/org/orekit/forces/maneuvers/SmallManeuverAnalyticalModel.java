@@ -90,6 +90,9 @@ public class SmallManeuverAnalyticalModel
     /** Time derivative of the initial Keplerian (or equinoctial) Jacobian with respect to maneuver. */
     private double[][] j0Dot;
 
+    /** Keplerian (or equinoctial) elements change at maneuver date. */
+    private final double[] delta0;
+
     /** Mean anomaly change factor. */
     private final double ksi;
 
@@ -140,6 +143,10 @@ public class SmallManeuverAnalyticalModel
 
         // compute maneuver effect on Keplerian (or equinoctial) elements
         inertialDV = frame.getTransformTo(state0.getFrame(), state0.getDate()).transformVector(dV);
+        delta0     = new double[6];
+        for (int i = 0; i < delta0.length; ++i) {
+            delta0[i] = j0[i][0] * inertialDV.getX() + j0[i][1] * inertialDV.getY() + j0[i][2] * inertialDV.getZ();
+        }
 
         // compute mean anomaly change: dM(t1) = dM(t0) + ksi * da * (t1 - t0)
         final double mu = state0.getMu();
@@ -171,6 +178,48 @@ public class SmallManeuverAnalyticalModel
         return state0.getFrame();
     }
 
+    /** Get the type of orbital elements used to model the maneuver effect.
+     * @return {@link OrbitType#EQUINOCTIAL} for non-eccentric orbits,
+     * {@link OrbitType#KEPLERIAN} for highly eccentric orbits
+     * @see #getElementsChange()
+     * @since 9.3
+     */
+    public OrbitType getElementsType() {
+        return type;
+    }
+
+    /** Get the change in orbital elements at maneuver date.
+     * <p>
+     * The elements are of the type returned by {@link #getElementsType()},
+     * with {@link PositionAngle#MEAN mean} position angle. At date t₁, the
+     * change is the same except for the position angle, which must be
+     * increased by {@link #getMeanAnomalyDrift()} × (t₁ - t₀).
+     * </p>
+     * @return change in orbital elements at maneuver date (a new array is allocated at each call)
+     * @since 9.3
+     */
+    public double[] getElementsChange() {
+        return delta0.clone();
+    }
+
+    /** Get the drift rate of the mean position angle change.
+     * @return drift rate of the mean position angle change (rad/s)
+     * @see #getElementsChange()
+     * @since 9.3
+     */
+    public double getMeanAnomalyDrift() {
+        return ksi * delta0[0];
+    }
+
+    /** Get the mass change ratio.
+     * @return ratio between mass after and before maneuver
+     * @see #updateMass(double)
+     * @since 9.3
+     */
+    public double getMassRatio() {
+        return massRatio;
+    }
+
     /** Compute the effect of the maneuver on an orbit.
      * @param orbit1 original orbit at t₁, without maneuver
      * @return orbit at t₁, taking the maneuver
@@ -217,13 +266,7 @@ public class SmallManeuverAnalyticalModel
 
         // compute maneuver effect
         final double dt = orbit1.getDate().durationFrom(state0.getDate());
-        final double x  = inertialDV.getX();
-        final double y  = inertialDV.getY();
-        final double z  = inertialDV.getZ();
-        final double[] delta = new double[6];
-        for (int i = 0; i < delta.length; ++i) {
-            delta[i] = j0[i][0] * x + j0[i][1] * y + j0[i][2] * z;
-        }
+        final double[] delta = delta0.clone();
         delta[5] += ksi * delta[0] * dt;
 
         // convert current orbital state to Keplerian or equinoctial elements
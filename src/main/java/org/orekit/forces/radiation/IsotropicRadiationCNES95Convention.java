@@ -110,6 +110,12 @@ public class IsotropicRadiationCNES95Convention implements RadiationSensitive {
         };
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean radiationDependsOnAttitude() {
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D radiationPressureAcceleration(final AbsoluteDate date, final Frame frame, final Vector3D position,
@@ -48,6 +48,18 @@ public interface RadiationSensitive {
      */
     ParameterDriver[] getRadiationParametersDrivers();
 
+    /** Check if the radiation pressure acceleration depends on spacecraft attitude.
+     * <p>
+     * The default implementation returns true, which is always safe.
+     * Models that ignore the rotation parameter should return false.
+     * </p>
+     * @return true if the acceleration depends on spacecraft attitude
+     * @since 9.3
+     */
+    default boolean radiationDependsOnAttitude() {
+        return true;
+    }
+
     /** Compute the acceleration due to radiation pressure.
      * @param date current date
      * @param frame inertial reference frame for state (both orbit and attitude)
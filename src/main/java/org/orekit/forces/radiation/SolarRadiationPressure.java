@@ -190,6 +190,12 @@ public class SolarRadiationPressure extends AbstractForceModel {
         return false;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean dependsOnAttitude() {
+        return spacecraft.radiationDependsOnAttitude();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Vector3D acceleration(final SpacecraftState s, final double[] parameters)
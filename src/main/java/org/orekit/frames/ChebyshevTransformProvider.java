@@ -0,0 +1,480 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.frames;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+
+/** Transform provider using piecewise Chebyshev fits of the rotation.
+ * <p>
+ * This provider is intended to speed up transforms between frames that
+ * share the same origin but whose orientation is costly to compute, as
+ * GCRF and ITRF which involve Earth Orientation Parameters interpolation,
+ * precession-nutation series and tidal corrections. Over a user-defined
+ * time window, the rotation provided by a raw provider is sampled at
+ * Chebyshev nodes and fitted by one polynomial per quaternion component,
+ * on consecutive segments. Transforms are then computed by polynomial
+ * evaluation only, the rotation rate and rotation acceleration being
+ * derived from the polynomial derivatives.
+ * </p>
+ * <p>
+ * Each fit is checked against the raw provider at the n+1 Chebyshev extrema
+ * of the segment, which are interleaved with the n fitting nodes and include
+ * the segment boundaries. Segments for which the error at these check points
+ * exceeds the specified tolerance are split in halves and fitted again. If
+ * the tolerance is still not met after a limited number of splits, an error
+ * is triggered. This is only a sampled check: the error between check points
+ * is not bounded and may be slightly larger than the tolerance. The largest
+ * error found at check points over the whole window is available through
+ * {@link #getMaxError()}.
+ * </p>
+ * <p>
+ * Only the rotational part of the raw transforms is fitted, so the raw
+ * provider must correspond to frames sharing the same origin. Requests for
+ * dates outside of the window, as well as requests using {@link RealFieldElement
+ * field} dates, are delegated to the raw provider. Instances of this class are
+ * immutable and can be shared between threads.
+ * </p>
+ * @see InterpolatingTransformProvider
+ * @see ShiftingTransformProvider
+ * @since 9.3
+ */
+public class ChebyshevTransformProvider implements TransformProvider {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Maximum number of times a segment can be split in halves. */
+    private static final int MAX_SPLITS = 12;
+
+    /** Provider for raw (non-fitted) transforms. */
+    private final TransformProvider rawProvider;
+
+    /** Start of the fitting window. */
+    private final AbsoluteDate start;
+
+    /** Duration of the fitting window. */
+    private final double duration;
+
+    /** Degree of the Chebyshev polynomials. */
+    private final int degree;
+
+    /** Segments boundaries, as offsets with respect to start. */
+    private final double[] boundaries;
+
+    /** Chebyshev coefficients (4 * (degree + 1) per segment). */
+    private final double[] coefficients;
+
+    /** Maximum error found at check points. */
+    private final double maxError;
+
+    /** Simple constructor.
+     * @param rawProvider provider for raw (non-fitted) transforms
+     * @param start start of the fitting window
+     * @param end end of the fitting window
+     * @param segmentDuration maximum duration of one segment
+     * @param degree degree of the Chebyshev polynomials
+     * @param tolerance tolerance on the rotation angle (rad)
+     * @exception OrekitException if raw transforms cannot be computed, if the
+     * window is empty, if segment duration, degree or tolerance are not
+     * strictly positive, or if tolerance cannot be met at check points
+     */
+    public ChebyshevTransformProvider(final TransformProvider rawProvider,
+                                      final AbsoluteDate start, final AbsoluteDate end,
+                                      final double segmentDuration, final int degree,
+                                      final double tolerance)
+        throws OrekitException {
+
+        final double span = end.durationFrom(start);
+        if (span <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, span, 0);
+        }
+        if (segmentDuration <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, segmentDuration, 0);
+        }
+        if (degree < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, degree, 1);
+        }
+        if (tolerance <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, tolerance, 0);
+        }
+
+        this.rawProvider = rawProvider;
+        this.start       = start;
+        this.duration    = span;
+        this.degree      = degree;
+
+        // fit all segments
+        final Fitter fitter = new Fitter(tolerance);
+        final int nbInitial = (int) FastMath.ceil(span / segmentDuration);
+        final double h      = span / nbInitial;
+        for (int i = 0; i < nbInitial; ++i) {
+            fitter.fit(i * h, h, 0);
+        }
+
+        // store the segments in compact arrays
+        final int nbSegments = fitter.segmentsStarts.size();
+        final int size       = 4 * (degree + 1);
+        this.boundaries      = new double[nbSegments + 1];
+        this.coefficients    = new double[nbSegments * size];
+        for (int i = 0; i < nbSegments; ++i) {
+            boundaries[i] = fitter.segmentsStarts.get(i);
+            System.arraycopy(fitter.segmentsCoefficients.get(i), 0, coefficients, i * size, size);
+        }
+        boundaries[nbSegments] = span;
+        this.maxError = fitter.maxError;
+
+    }
+
+    /** Simple constructor.
+     * <p>
+     * This constructor fits the transforms from one frame to another one,
+     * for example from {@link FramesFactory#getGCRF() GCRF} to
+     * {@link FramesFactory#getITRF(org.orekit.utils.IERSConventions, boolean) ITRF}.
+     * The fitted provider can then be used to build a new frame with the
+     * first frame as its parent.
+     * </p>
+     * @param from frame from which transforms are computed
+     * @param to frame to which transforms are computed
+     * @param start start of the fitting window
+     * @param end end of the fitting window
+     * @param segmentDuration maximum duration of one segment
+     * @param degree degree of the Chebyshev polynomials
+     * @param tolerance tolerance on the rotation angle (rad)
+     * @exception OrekitException if raw transforms cannot be computed, if the
+     * window is empty, if segment duration, degree or tolerance are not
+     * strictly positive, or if tolerance cannot be met at check points
+     */
+    public ChebyshevTransformProvider(final Frame from, final Frame to,
+                                      final AbsoluteDate start, final AbsoluteDate end,
+                                      final double segmentDuration, final int degree,
+                                      final double tolerance)
+        throws OrekitException {
+        this(new FramesProvider(from, to), start, end, segmentDuration, degree, tolerance);
+    }
+
+    /** Get the underlying provider for raw (non-fitted) transforms.
+     * @return provider for raw (non-fitted) transforms
+     */
+    public TransformProvider getRawProvider() {
+        return rawProvider;
+    }
+
+    /** Get the start of the fitting window.
+     * @return start of the fitting window
+     */
+    public AbsoluteDate getStart() {
+        return start;
+    }
+
+    /** Get the end of the fitting window.
+     * @return end of the fitting window
+     */
+    public AbsoluteDate getEnd() {
+        return start.shiftedBy(duration);
+    }
+
+    /** Get the degree of the Chebyshev polynomials.
+     * @return degree of the Chebyshev polynomials
+     */
+    public int getDegree() {
+        return degree;
+    }
+
+    /** Get the number of segments.
+     * @return number of segments, including the ones resulting from splits
+     */
+    public int getSegmentsNumber() {
+        return boundaries.length - 1;
+    }
+
+    /** Get the maximum error found at check points.
+     * @return maximum error on rotation angle found at check points (rad)
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Transform getTransform(final AbsoluteDate date) throws OrekitException {
+
+        final double offset = date.durationFrom(start);
+        if (offset < 0 || offset > duration) {
+            // outside of the fitting window
+            return rawProvider.getTransform(date);
+        }
+
+        // select segment
+        final int search  = Arrays.binarySearch(boundaries, offset);
+        final int index   = FastMath.min(boundaries.length - 2, search < 0 ? -search - 2 : search);
+        final double h    = boundaries[index + 1] - boundaries[index];
+        final double x    = 2 * (offset - boundaries[index]) / h - 1;
+        final double dxdt = 2 / h;
+
+        // Chebyshev polynomials and their derivatives
+        final double[] t   = new double[degree + 1];
+        final double[] tD  = new double[degree + 1];
+        final double[] tDD = new double[degree + 1];
+        chebyshev(x, t, tD, tDD);
+
+        // quaternion and its derivatives
+        final double[] q   = new double[4];
+        final double[] qD  = new double[4];
+        final double[] qDD = new double[4];
+        final int size = degree + 1;
+        for (int k = 0; k < 4; ++k) {
+            final int base = (4 * index + k) * size;
+            double v   = 0;
+            double vD  = 0;
+            double vDD = 0;
+            for (int j = 0; j < size; ++j) {
+                final double c = coefficients[base + j];
+                v   += c * t[j];
+                vD  += c * tD[j];
+                vDD += c * tDD[j];
+            }
+            q[k]   = v;
+            qD[k]  = vD  * dxdt;
+            qDD[k] = vDD * dxdt * dxdt;
+        }
+
+        // normalize quaternion, neglecting the derivative of the norm
+        // which is of the same order of magnitude as the fitting error
+        final double inv = 1.0 / FastMath.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3]);
+        for (int k = 0; k < 4; ++k) {
+            q[k]   *= inv;
+            qD[k]  *= inv;
+            qDD[k] *= inv;
+        }
+
+        return new Transform(date,
+                             new Rotation(q[0], q[1], q[2], q[3], false),
+                             rate(q, qD), rate(q, qDD));
+
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * Field dates are delegated to the raw provider.
+     * </p>
+     */
+    @Override
+    public <T extends RealFieldElement<T>> FieldTransform<T> getTransform(final FieldAbsoluteDate<T> date)
+        throws OrekitException {
+        return rawProvider.getTransform(date);
+    }
+
+    /** Compute Chebyshev polynomials and their first two derivatives.
+     * @param x normalized abscissa, between -1 and +1
+     * @param t placeholder for polynomials values
+     * @param tD placeholder for polynomials first derivatives
+     * @param tDD placeholder for polynomials second derivatives
+     */
+    private static void chebyshev(final double x, final double[] t, final double[] tD, final double[] tDD) {
+        t[0]   = 1;
+        tD[0]  = 0;
+        tDD[0] = 0;
+        if (t.length > 1) {
+            t[1]   = x;
+            tD[1]  = 1;
+            tDD[1] = 0;
+        }
+        for (int j = 2; j < t.length; ++j) {
+            t[j]   = 2 * x * t[j - 1] - t[j - 2];
+            tD[j]  = 2 * t[j - 1]  + 2 * x * tD[j - 1]  - tD[j - 2];
+            tDD[j] = 4 * tD[j - 1] + 2 * x * tDD[j - 1] - tDD[j - 2];
+        }
+    }
+
+    /** Compute the vector part of 2 q* ⊗ d, which is the rotation rate (resp. acceleration)
+     * when d is the first (resp. second) derivative of the normalized quaternion q.
+     * @param q normalized quaternion
+     * @param d quaternion derivative
+     * @return rotation rate or acceleration
+     */
+    private static Vector3D rate(final double[] q, final double[] d) {
+        return new Vector3D(2 * (-q[1] * d[0] + q[0] * d[1] + q[3] * d[2] - q[2] * d[3]),
+                            2 * (-q[2] * d[0] - q[3] * d[1] + q[0] * d[2] + q[1] * d[3]),
+                            2 * (-q[3] * d[0] + q[2] * d[1] - q[1] * d[2] + q[0] * d[3]));
+    }
+
+    /** Local class fitting segments. */
+    private class Fitter {
+
+        /** Tolerance on the rotation angle. */
+        private final double tolerance;
+
+        /** Start of accepted segments. */
+        private final List<Double> segmentsStarts;
+
+        /** Coefficients of accepted segments. */
+        private final List<double[]> segmentsCoefficients;
+
+        /** Maximum error found at check points of accepted segments. */
+        private double maxError;
+
+        /** Simple constructor.
+         * @param tolerance tolerance on the rotation angle (rad)
+         */
+        Fitter(final double tolerance) {
+            this.tolerance            = tolerance;
+            this.segmentsStarts       = new ArrayList<>();
+            this.segmentsCoefficients = new ArrayList<>();
+            this.maxError             = 0;
+        }
+
+        /** Fit one segment, splitting it if needed.
+         * @param segmentStart start of the segment, as an offset with respect to window start
+         * @param h segment duration
+         * @param splits number of splits already performed
+         * @exception OrekitException if raw transforms cannot be computed
+         * or if tolerance cannot be met after the maximum number of splits
+         */
+        public void fit(final double segmentStart, final double h, final int splits)
+            throws OrekitException {
+
+            final int n = degree + 1;
+
+            // sample quaternion at Chebyshev nodes, in chronological order
+            // and with consistent signs, as q and -q represent the same rotation
+            final double[][] samples = new double[n][];
+            double[] previous = null;
+            for (int k = n - 1; k >= 0; --k) {
+                final double x = FastMath.cos(FastMath.PI * (k + 0.5) / n);
+                final Rotation r = rawProvider.getTransform(date(segmentStart, h, x)).getRotation();
+                final double[] sample = new double[] {
+                    r.getQ0(), r.getQ1(), r.getQ2(), r.getQ3()
+                };
+                if (previous != null &&
+                    sample[0] * previous[0] + sample[1] * previous[1] +
+                    sample[2] * previous[2] + sample[3] * previous[3] < 0) {
+                    for (int i = 0; i < 4; ++i) {
+                        sample[i] = -sample[i];
+                    }
+                }
+                samples[k] = sample;
+                previous   = sample;
+            }
+
+            // Chebyshev interpolation
+            final double[] segment = new double[4 * n];
+            for (int j = 0; j < n; ++j) {
+                for (int k = 0; k < n; ++k) {
+                    final double c = FastMath.cos(FastMath.PI * j * (k + 0.5) / n) * (j == 0 ? 1.0 : 2.0) / n;
+                    for (int i = 0; i < 4; ++i) {
+                        segment[i * n + j] += c * samples[k][i];
+                    }
+                }
+            }
+
+            // check the fit at Chebyshev extrema, which are interleaved with fitting nodes
+            double error = 0;
+            final double[] t   = new double[n];
+            final double[] tD  = new double[n];
+            final double[] tDD = new double[n];
+            for (int k = 0; k <= n; ++k) {
+                final double x = FastMath.cos(FastMath.PI * k / n);
+                chebyshev(x, t, tD, tDD);
+                final double[] q = new double[4];
+                for (int i = 0; i < 4; ++i) {
+                    for (int j = 0; j < n; ++j) {
+                        q[i] += segment[i * n + j] * t[j];
+                    }
+                }
+                final Rotation fitted = new Rotation(q[0], q[1], q[2], q[3], true);
+                final Rotation raw    = rawProvider.getTransform(date(segmentStart, h, x)).getRotation();
+                error = FastMath.max(error, Rotation.distance(fitted, raw));
+            }
+
+            if (error > tolerance) {
+                if (splits >= MAX_SPLITS) {
+                    throw new OrekitException(OrekitMessages.CHEBYSHEV_FIT_TOLERANCE_NOT_MET,
+                                              date(segmentStart, h, -1.0), tolerance, error);
+                }
+                // split the segment
+                fit(segmentStart,         0.5 * h, splits + 1);
+                fit(segmentStart + 0.5 * h, 0.5 * h, splits + 1);
+            } else {
+                // accept the segment
+                segmentsStarts.add(segmentStart);
+                segmentsCoefficients.add(segment);
+                maxError = FastMath.max(maxError, error);
+            }
+
+        }
+
+        /** Convert a normalized abscissa into a date.
+         * @param segmentStart start of the segment, as an offset with respect to window start
+         * @param h segment duration
+         * @param x normalized abscissa, between -1 and +1
+         * @return date corresponding to normalized abscissa
+         */
+        private AbsoluteDate date(final double segmentStart, final double h, final double x) {
+            return start.shiftedBy(segmentStart + 0.5 * (x + 1) * h);
+        }
+
+    }
+
+    /** Provider for transforms between two frames. */
+    private static class FramesProvider implements TransformProvider {
+
+        /** Serializable UID. */
+        private static final long serialVersionUID = 20181018L;
+
+        /** Frame from which transforms are computed. */
+        private final Frame from;
+
+        /** Frame to which transforms are computed. */
+        private final Frame to;
+
+        /** Simple constructor.
+         * @param from frame from which transforms are computed
+         * @param to frame to which transforms are computed
+         */
+        FramesProvider(final Frame from, final Frame to) {
+            this.from = from;
+            this.to   = to;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Transform getTransform(final AbsoluteDate date) throws OrekitException {
+            return from.getTransformTo(to, date);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public <T extends RealFieldElement<T>> FieldTransform<T> getTransform(final FieldAbsoluteDate<T> date)
+            throws OrekitException {
+            return from.getTransformTo(to, date);
+        }
+
+    }
+
+}
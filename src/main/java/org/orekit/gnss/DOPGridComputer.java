@@ -0,0 +1,466 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.frames.TopocentricFrame;
+import org.orekit.propagation.Propagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.ElevationMask;
+
+/**
+ * This class computes the dilution of precision on a grid of locations.
+ *
+ * <p>It provides the same values as {@link DOPComputer}, but it is intended
+ * for coverage studies where DOP must be computed for many locations and
+ * many dates. At each date, the GNSS spacecraft positions are computed only
+ * once in the body frame and shared by all grid points. The grid points are
+ * then evaluated in parallel, using a closed-form inversion of the 4&times;4
+ * normal matrix, and the results are provided as primitive arrays to a
+ * {@link DOPGridHandler}.</p>
+ *
+ * @see DOPComputer
+ * @since 9.3
+ */
+public class DOPGridComputer {
+
+    /** Minimum number of propagators for DOP computation. */
+    private static final int DOP_MIN_PROPAGATORS = 4;
+
+    /** Body shape on which the locations are defined. */
+    private final OneAxisEllipsoid shape;
+
+    /** Grid points. */
+    private final List<GeodeticPoint> points;
+
+    /** Locations in body frame (3 coordinates per point). */
+    private final double[] locations;
+
+    /** East directions in body frame (3 coordinates per point). */
+    private final double[] east;
+
+    /** North directions in body frame (3 coordinates per point). */
+    private final double[] north;
+
+    /** Zenith directions in body frame (3 coordinates per point). */
+    private final double[] zenith;
+
+    /** Minimum elevation value used if no mask is defined. */
+    private final double minElevation;
+
+    /** Elevation mask used for computation, if defined. */
+    private final ElevationMask elevationMask;
+
+    /** Number of threads to use. */
+    private final int threads;
+
+    /**
+     * Constructor for DOP computation.
+     *
+     * @param shape the body shape on which the locations are defined
+     * @param points the grid points
+     * @param locations locations in body frame
+     * @param east east directions in body frame
+     * @param north north directions in body frame
+     * @param zenith zenith directions in body frame
+     * @param minElev the minimum elevation to consider (rad)
+     * @param elevMask the elevation mask to consider
+     * @param threads number of threads to use
+     */
+    private DOPGridComputer(final OneAxisEllipsoid shape, final List<GeodeticPoint> points,
+                            final double[] locations, final double[] east,
+                            final double[] north, final double[] zenith,
+                            final double minElev, final ElevationMask elevMask,
+                            final int threads) {
+        this.shape         = shape;
+        this.points        = points;
+        this.locations     = locations;
+        this.east          = east;
+        this.north         = north;
+        this.zenith        = zenith;
+        this.minElevation  = minElev;
+        this.elevationMask = elevMask;
+        this.threads       = threads;
+    }
+
+    /**
+     * Creates a DOP computer for a grid of locations.
+     *
+     * <p>A minimum elevation of 0° is taken into account to compute
+     * visibility between the locations and the GNSS spacecrafts. The
+     * number of threads is set to the number of available processors.</p>
+     *
+     * @param shape the body shape on which the locations are defined
+     * @param points the grid points
+     * @return a configured DOP computer
+     */
+    public static DOPGridComputer create(final OneAxisEllipsoid shape, final List<GeodeticPoint> points) {
+        final int      n         = points.size();
+        final double[] locations = new double[3 * n];
+        final double[] east      = new double[3 * n];
+        final double[] north     = new double[3 * n];
+        final double[] zenith    = new double[3 * n];
+        for (int i = 0; i < n; ++i) {
+            final TopocentricFrame frame = new TopocentricFrame(shape, points.get(i), "Location");
+            store(shape.transform(points.get(i)), locations, i);
+            store(frame.getEast(),   east,   i);
+            store(frame.getNorth(),  north,  i);
+            store(frame.getZenith(), zenith, i);
+        }
+        return new DOPGridComputer(shape, Collections.unmodifiableList(new ArrayList<>(points)),
+                                   locations, east, north, zenith,
+                                   DOPComputer.DOP_MIN_ELEVATION, null,
+                                   Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Set the minimum elevation.
+     *
+     * <p>This will override an elevation mask if it has been configured as such previously.</p>
+     *
+     * @param newMinElevation minimum elevation for visibility (rad)
+     * @return a new DOP computer with updated configuration (the instance is not changed)
+     *
+     * @see #getMinElevation()
+     */
+    public DOPGridComputer withMinElevation(final double newMinElevation) {
+        return new DOPGridComputer(shape, points, locations, east, north, zenith,
+                                   newMinElevation, null, threads);
+    }
+
+    /**
+     * Set the elevation mask.
+     *
+     * <p>This will override the min elevation if it has been configured as such previously.</p>
+     *
+     * @param newElevationMask elevation mask to use for the computation
+     * @return a new DOP computer with updated configuration (the instance is not changed)
+     *
+     * @see #getElevationMask()
+     */
+    public DOPGridComputer withElevationMask(final ElevationMask newElevationMask) {
+        return new DOPGridComputer(shape, points, locations, east, north, zenith,
+                                   DOPComputer.DOP_MIN_ELEVATION, newElevationMask, threads);
+    }
+
+    /**
+     * Set the number of threads.
+     *
+     * @param newThreads number of threads used to evaluate grid points
+     * @return a new DOP computer with updated configuration (the instance is not changed)
+     * @exception OrekitException if number of threads is not strictly positive
+     *
+     * @see #getThreads()
+     */
+    public DOPGridComputer withThreads(final int newThreads)
+        throws OrekitException {
+        if (newThreads < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, newThreads, 1);
+        }
+        return new DOPGridComputer(shape, points, locations, east, north, zenith,
+                                   minElevation, elevationMask, newThreads);
+    }
+
+    /**
+     * Compute the {@link DOP} on the grid at a given date.
+     * <p>Four GNSS spacecraft at least are needed to compute the DOP.
+     * If less than 4 propagators are provided, an exception will be thrown.
+     * If less than 4 spacecrafts are visible from a location, all DOP values
+     * at this location will be set to {@link java.lang.Double#NaN NaN}.</p>
+     *
+     * @param date the computation date
+     * @param gnss the propagators for GNSS spacecraft involved in the DOP computation
+     * @param handler handler for the computed values
+     * @throws OrekitException if something wrong occurs
+     */
+    public void compute(final AbsoluteDate date, final List<Propagator> gnss,
+                        final DOPGridHandler handler)
+        throws OrekitException {
+        compute(date, date, 1.0, gnss, handler);
+    }
+
+    /**
+     * Compute the {@link DOP} on the grid for a time series.
+     * <p>Four GNSS spacecraft at least are needed to compute the DOP.
+     * If less than 4 propagators are provided, an exception will be thrown.
+     * If less than 4 spacecrafts are visible from a location, all DOP values
+     * at this location will be set to {@link java.lang.Double#NaN NaN}.</p>
+     *
+     * @param start first computation date
+     * @param end last computation date (included if it is a multiple of step from start)
+     * @param step time step between computation dates (s), must be strictly positive
+     * @param gnss the propagators for GNSS spacecraft involved in the DOP computation
+     * @param handler handler for the computed values
+     * @throws OrekitException if step is not strictly positive or if something wrong occurs
+     */
+    public void compute(final AbsoluteDate start, final AbsoluteDate end, final double step,
+                        final List<Propagator> gnss, final DOPGridHandler handler)
+        throws OrekitException {
+
+        // Checks the time step
+        if (step <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, step, 0);
+        }
+
+        // Checks the number of provided propagators
+        if (gnss.size() < DOP_MIN_PROPAGATORS) {
+            throw new OrekitException(OrekitMessages.NOT_ENOUGH_GNSS_FOR_DOP, gnss.size(), DOP_MIN_PROPAGATORS);
+        }
+
+        // Buffers shared by all epochs
+        final int      n          = points.size();
+        final double[] satellites = new double[3 * gnss.size()];
+        final int[]    gnssNb     = new int[n];
+        final double[] gdop       = new double[n];
+        final double[] pdop       = new double[n];
+        final double[] hdop       = new double[n];
+        final double[] vdop       = new double[n];
+        final double[] tdop       = new double[n];
+
+        // Split the grid into one chunk per thread
+        final int chunkSize = (n + threads - 1) / threads;
+        final List<Runnable> chunks = new ArrayList<>(threads);
+        final List<Callable<Object>> tasks = new ArrayList<>(threads);
+        for (int first = 0; first < n; first += chunkSize) {
+            final int chunkStart = first;
+            final int chunkEnd   = FastMath.min(n, first + chunkSize);
+            final Runnable chunk = () -> {
+                for (int i = chunkStart; i < chunkEnd; ++i) {
+                    computePoint(i, satellites, gnssNb, gdop, pdop, hdop, vdop, tdop);
+                }
+            };
+            chunks.add(chunk);
+            tasks.add(Executors.callable(chunk));
+        }
+
+        final ExecutorService executorService = chunks.size() > 1 ? Executors.newFixedThreadPool(chunks.size()) : null;
+        try {
+            final Frame bodyFrame = shape.getBodyFrame();
+            final double duration = end.durationFrom(start);
+            for (int k = 0; k * step <= duration; ++k) {
+
+                // Compute GNSS spacecraft positions once for all points
+                final AbsoluteDate date = start.shiftedBy(k * step);
+                for (int j = 0; j < gnss.size(); ++j) {
+                    store(gnss.get(j).getPVCoordinates(date, bodyFrame).getPosition(), satellites, j);
+                }
+
+                // Evaluate all grid points
+                if (executorService == null) {
+                    for (final Runnable chunk : chunks) {
+                        chunk.run();
+                    }
+                } else {
+                    for (final Future<Object> future : executorService.invokeAll(tasks)) {
+                        future.get();
+                    }
+                }
+
+                handler.handleDOP(date, gnssNb, gdop, pdop, hdop, vdop, tdop);
+
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+        } catch (ExecutionException ee) {
+            throw new OrekitException(ee.getCause(), LocalizedCoreFormats.SIMPLE_MESSAGE,
+                                      ee.getCause().getLocalizedMessage());
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+
+    }
+
+    /**
+     * Compute the DOP for one grid point.
+     *
+     * @param i index of the grid point
+     * @param satellites GNSS spacecraft positions in body frame
+     * @param gnssNb placeholder for the number of visible GNSS spacecraft
+     * @param gdop placeholder for the geometric dilution of precision
+     * @param pdop placeholder for the position dilution of precision
+     * @param hdop placeholder for the horizontal dilution of precision
+     * @param vdop placeholder for the vertical dilution of precision
+     * @param tdop placeholder for the time dilution of precision
+     */
+    private void computePoint(final int i, final double[] satellites, final int[] gnssNb,
+                              final double[] gdop, final double[] pdop, final double[] hdop,
+                              final double[] vdop, final double[] tdop) {
+
+        final int    i3 = 3 * i;
+        final double sinMin = FastMath.sin(minElevation);
+
+        // Accumulate the normal matrix HᵀH, rows of H being (east, north, zenith, -1)
+        double n00 = 0;
+        double n01 = 0;
+        double n02 = 0;
+        double n03 = 0;
+        double n11 = 0;
+        double n12 = 0;
+        double n13 = 0;
+        double n22 = 0;
+        double n23 = 0;
+        int    satNb = 0;
+        for (int j = 0; j < satellites.length; j += 3) {
+
+            // line of sight in body frame
+            final double dx = satellites[j]     - locations[i3];
+            final double dy = satellites[j + 1] - locations[i3 + 1];
+            final double dz = satellites[j + 2] - locations[i3 + 2];
+            final double d  = FastMath.sqrt(dx * dx + dy * dy + dz * dz);
+
+            // line of sight in topocentric frame
+            final double e = (dx * east[i3]   + dy * east[i3 + 1]   + dz * east[i3 + 2])   / d;
+            final double n = (dx * north[i3]  + dy * north[i3 + 1]  + dz * north[i3 + 2])  / d;
+            final double z = (dx * zenith[i3] + dy * zenith[i3 + 1] + dz * zenith[i3 + 2]) / d;
+
+            // Only visible satellites are considered
+            final boolean visible;
+            if (elevationMask == null) {
+                visible = z > sinMin;
+            } else {
+                double azimuth = FastMath.atan2(e, n);
+                if (azimuth < 0.) {
+                    azimuth += MathUtils.TWO_PI;
+                }
+                visible = FastMath.asin(z) > elevationMask.getElevation(azimuth);
+            }
+
+            if (visible) {
+                n00 += e * e;
+                n01 += e * n;
+                n02 += e * z;
+                n03 -= e;
+                n11 += n * n;
+                n12 += n * z;
+                n13 -= n;
+                n22 += z * z;
+                n23 -= z;
+                satNb++;
+            }
+
+        }
+        final double n33 = satNb;
+
+        gnssNb[i] = satNb;
+        if (satNb > 3) {
+
+            // closed-form inversion of the symmetric 4x4 normal matrix (diagonal terms only)
+            final double s0 = n00 * n11 - n01 * n01;
+            final double s1 = n00 * n12 - n01 * n02;
+            final double s2 = n00 * n13 - n01 * n03;
+            final double s3 = n01 * n12 - n11 * n02;
+            final double s4 = n01 * n13 - n11 * n03;
+            final double s5 = n02 * n13 - n12 * n03;
+            final double c5 = n22 * n33 - n23 * n23;
+            final double c4 = n12 * n33 - n13 * n23;
+            final double c3 = n12 * n23 - n13 * n22;
+            final double c2 = n02 * n33 - n03 * n23;
+            final double c1 = n02 * n23 - n03 * n22;
+            final double c0 = n02 * n13 - n03 * n12;
+            final double invDet = 1.0 / (s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0);
+            final double sx2 = (n11 * c5 - n12 * c4 + n13 * c3) * invDet;
+            final double sy2 = (n00 * c5 - n02 * c2 + n03 * c1) * invDet;
+            final double sz2 = (n03 * s4 - n13 * s2 + n33 * s0) * invDet;
+            final double st2 = (n02 * s3 - n12 * s1 + n22 * s0) * invDet;
+
+            // Extract various DOP : GDOP, PDOP, HDOP, VDOP, TDOP
+            gdop[i] = FastMath.sqrt(sx2 + sy2 + sz2 + st2);
+            pdop[i] = FastMath.sqrt(sx2 + sy2 + sz2);
+            hdop[i] = FastMath.sqrt(sx2 + sy2);
+            vdop[i] = FastMath.sqrt(sz2);
+            tdop[i] = FastMath.sqrt(st2);
+
+        } else {
+            gdop[i] = Double.NaN;
+            pdop[i] = Double.NaN;
+            hdop[i] = Double.NaN;
+            vdop[i] = Double.NaN;
+            tdop[i] = Double.NaN;
+        }
+
+    }
+
+    /**
+     * Store a vector in a flat array.
+     *
+     * @param v vector to store
+     * @param array flat array
+     * @param index index of the vector in the array
+     */
+    private static void store(final Vector3D v, final double[] array, final int index) {
+        array[3 * index]     = v.getX();
+        array[3 * index + 1] = v.getY();
+        array[3 * index + 2] = v.getZ();
+    }
+
+    /**
+     * Get the grid points.
+     *
+     * @return unmodifiable list of grid points
+     */
+    public List<GeodeticPoint> getPoints() {
+        return points;
+    }
+
+    /**
+     * Get the minimum elevation.
+     *
+     * @return the minimum elevation (rad)
+     */
+    public double getMinElevation() {
+        return minElevation;
+    }
+
+    /**
+     * Get the elevation mask.
+     *
+     * @return the elevation mask
+     */
+    public ElevationMask getElevationMask() {
+        return elevationMask;
+    }
+
+    /**
+     * Get the number of threads.
+     *
+     * @return number of threads used to evaluate grid points
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+}
@@ -0,0 +1,50 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+
+/**
+ * Handler for dilution of precision computed on a grid by {@link DOPGridComputer}.
+ *
+ * <p>All arrays are indexed by grid point, in the order of the points provided
+ * to {@link DOPGridComputer#create(org.orekit.bodies.OneAxisEllipsoid, java.util.List)}.
+ * The arrays are reused from one epoch to the next one, so handlers that need
+ * to keep the values must copy them.</p>
+ *
+ * @since 9.3
+ */
+public interface DOPGridHandler {
+
+    /**
+     * Handle the dilution of precision for all grid points at one date.
+     *
+     * @param date computation date
+     * @param gnssNb number of GNSS spacecraft visible from each point
+     * @param gdop geometric dilution of precision at each point
+     * @param pdop position dilution of precision at each point
+     * @param hdop horizontal dilution of precision at each point
+     * @param vdop vertical dilution of precision at each point
+     * @param tdop time dilution of precision at each point
+     * @throws OrekitException if handler cannot process the values
+     */
+    void handleDOP(AbsoluteDate date, int[] gnssNb,
+                   double[] gdop, double[] pdop, double[] hdop, double[] vdop, double[] tdop)
+        throws OrekitException;
+
+}
@@ -0,0 +1,222 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hipparchus.util.FastMath;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeStamped;
+
+/** Container for all observations of one epoch read by {@link RinexStreamReader}.
+ * <p>
+ * In order to keep memory consumption bounded, a single instance of this
+ * class is reused by the reader for all epochs, so its content is overwritten
+ * each time {@link RinexStreamReader#next()} is called. Observations are
+ * stored in primitive arrays and indexed by satellite index and observation
+ * index, the observation index referring to the list returned by
+ * {@link #getObservationTypes(int)}.
+ * </p>
+ * @see RinexStreamReader
+ * @since 9.3
+ */
+public class RinexEpoch implements TimeStamped {
+
+    /** Retained observation types for each satellite system. */
+    private final Map<SatelliteSystem, List<ObservationType>> types;
+
+    /** Maximum number of retained observation types per satellite. */
+    private final int stride;
+
+    /** Date of the epoch. */
+    private AbsoluteDate date;
+
+    /** Receiver clock offset (seconds). */
+    private double rcvrClkOffset;
+
+    /** Number of satellites. */
+    private int nbSat;
+
+    /** Satellites systems. */
+    private SatelliteSystem[] systems;
+
+    /** Satellites PRN numbers. */
+    private int[] prnNumbers;
+
+    /** Observations values (stride values per satellite). */
+    private double[] values;
+
+    /** Loss of lock indicators (stride values per satellite). */
+    private int[] lli;
+
+    /** Signal strengths (stride values per satellite). */
+    private int[] signalStrengths;
+
+    /** Simple constructor.
+     * @param types retained observation types for each satellite system
+     */
+    RinexEpoch(final Map<SatelliteSystem, List<ObservationType>> types) {
+        int max = 0;
+        for (final List<ObservationType> list : types.values()) {
+            max = FastMath.max(max, list.size());
+        }
+        this.types           = types;
+        this.stride          = max;
+        this.systems         = new SatelliteSystem[0];
+        this.prnNumbers      = new int[0];
+        this.values          = new double[0];
+        this.lli             = new int[0];
+        this.signalStrengths = new int[0];
+    }
+
+    /** Reset the epoch.
+     * @param epochDate date of the epoch
+     * @param offset receiver clock offset (seconds)
+     * @param maxSat maximum number of satellites that will be added
+     */
+    void reset(final AbsoluteDate epochDate, final double offset, final int maxSat) {
+        date          = epochDate;
+        rcvrClkOffset = offset;
+        nbSat         = 0;
+        if (systems.length < maxSat) {
+            systems         = new SatelliteSystem[maxSat];
+            prnNumbers      = new int[maxSat];
+            values          = new double[maxSat * stride];
+            lli             = new int[maxSat * stride];
+            signalStrengths = new int[maxSat * stride];
+        }
+    }
+
+    /** Add a satellite.
+     * @param system satellite system
+     * @param prnNumber PRN number
+     * @return index of the first observation of the satellite in the internal arrays
+     */
+    int addSatellite(final SatelliteSystem system, final int prnNumber) {
+        systems[nbSat]    = system;
+        prnNumbers[nbSat] = prnNumber;
+        return stride * nbSat++;
+    }
+
+    /** Set one observation.
+     * @param index index of the observation in the internal arrays
+     * @param value observation value
+     * @param lossOfLock loss of lock indicator
+     * @param signalStrength signal strength
+     */
+    void setObservation(final int index, final double value, final int lossOfLock, final int signalStrength) {
+        values[index]          = value;
+        lli[index]             = lossOfLock;
+        signalStrengths[index] = signalStrength;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbsoluteDate getDate() {
+        return date;
+    }
+
+    /** Get the receiver clock offset.
+     * @return receiver clock offset (seconds, 0 if not present in the file)
+     */
+    public double getRcvrClkOffset() {
+        return rcvrClkOffset;
+    }
+
+    /** Get the number of satellites observed at this epoch.
+     * @return number of satellites observed at this epoch
+     */
+    public int getSatellitesNumber() {
+        return nbSat;
+    }
+
+    /** Get the satellite system of a satellite.
+     * @param satIndex satellite index
+     * @return satellite system
+     */
+    public SatelliteSystem getSatelliteSystem(final int satIndex) {
+        return systems[satIndex];
+    }
+
+    /** Get the PRN number of a satellite.
+     * @param satIndex satellite index
+     * @return PRN number
+     */
+    public int getPrnNumber(final int satIndex) {
+        return prnNumbers[satIndex];
+    }
+
+    /** Get the observation types of a satellite.
+     * @param satIndex satellite index
+     * @return observation types (only the retained ones)
+     */
+    public List<ObservationType> getObservationTypes(final int satIndex) {
+        return types.get(systems[satIndex]);
+    }
+
+    /** Get an observation value.
+     * @param satIndex satellite index
+     * @param obsIndex observation index in the list returned by {@link #getObservationTypes(int)}
+     * @return observation value ({@code Double.NaN} if absent)
+     */
+    public double getValue(final int satIndex, final int obsIndex) {
+        return values[satIndex * stride + obsIndex];
+    }
+
+    /** Get an observation loss of lock indicator.
+     * @param satIndex satellite index
+     * @param obsIndex observation index in the list returned by {@link #getObservationTypes(int)}
+     * @return loss of lock indicator
+     */
+    public int getLossOfLockIndicator(final int satIndex, final int obsIndex) {
+        return lli[satIndex * stride + obsIndex];
+    }
+
+    /** Get an observation signal strength.
+     * @param satIndex satellite index
+     * @param obsIndex observation index in the list returned by {@link #getObservationTypes(int)}
+     * @return signal strength
+     */
+    public int getSignalStrength(final int satIndex, final int obsIndex) {
+        return signalStrengths[satIndex * stride + obsIndex];
+    }
+
+    /** Convert the epoch into observation data sets.
+     * <p>
+     * This method allocates new objects, it is intended for
+     * interoperability with code using {@link RinexLoader} results.
+     * </p>
+     * @return one observation data set for each satellite
+     */
+    public List<ObservationDataSet> toObservationDataSets() {
+        final List<ObservationDataSet> sets = new ArrayList<>(nbSat);
+        for (int k = 0; k < nbSat; ++k) {
+            final List<ObservationType>  satTypes        = getObservationTypes(k);
+            final List<ObservationData> observationData = new ArrayList<>(satTypes.size());
+            for (int j = 0; j < satTypes.size(); ++j) {
+                observationData.add(new ObservationData(satTypes.get(j), getValue(k, j),
+                                                        getLossOfLockIndicator(k, j),
+                                                        getSignalStrength(k, j)));
+            }
+            sets.add(new ObservationDataSet(systems[k], prnNumbers[k], date, rcvrClkOffset, observationData));
+        }
+        return sets;
+    }
+
+}
@@ -0,0 +1,893 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.hipparchus.exception.DummyLocalizable;
+import org.hipparchus.util.FastMath;
+import org.orekit.data.NamedData;
+import org.orekit.data.UnixCompressFilter;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScale;
+import org.orekit.time.TimeScalesFactory;
+
+/** Streaming reader for rinex 2 and 3 observation files.
+ * <p>
+ * Contrary to {@link RinexLoader} which loads complete files in memory,
+ * this reader provides the observations one epoch at a time, so memory
+ * consumption is bounded by the size of one epoch regardless of the file size.
+ * Lines are parsed directly as fixed-width byte fields, without creating
+ * intermediate strings. Satellite systems and observation types that are
+ * not needed can be filtered out at parse time, in which case the corresponding
+ * fields are not parsed at all.
+ * </p>
+ * <p>
+ * Gzip and Unix compress input streams are recognized by their magic numbers
+ * and uncompressed on the fly.
+ * </p>
+ * <p>
+ * The header is parsed and checked using the same rules as {@link RinexLoader}.
+ * Only one header per file is supported.
+ * </p>
+ * @see RinexEpoch
+ * @since 9.3
+ */
+public class RinexStreamReader implements Closeable {
+
+    // CHECKSTYLE: stop JavadocVariable check
+    private static final String END_OF_HEADER        = "END OF HEADER";
+    private static final String NB_OF_SATELLITES     = "# OF SATELLITES";
+    private static final String TIME_OF_FIRST_OBS    = "TIME OF FIRST OBS";
+    private static final String NB_TYPES_OF_OBSERV   = "# / TYPES OF OBSERV";
+    private static final String SYS_NB_OBS_TYPES     = "SYS / # / OBS TYPES";
+    private static final String SYS_SCALE_FACTOR     = "SYS / SCALE FACTOR";
+    // CHECKSTYLE: resume JavadocVariable check
+
+    /** Index of label in header lines. */
+    private static final int LABEL_START = 60;
+
+    /** Size of the input buffer. */
+    private static final int BUFFER_SIZE = 65536;
+
+    /** First magic number for gzip compressed streams. */
+    private static final int GZIP_MAGIC_1 = 0x1f;
+
+    /** Second magic number for gzip compressed streams. */
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    /** First magic number for Unix compressed streams. */
+    private static final int Z_MAGIC_1 = 0x1f;
+
+    /** Second magic number for Unix compressed streams. */
+    private static final int Z_MAGIC_2 = 0x9d;
+
+    /** Maximum number of satellites per line in rinex 2 epoch lines. */
+    private static final int MAX_N_SAT_OBSERVATION = 12;
+
+    /** Maximum number of observations per line in rinex 2 observation lines. */
+    private static final int MAX_N_TYPES_OBSERVATION = 5;
+
+    /** Maximum number of observation types per line in rinex 2 header. */
+    private static final int MAX_OBS_TYPES_PER_LINE_RNX2 = 9;
+
+    /** Maximum number of observation types per line in rinex 3 header. */
+    private static final int MAX_OBS_TYPES_PER_LINE_RNX3 = 13;
+
+    /** Maximum number of observation types per line in rinex 3 scale factor header lines. */
+    private static final int MAX_OBS_TYPES_SCALE_FACTOR_PER_LINE = 12;
+
+    /** Width of observation fields. */
+    private static final int OBSERVATION_WIDTH = 16;
+
+    /** Maximum number of significant digits for exact fast parsing. */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    /** Powers of ten exactly representable as doubles. */
+    private static final double[] POWERS_OF_TEN = {
+        1.0e0,  1.0e1,  1.0e2,  1.0e3,  1.0e4,  1.0e5,  1.0e6,  1.0e7,
+        1.0e8,  1.0e9,  1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15,
+        1.0e16, 1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+    };
+
+    /** Satellite systems indexed by key. */
+    private static final SatelliteSystem[] SYSTEMS_BY_KEY = new SatelliteSystem[128];
+    static {
+        for (final SatelliteSystem system : SatelliteSystem.values()) {
+            SYSTEMS_BY_KEY[system.getKey()] = system;
+        }
+    }
+
+    /** Input stream. */
+    private final InputStream input;
+
+    /** Name of the file. */
+    private final String name;
+
+    /** Input buffer. */
+    private final byte[] buffer;
+
+    /** Index of next byte to use in input buffer. */
+    private int position;
+
+    /** Number of valid bytes in input buffer. */
+    private int limit;
+
+    /** Current line (without end of line characters). */
+    private byte[] line;
+
+    /** Length of current line. */
+    private int length;
+
+    /** Current line number. */
+    private int lineNumber;
+
+    /** Parsed header. */
+    private final RinexHeader header;
+
+    /** Rinex major version. */
+    private final int version;
+
+    /** Time scale of observations. */
+    private TimeScale timeScale;
+
+    /** Number of satellites declared in header (-1 if not declared). */
+    private int nbSat;
+
+    /** Number of observation types for each satellite system (indexed by ordinal). */
+    private final int[] nbTypes;
+
+    /** Indices of retained observation types (indexed by satellite system ordinal, null if system is rejected). */
+    private final int[][] retained;
+
+    /** Scale factors of retained observation types (indexed by satellite system ordinal). */
+    private final double[][] scaleFactors;
+
+    /** Retained observation types for each satellite system. */
+    private final Map<SatelliteSystem, List<ObservationType>> retainedTypes;
+
+    /** Satellites systems buffer for rinex 2 epochs. */
+    private SatelliteSystem[] epochSystems;
+
+    /** PRN numbers buffer for rinex 2 epochs. */
+    private int[] epochPrn;
+
+    /** Reusable epoch container. */
+    private final RinexEpoch epoch;
+
+    /** Simple constructor.
+     * <p>
+     * This constructor does not filter any observation.
+     * </p>
+     * @param input data input stream (may be gzip or Unix compressed)
+     * @param name name of the file (or zip entry)
+     * @exception OrekitException if header cannot be read
+     */
+    public RinexStreamReader(final InputStream input, final String name)
+        throws OrekitException {
+        this(input, name, null, null);
+    }
+
+    /** Simple constructor.
+     * @param input data input stream (may be gzip or Unix compressed)
+     * @param name name of the file (or zip entry)
+     * @param systems satellite systems to retain (null to retain all systems)
+     * @param types observation types to retain (null to retain all types)
+     * @exception OrekitException if header cannot be read
+     */
+    public RinexStreamReader(final InputStream input, final String name,
+                             final Set<SatelliteSystem> systems,
+                             final Set<ObservationType> types)
+        throws OrekitException {
+        try {
+
+            this.input        = uncompress(input, name);
+            this.name         = name;
+            this.buffer       = new byte[BUFFER_SIZE];
+            this.position     = 0;
+            this.limit        = 0;
+            this.line         = new byte[128];
+            this.length       = 0;
+            this.lineNumber   = 0;
+            this.nbSat        = -1;
+            this.epochSystems = new SatelliteSystem[0];
+            this.epochPrn     = new int[0];
+
+            // gather header lines
+            final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            final List<String>          headerLines = new ArrayList<>();
+            boolean complete = false;
+            while (!complete && readLine()) {
+                final String current = new String(line, 0, length, StandardCharsets.UTF_8);
+                headerLines.add(current);
+                headerBytes.write(line, 0, length);
+                headerBytes.write('\n');
+                complete = END_OF_HEADER.equals(label(current));
+            }
+
+            // check and parse header using the regular loader
+            final Map<RinexHeader, List<ObservationDataSet>> parsed =
+                            new RinexLoader(new ByteArrayInputStream(headerBytes.toByteArray()), name).getObservations();
+            if (!complete || parsed.size() != 1) {
+                throw new OrekitException(OrekitMessages.INCOMPLETE_HEADER, name);
+            }
+            this.header  = parsed.keySet().iterator().next();
+            this.version = (int) header.getRinexVersion();
+
+            // extract the header data needed for streaming observations
+            final Map<SatelliteSystem, List<ObservationType>>      fileTypes = new EnumMap<>(SatelliteSystem.class);
+            final Map<SatelliteSystem, Map<ObservationType, Double>> factors   = new EnumMap<>(SatelliteSystem.class);
+            scanHeader(headerLines, fileTypes, factors);
+
+            // set up filtering
+            final int n = SatelliteSystem.values().length;
+            this.nbTypes      = new int[n];
+            this.retained     = new int[n][];
+            this.scaleFactors = new double[n][];
+            final Map<SatelliteSystem, List<ObservationType>> kept = new EnumMap<>(SatelliteSystem.class);
+            for (final Map.Entry<SatelliteSystem, List<ObservationType>> entry : fileTypes.entrySet()) {
+                final SatelliteSystem       system = entry.getKey();
+                final List<ObservationType> all    = entry.getValue();
+                nbTypes[system.ordinal()] = all.size();
+                if (systems == null || systems.contains(system)) {
+                    final List<ObservationType> selected = new ArrayList<>();
+                    final List<Integer>         indices  = new ArrayList<>();
+                    for (int i = 0; i < all.size(); ++i) {
+                        if (types == null || types.contains(all.get(i))) {
+                            selected.add(all.get(i));
+                            indices.add(i);
+                        }
+                    }
+                    final int[]    r = new int[indices.size()];
+                    final double[] f = new double[indices.size()];
+                    final Map<ObservationType, Double> systemFactors = factors.get(system);
+                    for (int i = 0; i < r.length; ++i) {
+                        r[i] = indices.get(i);
+                        final Double factor = systemFactors == null ? null : systemFactors.get(selected.get(i));
+                        f[i] = factor == null ? 1.0 : factor;
+                    }
+                    retained[system.ordinal()]     = r;
+                    scaleFactors[system.ordinal()] = f;
+                    kept.put(system, Collections.unmodifiableList(selected));
+                }
+            }
+            this.retainedTypes = Collections.unmodifiableMap(kept);
+            this.epoch         = new RinexEpoch(retainedTypes);
+
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** Get the file header.
+     * @return file header
+     */
+    public RinexHeader getHeader() {
+        return header;
+    }
+
+    /** Get the retained observation types for a satellite system.
+     * @param system satellite system
+     * @return retained observation types (empty if system is not retained)
+     */
+    public List<ObservationType> getObservationTypes(final SatelliteSystem system) {
+        final List<ObservationType> types = retainedTypes.get(system);
+        return types == null ? Collections.emptyList() : types;
+    }
+
+    /** Read the next observation epoch.
+     * <p>
+     * The same {@link RinexEpoch} instance is returned at each call, its content
+     * being overwritten. Epochs with special event flags (power failure, header
+     * records, cycle slips…) are skipped.
+     * </p>
+     * @return next observation epoch, or null if end of file has been reached
+     * @exception OrekitException if data cannot be read or parsed
+     */
+    public RinexEpoch next() throws OrekitException {
+        try {
+            while (readLine()) {
+                if (version == 2 ? parseRinex2Epoch() : parseRinex3Epoch()) {
+                    return epoch;
+                }
+            }
+            return null;
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /** Parse a rinex 2 epoch.
+     * @return true if an observation epoch has been parsed, false if lines were skipped
+     * @exception IOException if data cannot be read
+     * @exception OrekitException if data cannot be parsed
+     */
+    private boolean parseRinex2Epoch() throws IOException, OrekitException {
+
+        final int nbTypes2   = nbTypes[SatelliteSystem.GPS.ordinal()];
+        final int nbLinesObs = (nbTypes2 + MAX_N_TYPES_OBSERVATION - 1) / MAX_N_TYPES_OBSERVATION;
+
+        final int eventFlag = parseInt(28, 1);
+        if (eventFlag != 0) {
+            if (eventFlag == 6) {
+                final int nbSatObs   = parseInt(29, 3);
+                final int nbLinesSat = (nbSatObs + MAX_N_SAT_OBSERVATION - 1) / MAX_N_SAT_OBSERVATION;
+                skipLines((nbLinesSat - 1) + nbSatObs * nbLinesObs);
+            } else {
+                skipLines(parseInt(29, 3));
+            }
+            return false;
+        }
+
+        final int y = parseInt(0, 3);
+        final AbsoluteDate date = new AbsoluteDate(y > 79 ? 1900 + y : 2000 + y,
+                                                   parseInt(3, 3), parseInt(6, 3),
+                                                   parseInt(9, 3), parseInt(12, 3),
+                                                   parseDouble(15, 11), timeScale);
+        final int nbSatObs = parseInt(29, 3);
+        checkSatellitesNumber(nbSatObs);
+        final double offset = parseDouble(68, 12);
+        epoch.reset(date, Double.isNaN(offset) ? 0.0 : offset, nbSatObs);
+
+        // satellites list
+        if (epochSystems.length < nbSatObs) {
+            epochSystems = new SatelliteSystem[nbSatObs];
+            epochPrn     = new int[nbSatObs];
+        }
+        final int nbLinesSat = (nbSatObs + MAX_N_SAT_OBSERVATION - 1) / MAX_N_SAT_OBSERVATION;
+        for (int j = 0; j < nbLinesSat; ++j) {
+            if (j > 0) {
+                readMandatoryLine();
+            }
+            for (int i = 0; i < MAX_N_SAT_OBSERVATION && i + MAX_N_SAT_OBSERVATION * j < nbSatObs; ++i) {
+                final int k = i + MAX_N_SAT_OBSERVATION * j;
+                final byte key = byteAt(32 + 3 * i);
+                epochSystems[k] = key == ' ' ? SatelliteSystem.GPS : satelliteSystem(key);
+                epochPrn[k]     = parseInt(33 + 3 * i, 2);
+            }
+        }
+
+        // observations
+        for (int k = 0; k < nbSatObs; ++k) {
+
+            final int[] r = retained[epochSystems[k].ordinal()];
+            if (r == null) {
+                skipLines(nbLinesObs);
+            } else {
+                final double[] f = scaleFactors[epochSystems[k].ordinal()];
+                final int index = epoch.addSatellite(epochSystems[k], rinex2Prn(epochSystems[k], epochPrn[k]));
+                int i = 0;
+                for (int j = 0; j < nbLinesObs; ++j) {
+                    readMandatoryLine();
+                    while (i < r.length && r[i] / MAX_N_TYPES_OBSERVATION == j) {
+                        final int start = OBSERVATION_WIDTH * (r[i] % MAX_N_TYPES_OBSERVATION);
+                        epoch.setObservation(index + i, parseDouble(start, 14) / f[i],
+                                             parseInt(start + 14, 1), parseInt(start + 15, 1));
+                        ++i;
+                    }
+                }
+            }
+
+            checkSatelliteSystem(epochSystems[k]);
+
+        }
+
+        return true;
+
+    }
+
+    /** Parse a rinex 3 epoch.
+     * @return true if an observation epoch has been parsed, false if lines were skipped
+     * @exception IOException if data cannot be read
+     * @exception OrekitException if data cannot be parsed
+     */
+    private boolean parseRinex3Epoch() throws IOException, OrekitException {
+
+        if (byteAt(0) != '>') {
+            // not an epoch line
+            return false;
+        }
+
+        final int eventFlag = parseInt(31, 1);
+        if (eventFlag != 0) {
+            skipLines(parseInt(32, 3));
+            return false;
+        }
+
+        final AbsoluteDate date = new AbsoluteDate(parseInt(2, 4), parseInt(6, 3), parseInt(9, 3),
+                                                   parseInt(12, 3), parseInt(15, 3),
+                                                   parseDouble(18, 11), timeScale);
+        final int nbSatObs = parseInt(32, 3);
+        checkSatellitesNumber(nbSatObs);
+        final double offset = parseDouble(41, 15);
+        epoch.reset(date, Double.isNaN(offset) ? 0.0 : offset, nbSatObs);
+
+        for (int k = 0; k < nbSatObs; ++k) {
+
+            readMandatoryLine();
+
+            final SatelliteSystem system = satelliteSystem(byteAt(0));
+            checkSatelliteSystem(system);
+            final int prn = parseInt(1, 2);
+            final int prnNumber;
+            switch (system) {
+                case GPS:
+                case GLONASS:
+                case GALILEO:
+                case BEIDOU:
+                case IRNSS:
+                    prnNumber = prn;
+                    break;
+                case QZSS:
+                    prnNumber = prn + 192;
+                    break;
+                case SBAS:
+                    prnNumber = prn + 100;
+                    break;
+                default:
+                    // MIXED satellite system is not allowed here
+                    throw unableToParse();
+            }
+
+            final int[] r = retained[system.ordinal()];
+            if (r == null) {
+                if (nbTypes[system.ordinal()] == 0) {
+                    // the system was not declared in the header
+                    throw unableToParse();
+                }
+            } else {
+                final double[] f = scaleFactors[system.ordinal()];
+                final int index = epoch.addSatellite(system, prnNumber);
+                for (int i = 0; i < r.length; ++i) {
+                    final int start = 3 + OBSERVATION_WIDTH * r[i];
+                    epoch.setObservation(index + i, parseDouble(start, 14) / f[i],
+                                         parseInt(start + 14, 1), parseInt(start + 15, 1));
+                }
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /** Get PRN number for rinex 2 files.
+     * @param system satellite system
+     * @param prn PRN as written in the file
+     * @return PRN number
+     * @exception OrekitException if the satellite system is not supported
+     */
+    private int rinex2Prn(final SatelliteSystem system, final int prn)
+        throws OrekitException {
+        switch (system) {
+            case GPS:
+            case GLONASS:
+            case GALILEO:
+                return prn;
+            case SBAS:
+                return prn + 100;
+            default:
+                throw unableToParse();
+        }
+    }
+
+    /** Check the number of satellites in an epoch.
+     * @param nbSatObs number of satellites in the epoch
+     * @exception OrekitException if the number is inconsistent with header
+     */
+    private void checkSatellitesNumber(final int nbSatObs) throws OrekitException {
+        if (nbSat != -1 && nbSatObs > nbSat) {
+            throw new OrekitException(OrekitMessages.INCONSISTENT_NUMBER_OF_SATS,
+                                      lineNumber, name, nbSatObs, nbSat);
+        }
+    }
+
+    /** Check a satellite system is consistent with header.
+     * @param system satellite system to check
+     * @exception OrekitException if the system is inconsistent with header
+     */
+    private void checkSatelliteSystem(final SatelliteSystem system) throws OrekitException {
+        if (header.getSatelliteSystem() != SatelliteSystem.MIXED && header.getSatelliteSystem() != system) {
+            throw new OrekitException(OrekitMessages.INCONSISTENT_SATELLITE_SYSTEM,
+                                      lineNumber, name, header.getSatelliteSystem(), system);
+        }
+    }
+
+    /** Get a satellite system from its key.
+     * @param key key of the satellite system
+     * @return satellite system
+     * @exception OrekitIllegalArgumentException if the key does not correspond to a satellite system
+     */
+    private static SatelliteSystem satelliteSystem(final byte key)
+        throws OrekitIllegalArgumentException {
+        final SatelliteSystem system = key < 0 ? null : SYSTEMS_BY_KEY[key];
+        if (system == null) {
+            throw new OrekitIllegalArgumentException(OrekitMessages.UNKNOWN_SATELLITE_SYSTEM, (char) key);
+        }
+        return system;
+    }
+
+    /** Extract from header the data needed to parse observations.
+     * @param headerLines header lines
+     * @param fileTypes placeholder for observation types for each satellite system
+     * @param factors placeholder for scale factors for each satellite system
+     * @exception OrekitException if time scale is not supported
+     */
+    private void scanHeader(final List<String> headerLines,
+                            final Map<SatelliteSystem, List<ObservationType>> fileTypes,
+                            final Map<SatelliteSystem, Map<ObservationType, Double>> factors)
+        throws OrekitException {
+        for (int i = 0; i < headerLines.size(); ++i) {
+            String current = headerLines.get(i);
+            switch (label(current)) {
+                case NB_OF_SATELLITES :
+                    nbSat = Integer.parseInt(field(current, 0, 6));
+                    break;
+                case TIME_OF_FIRST_OBS :
+                    timeScale = timeScale(field(current, 48, 3));
+                    break;
+                case NB_TYPES_OF_OBSERV : {
+                    // rinex 2: the same types apply to all satellite systems
+                    final int nb = Integer.parseInt(field(current, 0, 6));
+                    final List<ObservationType> list = new ArrayList<>(nb);
+                    while (list.size() < nb) {
+                        for (int k = 0; k < MAX_OBS_TYPES_PER_LINE_RNX2 && list.size() < nb; ++k) {
+                            list.add(ObservationType.valueOf(field(current, 10 + 6 * k, 2)));
+                        }
+                        if (list.size() < nb) {
+                            current = headerLines.get(++i);
+                        }
+                    }
+                    for (final SatelliteSystem system : SatelliteSystem.values()) {
+                        if (system != SatelliteSystem.MIXED) {
+                            fileTypes.put(system, list);
+                        }
+                    }
+                    break;
+                }
+                case SYS_NB_OBS_TYPES : {
+                    final SatelliteSystem system = SatelliteSystem.parseSatelliteSystem(field(current, 0, 1));
+                    final int nb = Integer.parseInt(field(current, 3, 3));
+                    final List<ObservationType> list = new ArrayList<>(nb);
+                    while (list.size() < nb) {
+                        for (int k = 0; k < MAX_OBS_TYPES_PER_LINE_RNX3 && list.size() < nb; ++k) {
+                            list.add(ObservationType.valueOf(field(current, 7 + 4 * k, 3)));
+                        }
+                        if (list.size() < nb) {
+                            current = headerLines.get(++i);
+                        }
+                    }
+                    fileTypes.put(system, list);
+                    break;
+                }
+                case SYS_SCALE_FACTOR : {
+                    final SatelliteSystem system = SatelliteSystem.parseSatelliteSystem(field(current, 0, 1));
+                    final double factor = Integer.parseInt(field(current, 2, 4));
+                    final int nb = field(current, 8, 2).isEmpty() ? 0 : Integer.parseInt(field(current, 8, 2));
+                    final Map<ObservationType, Double> systemFactors = factors.computeIfAbsent(system, s -> new HashMap<>());
+                    if (nb == 0) {
+                        for (final ObservationType type : fileTypes.get(system)) {
+                            systemFactors.put(type, factor);
+                        }
+                    } else {
+                        int count = 0;
+                        while (count < nb) {
+                            for (int k = 0; k < MAX_OBS_TYPES_SCALE_FACTOR_PER_LINE && count < nb; ++k) {
+                                systemFactors.put(ObservationType.valueOf(field(current, 11 + 4 * k, 3)), factor);
+                                ++count;
+                            }
+                            if (count < nb) {
+                                current = headerLines.get(++i);
+                            }
+                        }
+                    }
+                    break;
+                }
+                default :
+                    // other header lines are handled by the regular loader
+                    break;
+            }
+        }
+    }
+
+    /** Get the time scale of observations.
+     * @param code time system code from the time of first observation header line
+     * @return time scale
+     * @exception OrekitException if time scale is not supported
+     */
+    private TimeScale timeScale(final String code) throws OrekitException {
+        switch (header.getSatelliteSystem()) {
+            case GPS :
+                return TimeScalesFactory.getGPS();
+            case GALILEO :
+                return TimeScalesFactory.getGST();
+            case GLONASS :
+                return TimeScalesFactory.getGLONASS();
+            case QZSS :
+                return TimeScalesFactory.getQZSS();
+            case BEIDOU :
+                return TimeScalesFactory.getBDT();
+            case IRNSS :
+                return TimeScalesFactory.getIRNSS();
+            case MIXED :
+                switch (code) {
+                    case "GPS" :
+                        return TimeScalesFactory.getGPS();
+                    case "GAL" :
+                        return TimeScalesFactory.getGST();
+                    case "GLO" :
+                        return TimeScalesFactory.getGLONASS();
+                    case "QZS" :
+                        return TimeScalesFactory.getQZSS();
+                    case "BDT" :
+                        return TimeScalesFactory.getBDT();
+                    case "IRN" :
+                        return TimeScalesFactory.getIRNSS();
+                    default :
+                        throw new OrekitException(OrekitMessages.UNSUPPORTED_FILE_FORMAT, name);
+                }
+            default :
+                throw new OrekitException(OrekitMessages.UNSUPPORTED_FILE_FORMAT, name);
+        }
+    }
+
+    /** Get the label of a header line.
+     * @param headerLine header line
+     * @return label of the line
+     */
+    private static String label(final String headerLine) {
+        return headerLine.length() > LABEL_START ? headerLine.substring(LABEL_START).trim() : "";
+    }
+
+    /** Extract a trimmed field from a header line.
+     * @param headerLine header line
+     * @param start start index of the field
+     * @param fieldLength length of the field
+     * @return trimmed field (empty if line is too short)
+     */
+    private static String field(final String headerLine, final int start, final int fieldLength) {
+        if (headerLine.length() > start) {
+            return headerLine.substring(start, FastMath.min(headerLine.length(), start + fieldLength)).trim();
+        } else {
+            return "";
+        }
+    }
+
+    /** Uncompress the input stream if needed.
+     * @param raw raw input stream
+     * @param fileName name of the file
+     * @return uncompressed stream
+     * @exception IOException if stream cannot be read
+     * @exception OrekitException if compressed stream cannot be opened
+     */
+    private static InputStream uncompress(final InputStream raw, final String fileName)
+        throws IOException, OrekitException {
+        final BufferedInputStream bis = new BufferedInputStream(raw);
+        bis.mark(2);
+        final int b1 = bis.read();
+        final int b2 = bis.read();
+        bis.reset();
+        if (b1 == GZIP_MAGIC_1 && b2 == GZIP_MAGIC_2) {
+            return new GZIPInputStream(bis, BUFFER_SIZE);
+        } else if (b1 == Z_MAGIC_1 && b2 == Z_MAGIC_2) {
+            return new UnixCompressFilter().filter(new NamedData(fileName + ".Z", () -> bis)).getStreamOpener().openStream();
+        } else {
+            return bis;
+        }
+    }
+
+    /** Read next line into the line buffer.
+     * @return true if a line was read, false if end of file was reached
+     * @exception IOException if data cannot be read
+     */
+    private boolean readLine() throws IOException {
+        length = 0;
+        if (position >= limit && !fill()) {
+            return false;
+        }
+        while (true) {
+            if (position >= limit && !fill()) {
+                // last line without end of line characters
+                break;
+            }
+            final byte b = buffer[position++];
+            if (b == '\n') {
+                break;
+            } else if (b != '\r') {
+                if (length == line.length) {
+                    final byte[] extended = new byte[2 * line.length];
+                    System.arraycopy(line, 0, extended, 0, length);
+                    line = extended;
+                }
+                line[length++] = b;
+            }
+        }
+        ++lineNumber;
+        return true;
+    }
+
+    /** Read a line that must be present.
+     * @exception IOException if data cannot be read
+     * @exception OrekitException if end of file is reached
+     */
+    private void readMandatoryLine() throws IOException, OrekitException {
+        if (!readLine()) {
+            throw new OrekitException(OrekitMessages.UNEXPECTED_END_OF_FILE_AFTER_LINE, name, lineNumber);
+        }
+    }
+
+    /** Skip lines.
+     * <p>
+     * Skipping stops silently if end of file is reached.
+     * </p>
+     * @param n number of lines to skip
+     * @exception IOException if data cannot be read
+     */
+    private void skipLines(final int n) throws IOException {
+        for (int i = 0; i < n && readLine(); ++i) {
+            // nothing to do
+        }
+    }
+
+    /** Fill the input buffer.
+     * @return true if some data was read, false if end of file was reached
+     * @exception IOException if data cannot be read
+     */
+    private boolean fill() throws IOException {
+        final int n = input.read(buffer, 0, buffer.length);
+        position = 0;
+        limit    = FastMath.max(n, 0);
+        return n > 0;
+    }
+
+    /** Get a byte from current line.
+     * @param index index of the byte
+     * @return byte at index, or space if line is too short
+     */
+    private byte byteAt(final int index) {
+        return index < length ? line[index] : (byte) ' ';
+    }
+
+    /** Extract an integer from current line.
+     * @param start start index of the field
+     * @param fieldLength length of the field
+     * @return parsed integer, or 0 if field is empty
+     * @exception OrekitException if field cannot be parsed
+     */
+    private int parseInt(final int start, final int fieldLength) throws OrekitException {
+        final int end = FastMath.min(length, start + fieldLength);
+        int i = start;
+        while (i < end && line[i] == ' ') {
+            ++i;
+        }
+        boolean negative = false;
+        if (i < end && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i++] == '-';
+        }
+        int value = 0;
+        while (i < end && line[i] != ' ') {
+            final int digit = line[i++] - '0';
+            if (digit < 0 || digit > 9) {
+                throw unableToParse();
+            }
+            value = 10 * value + digit;
+        }
+        while (i < end) {
+            if (line[i++] != ' ') {
+                throw unableToParse();
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /** Extract a double from current line.
+     * <p>
+     * Plain decimal fields with up to 15 significant digits are parsed directly
+     * from bytes with correct rounding, other fields fall back to {@link Double#parseDouble(String)}.
+     * </p>
+     * @param start start index of the field
+     * @param fieldLength length of the field
+     * @return parsed real, or {@code Double.NaN} if field is empty
+     * @exception OrekitException if field cannot be parsed
+     */
+    private double parseDouble(final int start, final int fieldLength) throws OrekitException {
+        final int end = FastMath.min(length, start + fieldLength);
+        int i = start;
+        while (i < end && line[i] == ' ') {
+            ++i;
+        }
+        if (i >= end) {
+            return Double.NaN;
+        }
+        final int first = i;
+        boolean negative = false;
+        if (line[i] == '-' || line[i] == '+') {
+            negative = line[i++] == '-';
+        }
+        long    mantissa  = 0;
+        int     digits    = 0;
+        int     decimals  = 0;
+        boolean fraction  = false;
+        boolean fast      = true;
+        while (fast && i < end && line[i] != ' ') {
+            final byte b = line[i++];
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = 10 * mantissa + (b - '0');
+                if (mantissa != 0) {
+                    ++digits;
+                }
+                if (fraction) {
+                    ++decimals;
+                }
+                fast = digits <= MAX_FAST_DIGITS && decimals < POWERS_OF_TEN.length;
+            } else {
+                fast = false;
+            }
+        }
+        while (fast && i < end) {
+            fast = line[i++] == ' ';
+        }
+
+        if (fast) {
+            // mantissa and power of ten are both exact, so the division is correctly rounded
+            final double value = mantissa / POWERS_OF_TEN[decimals];
+            return negative ? -value : value;
+        } else {
+            // fall back to regular parsing for unusual fields
+            try {
+                return Double.parseDouble(new String(line, first, end - first, StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException nfe) {
+                throw unableToParse();
+            }
+        }
+
+    }
+
+    /** Build an exception for unparsable current line.
+     * @return exception for current line
+     */
+    private OrekitException unableToParse() {
+        return new OrekitException(OrekitMessages.UNABLE_TO_PARSE_LINE_IN_FILE,
+                                   lineNumber, name, new String(line, 0, length, StandardCharsets.UTF_8));
+    }
+
+}
@@ -82,6 +82,22 @@ public abstract class AbstractGNSSAttitudeProvider implements GNSSAttitudeProvid
         return validityEnd;
     }
 
+    /** Get the provider for Sun position.
+     * @return provider for Sun position
+     * @since 9.3
+     */
+    ExtendedPVCoordinatesProvider getSun() {
+        return sun;
+    }
+
+    /** Get the inertial frame where velocity are computed.
+     * @return inertial frame where velocity are computed
+     * @since 9.3
+     */
+    Frame getInertialFrame() {
+        return inertialFrame;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Attitude getAttitude(final PVCoordinatesProvider pvProv,
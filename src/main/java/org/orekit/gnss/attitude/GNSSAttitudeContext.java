@@ -121,19 +121,31 @@ class GNSSAttitudeContext implements TimeStamped {
                        add(0.5 * FastMath.PI);
 
         // nominal yaw steering
-        this.nominalYaw =
-                        new TimeStampedAngularCoordinates(svPV.getDate(),
-                                                          svPV.normalize(),
-                                                          PVCoordinates.crossProduct(sunPV, svPV).normalize(),
-                                                          MINUS_Z,
-                                                          PLUS_Y,
-                                                          1.0e-9);
+        this.nominalYaw   = nominalYaw(sunPV, svPV);
         this.nominalYawDS = nominalYaw.toDerivativeStructureRotation(ORDER);
 
         this.muRate = svPV.getAngularVelocity().getNorm();
 
     }
 
+    /** Compute nominal yaw steering.
+     * @param sunPV Sun position-velocity in inertial frame
+     * @param svPV spacecraft position-velocity in inertial frame
+     * @return nominal yaw steering
+     * @exception OrekitException if spacecraft and Sun are aligned
+     * @since 9.3
+     */
+    static TimeStampedAngularCoordinates nominalYaw(final TimeStampedPVCoordinates sunPV,
+                                                    final TimeStampedPVCoordinates svPV)
+        throws OrekitException {
+        return new TimeStampedAngularCoordinates(svPV.getDate(),
+                                                 svPV.normalize(),
+                                                 PVCoordinates.crossProduct(sunPV, svPV).normalize(),
+                                                 MINUS_Z,
+                                                 PLUS_Y,
+                                                 1.0e-9);
+    }
+
     /** {@inheritDoc} */
     @Override
     public AbsoluteDate getDate() {
@@ -0,0 +1,429 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss.attitude;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.analysis.differentiation.DerivativeStructure;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.FieldVector3D;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.orekit.attitudes.Attitude;
+import org.orekit.attitudes.FieldAttitude;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.utils.FieldPVCoordinatesProvider;
+import org.orekit.utils.PVCoordinatesProvider;
+import org.orekit.utils.TimeStampedAngularCoordinates;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/**
+ * Precomputed attitude timeline for one navigation satellite.
+ *
+ * <p>
+ * Evaluating the attitude of navigation satellites with the regular
+ * {@link GNSSAttitudeProvider} implementations involves computing the Sun
+ * position and solving the midnight/noon turns geometry at each call. When
+ * the attitude of many satellites must be evaluated at many epochs and several
+ * times (for example at each iteration of an orbit determination), this
+ * class allows to perform these computations only once over a processing
+ * window. The timeline is built from a reference trajectory and stores in
+ * compact arrays:
+ * </p>
+ * <ul>
+ *   <li>the Sun position-velocity, sampled on a regular grid,</li>
+ *   <li>the time intervals where attitude differs from nominal yaw steering
+ *   (i.e. the turns and the orbit normal modes), with boundaries located
+ *   by bisection,</li>
+ *   <li>the yaw angle and yaw rate within these intervals, sampled at a finer step.</li>
+ * </ul>
+ * <p>
+ * At evaluation time, the nominal yaw steering is recomputed from the
+ * interpolated Sun and the <em>current</em> spacecraft position-velocity,
+ * and within turn intervals the yaw is interpolated using cubic Hermite
+ * polynomials. The timeline can therefore be reused when the spacecraft
+ * trajectory is slightly updated (for example between orbit determination
+ * iterations) without being rebuilt, as long as the turn intervals remain
+ * close to the ones of the reference trajectory.
+ * </p>
+ * <p>
+ * Outside of the processing window, and for field-based evaluations, the
+ * computation is delegated to the underlying provider. Turns shorter than
+ * the Sun sampling step may be missed if they fall between two samples,
+ * so this step should remain significantly smaller than the shortest turn.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and hence can be shared between threads.
+ * </p>
+ *
+ * @since 9.3
+ */
+public class GNSSAttitudeTimeline implements GNSSAttitudeProvider {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Threshold on yaw correction for considering attitude is not nominal. */
+    private static final double NOMINAL_THRESHOLD = 1.0e-9;
+
+    /** Convergence threshold for intervals boundaries (s). */
+    private static final double BOUNDARY_ACCURACY = 1.0e-3;
+
+    /** Underlying provider. */
+    private final AbstractGNSSAttitudeProvider provider;
+
+    /** Inertial frame where computations are performed. */
+    private final Frame inertialFrame;
+
+    /** Start of the processing window. */
+    private final AbsoluteDate start;
+
+    /** Duration of the processing window. */
+    private final double duration;
+
+    /** Sun sampling step. */
+    private final double sunStep;
+
+    /** Sun positions (3 coordinates per sample). */
+    private final double[] sunP;
+
+    /** Sun velocities (3 coordinates per sample). */
+    private final double[] sunV;
+
+    /** Start of non-nominal intervals (offsets from start of processing window). */
+    private final double[] intervalsStart;
+
+    /** End of non-nominal intervals (offsets from start of processing window). */
+    private final double[] intervalsEnd;
+
+    /** Index of the first yaw sample of each interval (with a final sentinel). */
+    private final int[] firstSample;
+
+    /** Yaw samples (unwrapped within each interval). */
+    private final double[] yaw;
+
+    /** Yaw rate samples. */
+    private final double[] yawDot;
+
+    /** Build a timeline.
+     * @param provider underlying provider
+     * @param reference reference trajectory of the spacecraft
+     * @param start start of the processing window
+     * @param end end of the processing window
+     * @param sunStep sampling step for Sun position and turns detection (s)
+     * @param yawStep sampling step for yaw within turns (s)
+     * @exception OrekitException if some attitude cannot be computed
+     * or if processing window or steps are not strictly positive
+     */
+    public GNSSAttitudeTimeline(final AbstractGNSSAttitudeProvider provider,
+                                final PVCoordinatesProvider reference,
+                                final AbsoluteDate start, final AbsoluteDate end,
+                                final double sunStep, final double yawStep)
+        throws OrekitException {
+
+        final double windowDuration = end.durationFrom(start);
+        if (windowDuration <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, windowDuration, 0);
+        }
+        if (sunStep <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, sunStep, 0);
+        }
+        if (yawStep <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, yawStep, 0);
+        }
+
+        this.provider      = provider;
+        this.inertialFrame = provider.getInertialFrame();
+        this.start         = start;
+        this.duration      = windowDuration;
+
+        // sample Sun and look for non-nominal intervals
+        final int n = (int) FastMath.ceil(windowDuration / sunStep);
+        this.sunStep = windowDuration / n;
+        this.sunP    = new double[3 * (n + 1)];
+        this.sunV    = new double[3 * (n + 1)];
+        final List<double[]> intervals = new ArrayList<>();
+        double intervalStart = Double.NaN;
+        boolean previous     = false;
+        for (int i = 0; i <= n; ++i) {
+            final double                   t     = i * this.sunStep;
+            final AbsoluteDate             date  = start.shiftedBy(t);
+            final TimeStampedPVCoordinates sunPV = provider.getSun().getPVCoordinates(date, inertialFrame);
+            store(sunPV.getPosition(), sunP, i);
+            store(sunPV.getVelocity(), sunV, i);
+            final boolean current = !isNominal(sunPV, reference.getPVCoordinates(date, inertialFrame));
+            if (current && i == 0) {
+                intervalStart = 0;
+            } else if (current && !previous) {
+                intervalStart = findBoundary(reference, t - this.sunStep, t);
+            } else if (!current && previous) {
+                intervals.add(new double[] {
+                    intervalStart, findBoundary(reference, t, t - this.sunStep)
+                });
+            }
+            previous = current;
+        }
+        if (previous) {
+            intervals.add(new double[] {
+                intervalStart, windowDuration
+            });
+        }
+
+        // sample yaw within non-nominal intervals
+        this.intervalsStart = new double[intervals.size()];
+        this.intervalsEnd   = new double[intervals.size()];
+        this.firstSample    = new int[intervals.size() + 1];
+        final List<double[]> samples = new ArrayList<>();
+        for (int k = 0; k < intervals.size(); ++k) {
+            intervalsStart[k] = intervals.get(k)[0];
+            intervalsEnd[k]   = intervals.get(k)[1];
+            firstSample[k]    = samples.size();
+            final int    m = FastMath.max(1, (int) FastMath.ceil((intervalsEnd[k] - intervalsStart[k]) / yawStep));
+            final double h = (intervalsEnd[k] - intervalsStart[k]) / m;
+            double previousYaw = Double.NaN;
+            for (int i = 0; i <= m; ++i) {
+                final AbsoluteDate date = start.shiftedBy(intervalsStart[k] + i * h);
+                final DerivativeStructure y = yaw(provider.getSun().getPVCoordinates(date, inertialFrame),
+                                                  reference.getPVCoordinates(date, inertialFrame));
+                // unwrap yaw to preserve continuity within the interval
+                final double value = Double.isNaN(previousYaw) ?
+                                     y.getValue() :
+                                     MathUtils.normalizeAngle(y.getValue(), previousYaw);
+                samples.add(new double[] {
+                    value, y.getPartialDerivative(1)
+                });
+                previousYaw = value;
+            }
+        }
+        firstSample[intervals.size()] = samples.size();
+        this.yaw    = new double[samples.size()];
+        this.yawDot = new double[samples.size()];
+        for (int i = 0; i < samples.size(); ++i) {
+            yaw[i]    = samples.get(i)[0];
+            yawDot[i] = samples.get(i)[1];
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbsoluteDate validityStart() {
+        return provider.validityStart();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbsoluteDate validityEnd() {
+        return provider.validityEnd();
+    }
+
+    /** Get the number of intervals where attitude is not nominal yaw steering.
+     * @return number of intervals where attitude is not nominal yaw steering
+     */
+    public int getNonNominalIntervalsNumber() {
+        return intervalsStart.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Attitude getAttitude(final PVCoordinatesProvider pvProv,
+                                final AbsoluteDate date,
+                                final Frame frame)
+        throws OrekitException {
+
+        final double t = date.durationFrom(start);
+        if (t < 0 || t > duration) {
+            // outside of processing window
+            return provider.getAttitude(pvProv, date, frame);
+        }
+
+        final TimeStampedPVCoordinates sunPV = interpolateSun(date, t);
+        final TimeStampedPVCoordinates svPV  = pvProv.getPVCoordinates(date, inertialFrame);
+
+        // look for the non-nominal interval containing the date
+        final int k = Arrays.binarySearch(intervalsStart, t);
+        final int index = k >= 0 ? k : -k - 2;
+        final TimeStampedAngularCoordinates ac;
+        if (index < 0 || t > intervalsEnd[index]) {
+            // nominal yaw steering
+            ac = GNSSAttitudeContext.nominalYaw(sunPV, svPV);
+        } else {
+
+            // interpolate yaw within the interval
+            final int    first = firstSample[index];
+            final int    m     = firstSample[index + 1] - first - 1;
+            final double h     = (intervalsEnd[index] - intervalsStart[index]) / m;
+            final int    i     = FastMath.min(m - 1, (int) FastMath.floor((t - intervalsStart[index]) / h));
+            final double s     = (t - intervalsStart[index] - i * h) / h;
+            final double s2    = s * s;
+            final double s3    = s2 * s;
+            final double y0    = yaw[first + i];
+            final double y1    = yaw[first + i + 1];
+            final double m0    = yawDot[first + i] * h;
+            final double m1    = yawDot[first + i + 1] * h;
+            final double y     = (2 * s3 - 3 * s2 + 1) * y0 + (s3 - 2 * s2 + s) * m0 +
+                                 (3 * s2 - 2 * s3) * y1 + (s3 - s2) * m1;
+            final double yDot  = ((6 * s2 - 6 * s) * y0 + (3 * s2 - 4 * s + 1) * m0 +
+                                  (6 * s - 6 * s2) * y1 + (3 * s2 - 2 * s) * m1) / h;
+            final double yDDot = ((12 * s - 6) * y0 + (6 * s - 4) * m0 +
+                                  (6 - 12 * s) * y1 + (6 * s - 2) * m1) / (h * h);
+
+            final GNSSAttitudeContext context = new GNSSAttitudeContext(sunPV, svPV);
+            ac = context.turnCorrectedAttitude(context.getBetaDS().getFactory().build(y, yDot, yDDot));
+
+        }
+
+        return new Attitude(inertialFrame, ac).withReferenceFrame(frame);
+
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * Field-based evaluations are delegated to the underlying provider.
+     * </p>
+     */
+    @Override
+    public <T extends RealFieldElement<T>> FieldAttitude<T> getAttitude(final FieldPVCoordinatesProvider<T> pvProv,
+                                                                        final FieldAbsoluteDate<T> date,
+                                                                        final Frame frame)
+        throws OrekitException {
+        return provider.getAttitude(pvProv, date, frame);
+    }
+
+    /** Compute yaw along the reference trajectory.
+     * @param sunPV Sun position-velocity in inertial frame
+     * @param svPV spacecraft position-velocity in inertial frame
+     * @return yaw angle, with time derivatives
+     * @exception OrekitException if attitude cannot be computed
+     */
+    private DerivativeStructure yaw(final TimeStampedPVCoordinates sunPV, final TimeStampedPVCoordinates svPV)
+        throws OrekitException {
+        final GNSSAttitudeContext context = new GNSSAttitudeContext(sunPV, svPV);
+        return yawCorrection(sunPV, svPV).add(context.yawAngleDS());
+    }
+
+    /** Check if attitude is nominal yaw steering.
+     * @param sunPV Sun position-velocity in inertial frame
+     * @param svPV spacecraft position-velocity in inertial frame
+     * @return true if attitude is nominal yaw steering
+     * @exception OrekitException if attitude cannot be computed
+     */
+    private boolean isNominal(final TimeStampedPVCoordinates sunPV, final TimeStampedPVCoordinates svPV)
+        throws OrekitException {
+        return FastMath.abs(yawCorrection(sunPV, svPV).getValue()) <= NOMINAL_THRESHOLD;
+    }
+
+    /** Compute the yaw correction with respect to nominal yaw steering.
+     * @param sunPV Sun position-velocity in inertial frame
+     * @param svPV spacecraft position-velocity in inertial frame
+     * @return yaw correction, with time derivatives
+     * @exception OrekitException if attitude cannot be computed
+     */
+    private DerivativeStructure yawCorrection(final TimeStampedPVCoordinates sunPV,
+                                              final TimeStampedPVCoordinates svPV)
+        throws OrekitException {
+        final TimeStampedAngularCoordinates nominal = GNSSAttitudeContext.nominalYaw(sunPV, svPV);
+        final TimeStampedAngularCoordinates actual  = provider.getAttitude((date, frame) -> svPV,
+                                                                           svPV.getDate(),
+                                                                           inertialFrame).getOrientation();
+        // the correction is a rotation around the spacecraft Z axis
+        final FieldVector3D<DerivativeStructure> x =
+                        actual.subtractOffset(nominal).toDerivativeStructureRotation(2).applyTo(Vector3D.PLUS_I);
+        return DerivativeStructure.atan2(x.getY(), x.getX());
+    }
+
+    /** Find a boundary between nominal and non-nominal attitude.
+     * @param reference reference trajectory of the spacecraft
+     * @param tNominal offset at which attitude is nominal
+     * @param tNonNominal offset at which attitude is not nominal
+     * @return offset of the boundary, on the non-nominal side
+     * @exception OrekitException if attitude cannot be computed
+     */
+    private double findBoundary(final PVCoordinatesProvider reference,
+                                final double tNominal, final double tNonNominal)
+        throws OrekitException {
+        double tN  = tNominal;
+        double tNN = tNonNominal;
+        while (FastMath.abs(tNN - tN) > BOUNDARY_ACCURACY) {
+            final double       tMid = 0.5 * (tN + tNN);
+            final AbsoluteDate date = start.shiftedBy(tMid);
+            if (isNominal(provider.getSun().getPVCoordinates(date, inertialFrame),
+                          reference.getPVCoordinates(date, inertialFrame))) {
+                tN  = tMid;
+            } else {
+                tNN = tMid;
+            }
+        }
+        return tNN;
+    }
+
+    /** Interpolate Sun position-velocity.
+     * @param date interpolation date
+     * @param t offset from start of processing window
+     * @return interpolated Sun position-velocity in inertial frame
+     */
+    private TimeStampedPVCoordinates interpolateSun(final AbsoluteDate date, final double t) {
+        final int    i  = FastMath.min(sunP.length / 3 - 2, (int) FastMath.floor(t / sunStep));
+        final double s  = (t - i * sunStep) / sunStep;
+        final double s2 = s * s;
+        final double s3 = s2 * s;
+        final double h00 = 2 * s3 - 3 * s2 + 1;
+        final double h10 = (s3 - 2 * s2 + s) * sunStep;
+        final double h01 = 3 * s2 - 2 * s3;
+        final double h11 = (s3 - s2) * sunStep;
+        final double d00 = (6 * s2 - 6 * s) / sunStep;
+        final double d10 = 3 * s2 - 4 * s + 1;
+        final double d01 = (6 * s - 6 * s2) / sunStep;
+        final double d11 = 3 * s2 - 2 * s;
+        final double a00 = (12 * s - 6) / (sunStep * sunStep);
+        final double a10 = (6 * s - 4) / sunStep;
+        final double a01 = (6 - 12 * s) / (sunStep * sunStep);
+        final double a11 = (6 * s - 2) / sunStep;
+        final double[] p = new double[3];
+        final double[] v = new double[3];
+        final double[] a = new double[3];
+        for (int j = 0; j < 3; ++j) {
+            final double p0 = sunP[3 * i + j];
+            final double v0 = sunV[3 * i + j];
+            final double p1 = sunP[3 * i + 3 + j];
+            final double v1 = sunV[3 * i + 3 + j];
+            p[j] = h00 * p0 + h10 * v0 + h01 * p1 + h11 * v1;
+            v[j] = d00 * p0 + d10 * v0 + d01 * p1 + d11 * v1;
+            a[j] = a00 * p0 + a10 * v0 + a01 * p1 + a11 * v1;
+        }
+        return new TimeStampedPVCoordinates(date, new Vector3D(p), new Vector3D(v), new Vector3D(a));
+    }
+
+    /** Store a vector in a flat array.
+     * @param v vector to store
+     * @param array flat array
+     * @param index index of the vector in the array
+     */
+    private static void store(final Vector3D v, final double[] array, final int index) {
+        array[3 * index]     = v.getX();
+        array[3 * index + 1] = v.getY();
+        array[3 * index + 2] = v.getZ();
+    }
+
+}
@@ -18,7 +18,6 @@ package org.orekit.models.earth;
 
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.util.FastMath;
-import org.orekit.bodies.GeodeticPoint;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitMessages;
 import org.orekit.utils.Constants;
@@ -81,6 +80,9 @@ public class GeoMagneticField {
      */
     private double[] schmidtQuasiNorm;
 
+    /** Per-thread workspace for field evaluation. */
+    private final ThreadLocal<Workspace> workspace;
+
     /** Create a new geomagnetic field model with the given parameters. Internal
      * structures are initialized according to the specified degrees of the main
      * and secular variations.
@@ -136,6 +138,9 @@ public class GeoMagneticField {
                     FastMath.sqrt((double) ((n - m + 1) * (m == 1 ? 2 : 1)) / (double) (n + m));
             }
         }
+
+        workspace = ThreadLocal.withInitial(Workspace::new);
+
     }
 
     /** Returns the epoch for this magnetic field model.
@@ -210,21 +215,35 @@ public class GeoMagneticField {
     public GeoMagneticElements calculateField(final double latitude,
                                               final double longitude,
                                               final double height) {
+        final double[] field = new double[3];
+        workspace.get().calculateField(FastMath.toRadians(latitude), FastMath.toRadians(longitude), height,
+                                       field, 0);
+        return new GeoMagneticElements(new Vector3D(field[0], field[1], field[2]));
+    }
 
-        final GeodeticPoint gp = new GeodeticPoint(FastMath.toRadians(latitude),
-                                                   FastMath.toRadians(longitude),
-                                                   height * 1000d);
-
-        final SphericalCoordinates sph = transformToSpherical(gp);
-        final SphericalHarmonicVars vars = new SphericalHarmonicVars(sph);
-        final LegendreFunction legendre = new LegendreFunction(FastMath.sin(sph.phi));
-
-        // sum up the magnetic field vector components
-        final Vector3D magFieldSph = summation(sph, vars, legendre);
-        // rotate the field to geodetic coordinates
-        final Vector3D magFieldGeo = rotateMagneticVector(sph, gp, magFieldSph);
-        // return the magnetic elements
-        return new GeoMagneticElements(magFieldGeo);
+    /** Calculate the magnetic field at several geodetic points.
+     * <p>
+     * This method is intended for evaluating the field at many points (for
+     * example along a trajectory or over a grid). It does not allocate any
+     * object per point, and reuses internal tables attached to the calling
+     * thread. The field components are stored in the {@code field} array,
+     * three consecutive components (north, east and down, in nT) for each
+     * point, in the same order as the input points.
+     * </p>
+     * @param latitudes the WGS84 latitudes in decimal degrees
+     * @param longitudes the WGS84 longitudes in decimal degrees
+     * @param heights the heights above the WGS84 ellipsoid in kilometers
+     * @param field placeholder for the field components, must be at least
+     * 3 times larger than the number of points
+     * @since 9.3
+     */
+    public void calculateField(final double[] latitudes, final double[] longitudes,
+                               final double[] heights, final double[] field) {
+        final Workspace ws = workspace.get();
+        for (int i = 0; i < latitudes.length; ++i) {
+            ws.calculateField(FastMath.toRadians(latitudes[i]), FastMath.toRadians(longitudes[i]), heights[i],
+                              field, 3 * i);
+        }
     }
 
     /** Time transform the model coefficients from the base year of the model
@@ -336,225 +355,122 @@ public class GeoMagneticField {
         return (double) year + (dayInYear / (365.0d + leapYear));
     }
 
-    /** Transform geodetic coordinates to spherical coordinates.
-     * @param gp the geodetic point
-     * @return the spherical coordinates wrt to the reference ellipsoid of the model
-     */
-    private SphericalCoordinates transformToSpherical(final GeodeticPoint gp) {
-
-        // Convert geodetic coordinates (defined by the WGS-84 reference ellipsoid)
-        // to Earth Centered Earth Fixed Cartesian coordinates, and then to spherical coordinates.
-
-        final double lat = gp.getLatitude();
-        final double heightAboveEllipsoid = gp.getAltitude() / 1000d;
-        final double sinLat = FastMath.sin(lat);
-
-        // compute the local radius of curvature on the reference ellipsoid
-        final double rc = a / FastMath.sqrt(1.0d - epssq * sinLat * sinLat);
-
-        // compute ECEF Cartesian coordinates of specified point (for longitude=0)
-        final double xp = (rc + heightAboveEllipsoid) * FastMath.cos(lat);
-        final double zp = (rc * (1.0d - epssq) + heightAboveEllipsoid) * sinLat;
-
-        // compute spherical radius and angle lambda and phi of specified point
-        final double r = FastMath.hypot(xp, zp);
-        return new SphericalCoordinates(r, gp.getLongitude(), FastMath.asin(zp / r));
-    }
-
-    /** Rotate the magnetic vectors to geodetic coordinates.
-     * @param sph the spherical coordinates
-     * @param gp the geodetic point
-     * @param field the magnetic field in spherical coordinates
-     * @return the magnetic field in geodetic coordinates
+    /** Reusable workspace for field evaluation.
+     * <p>
+     * The workspace holds all the intermediate tables (radius powers,
+     * longitude harmonics and associated Legendre functions), so evaluating
+     * the field at a new point does not allocate anything. As the tables are
+     * overwritten at each evaluation, a workspace must not be shared between
+     * threads.
+     * </p>
      */
-    private Vector3D rotateMagneticVector(final SphericalCoordinates sph,
-                                          final GeodeticPoint gp,
-                                          final Vector3D field) {
+    private class Workspace {
 
-        // difference between the spherical and geodetic latitudes
-        final double psi = sph.phi - gp.getLatitude();
+        /** Spherical radius. */
+        private double r;
 
-        // rotate spherical field components to the geodetic system
-        final double Bz = field.getX() * FastMath.sin(psi) + field.getZ() * FastMath.cos(psi);
-        final double Bx = field.getX() * FastMath.cos(psi) - field.getZ() * FastMath.sin(psi);
-        final double By = field.getY();
+        /** Spherical latitude. */
+        private double phi;
 
-        return new Vector3D(Bx, By, Bz);
-    }
+        /** (Radius of Earth / Spherical radius r)^(n+2). */
+        private final double[] relativeRadiusPower;
 
-    /** Computes Geomagnetic Field Elements X, Y and Z in spherical coordinate
-     * system using spherical harmonic summation.
-     * The vector Magnetic field is given by -grad V, where V is geomagnetic
-     * scalar potential. The gradient in spherical coordinates is given by:
-     * <pre>
-     *          dV ^   1 dV ^       1    dV ^
-     * grad V = -- r + - -- t + -------- -- p
-     *          dr     r dt     r sin(t) dp
-     * </pre>
-     * @param sph the spherical coordinates
-     * @param vars the spherical harmonic variables
-     * @param legendre the legendre function
-     * @return the magnetic field vector in spherical coordinates
-     */
-    private Vector3D summation(final SphericalCoordinates sph, final SphericalHarmonicVars vars,
-                               final LegendreFunction legendre) {
+        /** cos(m*lambda). */
+        private final double[] cmLambda;
 
-        int index;
-        double Bx = 0.0;
-        double By = 0.0;
-        double Bz = 0.0;
+        /** sin(m*lambda). */
+        private final double[] smLambda;
 
-        for (int n = 1; n <= maxN; n++) {
-            for (int m = 0; m <= n; m++) {
-                index = n * (n + 1) / 2 + m;
+        /** the vector of all associated Legendre polynomials. */
+        private final double[] mP;
 
-                /**
-                 * <pre>
-                 *       nMax               (n+2)   n    m            m           m
-                 * Bz = -SUM (n + 1) * (a/r)     * SUM [g cos(m p) + h sin(m p)] P (sin(phi))
-                 *       n=1                       m=0   n            n           n
-                 * </pre>
-                 * Equation 12 in the WMM Technical report. Derivative with respect to radius.
-                 */
-                Bz -= vars.relativeRadiusPower[n] *
-                      (g[index] * vars.cmLambda[m] + h[index] * vars.smLambda[m]) * (1d + n) * legendre.mP[index];
+        /** the vector of derivatives of the Legendre polynomials wrt latitude. */
+        private final double[] mPDeriv;
 
-                /**
-                 * <pre>
-                 *      nMax     (n+2)   n    m            m            m
-                 * By = SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
-                 *      n=1             m=0   n            n            n
-                 * </pre>
-                 * Equation 11 in the WMM Technical report. Derivative with respect to longitude, divided by radius.
-                 */
-                By += vars.relativeRadiusPower[n] *
-                      (g[index] * vars.smLambda[m] - h[index] * vars.cmLambda[m]) * (double) m * legendre.mP[index];
-                /**
-                 * <pre>
-                 *        nMax     (n+2)   n    m            m            m
-                 * Bx = - SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
-                 *        n=1             m=0   n            n            n
-                 * </pre>
-                 * Equation 10 in the WMM Technical report. Derivative with respect to latitude, divided by radius.
-                 */
-                Bx -= vars.relativeRadiusPower[n] *
-                      (g[index] * vars.cmLambda[m] + h[index] * vars.smLambda[m]) * legendre.mPDeriv[index];
-            }
-        }
+        /** Legendre functions used for By at geographic poles. */
+        private final double[] mPcupS;
 
-        final double cosPhi = FastMath.cos(sph.phi);
-        if (FastMath.abs(cosPhi) > 1.0e-10) {
-            By = By / cosPhi;
-        } else {
-            // special calculation for component - By - at geographic poles.
-            // To avoid using this function, make sure that the latitude is not
-            // exactly +/-90.
-            By = summationSpecial(sph, vars);
+        /** Simple constructor.
+         */
+        Workspace() {
+            final int numTerms  = (maxN + 1) * (maxN + 2) / 2;
+            relativeRadiusPower = new double[maxN + 1];
+            cmLambda            = new double[maxN + 1];
+            smLambda            = new double[maxN + 1];
+            mP                  = new double[numTerms + 1];
+            mPDeriv             = new double[numTerms + 1];
+            mPcupS              = new double[maxN + 1];
         }
 
-        return new Vector3D(Bx, By, Bz);
-    }
+        /** Calculate the magnetic field at one point.
+         * @param latitude the WGS84 latitude in radians
+         * @param longitude the WGS84 longitude in radians
+         * @param height the height above the WGS84 ellipsoid in kilometers
+         * @param field placeholder for the field components (north, east, down)
+         * @param offset index of the first component in the placeholder
+         */
+        void calculateField(final double latitude, final double longitude, final double height,
+                            final double[] field, final int offset) {
 
-    /** Special calculation for the component By at geographic poles.
-     * @param sph the spherical coordinates
-     * @param vars the spherical harmonic variables
-     * @return the By component of the magnetic field
-     */
-    private double summationSpecial(final SphericalCoordinates sph, final SphericalHarmonicVars vars) {
+            transformToSpherical(latitude, height);
+            computeSphericalHarmonicVars(longitude);
+            computeLegendreFunction(FastMath.sin(phi));
 
-        double k;
-        final double sinPhi = FastMath.sin(sph.phi);
-        final double[] mPcupS = new double[maxN + 1];
-        mPcupS[0] = 1;
-        double By = 0.0;
+            // sum up the magnetic field vector components
+            // and rotate the field to geodetic coordinates
+            summation(latitude, field, offset);
 
-        for (int n = 1; n <= maxN; n++) {
-            final int index = n * (n + 1) / 2 + 1;
-            if (n == 1) {
-                mPcupS[n] = mPcupS[n - 1];
-            } else {
-                k = (double) (((n - 1) * (n - 1)) - 1) / (double) ((2 * n - 1) * (2 * n - 3));
-                mPcupS[n] = sinPhi * mPcupS[n - 1] - k * mPcupS[n - 2];
-            }
-
-            /**
-             * <pre>
-             *      nMax     (n+2)   n    m            m            m
-             * By = SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
-             *      n=1             m=0   n            n            n
-             * </pre>
-             * Equation 11 in the WMM Technical report. Derivative with respect to longitude, divided by radius.
-             */
-            By += vars.relativeRadiusPower[n] *
-                  (g[index] * vars.smLambda[1] - h[index] * vars.cmLambda[1]) * mPcupS[n] * schmidtQuasiNorm[index];
         }
 
-        return By;
-    }
-
-    /** Utility class to hold spherical coordinates. */
-    private static class SphericalCoordinates {
-
-        /** the radius. */
-        private double r;
-
-        /** the azimuth angle. */
-        private double lambda;
+        /** Transform geodetic coordinates to spherical coordinates.
+         * <p>
+         * The spherical coordinates are computed wrt to the reference ellipsoid of the model.
+         * </p>
+         * @param lat the WGS84 latitude in radians
+         * @param heightAboveEllipsoid the height above the WGS84 ellipsoid in kilometers
+         */
+        private void transformToSpherical(final double lat, final double heightAboveEllipsoid) {
 
-        /** the polar angle. */
-        private double phi;
+            // Convert geodetic coordinates (defined by the WGS-84 reference ellipsoid)
+            // to Earth Centered Earth Fixed Cartesian coordinates, and then to spherical coordinates.
 
-        /** Create a new spherical coordinate object.
-         * @param r the radius
-         * @param lambda the lambda angle
-         * @param phi the phi angle
-         */
-        private SphericalCoordinates(final double r, final double lambda, final double phi) {
-            this.r = r;
-            this.lambda = lambda;
-            this.phi = phi;
-        }
-    }
+            final double sinLat = FastMath.sin(lat);
 
-    /** Utility class to compute certain variables for magnetic field summation. */
-    private class SphericalHarmonicVars {
+            // compute the local radius of curvature on the reference ellipsoid
+            final double rc = a / FastMath.sqrt(1.0d - epssq * sinLat * sinLat);
 
-        /** (Radius of Earth / Spherical radius r)^(n+2). */
-        private double[] relativeRadiusPower;
+            // compute ECEF Cartesian coordinates of specified point (for longitude=0)
+            final double xp = (rc + heightAboveEllipsoid) * FastMath.cos(lat);
+            final double zp = (rc * (1.0d - epssq) + heightAboveEllipsoid) * sinLat;
 
-        /** cos(m*lambda). */
-        private double[] cmLambda;
+            // compute spherical radius and angle phi of specified point
+            r   = FastMath.hypot(xp, zp);
+            phi = FastMath.asin(zp / r);
 
-        /** sin(m*lambda). */
-        private double[] smLambda;
+        }
 
-        /** Calculates the spherical harmonic variables for a given spherical coordinate.
-         * @param sph the spherical coordinate
+        /** Calculates the spherical harmonic variables for the current spherical coordinates.
+         * @param lambda the longitude
          */
-        private SphericalHarmonicVars(final SphericalCoordinates sph) {
-
-            relativeRadiusPower = new double[maxN + 1];
+        private void computeSphericalHarmonicVars(final double lambda) {
 
             // Compute a table of (EARTH_REFERENCE_RADIUS_KM / radius)^n for i in
             // 0 .. maxN (this is much faster than calling FastMath.pow maxN+1 times).
 
-            final double p = ellipsoidRadius / sph.r;
+            final double p = ellipsoidRadius / r;
             relativeRadiusPower[0] = p * p;
             for (int n = 1; n <= maxN; n++) {
-                relativeRadiusPower[n] = relativeRadiusPower[n - 1] * (ellipsoidRadius / sph.r);
+                relativeRadiusPower[n] = relativeRadiusPower[n - 1] * (ellipsoidRadius / r);
             }
 
             // Compute tables of sin(lon * m) and cos(lon * m) for m = 0 .. maxN
             // this is much faster than calling FastMath.sin and FastMath.cos maxN+1 times.
 
-            cmLambda = new double[maxN + 1];
-            smLambda = new double[maxN + 1];
-
             cmLambda[0] = 1.0d;
             smLambda[0] = 0.0d;
 
-            final double cosLambda = FastMath.cos(sph.lambda);
-            final double sinLambda = FastMath.sin(sph.lambda);
+            final double cosLambda = FastMath.cos(lambda);
+            final double sinLambda = FastMath.sin(lambda);
             cmLambda[1] = cosLambda;
             smLambda[1] = sinLambda;
 
@@ -563,16 +479,6 @@ public class GeoMagneticField {
                 smLambda[m] = cmLambda[m - 1] * sinLambda + smLambda[m - 1] * cosLambda;
             }
         }
-    }
-
-    /** Utility class to compute a table of Schmidt-semi normalized associated Legendre functions. */
-    private class LegendreFunction {
-
-        /** the vector of all associated Legendre polynomials. */
-        private double[] mP;
-
-        /** the vector of derivatives of the Legendre polynomials wrt latitude. */
-        private double[] mPDeriv;
 
         /** Calculate the Schmidt-semi normalized Legendre function.
          * <p>
@@ -583,12 +489,7 @@ public class GeoMagneticField {
          * </p>
          * @param x sinus of the spherical latitude (or cosinus of the spherical colatitude)
          */
-        private LegendreFunction(final double x) {
-
-            final int numTerms = (maxN + 1) * (maxN + 2) / 2;
-
-            mP = new double[numTerms + 1];
-            mPDeriv = new double[numTerms + 1];
+        private void computeLegendreFunction(final double x) {
 
             mP[0] = 1.0;
             mPDeriv[0] = 0.0;
@@ -644,5 +545,118 @@ public class GeoMagneticField {
                 }
             }
         }
+
+        /** Computes Geomagnetic Field Elements X, Y and Z in spherical coordinate
+         * system using spherical harmonic summation, and rotate them to geodetic coordinates.
+         * The vector Magnetic field is given by -grad V, where V is geomagnetic
+         * scalar potential. The gradient in spherical coordinates is given by:
+         * <pre>
+         *          dV ^   1 dV ^       1    dV ^
+         * grad V = -- r + - -- t + -------- -- p
+         *          dr     r dt     r sin(t) dp
+         * </pre>
+         * @param latitude the WGS84 latitude in radians
+         * @param field placeholder for the field components (north, east, down)
+         * @param offset index of the first component in the placeholder
+         */
+        private void summation(final double latitude, final double[] field, final int offset) {
+
+            int index;
+            double Bx = 0.0;
+            double By = 0.0;
+            double Bz = 0.0;
+
+            for (int n = 1; n <= maxN; n++) {
+                for (int m = 0; m <= n; m++) {
+                    index = n * (n + 1) / 2 + m;
+
+                    /**
+                     * <pre>
+                     *       nMax               (n+2)   n    m            m           m
+                     * Bz = -SUM (n + 1) * (a/r)     * SUM [g cos(m p) + h sin(m p)] P (sin(phi))
+                     *       n=1                       m=0   n            n           n
+                     * </pre>
+                     * Equation 12 in the WMM Technical report. Derivative with respect to radius.
+                     */
+                    Bz -= relativeRadiusPower[n] *
+                          (g[index] * cmLambda[m] + h[index] * smLambda[m]) * (1d + n) * mP[index];
+
+                    /**
+                     * <pre>
+                     *      nMax     (n+2)   n    m            m            m
+                     * By = SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
+                     *      n=1             m=0   n            n            n
+                     * </pre>
+                     * Equation 11 in the WMM Technical report. Derivative with respect to longitude, divided by radius.
+                     */
+                    By += relativeRadiusPower[n] *
+                          (g[index] * smLambda[m] - h[index] * cmLambda[m]) * (double) m * mP[index];
+                    /**
+                     * <pre>
+                     *        nMax     (n+2)   n    m            m            m
+                     * Bx = - SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
+                     *        n=1             m=0   n            n            n
+                     * </pre>
+                     * Equation 10 in the WMM Technical report. Derivative with respect to latitude, divided by radius.
+                     */
+                    Bx -= relativeRadiusPower[n] *
+                          (g[index] * cmLambda[m] + h[index] * smLambda[m]) * mPDeriv[index];
+                }
+            }
+
+            final double cosPhi = FastMath.cos(phi);
+            if (FastMath.abs(cosPhi) > 1.0e-10) {
+                By = By / cosPhi;
+            } else {
+                // special calculation for component - By - at geographic poles.
+                // To avoid using this function, make sure that the latitude is not
+                // exactly +/-90.
+                By = summationSpecial();
+            }
+
+            // rotate the field to geodetic coordinates,
+            // using the difference between the spherical and geodetic latitudes
+            final double psi = phi - latitude;
+            field[offset]     = Bx * FastMath.cos(psi) - Bz * FastMath.sin(psi);
+            field[offset + 1] = By;
+            field[offset + 2] = Bx * FastMath.sin(psi) + Bz * FastMath.cos(psi);
+
+        }
+
+        /** Special calculation for the component By at geographic poles.
+         * @return the By component of the magnetic field
+         */
+        private double summationSpecial() {
+
+            double k;
+            final double sinPhi = FastMath.sin(phi);
+            mPcupS[0] = 1;
+            double By = 0.0;
+
+            for (int n = 1; n <= maxN; n++) {
+                final int index = n * (n + 1) / 2 + 1;
+                if (n == 1) {
+                    mPcupS[n] = mPcupS[n - 1];
+                } else {
+                    k = (double) (((n - 1) * (n - 1)) - 1) / (double) ((2 * n - 1) * (2 * n - 3));
+                    mPcupS[n] = sinPhi * mPcupS[n - 1] - k * mPcupS[n - 2];
+                }
+
+                /**
+                 * <pre>
+                 *      nMax     (n+2)   n    m            m            m
+                 * By = SUM (a/r)     * SUM [g cos(m p) + h sin(m p)] dP (sin(phi))
+                 *      n=1             m=0   n            n            n
+                 * </pre>
+                 * Equation 11 in the WMM Technical report. Derivative with respect to longitude, divided by radius.
+                 */
+                By += relativeRadiusPower[n] *
+                      (g[index] * smLambda[1] - h[index] * cmLambda[1]) * mPcupS[n] * schmidtQuasiNorm[index];
+            }
+
+            return By;
+        }
+
     }
+
 }
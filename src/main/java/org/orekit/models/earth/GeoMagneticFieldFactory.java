@@ -17,6 +17,8 @@
 package org.orekit.models.earth;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -47,6 +49,21 @@ public class GeoMagneticFieldFactory {
     /** Loaded WMM models. */
     private static TreeMap<Integer, GeoMagneticField> wmmModels = null;
 
+    /** Maximum number of time-transformed models kept in cache for each model type.
+     * @since 9.3
+     */
+    private static final int MAX_CACHED_MODELS = 16;
+
+    /** Cached time-transformed IGRF models, keyed by decimal year.
+     * @since 9.3
+     */
+    private static final Map<Double, GeoMagneticField> IGRF_CACHE = createCache();
+
+    /** Cached time-transformed WMM models, keyed by decimal year.
+     * @since 9.3
+     */
+    private static final Map<Double, GeoMagneticField> WMM_CACHE = createCache();
+
     /** Private constructor.
      * <p>
      * This class is a utility class, it should neither have a public nor a
@@ -89,7 +106,7 @@ public class GeoMagneticFieldFactory {
             if (igrfModels == null) {
                 igrfModels = loadModels("^IGRF\\.COF$");
             }
-            return getModel(FieldModel.IGRF, igrfModels, year);
+            return getCachedModel(FieldModel.IGRF, igrfModels, IGRF_CACHE, year);
         }
     }
 
@@ -104,8 +121,56 @@ public class GeoMagneticFieldFactory {
             if (wmmModels == null) {
                 wmmModels = loadModels("^WMM\\.COF$");
             }
-            return getModel(FieldModel.WMM, wmmModels, year);
+            return getCachedModel(FieldModel.WMM, wmmModels, WMM_CACHE, year);
+        }
+    }
+
+    /** Create a cache for time-transformed models.
+     * <p>
+     * The cache evicts the least recently used models when it is full.
+     * </p>
+     * @return an empty cache
+     */
+    private static Map<Double, GeoMagneticField> createCache() {
+        return new LinkedHashMap<Double, GeoMagneticField>(MAX_CACHED_MODELS, 0.75f, true) {
+
+            /** Serializable UID. */
+            private static final long serialVersionUID = 20181018L;
+
+            /** {@inheritDoc} */
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Double, GeoMagneticField> eldest) {
+                return size() > MAX_CACHED_MODELS;
+            }
+
+        };
+    }
+
+    /** Gets a geomagnetic field model for the given year, using a cache.
+     * <p>
+     * Time-transforming a model builds a complete new set of coefficients,
+     * so the transformed models are cached in order to be reused when
+     * several evaluations are performed for the same decimal year. The
+     * caller must hold the lock on the factory class.
+     * </p>
+     * @param type the type of the field (e.g. WMM or IGRF)
+     * @param models all loaded field models, sorted by their epoch
+     * @param cache cache for time-transformed models
+     * @param year the epoch of the resulting field model
+     * @return a {@link GeoMagneticField} model for the given year
+     * @throws OrekitException if the specified year is out of range of the available models
+     */
+    private static GeoMagneticField getCachedModel(final FieldModel type,
+                                                   final TreeMap<Integer, GeoMagneticField> models,
+                                                   final Map<Double, GeoMagneticField> cache,
+                                                   final double year)
+        throws OrekitException {
+        GeoMagneticField model = cache.get(year);
+        if (model == null) {
+            model = getModel(type, models, year);
+            cache.put(year, model);
         }
+        return model;
     }
 
     /** Loads the geomagnetic model files from the given filename. The loaded
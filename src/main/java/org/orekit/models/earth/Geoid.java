@@ -151,6 +151,10 @@ public class Geoid implements EarthShape {
      * harmonics. The Holmes and Featherstone method is very robust.
      */
     private final transient HolmesFeatherstoneAttractionModel harmonics;
+    /**
+     * the precomputed undulation grid, null for exact evaluation.
+     */
+    private final transient UndulationGrid grid;
 
     /**
      * Creates a geoid from the given geopotential, reference ellipsoid and the
@@ -183,6 +187,55 @@ public class Geoid implements EarthShape {
         this.harmonics = new HolmesFeatherstoneAttractionModel(
                 referenceEllipsoid.getBodyFrame(), potential);
         this.defaultDate = geopotential.getReferenceDate();
+        this.grid = null;
+    }
+
+    /**
+     * Creates a geoid sharing the geopotential of another geoid, with an
+     * undulation grid.
+     *
+     * @param exact geoid providing the geopotential
+     * @param grid  undulation grid (null for exact evaluation)
+     */
+    private Geoid(final Geoid exact, final UndulationGrid grid) {
+        this.referenceEllipsoid = exact.referenceEllipsoid;
+        this.harmonics = exact.harmonics;
+        this.defaultDate = exact.defaultDate;
+        this.grid = grid;
+    }
+
+    /**
+     * Get a geoid that uses a precomputed undulation grid.
+     *
+     * <p> In gridded mode, {@link #getUndulation(double, double, AbsoluteDate)}
+     * and all methods depending on it interpolate the undulation in the grid
+     * instead of evaluating the full geopotential, and the date is ignored.
+     * This is much faster but less accurate, the accuracy depending on the grid
+     * step and interpolation method.
+     *
+     * @param undulationGrid undulation grid, typically {@link
+     *                       UndulationGrid#compute(Geoid, double, AbsoluteDate,
+     *                       UndulationGrid.Interpolation) computed} from this
+     *                       geoid or {@link UndulationGrid#load(java.io.File,
+     *                       UndulationGrid.Interpolation) loaded} from a file
+     *                       (null to get back to exact evaluation)
+     * @return a new geoid sharing the geopotential and reference ellipsoid of
+     * this geoid
+     * @since 9.3
+     */
+    public Geoid withUndulationGrid(final UndulationGrid undulationGrid) {
+        return new Geoid(this, undulationGrid);
+    }
+
+    /**
+     * Get the precomputed undulation grid.
+     *
+     * @return undulation grid, or null if undulations are evaluated exactly
+     * @see #withUndulationGrid(UndulationGrid)
+     * @since 9.3
+     */
+    public UndulationGrid getUndulationGrid() {
+        return grid;
     }
 
     @Override
@@ -212,11 +265,35 @@ public class Geoid implements EarthShape {
      * @throws OrekitException if an error occurs converting latitude and
      *                         longitude
      * @see Geoid
+     * @see #withUndulationGrid(UndulationGrid)
      * @see <a href="http://en.wikipedia.org/wiki/Geoid">Geoid on Wikipedia</a>
      */
     public double getUndulation(final double geodeticLatitude,
                                 final double longitude,
                                 final AbsoluteDate date) throws OrekitException {
+        if (grid != null) {
+            return grid.getUndulation(geodeticLatitude, longitude);
+        }
+        return getExactUndulation(geodeticLatitude, longitude, date);
+    }
+
+    /**
+     * Gets the Undulation of the Geoid by evaluating the geopotential, even
+     * if an undulation grid is available.
+     *
+     * @param geodeticLatitude geodetic latitude, in radians.
+     * @param longitude        on the reference ellipsoid, in radians.
+     * @param date             of evaluation. Used for time varying geopotential
+     *                         fields.
+     * @return the undulation in m, positive means the geoid is higher than the
+     * ellipsoid.
+     * @throws OrekitException if an error occurs converting latitude and
+     *                         longitude
+     * @since 9.3
+     */
+    double getExactUndulation(final double geodeticLatitude,
+                              final double longitude,
+                              final AbsoluteDate date) throws OrekitException {
             /*
              * equations references are to the algorithm printed in the geoid
              * cookbook[2]. See comment for Geoid.
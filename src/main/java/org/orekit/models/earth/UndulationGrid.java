@@ -0,0 +1,322 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.models.earth;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hipparchus.exception.DummyLocalizable;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.time.AbsoluteDate;
+
+/** Precomputed grid of geoid undulations.
+ * <p>
+ * Evaluating the {@link Geoid#getUndulation(double, double, AbsoluteDate) exact
+ * undulation} involves the summation of the full spherical harmonics expansion
+ * of the geopotential, which is very slow for high degree fields when many
+ * points must be evaluated (for example for all samples of a Digital Elevation
+ * Model). This class samples the undulation once on a regular latitude/longitude
+ * grid and then provides constant time lookups by interpolating between the
+ * grid nodes. Once a grid is available, it can be attached to a geoid using
+ * {@link Geoid#withUndulationGrid(UndulationGrid)}.
+ * </p>
+ * <p>
+ * As computing the grid is expensive, grids can be {@link #write(File) written}
+ * to a binary file and {@link #load(File, Interpolation) loaded} back later.
+ * Loading maps the file in memory, so the undulations are neither parsed nor
+ * copied into the Java heap, and several processes using the same file share
+ * the same physical memory pages. The file format is a 16 bytes header (a magic
+ * number, a format version, the number of latitude rows and the number of longitude
+ * columns, all as big-endian 32 bits integers), followed by the undulations in
+ * meters as big-endian 64 bits floating point numbers, row by row, starting from
+ * the South pole row, each row starting at longitude 0.
+ * </p>
+ * <p>
+ * The interpolation error depends on the grid step and on the degree of the
+ * geopotential. It should be checked by comparing with exact evaluations
+ * at a few points between nodes before relying on a grid. Bicubic interpolation
+ * has a smaller error than bilinear interpolation for the same grid step.
+ * </p>
+ * <p>
+ * Instances of this class are guaranteed to be immutable and can be shared
+ * between threads.
+ * </p>
+ * @see Geoid#withUndulationGrid(UndulationGrid)
+ * @since 9.3
+ */
+public class UndulationGrid {
+
+    /** Interpolation methods. */
+    public enum Interpolation {
+
+        /** Bilinear interpolation between the 4 nodes surrounding the point. */
+        BILINEAR,
+
+        /** Bicubic (Catmull-Rom) interpolation between the 16 nodes surrounding the point. */
+        BICUBIC;
+
+    }
+
+    /** Magic number at start of grid files ("OGUG" in ASCII). */
+    private static final int MAGIC_NUMBER = 0x4F475547;
+
+    /** Supported file format version. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Tolerance on the ratio between the span and the step, to avoid spurious rows or columns. */
+    private static final double STEP_TOLERANCE = 1.0e-9;
+
+    /** Size of the file header (bytes). */
+    private static final int HEADER_SIZE = 16;
+
+    /** Number of latitude rows. */
+    private final int nLat;
+
+    /** Number of longitude columns. */
+    private final int nLon;
+
+    /** Latitude step. */
+    private final double latStep;
+
+    /** Longitude step. */
+    private final double lonStep;
+
+    /** Undulations at grid nodes. */
+    private final DoubleBuffer undulations;
+
+    /** Interpolation method. */
+    private final Interpolation interpolation;
+
+    /** Simple constructor.
+     * @param nLat number of latitude rows
+     * @param nLon number of longitude columns
+     * @param undulations undulations at grid nodes
+     * @param interpolation interpolation method
+     */
+    private UndulationGrid(final int nLat, final int nLon,
+                           final DoubleBuffer undulations, final Interpolation interpolation) {
+        this.nLat          = nLat;
+        this.nLon          = nLon;
+        this.latStep       = FastMath.PI / (nLat - 1);
+        this.lonStep       = MathUtils.TWO_PI / nLon;
+        this.undulations   = undulations;
+        this.interpolation = interpolation;
+    }
+
+    /** Compute a grid from the exact undulations of a geoid.
+     * <p>
+     * The grid step is adjusted so the grid nodes include both poles
+     * and longitude 0 and wrap around exactly, with an even number of
+     * longitude columns.
+     * </p>
+     * @param geoid geoid providing the exact undulations (if the geoid already
+     * has a grid attached, it is ignored)
+     * @param step approximate grid step (radians)
+     * @param date date of evaluation, used for time varying geopotential fields
+     * @param interpolation interpolation method
+     * @return computed grid
+     * @exception OrekitException if undulation cannot be computed or step is not strictly positive
+     */
+    public static UndulationGrid compute(final Geoid geoid, final double step, final AbsoluteDate date,
+                                         final Interpolation interpolation)
+        throws OrekitException {
+
+        if (step <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, step, 0);
+        }
+
+        // the number of longitude columns is even so the rows across poles are available
+        final int nLat = 1 + FastMath.max(1, (int) FastMath.ceil(FastMath.PI / step - STEP_TOLERANCE));
+        final int nLon = 2 * FastMath.max(1, (int) FastMath.ceil(FastMath.PI / step - STEP_TOLERANCE));
+        final double[] values = new double[nLat * nLon];
+        for (int i = 0; i < nLat; ++i) {
+            final double latitude = -0.5 * FastMath.PI + i * FastMath.PI / (nLat - 1);
+            for (int j = 0; j < nLon; ++j) {
+                values[i * nLon + j] = geoid.getExactUndulation(latitude, j * MathUtils.TWO_PI / nLon, date);
+            }
+        }
+
+        return new UndulationGrid(nLat, nLon, DoubleBuffer.wrap(values), interpolation);
+
+    }
+
+    /** Load a grid previously written by {@link #write(File)}.
+     * <p>
+     * The file is mapped in memory, its content is not copied.
+     * </p>
+     * @param file grid file
+     * @param interpolation interpolation method
+     * @return loaded grid
+     * @exception OrekitException if file cannot be read or is not a grid file
+     */
+    public static UndulationGrid load(final File file, final Interpolation interpolation)
+        throws OrekitException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            final long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new OrekitException(OrekitMessages.NOT_A_SUPPORTED_UNDULATION_GRID_FILE, file.getAbsolutePath());
+            }
+
+            // the mapping remains valid after the channel has been closed
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int magic   = buffer.getInt();
+            final int version = buffer.getInt();
+            final int nLat    = buffer.getInt();
+            final int nLon    = buffer.getInt();
+            if (magic != MAGIC_NUMBER || version != FORMAT_VERSION || nLat < 2 || nLon < 2 ||
+                size != HEADER_SIZE + 8L * nLat * nLon) {
+                throw new OrekitException(OrekitMessages.NOT_A_SUPPORTED_UNDULATION_GRID_FILE, file.getAbsolutePath());
+            }
+
+            return new UndulationGrid(nLat, nLon, buffer.asDoubleBuffer(), interpolation);
+
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** Write the grid to a file.
+     * @param file file to write
+     * @exception OrekitException if file cannot be written
+     * @see #load(File, Interpolation)
+     */
+    public void write(final File file) throws OrekitException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nLat);
+            out.writeInt(nLon);
+            for (int k = 0; k < nLat * nLon; ++k) {
+                out.writeDouble(undulations.get(k));
+            }
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, new DummyLocalizable(ioe.getMessage()));
+        }
+    }
+
+    /** Get the latitude step.
+     * @return latitude step (radians)
+     */
+    public double getLatitudeStep() {
+        return latStep;
+    }
+
+    /** Get the longitude step.
+     * @return longitude step (radians)
+     */
+    public double getLongitudeStep() {
+        return lonStep;
+    }
+
+    /** Get the interpolation method.
+     * @return interpolation method
+     */
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /** Get the interpolated undulation at a given position.
+     * @param geodeticLatitude geodetic latitude (radians)
+     * @param longitude longitude (radians)
+     * @return the undulation in m, positive means the geoid is higher than the
+     * ellipsoid
+     */
+    public double getUndulation(final double geodeticLatitude, final double longitude) {
+
+        // locate the cell containing the point
+        final double x = (MathUtils.normalizeAngle(longitude, FastMath.PI)) / lonStep;
+        final double y = (geodeticLatitude + 0.5 * FastMath.PI) / latStep;
+        final int    j = FastMath.min(nLon - 1, (int) FastMath.floor(x));
+        final int    i = FastMath.max(0, FastMath.min(nLat - 2, (int) FastMath.floor(y)));
+        final double u = x - j;
+        final double t = FastMath.max(0.0, FastMath.min(1.0, y - i));
+
+        if (interpolation == Interpolation.BILINEAR) {
+            final double v0 = (1 - u) * node(i,     j) + u * node(i,     j + 1);
+            final double v1 = (1 - u) * node(i + 1, j) + u * node(i + 1, j + 1);
+            return (1 - t) * v0 + t * v1;
+        } else {
+            double sum = 0;
+            for (int di = 0; di < 4; ++di) {
+                int row   = i + di - 1;
+                int shift = 0;
+                if (row < 0 || row >= nLat) {
+                    if (nLon % 2 == 0) {
+                        // rows beyond a pole are the rows on the other side of the pole,
+                        // i.e. at the opposite longitude
+                        row   = row < 0 ? -row : 2 * (nLat - 1) - row;
+                        shift = nLon / 2;
+                    } else {
+                        // the opposite longitudes are not available, use the pole row
+                        row   = row < 0 ? 0 : nLat - 1;
+                    }
+                }
+                double rowSum = 0;
+                for (int dj = 0; dj < 4; ++dj) {
+                    rowSum += catmullRom(dj, u) * node(row, j + dj - 1 + shift);
+                }
+                sum += catmullRom(di, t) * rowSum;
+            }
+            return sum;
+        }
+
+    }
+
+    /** Get the undulation at a grid node.
+     * @param i latitude row index
+     * @param j longitude column index (may be out of range, as longitudes wrap around)
+     * @return undulation at node
+     */
+    private double node(final int i, final int j) {
+        final int wrapped = (j + nLon) % nLon;
+        return undulations.get(i * nLon + wrapped);
+    }
+
+    /** Compute a Catmull-Rom interpolation weight.
+     * @param k index of the node among the 4 nodes surrounding the central interval
+     * @param s normalized abscissa within the central interval, between 0 and 1
+     * @return weight of the node
+     */
+    private static double catmullRom(final int k, final double s) {
+        final double s2 = s * s;
+        final double s3 = s2 * s;
+        switch (k) {
+            case 0 :
+                return 0.5 * (-s3 + 2 * s2 - s);
+            case 1 :
+                return 0.5 * (3 * s3 - 5 * s2 + 2);
+            case 2 :
+                return 0.5 * (-3 * s3 + 4 * s2 + s);
+            default :
+                return 0.5 * (s3 - s2);
+        }
+    }
+
+}
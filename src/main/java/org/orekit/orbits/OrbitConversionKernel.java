@@ -0,0 +1,1228 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.orbits;
+
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitInternalError;
+import org.orekit.errors.OrekitMessages;
+
+/** Allocation-free conversion kernel between orbit types.
+ * <p>
+ * This class performs the same conversions as {@link OrbitType#convertType(Orbit)},
+ * {@link Orbit#getJacobianWrtCartesian(PositionAngle, double[][])} and
+ * {@link Orbit#getJacobianWrtParameters(PositionAngle, double[][])}, but works
+ * directly on primitive arrays, without building any intermediate {@link Orbit}
+ * instance. It is intended for inner loops (integrator steps, measurements
+ * models) where the same conversions are performed a huge number of times.
+ * </p>
+ * <p>
+ * Orbital parameters are stored in arrays using the same layout as
+ * {@link OrbitType#mapOrbitToArray(Orbit, PositionAngle, double[], double[])}:
+ * </p>
+ * <ul>
+ *   <li>{@link OrbitType#CARTESIAN}: x, y, z, xDot, yDot, zDot</li>
+ *   <li>{@link OrbitType#CIRCULAR}: a, ex, ey, i, Ω, α</li>
+ *   <li>{@link OrbitType#EQUINOCTIAL}: a, ex, ey, hx, hy, l</li>
+ *   <li>{@link OrbitType#KEPLERIAN}: a, e, i, ω, Ω, anomaly</li>
+ * </ul>
+ * <p>
+ * Each instance holds its own work buffers and the last solution of Kepler equation,
+ * which is used as a warm start when the next conversion from mean angle occurs,
+ * as is the case when sequential dates along the same trajectory are processed.
+ * Instances are therefore <em>not</em> thread-safe; one instance per thread should
+ * be used.
+ * </p>
+ * <p>
+ * Jacobians are computed analytically from the equinoctial parameters and hence are
+ * available only for elliptic orbits, including for {@link OrbitType#KEPLERIAN} type.
+ * </p>
+ * @see OrbitType
+ * @since 9.3
+ */
+public class OrbitConversionKernel {
+
+    /** Size of one orbital parameters set. */
+    public static final int SIZE = 6;
+
+    /** Maximum number of iterations in warm started Kepler equation solver. */
+    private static final int MAX_WARM_ITERATIONS = 8;
+
+    /** Convergence threshold for Kepler equation solver. */
+    private static final double KEPLER_THRESHOLD = 1.0e-12;
+
+    /** Minimum value of Kepler equation derivative for warm start (avoids near-parabolic cases). */
+    private static final double MIN_WARM_DERIVATIVE = 0.1;
+
+    /** Singularity threshold for Jacobian inversion. */
+    private static final double SINGULARITY_THRESHOLD = 1.0e-15;
+
+    /** Buffer for Cartesian parameters. */
+    private final double[] pvBuffer;
+
+    /** Buffer for equinoctial parameters. */
+    private final double[] equinoctialBuffer;
+
+    /** Buffer for first equinoctial frame vector. */
+    private final double[] f;
+
+    /** Buffer for second equinoctial frame vector. */
+    private final double[] g;
+
+    /** Buffer for momentum unit vector. */
+    private final double[] w;
+
+    /** Buffer for dEx derivative of velocity. */
+    private final double[] dVdEx;
+
+    /** Buffer for dEy derivative of velocity. */
+    private final double[] dVdEy;
+
+    /** Buffer for ex row velocity part. */
+    private final double[] exRowV;
+
+    /** Buffer for ey row velocity part. */
+    private final double[] eyRowV;
+
+    /** Buffer for equinoctial Jacobian. */
+    private final double[][] equinoctialJacobian;
+
+    /** Buffer for direct Jacobian. */
+    private final double[][] directJacobian;
+
+    /** Indicator for available warm start. */
+    private boolean warm;
+
+    /** Mean longitude argument of last Kepler equation solution. */
+    private double lastLM;
+
+    /** Eccentric longitude argument of last Kepler equation solution. */
+    private double lastLE;
+
+    /** Simple constructor.
+     */
+    public OrbitConversionKernel() {
+        this.pvBuffer            = new double[SIZE];
+        this.equinoctialBuffer   = new double[SIZE];
+        this.f                   = new double[3];
+        this.g                   = new double[3];
+        this.w                   = new double[3];
+        this.dVdEx               = new double[3];
+        this.dVdEy               = new double[3];
+        this.exRowV              = new double[3];
+        this.eyRowV              = new double[3];
+        this.equinoctialJacobian = new double[SIZE][SIZE];
+        this.directJacobian      = new double[SIZE][SIZE];
+        this.warm                = false;
+    }
+
+    /** Reset the warm start of Kepler equation solver.
+     * <p>
+     * This method should be called when switching to an unrelated trajectory,
+     * it is not required for correctness but avoids useless iterations.
+     * </p>
+     */
+    public void resetWarmStart() {
+        warm = false;
+    }
+
+    /** Convert orbital parameters from one type to another.
+     * @param inType type of the input parameters
+     * @param inAngle type of the position angle of the input parameters
+     * @param in array containing the input parameters
+     * @param inOffset index of the first input parameter in the array
+     * @param outType type of the output parameters
+     * @param outAngle type of the position angle of the output parameters
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters
+     * @param outOffset index of the first output parameter in the array
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic and
+     * neither input nor output types are {@link OrbitType#CARTESIAN Cartesian}
+     * or {@link OrbitType#KEPLERIAN Keplerian}
+     */
+    public void convert(final OrbitType inType, final PositionAngle inAngle,
+                        final double[] in, final int inOffset,
+                        final OrbitType outType, final PositionAngle outAngle,
+                        final double mu, final double[] out, final int outOffset)
+        throws OrekitIllegalArgumentException {
+        if (inType == outType && inAngle == outAngle) {
+            System.arraycopy(in, inOffset, out, outOffset, SIZE);
+        } else if (inType == OrbitType.CARTESIAN) {
+            fromCartesian(outType, outAngle, in, inOffset, mu, out, outOffset);
+        } else if (outType == OrbitType.CARTESIAN) {
+            toCartesian(inType, inAngle, in, inOffset, mu, out, outOffset);
+        } else {
+            toCartesian(inType, inAngle, in, inOffset, mu, pvBuffer, 0);
+            fromCartesian(outType, outAngle, pvBuffer, 0, mu, out, outOffset);
+        }
+    }
+
+    /** Convert many orbital parameters sets from one type to another.
+     * <p>
+     * Parameters sets are stored contiguously, {@link #SIZE} elements per set.
+     * They are converted in order, so if they correspond to sequential dates
+     * along the same trajectory, each Kepler equation resolution is warm
+     * started from the previous one.
+     * </p>
+     * @param count number of parameters sets to convert
+     * @param inType type of the input parameters
+     * @param inAngle type of the position angle of the input parameters
+     * @param in array containing the input parameters (at least {@link #SIZE} × count elements)
+     * @param outType type of the output parameters
+     * @param outAngle type of the position angle of the output parameters
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters (at least {@link #SIZE} × count elements)
+     * @exception OrekitIllegalArgumentException if one orbit is hyperbolic and
+     * neither input nor output types are {@link OrbitType#CARTESIAN Cartesian}
+     * or {@link OrbitType#KEPLERIAN Keplerian}
+     */
+    public void convert(final int count,
+                        final OrbitType inType, final PositionAngle inAngle, final double[] in,
+                        final OrbitType outType, final PositionAngle outAngle,
+                        final double mu, final double[] out)
+        throws OrekitIllegalArgumentException {
+        for (int k = 0; k < count; ++k) {
+            convert(inType, inAngle, in, k * SIZE, outType, outAngle, mu, out, k * SIZE);
+        }
+    }
+
+    /** Convert orbital parameters to Cartesian parameters.
+     * @param type type of the input parameters
+     * @param angle type of the position angle of the input parameters
+     * @param in array containing the input parameters
+     * @param inOffset index of the first input parameter in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param pv array where to put the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     */
+    public void toCartesian(final OrbitType type, final PositionAngle angle,
+                            final double[] in, final int inOffset,
+                            final double mu, final double[] pv, final int pvOffset) {
+        switch (type) {
+            case CARTESIAN :
+                System.arraycopy(in, inOffset, pv, pvOffset, SIZE);
+                break;
+            case CIRCULAR : {
+                final double a       = in[inOffset];
+                final double ex      = in[inOffset + 1];
+                final double ey      = in[inOffset + 2];
+                final double tan     = FastMath.tan(0.5 * in[inOffset + 3]);
+                final double raan    = in[inOffset + 4];
+                final double cosRaan = FastMath.cos(raan);
+                final double sinRaan = FastMath.sin(raan);
+                final double alphaE  = eccentricLongitude(angle, in[inOffset + 5], ex, ey);
+                equinoctialToCartesian(a,
+                                       ex * cosRaan - ey * sinRaan, ey * cosRaan + ex * sinRaan,
+                                       tan * cosRaan, tan * sinRaan, alphaE + raan,
+                                       mu, pv, pvOffset);
+                break;
+            }
+            case EQUINOCTIAL : {
+                final double ex = in[inOffset + 1];
+                final double ey = in[inOffset + 2];
+                equinoctialToCartesian(in[inOffset], ex, ey, in[inOffset + 3], in[inOffset + 4],
+                                       eccentricLongitude(angle, in[inOffset + 5], ex, ey),
+                                       mu, pv, pvOffset);
+                break;
+            }
+            case KEPLERIAN :
+                keplerianToCartesian(angle, in, inOffset, mu, pv, pvOffset);
+                break;
+            default :
+                throw new OrekitInternalError(null);
+        }
+    }
+
+    /** Convert Cartesian parameters to orbital parameters.
+     * @param type type of the output parameters
+     * @param angle type of the position angle of the output parameters
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters
+     * @param outOffset index of the first output parameter in the array
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic and type
+     * is neither {@link OrbitType#CARTESIAN Cartesian} nor {@link OrbitType#KEPLERIAN Keplerian}
+     */
+    public void fromCartesian(final OrbitType type, final PositionAngle angle,
+                              final double[] pv, final int pvOffset,
+                              final double mu, final double[] out, final int outOffset)
+        throws OrekitIllegalArgumentException {
+        switch (type) {
+            case CARTESIAN :
+                System.arraycopy(pv, pvOffset, out, outOffset, SIZE);
+                break;
+            case CIRCULAR :
+                cartesianToCircular(angle, pv, pvOffset, mu, out, outOffset);
+                break;
+            case EQUINOCTIAL :
+                cartesianToEquinoctial(angle, pv, pvOffset, mu, out, outOffset);
+                break;
+            case KEPLERIAN :
+                cartesianToKeplerian(angle, pv, pvOffset, mu, out, outOffset);
+                break;
+            default :
+                throw new OrekitInternalError(null);
+        }
+    }
+
+    /** Compute the Jacobian of the orbital parameters with respect to the Cartesian parameters.
+     * <p>
+     * Element {@code jacobian[i][j]} is the derivative of parameter i of the orbit with
+     * respect to Cartesian coordinate j, as in {@link Orbit#getJacobianWrtCartesian(PositionAngle,
+     * double[][])}.
+     * </p>
+     * @param type type of the orbital parameters
+     * @param angle type of the position angle to use
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param jacobian placeholder 6x6 (or larger) matrix to be filled with the Jacobian, if matrix
+     * is larger than 6x6, only the 6x6 upper left corner will be modified
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic
+     */
+    public void getJacobianWrtCartesian(final OrbitType type, final PositionAngle angle,
+                                        final double[] pv, final int pvOffset, final double mu,
+                                        final double[][] jacobian)
+        throws OrekitIllegalArgumentException {
+
+        if (type == OrbitType.CARTESIAN) {
+            for (int i = 0; i < SIZE; ++i) {
+                for (int j = 0; j < SIZE; ++j) {
+                    jacobian[i][j] = (i == j) ? 1.0 : 0.0;
+                }
+            }
+            return;
+        }
+
+        // all other types are derived from equinoctial parameters
+        cartesianToEquinoctial(PositionAngle.TRUE, pv, pvOffset, mu, equinoctialBuffer, 0);
+        final double ex = equinoctialBuffer[1];
+        final double ey = equinoctialBuffer[2];
+        final double hx = equinoctialBuffer[3];
+        final double hy = equinoctialBuffer[4];
+        final double lE = EquinoctialOrbit.trueToEccentric(equinoctialBuffer[5], ex, ey);
+        equinoctialJacobian(angle, pv, pvOffset, mu, equinoctialBuffer[0], ex, ey, hx, hy, lE);
+
+        final double[][] eqJ = equinoctialJacobian;
+        if (type == OrbitType.EQUINOCTIAL) {
+            for (int i = 0; i < SIZE; ++i) {
+                System.arraycopy(eqJ[i], 0, jacobian[i], 0, SIZE);
+            }
+            return;
+        }
+
+        // chain rule from equinoctial parameters
+        final double h2       = hx * hx + hy * hy;
+        final double h        = FastMath.sqrt(h2);
+        final double iFactor  = 2 / (h * (1 + h2));
+        final double cosRaan  = hx / h;
+        final double sinRaan  = hy / h;
+        final double e2       = ex * ex + ey * ey;
+        final double e        = FastMath.sqrt(e2);
+        final double cEx      = ex * cosRaan + ey * sinRaan;
+        final double cEy      = ey * cosRaan - ex * sinRaan;
+        for (int j = 0; j < SIZE; ++j) {
+            final double dA    = eqJ[0][j];
+            final double dEx   = eqJ[1][j];
+            final double dEy   = eqJ[2][j];
+            final double dHx   = eqJ[3][j];
+            final double dHy   = eqJ[4][j];
+            final double dL    = eqJ[5][j];
+            final double dI    = iFactor * (hx * dHx + hy * dHy);
+            final double dRaan = (hx * dHy - hy * dHx) / h2;
+            jacobian[0][j] = dA;
+            if (type == OrbitType.CIRCULAR) {
+                jacobian[1][j] =  cosRaan * dEx + sinRaan * dEy + cEy * dRaan;
+                jacobian[2][j] = -sinRaan * dEx + cosRaan * dEy - cEx * dRaan;
+                jacobian[3][j] = dI;
+                jacobian[4][j] = dRaan;
+                jacobian[5][j] = dL - dRaan;
+            } else {
+                final double dPaPRaan = (ex * dEy - ey * dEx) / e2;
+                jacobian[1][j] = (ex * dEx + ey * dEy) / e;
+                jacobian[2][j] = dI;
+                jacobian[3][j] = dPaPRaan - dRaan;
+                jacobian[4][j] = dRaan;
+                jacobian[5][j] = dL - dPaPRaan;
+            }
+        }
+
+    }
+
+    /** Compute the Jacobian of the Cartesian parameters with respect to the orbital parameters.
+     * <p>
+     * Element {@code jacobian[i][j]} is the derivative of Cartesian coordinate i of the orbit with
+     * respect to orbital parameter j, as in {@link Orbit#getJacobianWrtParameters(PositionAngle,
+     * double[][])}.
+     * </p>
+     * @param type type of the orbital parameters
+     * @param angle type of the position angle to use
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param jacobian placeholder 6x6 (or larger) matrix to be filled with the Jacobian, if matrix
+     * is larger than 6x6, only the 6x6 upper left corner will be modified
+     * @exception OrekitException if Jacobian is singular
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic
+     */
+    public void getJacobianWrtParameters(final OrbitType type, final PositionAngle angle,
+                                         final double[] pv, final int pvOffset, final double mu,
+                                         final double[][] jacobian)
+        throws OrekitException, OrekitIllegalArgumentException {
+
+        getJacobianWrtCartesian(type, angle, pv, pvOffset, mu, directJacobian);
+
+        // in-place Gauss-Jordan inversion with partial pivoting
+        final double[][] m = directJacobian;
+        for (int i = 0; i < SIZE; ++i) {
+            for (int j = 0; j < SIZE; ++j) {
+                jacobian[i][j] = (i == j) ? 1.0 : 0.0;
+            }
+        }
+        for (int col = 0; col < SIZE; ++col) {
+
+            // select pivot
+            int    pivotRow = col;
+            double pivotAbs = FastMath.abs(m[col][col]);
+            for (int row = col + 1; row < SIZE; ++row) {
+                final double candidate = FastMath.abs(m[row][col]);
+                if (candidate > pivotAbs) {
+                    pivotRow = row;
+                    pivotAbs = candidate;
+                }
+            }
+            if (pivotAbs < SINGULARITY_THRESHOLD) {
+                throw new OrekitException(OrekitMessages.SINGULAR_JACOBIAN_FOR_ORBIT_TYPE, type);
+            }
+            if (pivotRow != col) {
+                swapRows(m, col, pivotRow);
+                swapRows(jacobian, col, pivotRow);
+            }
+
+            // normalize pivot row
+            final double inv = 1.0 / m[col][col];
+            for (int j = 0; j < SIZE; ++j) {
+                m[col][j]        *= inv;
+                jacobian[col][j] *= inv;
+            }
+
+            // eliminate column from other rows
+            for (int row = 0; row < SIZE; ++row) {
+                if (row != col) {
+                    final double factor = m[row][col];
+                    if (factor != 0.0) {
+                        for (int j = 0; j < SIZE; ++j) {
+                            m[row][j]        -= factor * m[col][j];
+                            jacobian[row][j] -= factor * jacobian[col][j];
+                        }
+                    }
+                }
+            }
+
+        }
+
+    }
+
+    /** Compute the Jacobians of many orbital parameters sets with respect to Cartesian parameters.
+     * <p>
+     * Position-velocity sets are stored contiguously, {@link #SIZE} elements per set,
+     * and each Jacobian is stored contiguously in row-major order,
+     * {@link #SIZE} × {@link #SIZE} elements per Jacobian.
+     * </p>
+     * @param count number of parameters sets
+     * @param type type of the orbital parameters
+     * @param angle type of the position angle to use
+     * @param pv array containing the position-velocity sets (at least {@link #SIZE} × count elements)
+     * @param mu central attraction coefficient (m³/s²)
+     * @param jacobians array where to put the Jacobians (at least {@link #SIZE}² × count elements)
+     * @exception OrekitIllegalArgumentException if one orbit is hyperbolic
+     */
+    public void getJacobiansWrtCartesian(final int count, final OrbitType type, final PositionAngle angle,
+                                         final double[] pv, final double mu, final double[] jacobians)
+        throws OrekitIllegalArgumentException {
+        for (int k = 0; k < count; ++k) {
+            getJacobianWrtCartesian(type, angle, pv, k * SIZE, mu, directJacobian);
+            for (int i = 0; i < SIZE; ++i) {
+                System.arraycopy(directJacobian[i], 0, jacobians, (k * SIZE + i) * SIZE, SIZE);
+            }
+        }
+    }
+
+    /** Computes the eccentric longitude argument from the mean longitude argument, with warm start.
+     * <p>
+     * This method solves the generalized Kepler equation lM = lE - ex sin(lE) + ey cos(lE),
+     * which covers both equinoctial and circular parameters. For Keplerian parameters, it
+     * can be called with ex = e and ey = 0. If a previous solution is available, it is used
+     * to build the initial guess, which is accurate when sequential dates along the same
+     * trajectory are processed. Otherwise (or if the warm started iterations fail to converge),
+     * the resolution falls back to {@link EquinoctialOrbit#meanToEccentric(double, double, double)}.
+     * </p>
+     * @param lM mean longitude argument (rad)
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @return eccentric longitude argument (rad)
+     */
+    public double meanToEccentric(final double lM, final double ex, final double ey) {
+        final double lE = warmStartedMeanToEccentric(lM, ex, ey);
+        return storeKeplerSolution(lM, Double.isNaN(lE) ? EquinoctialOrbit.meanToEccentric(lM, ex, ey) : lE);
+    }
+
+    /** Computes the elliptic eccentric anomaly from the mean anomaly, with warm start.
+     * <p>
+     * This method is similar to {@link #meanToEccentric(double, double, double)} with
+     * ex = e and ey = 0, but falls back to {@link KeplerianOrbit#meanToEllipticEccentric(double, double)}
+     * when no warm start is possible, as this algorithm is more robust for high eccentricities.
+     * </p>
+     * @param M mean anomaly (rad)
+     * @param e eccentricity
+     * @return eccentric anomaly (rad)
+     */
+    public double meanToEllipticEccentric(final double M, final double e) {
+        final double E = warmStartedMeanToEccentric(M, e, 0.0);
+        return storeKeplerSolution(M, Double.isNaN(E) ? KeplerianOrbit.meanToEllipticEccentric(M, e) : E);
+    }
+
+    /** Solve generalized Kepler equation using previous solution as a warm start.
+     * @param lM mean longitude argument (rad)
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @return eccentric longitude argument (rad), or NaN if no warm start was possible
+     */
+    private double warmStartedMeanToEccentric(final double lM, final double ex, final double ey) {
+
+        if (!warm) {
+            return Double.NaN;
+        }
+
+        // build initial guess from previous solution, handling full turns separately
+        final double dLM      = lM - lastLM;
+        final double reduced  = MathUtils.normalizeAngle(dLM, 0.0);
+        final double derivate = 1 - ex * FastMath.cos(lastLE) - ey * FastMath.sin(lastLE);
+        if (derivate < MIN_WARM_DERIVATIVE) {
+            // almost parabolic orbit near perigee, the linear guess is not reliable
+            return Double.NaN;
+        }
+        double lE = lastLE + (dLM - reduced) + reduced / derivate;
+
+        // Halley iterations
+        for (int iter = 0; iter < MAX_WARM_ITERATIONS; ++iter) {
+            final double cosLE = FastMath.cos(lE);
+            final double sinLE = FastMath.sin(lE);
+            final double f2    = ex * sinLE - ey * cosLE;
+            final double f1    = 1.0 - ex * cosLE - ey * sinLE;
+            final double f0    = lE - f2 - lM;
+            final double f12   = 2.0 * f1;
+            final double shift = f0 * f12 / (f1 * f12 - f0 * f2);
+            lE -= shift;
+            if (FastMath.abs(shift) <= KEPLER_THRESHOLD) {
+                return lE;
+            }
+        }
+
+        // warm start failed
+        return Double.NaN;
+
+    }
+
+    /** Store a Kepler equation solution for next warm start.
+     * @param lM mean longitude argument (rad)
+     * @param lE eccentric longitude argument (rad)
+     * @return lE
+     */
+    private double storeKeplerSolution(final double lM, final double lE) {
+        warm   = true;
+        lastLM = lM;
+        lastLE = lE;
+        return lE;
+    }
+
+    /** Compute eccentric longitude argument from any longitude argument.
+     * @param angle type of the position angle
+     * @param l longitude argument
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @return eccentric longitude argument
+     */
+    private double eccentricLongitude(final PositionAngle angle, final double l,
+                                      final double ex, final double ey) {
+        switch (angle) {
+            case MEAN :
+                return meanToEccentric(l, ex, ey);
+            case ECCENTRIC :
+                return l;
+            case TRUE :
+                return EquinoctialOrbit.trueToEccentric(l, ex, ey);
+            default :
+                throw new OrekitInternalError(null);
+        }
+    }
+
+    /** Compute any longitude argument from true longitude argument.
+     * @param angle type of the position angle
+     * @param lv true longitude argument
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @return longitude argument
+     */
+    private static double fromTrueLongitude(final PositionAngle angle, final double lv,
+                                            final double ex, final double ey) {
+        switch (angle) {
+            case MEAN :
+                return EquinoctialOrbit.eccentricToMean(EquinoctialOrbit.trueToEccentric(lv, ex, ey), ex, ey);
+            case ECCENTRIC :
+                return EquinoctialOrbit.trueToEccentric(lv, ex, ey);
+            case TRUE :
+                return lv;
+            default :
+                throw new OrekitInternalError(null);
+        }
+    }
+
+    /** Convert equinoctial parameters to Cartesian parameters.
+     * @param a semi-major axis (m)
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @param hx first component of the inclination vector
+     * @param hy second component of the inclination vector
+     * @param lE eccentric longitude argument (rad)
+     * @param mu central attraction coefficient (m³/s²)
+     * @param pv array where to put the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     */
+    private static void equinoctialToCartesian(final double a, final double ex, final double ey,
+                                               final double hx, final double hy, final double lE,
+                                               final double mu, final double[] pv, final int pvOffset) {
+
+        // inclination-related intermediate parameters
+        final double hx2   = hx * hx;
+        final double hy2   = hy * hy;
+        final double factH = 1. / (1 + hx2 + hy2);
+
+        // reference axes defining the orbital plane
+        final double ux = (1 + hx2 - hy2) * factH;
+        final double uy =  2 * hx * hy * factH;
+        final double uz = -2 * hy * factH;
+
+        final double vx = uy;
+        final double vy = (1 - hx2 + hy2) * factH;
+        final double vz =  2 * hx * factH;
+
+        // eccentricity-related intermediate parameters
+        final double exey = ex * ey;
+        final double ex2  = ex * ex;
+        final double ey2  = ey * ey;
+        final double e2   = ex2 + ey2;
+        final double eta  = 1 + FastMath.sqrt(1 - e2);
+        final double beta = 1. / eta;
+
+        // eccentric longitude argument
+        final double cLe    = FastMath.cos(lE);
+        final double sLe    = FastMath.sin(lE);
+        final double exCeyS = ex * cLe + ey * sLe;
+
+        // coordinates of position and velocity in the orbital plane
+        final double x      = a * ((1 - beta * ey2) * cLe + beta * exey * sLe - ex);
+        final double y      = a * ((1 - beta * ex2) * sLe + beta * exey * cLe - ey);
+
+        final double factor = FastMath.sqrt(mu / a) / (1 - exCeyS);
+        final double xdot   = factor * (-sLe + beta * ey * exCeyS);
+        final double ydot   = factor * ( cLe - beta * ex * exCeyS);
+
+        pv[pvOffset]     = x * ux + y * vx;
+        pv[pvOffset + 1] = x * uy + y * vy;
+        pv[pvOffset + 2] = x * uz + y * vz;
+        pv[pvOffset + 3] = xdot * ux + ydot * vx;
+        pv[pvOffset + 4] = xdot * uy + ydot * vy;
+        pv[pvOffset + 5] = xdot * uz + ydot * vz;
+
+    }
+
+    /** Convert Keplerian parameters to Cartesian parameters.
+     * @param angle type of the position angle
+     * @param in array containing the input parameters
+     * @param inOffset index of the first input parameter in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param pv array where to put the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     */
+    private void keplerianToCartesian(final PositionAngle angle, final double[] in, final int inOffset,
+                                      final double mu, final double[] pv, final int pvOffset) {
+
+        final double a    = in[inOffset];
+        final double e    = in[inOffset + 1];
+        final double i    = in[inOffset + 2];
+        final double pa   = in[inOffset + 3];
+        final double raan = in[inOffset + 4];
+
+        // preliminary variables
+        final double cosRaan = FastMath.cos(raan);
+        final double sinRaan = FastMath.sin(raan);
+        final double cosPa   = FastMath.cos(pa);
+        final double sinPa   = FastMath.sin(pa);
+        final double cosI    = FastMath.cos(i);
+        final double sinI    = FastMath.sin(i);
+
+        final double crcp    = cosRaan * cosPa;
+        final double crsp    = cosRaan * sinPa;
+        final double srcp    = sinRaan * cosPa;
+        final double srsp    = sinRaan * sinPa;
+
+        // reference axes defining the orbital plane
+        final double px =  crcp - cosI * srsp;
+        final double py =  srcp + cosI * crsp;
+        final double pz =  sinI * sinPa;
+        final double qx = -crsp - cosI * srcp;
+        final double qy = -srsp + cosI * crcp;
+        final double qz =  sinI * cosPa;
+
+        final double x;
+        final double y;
+        final double xDot;
+        final double yDot;
+        if (a > 0) {
+
+            // elliptical case
+            final double E;
+            switch (angle) {
+                case MEAN :
+                    E = meanToEllipticEccentric(in[inOffset + 5], e);
+                    break;
+                case ECCENTRIC :
+                    E = in[inOffset + 5];
+                    break;
+                case TRUE :
+                    E = KeplerianOrbit.trueToEllipticEccentric(in[inOffset + 5], e);
+                    break;
+                default :
+                    throw new OrekitInternalError(null);
+            }
+            final double uME2   = (1 - e) * (1 + e);
+            final double s1Me2  = FastMath.sqrt(uME2);
+            final double cosE   = FastMath.cos(E);
+            final double sinE   = FastMath.sin(E);
+
+            // coordinates of position and velocity in the orbital plane
+            x    = a * (cosE - e);
+            y    = a * sinE * s1Me2;
+            final double factor = FastMath.sqrt(mu / a) / (1 - e * cosE);
+            xDot = -sinE * factor;
+            yDot =  cosE * s1Me2 * factor;
+
+        } else {
+
+            // hyperbolic case
+            final double v;
+            switch (angle) {
+                case MEAN :
+                    v = KeplerianOrbit.hyperbolicEccentricToTrue(KeplerianOrbit.meanToHyperbolicEccentric(in[inOffset + 5], e), e);
+                    break;
+                case ECCENTRIC :
+                    v = KeplerianOrbit.hyperbolicEccentricToTrue(in[inOffset + 5], e);
+                    break;
+                case TRUE :
+                    v = in[inOffset + 5];
+                    break;
+                default :
+                    throw new OrekitInternalError(null);
+            }
+            final double sinV      = FastMath.sin(v);
+            final double cosV      = FastMath.cos(v);
+            final double f         = a * (1 - e * e);
+            final double posFactor = f / (1 + e * cosV);
+            final double velFactor = FastMath.sqrt(mu / f);
+
+            x    =  posFactor * cosV;
+            y    =  posFactor * sinV;
+            xDot = -velFactor * sinV;
+            yDot =  velFactor * (e + cosV);
+
+        }
+
+        pv[pvOffset]     = x * px + y * qx;
+        pv[pvOffset + 1] = x * py + y * qy;
+        pv[pvOffset + 2] = x * pz + y * qz;
+        pv[pvOffset + 3] = xDot * px + yDot * qx;
+        pv[pvOffset + 4] = xDot * py + yDot * qy;
+        pv[pvOffset + 5] = xDot * pz + yDot * qz;
+
+    }
+
+    /** Convert Cartesian parameters to Keplerian parameters.
+     * @param angle type of the position angle
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters
+     * @param outOffset index of the first output parameter in the array
+     */
+    private static void cartesianToKeplerian(final PositionAngle angle,
+                                             final double[] pv, final int pvOffset,
+                                             final double mu, final double[] out, final int outOffset) {
+
+        final double px = pv[pvOffset];
+        final double py = pv[pvOffset + 1];
+        final double pz = pv[pvOffset + 2];
+        final double vx = pv[pvOffset + 3];
+        final double vy = pv[pvOffset + 4];
+        final double vz = pv[pvOffset + 5];
+
+        // compute inclination
+        final double mx = py * vz - pz * vy;
+        final double my = pz * vx - px * vz;
+        final double mz = px * vy - py * vx;
+        final double m2 = mx * mx + my * my + mz * mz;
+        final double m  = FastMath.sqrt(m2);
+        final double i  = angleWithPlusK(mx, my, mz, m);
+
+        // compute right ascension of ascending node
+        final double raan = FastMath.atan2(mx, -my);
+
+        // preliminary computations for parameters depending on orbit shape (elliptic or hyperbolic)
+        final double r2      = px * px + py * py + pz * pz;
+        final double r       = FastMath.sqrt(r2);
+        final double V2      = vx * vx + vy * vy + vz * vz;
+        final double rV2OnMu = r * V2 / mu;
+        final double pDotV   = px * vx + py * vy + pz * vz;
+
+        // compute semi-major axis (will be negative for hyperbolic orbits)
+        final double a   = r / (2 - rV2OnMu);
+        final double muA = mu * a;
+
+        // compute true anomaly
+        final double e;
+        final double v;
+        final double anomaly;
+        if (a > 0) {
+            // elliptic or circular orbit
+            final double eSE = pDotV / FastMath.sqrt(muA);
+            final double eCE = rV2OnMu - 1;
+            e = FastMath.sqrt(eSE * eSE + eCE * eCE);
+            final double E = FastMath.atan2(eSE, eCE);
+            v = KeplerianOrbit.ellipticEccentricToTrue(E, e);
+            switch (angle) {
+                case MEAN :
+                    anomaly = KeplerianOrbit.ellipticEccentricToMean(E, e);
+                    break;
+                case ECCENTRIC :
+                    anomaly = E;
+                    break;
+                case TRUE :
+                    anomaly = v;
+                    break;
+                default :
+                    throw new OrekitInternalError(null);
+            }
+        } else {
+            // hyperbolic orbit
+            final double eSH = pDotV / FastMath.sqrt(-muA);
+            final double eCH = rV2OnMu - 1;
+            e = FastMath.sqrt(1 - m2 / muA);
+            final double H = FastMath.log((eCH + eSH) / (eCH - eSH)) / 2;
+            v = KeplerianOrbit.hyperbolicEccentricToTrue(H, e);
+            switch (angle) {
+                case MEAN :
+                    anomaly = KeplerianOrbit.hyperbolicEccentricToMean(H, e);
+                    break;
+                case ECCENTRIC :
+                    anomaly = H;
+                    break;
+                case TRUE :
+                    anomaly = v;
+                    break;
+                default :
+                    throw new OrekitInternalError(null);
+            }
+        }
+
+        // compute perigee argument
+        final double cosRaan = FastMath.cos(raan);
+        final double sinRaan = FastMath.sin(raan);
+        final double x       = px * cosRaan + py * sinRaan;
+        final double y       = (mz * (py * cosRaan - px * sinRaan) +
+                                pz * (mx * sinRaan - my * cosRaan)) / m;
+        final double pa      = FastMath.atan2(y, x) - v;
+
+        out[outOffset]     = a;
+        out[outOffset + 1] = e;
+        out[outOffset + 2] = i;
+        out[outOffset + 3] = pa;
+        out[outOffset + 4] = raan;
+        out[outOffset + 5] = anomaly;
+
+    }
+
+    /** Convert Cartesian parameters to circular parameters.
+     * @param angle type of the position angle
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters
+     * @param outOffset index of the first output parameter in the array
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic
+     */
+    private static void cartesianToCircular(final PositionAngle angle,
+                                            final double[] pv, final int pvOffset,
+                                            final double mu, final double[] out, final int outOffset)
+        throws OrekitIllegalArgumentException {
+
+        final double xP = pv[pvOffset];
+        final double yP = pv[pvOffset + 1];
+        final double zP = pv[pvOffset + 2];
+        final double vx = pv[pvOffset + 3];
+        final double vy = pv[pvOffset + 4];
+        final double vz = pv[pvOffset + 5];
+
+        // compute semi-major axis
+        final double r2      = xP * xP + yP * yP + zP * zP;
+        final double r       = FastMath.sqrt(r2);
+        final double V2      = vx * vx + vy * vy + vz * vz;
+        final double rV2OnMu = r * V2 / mu;
+
+        if (rV2OnMu > 2) {
+            throw new OrekitIllegalArgumentException(OrekitMessages.HYPERBOLIC_ORBIT_NOT_HANDLED_AS,
+                                                     CircularOrbit.class.getName());
+        }
+
+        final double a = r / (2 - rV2OnMu);
+
+        // compute inclination
+        final double mx = yP * vz - zP * vy;
+        final double my = zP * vx - xP * vz;
+        final double mz = xP * vy - yP * vx;
+        final double i  = angleWithPlusK(mx, my, mz, FastMath.sqrt(mx * mx + my * my + mz * mz));
+
+        // compute right ascension of ascending node
+        final double raan = FastMath.atan2(mx, -my);
+
+        // 2D-coordinates in the canonical frame
+        final double cosRaan = FastMath.cos(raan);
+        final double sinRaan = FastMath.sin(raan);
+        final double cosI    = FastMath.cos(i);
+        final double sinI    = FastMath.sin(i);
+        final double x2      = (xP * cosRaan + yP * sinRaan) / a;
+        final double y2      = ((yP * cosRaan - xP * sinRaan) * cosI + zP * sinI) / a;
+
+        // compute eccentricity vector
+        final double eSE    = (xP * vx + yP * vy + zP * vz) / FastMath.sqrt(mu * a);
+        final double eCE    = rV2OnMu - 1;
+        final double e2     = eCE * eCE + eSE * eSE;
+        final double f      = eCE - e2;
+        final double g      = FastMath.sqrt(1 - e2) * eSE;
+        final double aOnR   = a / r;
+        final double a2OnR2 = aOnR * aOnR;
+        final double ex     = a2OnR2 * (f * x2 + g * y2);
+        final double ey     = a2OnR2 * (f * y2 - g * x2);
+
+        // compute latitude argument
+        final double beta   = 1 / (1 + FastMath.sqrt(1 - ex * ex - ey * ey));
+        final double alphaE = FastMath.atan2(y2 + ey + eSE * beta * ex, x2 + ex - eSE * beta * ey);
+
+        out[outOffset]     = a;
+        out[outOffset + 1] = ex;
+        out[outOffset + 2] = ey;
+        out[outOffset + 3] = i;
+        out[outOffset + 4] = raan;
+        switch (angle) {
+            case MEAN :
+                out[outOffset + 5] = CircularOrbit.eccentricToMean(alphaE, ex, ey);
+                break;
+            case ECCENTRIC :
+                out[outOffset + 5] = alphaE;
+                break;
+            case TRUE :
+                out[outOffset + 5] = CircularOrbit.eccentricToTrue(alphaE, ex, ey);
+                break;
+            default :
+                throw new OrekitInternalError(null);
+        }
+
+    }
+
+    /** Convert Cartesian parameters to equinoctial parameters.
+     * @param angle type of the position angle
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param out array where to put the output parameters
+     * @param outOffset index of the first output parameter in the array
+     * @exception OrekitIllegalArgumentException if orbit is hyperbolic
+     */
+    private static void cartesianToEquinoctial(final PositionAngle angle,
+                                               final double[] pv, final int pvOffset,
+                                               final double mu, final double[] out, final int outOffset)
+        throws OrekitIllegalArgumentException {
+
+        final double px = pv[pvOffset];
+        final double py = pv[pvOffset + 1];
+        final double pz = pv[pvOffset + 2];
+        final double vx = pv[pvOffset + 3];
+        final double vy = pv[pvOffset + 4];
+        final double vz = pv[pvOffset + 5];
+
+        final double r2      = px * px + py * py + pz * pz;
+        final double r       = FastMath.sqrt(r2);
+        final double V2      = vx * vx + vy * vy + vz * vz;
+        final double rV2OnMu = r * V2 / mu;
+
+        if (rV2OnMu > 2) {
+            throw new OrekitIllegalArgumentException(OrekitMessages.HYPERBOLIC_ORBIT_NOT_HANDLED_AS,
+                                                     EquinoctialOrbit.class.getName());
+        }
+
+        // compute inclination vector
+        final double mx = py * vz - pz * vy;
+        final double my = pz * vx - px * vz;
+        final double mz = px * vy - py * vx;
+        final double m  = FastMath.sqrt(mx * mx + my * my + mz * mz);
+        final double wx = mx / m;
+        final double wy = my / m;
+        final double wz = mz / m;
+        final double d  = 1.0 / (1 + wz);
+        final double hx = -d * wy;
+        final double hy =  d * wx;
+
+        // compute true longitude argument
+        final double cLv = (px - d * pz * wx) / r;
+        final double sLv = (py - d * pz * wy) / r;
+        final double lv  = FastMath.atan2(sLv, cLv);
+
+        // compute semi-major axis
+        final double a = r / (2 - rV2OnMu);
+
+        // compute eccentricity vector
+        final double eSE = (px * vx + py * vy + pz * vz) / FastMath.sqrt(mu * a);
+        final double eCE = rV2OnMu - 1;
+        final double e2  = eCE * eCE + eSE * eSE;
+        final double f   = eCE - e2;
+        final double g   = FastMath.sqrt(1 - e2) * eSE;
+        final double ex  = a * (f * cLv + g * sLv) / r;
+        final double ey  = a * (f * sLv - g * cLv) / r;
+
+        out[outOffset]     = a;
+        out[outOffset + 1] = ex;
+        out[outOffset + 2] = ey;
+        out[outOffset + 3] = hx;
+        out[outOffset + 4] = hy;
+        out[outOffset + 5] = fromTrueLongitude(angle, lv, ex, ey);
+
+    }
+
+    /** Compute the angle between momentum and +K.
+     * <p>
+     * This is the same computation as {@link org.hipparchus.geometry.euclidean.threed.Vector3D#angle(
+     * org.hipparchus.geometry.euclidean.threed.Vector3D, org.hipparchus.geometry.euclidean.threed.Vector3D)
+     * Vector3D.angle(momentum, Vector3D.PLUS_K)}, which remains accurate for almost equatorial orbits.
+     * </p>
+     * @param mx momentum x component
+     * @param my momentum y component
+     * @param mz momentum z component
+     * @param m momentum norm
+     * @return angle between momentum and +K
+     */
+    private static double angleWithPlusK(final double mx, final double my, final double mz, final double m) {
+        final double threshold = m * 0.9999;
+        if (mz < -threshold || mz > threshold) {
+            // the vectors are almost aligned, compute using the sine
+            final double sin = FastMath.sqrt(mx * mx + my * my) / m;
+            return (mz >= 0) ? FastMath.asin(sin) : FastMath.PI - FastMath.asin(sin);
+        }
+        // the vectors are sufficiently separated to use the cosine
+        return FastMath.acos(mz / m);
+    }
+
+    /** Compute the Jacobian of equinoctial parameters with respect to Cartesian parameters.
+     * <p>
+     * This is a primitive arrays version of {@link EquinoctialOrbit#computeJacobianMeanWrtCartesian()},
+     * {@link EquinoctialOrbit#computeJacobianEccentricWrtCartesian()} and
+     * {@link EquinoctialOrbit#computeJacobianTrueWrtCartesian()}. The result is stored
+     * in the {@link #equinoctialJacobian} buffer.
+     * </p>
+     * @param angle type of the position angle
+     * @param pv array containing the position-velocity
+     * @param pvOffset index of the first Cartesian coordinate in the array
+     * @param mu central attraction coefficient (m³/s²)
+     * @param a semi-major axis (m)
+     * @param ex first component of the eccentricity vector
+     * @param ey second component of the eccentricity vector
+     * @param hx first component of the inclination vector
+     * @param hy second component of the inclination vector
+     * @param lE eccentric longitude argument (rad)
+     */
+    private void equinoctialJacobian(final PositionAngle angle,
+                                     final double[] pv, final int pvOffset, final double mu,
+                                     final double a, final double ex, final double ey,
+                                     final double hx, final double hy, final double lE) {
+
+        final double[][] jacobian = equinoctialJacobian;
+
+        // compute various intermediate parameters
+        final double px      = pv[pvOffset];
+        final double py      = pv[pvOffset + 1];
+        final double pz      = pv[pvOffset + 2];
+        final double vx      = pv[pvOffset + 3];
+        final double vy      = pv[pvOffset + 4];
+        final double vz      = pv[pvOffset + 5];
+        final double r2      = px * px + py * py + pz * pz;
+        final double r       = FastMath.sqrt(r2);
+        final double r3      = r * r2;
+
+        final double sqrtMuA = FastMath.sqrt(a * mu);
+        final double a2      = a * a;
+
+        final double e2      = ex * ex + ey * ey;
+        final double oMe2    = 1 - e2;
+        final double epsilon = FastMath.sqrt(oMe2);
+        final double beta    = 1 / (1 + epsilon);
+        final double ratio   = epsilon * beta;
+
+        final double hx2     = hx * hx;
+        final double hy2     = hy * hy;
+        final double hxhy    = hx * hy;
+
+        // equinoctial frame unit vectors (f, g, w)
+        final double factH = 1.0 / (1 + hx2 + hy2);
+        f[0] = (1 - hy2 + hx2) * factH;
+        f[1] = 2 * hxhy * factH;
+        f[2] = -2 * hy * factH;
+        g[0] = 2 * hxhy * factH;
+        g[1] = (1 + hy2 - hx2) * factH;
+        g[2] = 2 * hx * factH;
+        final double mx = py * vz - pz * vy;
+        final double my = pz * vx - px * vz;
+        final double mz = px * vy - py * vx;
+        final double m  = FastMath.sqrt(mx * mx + my * my + mz * mz);
+        w[0] = mx / m;
+        w[1] = my / m;
+        w[2] = mz / m;
+
+        // coordinates of the spacecraft in the equinoctial frame
+        final double x    = px * f[0] + py * f[1] + pz * f[2];
+        final double y    = px * g[0] + py * g[1] + pz * g[2];
+        final double xDot = vx * f[0] + vy * f[1] + vz * f[2];
+        final double yDot = vx * g[0] + vy * g[1] + vz * g[2];
+
+        // drDot / dEx and drDot / dEy, as linear combinations of f and g
+        final double c1 = a / (sqrtMuA * epsilon);
+        final double c2 = a * sqrtMuA * beta / r3;
+        final double c3 = sqrtMuA / (r3 * epsilon);
+        final double dExF =  c1 * xDot * yDot - c2 * ey * x - c3 * x * y;
+        final double dExG = -c1 * xDot * xDot - c2 * ey * y + c3 * x * x;
+        final double dEyF =  c1 * yDot * yDot + c2 * ex * x - c3 * y * y;
+        final double dEyG = -c1 * xDot * yDot + c2 * ex * y + c3 * x * y;
+
+        // coefficients
+        final double d1 = -a * ratio / r3;
+        final double d2 = (hy * xDot - hx * yDot) / (sqrtMuA * epsilon);
+        final double d3 = (hx * y - hy * x) / sqrtMuA;
+        final double h  = (1 + hx2 + hy2) / (2 * sqrtMuA * epsilon);
+        final double l  = -ratio / sqrtMuA;
+        final double exRowG = (2 * x * yDot - xDot * y) / mu;
+        final double exRowF = -y * yDot / mu;
+        final double exRowW = -ey * d3 / epsilon;
+        final double eyRowF = (2 * xDot * y - x * yDot) / mu;
+        final double eyRowG = -x * xDot / mu;
+        final double eyRowW = ex * d3 / epsilon;
+
+        for (int k = 0; k < 3; ++k) {
+            final double pk = pv[pvOffset + k];
+            final double vk = pv[pvOffset + 3 + k];
+            dVdEx[k]  = dExF * f[k] + dExG * g[k];
+            dVdEy[k]  = dEyF * f[k] + dEyG * g[k];
+            exRowV[k] = exRowG * g[k] + exRowF * f[k] + exRowW * w[k];
+            eyRowV[k] = eyRowF * f[k] + eyRowG * g[k] + eyRowW * w[k];
+
+            // da
+            jacobian[0][k]     = 2 * a2 / r3 * pk;
+            jacobian[0][k + 3] = 2 * a2 / mu * vk;
+
+            // dEx
+            jacobian[1][k]     = ex * d1 * pk - ey * d2 * w[k] + epsilon / sqrtMuA * dVdEy[k];
+            jacobian[1][k + 3] = exRowV[k];
+
+            // dEy
+            jacobian[2][k]     = ey * d1 * pk + ex * d2 * w[k] - epsilon / sqrtMuA * dVdEx[k];
+            jacobian[2][k + 3] = eyRowV[k];
+
+            // dHx
+            jacobian[3][k]     = -h * xDot * w[k];
+            jacobian[3][k + 3] =  h * x * w[k];
+
+            // dHy
+            jacobian[4][k]     = -h * yDot * w[k];
+            jacobian[4][k + 3] =  h * y * w[k];
+
+            // dLambdaM
+            jacobian[5][k]     = -vk / sqrtMuA + d2 * w[k] + l * ex * dVdEx[k] + l * ey * dVdEy[k];
+            jacobian[5][k + 3] = -2 * pk / sqrtMuA + ex * beta * eyRowV[k] - ey * beta * exRowV[k] + d3 * w[k];
+        }
+
+        if (angle == PositionAngle.MEAN) {
+            return;
+        }
+
+        // dlE = a/r dlM + sin lE a/r dex - cos lE a/r dey
+        final double cosLe = FastMath.cos(lE);
+        final double sinLe = FastMath.sin(lE);
+        final double aOr   = 1 / (1 - ex * cosLe - ey * sinLe);
+        final double[] rowEx = jacobian[1];
+        final double[] rowEy = jacobian[2];
+        final double[] rowL  = jacobian[5];
+        for (int j = 0; j < SIZE; ++j) {
+            rowL[j] = aOr * (rowL[j] + sinLe * rowEx[j] - cosLe * rowEy[j]);
+        }
+
+        if (angle == PositionAngle.ECCENTRIC) {
+            return;
+        }
+
+        // dlV = (cT + cE) / cT dlE + cX / cT deX + cY / cT deX
+        final double eSinE     = ex * sinLe - ey * cosLe;
+        final double ecosE     = ex * cosLe + ey * sinLe;
+        final double onePeps   = 1 + epsilon;
+        final double dd        = onePeps - ecosE;
+        final double cT        = (dd * dd + eSinE * eSinE) / 2;
+        final double cE        = ecosE * onePeps - e2;
+        final double cX        = ex * eSinE / epsilon - ey + sinLe * onePeps;
+        final double cY        = ey * eSinE / epsilon + ex - cosLe * onePeps;
+        final double factorLe  = (cT + cE) / cT;
+        final double factorEx  = cX / cT;
+        final double factorEy  = cY / cT;
+        for (int j = 0; j < SIZE; ++j) {
+            rowL[j] = factorLe * rowL[j] + factorEx * rowEx[j] + factorEy * rowEy[j];
+        }
+
+    }
+
+    /** Swap the first {@link #SIZE} elements of two rows of a matrix.
+     * @param matrix matrix to modify
+     * @param i index of first row
+     * @param j index of second row
+     */
+    private static void swapRows(final double[][] matrix, final int i, final int j) {
+        final double[] rowI = matrix[i];
+        final double[] rowJ = matrix[j];
+        for (int k = 0; k < SIZE; ++k) {
+            final double tmp = rowI[k];
+            rowI[k] = rowJ[k];
+            rowJ[k] = tmp;
+        }
+    }
+
+}
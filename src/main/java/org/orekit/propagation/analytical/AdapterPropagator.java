@@ -42,6 +42,11 @@ import org.orekit.time.AbsoluteDate;
  * maneuvers into account.
  * </p>
  * <p>
+ * For long maneuvers plans, the maneuvers should rather be gathered in a single
+ * {@link CumulativeManeuversEffect} which avoids going through all maneuvers
+ * for each propagated state.
+ * </p>
+ * <p>
  * From a space flight dynamics point of view, this is a differential
  * correction approach. From a computer science point of view, this is
  * a use of the decorator design pattern.
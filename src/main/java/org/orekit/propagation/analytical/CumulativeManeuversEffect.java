@@ -0,0 +1,397 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.analytical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.forces.maneuvers.SmallManeuverAnalyticalModel;
+import org.orekit.orbits.EquinoctialOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.time.AbsoluteDate;
+
+/** Differential effect gathering a complete plan of small maneuvers.
+ * <p>
+ * Adding hundreds of {@link SmallManeuverAnalyticalModel small maneuvers} and their
+ * associated {@link J2DifferentialEffect J2 differential effects} one at a time to an
+ * {@link AdapterPropagator} implies that each propagated state goes through the
+ * whole list of effects. This class indexes the effects by date and maintains
+ * cumulative sums of their contributions, so each state is updated only once,
+ * with the combined effect of the maneuvers performed before its date. The
+ * cost of one state evaluation is therefore independent of the plan size.
+ * </p>
+ * <p>
+ * The cumulative sums are computed lazily, in chronological order, and only up to
+ * the latest date already requested. When the plan is changed by adding or removing
+ * an effect, only the cumulative sums after the date of the changed effect are
+ * invalidated, so optimizers that tune the last maneuvers of a long plan do not
+ * pay for recomputing the first ones.
+ * </p>
+ * <p>
+ * All small maneuvers effects are linear changes in equinoctial elements and all
+ * J2 differential effects are linear drifts of perigee argument and ascending
+ * node, so the combined effect is the sum of the individual effects. The only
+ * approximation with respect to applying the effects one at a time is that the
+ * J2 drifts are applied after all maneuvers changes, whereas they are interleaved
+ * when effects are applied one at a time. The difference is of second order in
+ * the maneuvers size, i.e. below the accuracy of the first order models themselves.
+ * Maneuvers on highly eccentric orbits, which are modeled using Keplerian elements
+ * instead of equinoctial elements, cannot be combined; for dates after such a
+ * maneuver, the effects are applied one at a time.
+ * </p>
+ * <p>
+ * As most propagators, this class is <em>not</em> thread-safe.
+ * </p>
+ * @see AdapterPropagator
+ * @see SmallManeuverAnalyticalModel
+ * @see J2DifferentialEffect
+ * @since 9.3
+ */
+public class CumulativeManeuversEffect implements AdapterPropagator.DifferentialEffect {
+
+    /** Effects, sorted by activation date. */
+    private final List<Entry> entries;
+
+    /** Number of entries for which cumulative sums are up to date. */
+    private int valid;
+
+    /** Reference epoch for cumulative drifts. */
+    private AbsoluteDate epoch;
+
+    /** Simple constructor, building an empty plan.
+     */
+    public CumulativeManeuversEffect() {
+        this.entries = new ArrayList<Entry>();
+        this.valid   = 0;
+        this.epoch   = null;
+    }
+
+    /** Add a maneuver to the plan.
+     * @param maneuver maneuver to add
+     */
+    public void addManeuver(final SmallManeuverAnalyticalModel maneuver) {
+        insert(new Entry(maneuver, maneuver.getDate(), maneuver.getDate()));
+    }
+
+    /** Add a J2 differential effect to the plan.
+     * @param effect effect to add
+     */
+    public void addJ2Effect(final J2DifferentialEffect effect) {
+        insert(new Entry(effect,
+                         effect.isAppliedBefore() ? AbsoluteDate.PAST_INFINITY : effect.getReferenceDate(),
+                         effect.getReferenceDate()));
+    }
+
+    /** Remove a maneuver from the plan.
+     * @param maneuver maneuver to remove
+     * @return true if the maneuver was part of the plan
+     */
+    public boolean removeManeuver(final SmallManeuverAnalyticalModel maneuver) {
+        return remove(maneuver);
+    }
+
+    /** Remove a J2 differential effect from the plan.
+     * @param effect effect to remove
+     * @return true if the effect was part of the plan
+     */
+    public boolean removeJ2Effect(final J2DifferentialEffect effect) {
+        return remove(effect);
+    }
+
+    /** Get the number of effects in the plan.
+     * @return number of effects in the plan
+     */
+    public int getEffectsNumber() {
+        return entries.size();
+    }
+
+    /** Get the effects of the plan.
+     * @return effects of the plan, in chronological order
+     */
+    public List<AdapterPropagator.DifferentialEffect> getEffects() {
+        final List<AdapterPropagator.DifferentialEffect> effects =
+                new ArrayList<AdapterPropagator.DifferentialEffect>(entries.size());
+        for (final Entry entry : entries) {
+            effects.add(entry.effect);
+        }
+        return Collections.unmodifiableList(effects);
+    }
+
+    /** Get the number of effects for which cumulative sums are up to date.
+     * @return number of effects for which cumulative sums are up to date
+     */
+    int getCachedNumber() {
+        return valid;
+    }
+
+    /** {@inheritDoc} */
+    public SpacecraftState apply(final SpacecraftState original) throws OrekitException {
+
+        // effects that have already occurred at state date
+        final int n = countBefore(original.getDate());
+        if (n == 0) {
+            return original;
+        }
+
+        // update the cumulative sums if needed
+        if (n > valid) {
+            if (valid == 0) {
+                epoch = entries.get(0).reference;
+            }
+            for (int k = valid; k < n; ++k) {
+                entries.get(k).accumulate(k == 0 ? null : entries.get(k - 1), epoch);
+            }
+            valid = n;
+        }
+
+        final Entry last = entries.get(n - 1);
+        if (last.composable) {
+            return last.applyCumulative(original, epoch);
+        } else {
+            // some effects cannot be combined, apply them one at a time
+            SpacecraftState state = original;
+            for (int k = 0; k < n; ++k) {
+                state = entries.get(k).effect.apply(state);
+            }
+            return state;
+        }
+
+    }
+
+    /** Insert an entry, preserving chronological order.
+     * @param entry entry to insert
+     */
+    private void insert(final Entry entry) {
+        // entries sharing the same date are kept in insertion order
+        int index = entries.size();
+        while (index > 0 && entries.get(index - 1).activation.compareTo(entry.activation) > 0) {
+            --index;
+        }
+        entries.add(index, entry);
+        valid = FastMath.min(valid, index);
+    }
+
+    /** Remove an entry.
+     * @param effect effect to remove
+     * @return true if the effect was part of the plan
+     */
+    private boolean remove(final AdapterPropagator.DifferentialEffect effect) {
+        for (int index = 0; index < entries.size(); ++index) {
+            if (entries.get(index).effect == effect) {
+                entries.remove(index);
+                valid = FastMath.min(valid, index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Count the effects that have occurred strictly before a date.
+     * @param date date to check
+     * @return number of effects that have occurred strictly before date
+     */
+    private int countBefore(final AbsoluteDate date) {
+        int low  = 0;
+        int high = entries.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (entries.get(middle).activation.compareTo(date) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** Entry for one effect, holding the cumulative sums up to this effect. */
+    private static class Entry {
+
+        /** Underlying effect. */
+        private final AdapterPropagator.DifferentialEffect effect;
+
+        /** Date after which the effect is applied. */
+        private final AbsoluteDate activation;
+
+        /** Reference date of the effect. */
+        private final AbsoluteDate reference;
+
+        /** Cumulative equinoctial elements change at maneuvers dates. */
+        private final double[] elements;
+
+        /** Cumulative mean longitude drift. */
+        private double lDrift;
+
+        /** Cumulative mean longitude drift times maneuvers dates. */
+        private double lDriftTau;
+
+        /** Cumulative perigee argument + ascending node drift. */
+        private double paRaanDrift;
+
+        /** Cumulative perigee argument + ascending node drift times effects dates. */
+        private double paRaanDriftTau;
+
+        /** Cumulative ascending node drift. */
+        private double raanDrift;
+
+        /** Cumulative ascending node drift times effects dates. */
+        private double raanDriftTau;
+
+        /** Cumulative mass ratio. */
+        private double massRatio;
+
+        /** Indicator for maneuvers up to this entry. */
+        private boolean hasManeuver;
+
+        /** Indicator for J2 differential effects up to this entry. */
+        private boolean hasJ2;
+
+        /** Indicator for effects that can all be combined up to this entry. */
+        private boolean composable;
+
+        /** Simple constructor.
+         * @param effect underlying effect
+         * @param activation date after which the effect is applied
+         * @param reference reference date of the effect
+         */
+        Entry(final AdapterPropagator.DifferentialEffect effect,
+              final AbsoluteDate activation, final AbsoluteDate reference) {
+            this.effect     = effect;
+            this.activation = activation;
+            this.reference  = reference;
+            this.elements   = new double[6];
+        }
+
+        /** Compute the cumulative sums up to this entry.
+         * @param previous previous entry (null for the first entry)
+         * @param epoch reference epoch for cumulative drifts
+         */
+        void accumulate(final Entry previous, final AbsoluteDate epoch) {
+
+            // start from the cumulative sums of the previous entry
+            if (previous == null) {
+                Arrays.fill(elements, 0.0);
+                lDrift         = 0;
+                lDriftTau      = 0;
+                paRaanDrift    = 0;
+                paRaanDriftTau = 0;
+                raanDrift      = 0;
+                raanDriftTau   = 0;
+                massRatio      = 1;
+                hasManeuver    = false;
+                hasJ2          = false;
+                composable     = true;
+            } else {
+                System.arraycopy(previous.elements, 0, elements, 0, elements.length);
+                lDrift         = previous.lDrift;
+                lDriftTau      = previous.lDriftTau;
+                paRaanDrift    = previous.paRaanDrift;
+                paRaanDriftTau = previous.paRaanDriftTau;
+                raanDrift      = previous.raanDrift;
+                raanDriftTau   = previous.raanDriftTau;
+                massRatio      = previous.massRatio;
+                hasManeuver    = previous.hasManeuver;
+                hasJ2          = previous.hasJ2;
+                composable     = previous.composable;
+            }
+
+            // add the contribution of the current effect
+            final double tau = reference.durationFrom(epoch);
+            if (effect instanceof SmallManeuverAnalyticalModel) {
+                final SmallManeuverAnalyticalModel maneuver = (SmallManeuverAnalyticalModel) effect;
+                if (maneuver.getElementsType() == OrbitType.EQUINOCTIAL) {
+                    final double[] delta = maneuver.getElementsChange();
+                    for (int i = 0; i < elements.length; ++i) {
+                        elements[i] += delta[i];
+                    }
+                    lDrift    += maneuver.getMeanAnomalyDrift();
+                    lDriftTau += maneuver.getMeanAnomalyDrift() * tau;
+                } else {
+                    composable = false;
+                }
+                massRatio  *= maneuver.getMassRatio();
+                hasManeuver = true;
+            } else {
+                final J2DifferentialEffect j2 = (J2DifferentialEffect) effect;
+                final double drift = j2.getPerigeeArgumentDrift() + j2.getAscendingNodeDrift();
+                paRaanDrift    += drift;
+                paRaanDriftTau += drift * tau;
+                raanDrift      += j2.getAscendingNodeDrift();
+                raanDriftTau   += j2.getAscendingNodeDrift() * tau;
+                hasJ2           = true;
+            }
+
+        }
+
+        /** Apply the combined effects up to this entry.
+         * @param original original state <em>without</em> the effects
+         * @param epoch reference epoch for cumulative drifts
+         * @return updated state at the same date
+         */
+        SpacecraftState applyCumulative(final SpacecraftState original, final AbsoluteDate epoch) {
+
+            final Orbit        orbit = original.getOrbit();
+            final AbsoluteDate date  = orbit.getDate();
+            final double       tau   = date.durationFrom(epoch);
+
+            // combined maneuvers effect on equinoctial elements
+            EquinoctialOrbit equinoctial = (EquinoctialOrbit) OrbitType.EQUINOCTIAL.convertType(orbit);
+            if (hasManeuver) {
+                final double[] parameters = new double[6];
+                OrbitType.EQUINOCTIAL.mapOrbitToArray(equinoctial, PositionAngle.MEAN, parameters, null);
+                for (int i = 0; i < parameters.length; ++i) {
+                    parameters[i] += elements[i];
+                }
+                parameters[5] += lDrift * tau - lDriftTau;
+                equinoctial = (EquinoctialOrbit) OrbitType.EQUINOCTIAL.mapArrayToOrbit(parameters, null, PositionAngle.MEAN,
+                                                                                       date, orbit.getMu(), orbit.getFrame());
+            }
+
+            // combined J2 differential effects
+            if (hasJ2) {
+                final double dPaRaan = paRaanDrift * tau - paRaanDriftTau;
+                final double cPaRaan = FastMath.cos(dPaRaan);
+                final double sPaRaan = FastMath.sin(dPaRaan);
+                final double dRaan   = raanDrift * tau - raanDriftTau;
+                final double cRaan   = FastMath.cos(dRaan);
+                final double sRaan   = FastMath.sin(dRaan);
+                equinoctial = new EquinoctialOrbit(equinoctial.getA(),
+                                                   equinoctial.getEquinoctialEx() * cPaRaan -
+                                                   equinoctial.getEquinoctialEy() * sPaRaan,
+                                                   equinoctial.getEquinoctialEx() * sPaRaan +
+                                                   equinoctial.getEquinoctialEy() * cPaRaan,
+                                                   equinoctial.getHx() * cRaan - equinoctial.getHy() * sRaan,
+                                                   equinoctial.getHx() * sRaan + equinoctial.getHy() * cRaan,
+                                                   equinoctial.getLv() + dPaRaan, PositionAngle.TRUE,
+                                                   equinoctial.getFrame(), date, equinoctial.getMu());
+            }
+
+            return new SpacecraftState(orbit.getType().convertType(equinoctial),
+                                       original.getAttitude(), massRatio * original.getMass());
+
+        }
+
+    }
+
+}
@@ -173,6 +173,38 @@ public class J2DifferentialEffect
 
     }
 
+    /** Get the reference date.
+     * @return reference date
+     * @since 9.3
+     */
+    public AbsoluteDate getReferenceDate() {
+        return referenceDate;
+    }
+
+    /** Get the differential drift on perigee argument.
+     * @return differential drift on perigee argument (rad/s)
+     * @since 9.3
+     */
+    public double getPerigeeArgumentDrift() {
+        return dPaDot;
+    }
+
+    /** Get the differential drift on ascending node.
+     * @return differential drift on ascending node (rad/s)
+     * @since 9.3
+     */
+    public double getAscendingNodeDrift() {
+        return dRaanDot;
+    }
+
+    /** Check if effect is applied before reference date.
+     * @return true if effect is applied both before and after reference date
+     * @since 9.3
+     */
+    public boolean isAppliedBefore() {
+        return applyBefore;
+    }
+
     /** Compute the effect of the maneuver on an orbit.
      * @param orbit1 original orbit at t₁, without maneuver
      * @return orbit at t₁, taking the maneuver
@@ -0,0 +1,40 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.conversion;
+
+import org.orekit.errors.OrekitException;
+
+/** Interface for monitoring progress of {@link BatchPropagatorConverter batch conversions}.
+ * <p>
+ * The handler is called from the worker threads, as soon as each object conversion
+ * completes, so implementations must be thread-safe.
+ * </p>
+ * @see BatchPropagatorConverter
+ * @since 9.3
+ */
+public interface BatchConversionHandler {
+
+    /** Handle the completion of one object conversion.
+     * @param index index of the object in the batch
+     * @param converter converter used for this object, from which the
+     * {@link AbstractPropagatorConverter#getAdaptedPropagator() adapted propagator}
+     * and fitting statistics can be retrieved when conversion succeeded
+     * @param error error that prevented conversion, or null if conversion succeeded
+     */
+    void conversionCompleted(int index, AbstractPropagatorConverter converter, OrekitException error);
+
+}
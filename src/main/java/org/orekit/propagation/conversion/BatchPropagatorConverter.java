@@ -0,0 +1,242 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.conversion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitExceptionWrapper;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.SpacecraftState;
+
+/** Converter for large batches of objects, sharing a pool of worker threads.
+ * <p>
+ * This class is intended for operational chains that convert many precise
+ * ephemerides (for example to TLE or mean elements) at once. Each object is
+ * registered with its own {@link AbstractPropagatorConverter converter}, its
+ * states sample and its free parameters, and all conversions are then run
+ * concurrently on a fixed-size pool of threads.
+ * </p>
+ * <p>
+ * Failures are isolated: if the conversion of one object fails (propagation
+ * error, maximum number of iterations exceeded...), the error is stored (see
+ * {@link #getError(int)}) and reported to the {@link BatchConversionHandler
+ * progress handler}, but the other objects are not affected.
+ * </p>
+ * <p>
+ * As the conversions run in different threads, the converters must be completely
+ * independent from each other, i.e. they must be built from different propagator
+ * builders. Converters should also be set up to evaluate Jacobians sequentially,
+ * as the parallelism is already provided at object level.
+ * </p>
+ * @see FiniteDifferencePropagatorConverter
+ * @since 9.3
+ */
+public class BatchPropagatorConverter {
+
+    /** Number of threads. */
+    private final int threads;
+
+    /** Registered objects. */
+    private final List<Job> jobs;
+
+    /** Number of completed conversions. */
+    private final AtomicInteger completed;
+
+    /** Simple constructor.
+     * @param threads number of threads to use for running the conversions
+     */
+    public BatchPropagatorConverter(final int threads) {
+        if (threads < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, threads, 1);
+        }
+        this.threads   = threads;
+        this.jobs      = new ArrayList<>();
+        this.completed = new AtomicInteger(0);
+    }
+
+    /** Register an object for conversion.
+     * @param converter converter dedicated to this object
+     * @param states spacecraft states sample to fit
+     * @param positionOnly if true, consider only position data otherwise both position and velocity are used
+     * @param freeParameters names of the free parameters
+     * @return index of the object in the batch
+     */
+    public int addObject(final AbstractPropagatorConverter converter,
+                         final List<SpacecraftState> states,
+                         final boolean positionOnly,
+                         final String... freeParameters) {
+        jobs.add(new Job(converter, states, positionOnly, Arrays.asList(freeParameters)));
+        return jobs.size() - 1;
+    }
+
+    /** Get the number of registered objects.
+     * @return number of registered objects
+     */
+    public int getObjectsNumber() {
+        return jobs.size();
+    }
+
+    /** Get the number of conversions completed (successfully or not) during last run.
+     * <p>
+     * This method can be called from another thread while {@link #convert(BatchConversionHandler)}
+     * is running.
+     * </p>
+     * @return number of conversions completed during last run
+     */
+    public int getCompletedNumber() {
+        return completed.get();
+    }
+
+    /** Get the error that prevented conversion of one object during last run.
+     * @param index index of the object in the batch
+     * @return error that prevented conversion, or null if conversion succeeded
+     */
+    public OrekitException getError(final int index) {
+        return jobs.get(index).error;
+    }
+
+    /** Convert all registered objects.
+     * <p>
+     * This method blocks until all conversions are completed.
+     * </p>
+     * @param handler progress handler (may be null)
+     * @return adapted propagators, in registration order (null for objects
+     * whose conversion failed)
+     * @exception OrekitException if the calling thread is interrupted while waiting
+     */
+    public List<Propagator> convert(final BatchConversionHandler handler)
+        throws OrekitException {
+
+        completed.set(0);
+        final List<Propagator> adapted = new ArrayList<>(jobs.size());
+        if (jobs.isEmpty()) {
+            return adapted;
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(FastMath.min(threads, jobs.size()));
+        try {
+
+            final List<Future<Propagator>> futures = new ArrayList<>(jobs.size());
+            for (int i = 0; i < jobs.size(); ++i) {
+                final int index = i;
+                futures.add(executorService.submit(() -> jobs.get(index).run(index, handler)));
+            }
+
+            for (final Future<Propagator> future : futures) {
+                try {
+                    adapted.add(future.get());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+                } catch (ExecutionException ee) {
+                    // only the progress handler may fail here, conversion errors are isolated
+                    if (ee.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ee.getCause();
+                    } else {
+                        throw new OrekitException(ee.getCause(), LocalizedCoreFormats.SIMPLE_MESSAGE,
+                                                  ee.getCause().getLocalizedMessage());
+                    }
+                }
+            }
+
+            return adapted;
+
+        } finally {
+            executorService.shutdownNow();
+        }
+
+    }
+
+    /** Conversion job for one object. */
+    private class Job {
+
+        /** Converter dedicated to the object. */
+        private final AbstractPropagatorConverter converter;
+
+        /** States sample to fit. */
+        private final List<SpacecraftState> states;
+
+        /** Position use indicator. */
+        private final boolean positionOnly;
+
+        /** Names of the free parameters. */
+        private final List<String> freeParameters;
+
+        /** Error that prevented conversion. */
+        private volatile OrekitException error;
+
+        /** Simple constructor.
+         * @param converter converter dedicated to the object
+         * @param states spacecraft states sample to fit
+         * @param positionOnly if true, consider only position data
+         * @param freeParameters names of the free parameters
+         */
+        Job(final AbstractPropagatorConverter converter, final List<SpacecraftState> states,
+            final boolean positionOnly, final List<String> freeParameters) {
+            this.converter      = converter;
+            this.states         = states;
+            this.positionOnly   = positionOnly;
+            this.freeParameters = freeParameters;
+            this.error          = null;
+        }
+
+        /** Run the conversion.
+         * @param index index of the object in the batch
+         * @param handler progress handler (may be null)
+         * @return adapted propagator, or null if conversion failed
+         */
+        Propagator run(final int index, final BatchConversionHandler handler) {
+
+            Propagator propagator = null;
+            error = null;
+            try {
+                propagator = converter.convert(states, positionOnly, freeParameters);
+            } catch (OrekitException oe) {
+                error = oe;
+            } catch (OrekitExceptionWrapper oew) {
+                error = oew.getException();
+            } catch (MathRuntimeException mre) {
+                error = new OrekitException(mre);
+            } catch (RuntimeException re) {
+                // any other failure is also isolated to this object
+                error = new OrekitException(re, LocalizedCoreFormats.SIMPLE_MESSAGE, re.getLocalizedMessage());
+            }
+
+            completed.incrementAndGet();
+            if (handler != null) {
+                handler.conversionCompleted(index, converter, error);
+            }
+
+            return propagator;
+
+        }
+
+    }
+
+}
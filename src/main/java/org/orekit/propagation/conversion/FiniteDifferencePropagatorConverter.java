@@ -16,7 +16,16 @@
  */
 package org.orekit.propagation.conversion;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.hipparchus.analysis.MultivariateVectorFunction;
+import org.hipparchus.exception.LocalizedCoreFormats;
 import org.hipparchus.linear.MatrixUtils;
 import org.hipparchus.linear.RealMatrix;
 import org.hipparchus.linear.RealVector;
@@ -24,11 +33,27 @@ import org.hipparchus.optim.nonlinear.vector.leastsquares.MultivariateJacobianFu
 import org.hipparchus.util.Pair;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitExceptionWrapper;
+import org.orekit.errors.OrekitIllegalArgumentException;
 import org.orekit.propagation.Propagator;
 import org.orekit.propagation.SpacecraftState;
 import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.ParameterDriver;
 
 /** Propagator converter using finite differences to compute the Jacobian.
+ * <p>
+ * Each Jacobian evaluation requires one propagation for the nominal parameters
+ * and one propagation for each perturbed parameter. These propagations are
+ * independent from each other, so they can be run concurrently by setting a number
+ * of threads greater than 1 at construction. As building a propagator changes the
+ * values of the builder parameters drivers, propagators are always built sequentially
+ * and only the evaluations at sample points are run in parallel. If some propagation
+ * parameters (typically force models parameters) are free, their values are read
+ * during propagation, so evaluations are run sequentially regardless of the number
+ * of threads. When parallel evaluations are used with numerical propagators, the
+ * force models are shared by all the propagators built, so they must be thread-safe.
+ * The threads are created once at the start of each conversion and reused for all
+ * Jacobian evaluations of this conversion.
+ * </p>
  * @author Pascal Parraud
  * @since 6.0
  */
@@ -37,7 +62,16 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
     /** Propagator builder. */
     private final PropagatorBuilder builder;
 
+    /** Number of threads for Jacobian evaluation. */
+    private final int threads;
+
+    /** Executor for parallel Jacobian evaluations (non-null only during a conversion). */
+    private ExecutorService executorService;
+
     /** Simple constructor.
+     * <p>
+     * This constructor evaluates Jacobians sequentially.
+     * </p>
      * @param factory builder for adapted propagator
      * @param threshold absolute threshold for optimization algorithm
      * @param maxIterations maximum number of iterations for fitting
@@ -45,8 +79,76 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
     public FiniteDifferencePropagatorConverter(final PropagatorBuilder factory,
                                                final double threshold,
                                                final int maxIterations) {
+        this(factory, threshold, maxIterations, 1);
+    }
+
+    /** Simple constructor.
+     * @param factory builder for adapted propagator
+     * @param threshold absolute threshold for optimization algorithm
+     * @param maxIterations maximum number of iterations for fitting
+     * @param threads number of threads to use for evaluating the Jacobian
+     * columns (1 means sequential evaluation)
+     * @since 9.3
+     */
+    public FiniteDifferencePropagatorConverter(final PropagatorBuilder factory,
+                                               final double threshold,
+                                               final int maxIterations,
+                                               final int threads) {
         super(factory, threshold, maxIterations);
+        if (threads < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, threads, 1);
+        }
         this.builder = factory;
+        this.threads = threads;
+    }
+
+    /** Get the number of threads used for evaluating the Jacobian columns.
+     * @return number of threads used for evaluating the Jacobian columns
+     * @since 9.3
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Propagator convert(final List<SpacecraftState> states,
+                              final boolean positionOnly,
+                              final List<String> freeParameters)
+        throws OrekitException, IllegalArgumentException {
+        startExecutor();
+        try {
+            return super.convert(states, positionOnly, freeParameters);
+        } finally {
+            stopExecutor();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Propagator convert(final List<SpacecraftState> states,
+                              final boolean positionOnly,
+                              final String... freeParameters)
+        throws OrekitException, IllegalArgumentException {
+        startExecutor();
+        try {
+            return super.convert(states, positionOnly, freeParameters);
+        } finally {
+            stopExecutor();
+        }
+    }
+
+    /** Start the executor shared by all Jacobian evaluations of one conversion. */
+    private void startExecutor() {
+        executorService = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
+
+    /** Stop the executor at the end of a conversion. */
+    private void stopExecutor() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
     }
 
     /** {@inheritDoc} */
@@ -59,6 +161,40 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
         return new ObjectiveFunctionJacobian();
     }
 
+    /** Evaluate position/velocity at sample points.
+     * @param propagator propagator to use
+     * @return position/velocity at sample points
+     * @exception OrekitException if propagation fails
+     */
+    private double[] evaluate(final Propagator propagator) throws OrekitException {
+        final double[] eval = new double[getTargetSize()];
+        int k = 0;
+        for (SpacecraftState state : getSample()) {
+            final PVCoordinates pv = propagator.getPVCoordinates(state.getDate(), getFrame());
+            eval[k++] = pv.getPosition().getX();
+            eval[k++] = pv.getPosition().getY();
+            eval[k++] = pv.getPosition().getZ();
+            if (!isOnlyPosition()) {
+                eval[k++] = pv.getVelocity().getX();
+                eval[k++] = pv.getVelocity().getY();
+                eval[k++] = pv.getVelocity().getZ();
+            }
+        }
+        return eval;
+    }
+
+    /** Check if some propagation parameters are free.
+     * @return true if some propagation parameters are free
+     */
+    private boolean hasFreePropagationParameters() {
+        for (final ParameterDriver driver : builder.getPropagationParametersDrivers().getDrivers()) {
+            if (driver.isSelected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** Internal class for computing position/velocity at sample points. */
     private class ObjectiveFunction implements MultivariateVectorFunction {
 
@@ -66,26 +202,7 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
         public double[] value(final double[] arg)
             throws IllegalArgumentException, OrekitExceptionWrapper {
             try {
-                final Propagator propagator = builder.buildPropagator(arg);
-                final double[] eval = new double[getTargetSize()];
-                int k = 0;
-                for (SpacecraftState state : getSample()) {
-                    final PVCoordinates pv = propagator.getPVCoordinates(state.getDate(), getFrame());
-                    if (Double.isNaN(pv.getMomentum().getNorm())) {
-                        propagator.getPVCoordinates(state.getDate(), getFrame());
-                    }
-                    eval[k++] = pv.getPosition().getX();
-                    eval[k++] = pv.getPosition().getY();
-                    eval[k++] = pv.getPosition().getZ();
-                    if (!isOnlyPosition()) {
-                        eval[k++] = pv.getVelocity().getX();
-                        eval[k++] = pv.getVelocity().getY();
-                        eval[k++] = pv.getVelocity().getZ();
-                    }
-                }
-
-                return eval;
-
+                return evaluate(builder.buildPropagator(arg));
             } catch (OrekitException ex) {
                 throw new OrekitExceptionWrapper(ex);
             }
@@ -100,15 +217,24 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
             throws IllegalArgumentException, OrekitExceptionWrapper {
 
             final double[] arg = point.toArray();
-            final MultivariateVectorFunction f = new ObjectiveFunction();
 
+            // evaluate nominal and perturbed parameters
+            final double[][] evals;
+            if (executorService != null && !hasFreePropagationParameters()) {
+                evals = parallelEvaluations(arg);
+            } else {
+                final MultivariateVectorFunction f = new ObjectiveFunction();
+                evals = new double[arg.length + 1][];
+                evals[0] = f.value(arg);
+                for (int j = 0; j < arg.length; j++) {
+                    evals[j + 1] = f.value(perturbed(arg, j));
+                }
+            }
+
+            final double[] eval = evals[0];
             final double[][] jacob = new double[getTargetSize()][arg.length];
-            final double[] eval = f.value(arg);
-            final double[] arg1 = new double[arg.length];
             for (int j = 0; j < arg.length; j++) {
-                System.arraycopy(arg, 0, arg1, 0, arg.length);
-                arg1[j] += 1;
-                final double[] eval1 = f.value(arg1);
+                final double[] eval1 = evals[j + 1];
                 for (int t = 0; t < eval.length; t++) {
                     jacob[t][j] = eval1[t] - eval[t];
                 }
@@ -119,7 +245,71 @@ public class FiniteDifferencePropagatorConverter extends AbstractPropagatorConve
 
         }
 
+        /** Build parameters with one perturbed component.
+         * @param arg nominal parameters
+         * @param j index of the perturbed component
+         * @return perturbed parameters
+         */
+        private double[] perturbed(final double[] arg, final int j) {
+            final double[] arg1 = arg.clone();
+            arg1[j] += 1;
+            return arg1;
+        }
+
+        /** Evaluate nominal and perturbed parameters in parallel.
+         * @param arg nominal parameters
+         * @return evaluations for nominal parameters (at index 0) and for parameters
+         * with component j perturbed (at index j + 1)
+         * @exception OrekitExceptionWrapper if propagators cannot be built or run
+         */
+        private double[][] parallelEvaluations(final double[] arg)
+            throws OrekitExceptionWrapper {
+
+            // building propagators changes parameters drivers values, it must be sequential
+            final List<Propagator> propagators = new ArrayList<>(arg.length + 1);
+            try {
+                propagators.add(builder.buildPropagator(arg));
+                for (int j = 0; j < arg.length; j++) {
+                    propagators.add(builder.buildPropagator(perturbed(arg, j)));
+                }
+            } catch (OrekitException oe) {
+                throw new OrekitExceptionWrapper(oe);
+            }
+
+            // the propagations themselves are independent
+            final List<Future<double[]>> futures = new ArrayList<>(propagators.size());
+            try {
+                for (final Propagator propagator : propagators) {
+                    futures.add(executorService.submit((Callable<double[]>) () -> evaluate(propagator)));
+                }
+                final double[][] evals = new double[propagators.size()][];
+                for (int j = 0; j < evals.length; ++j) {
+                    try {
+                        evals[j] = futures.get(j).get();
+                    } catch (InterruptedException | ExecutionException e) {
+                        if (e instanceof InterruptedException) {
+                            Thread.currentThread().interrupt();
+                        }
+                        if (e.getCause() instanceof OrekitException) {
+                            throw new OrekitExceptionWrapper((OrekitException) e.getCause());
+                        } else if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) e.getCause();
+                        } else {
+                            throw new OrekitExceptionWrapper(new OrekitException(e, LocalizedCoreFormats.SIMPLE_MESSAGE,
+                                                                                 e.getLocalizedMessage()));
+                        }
+                    }
+                }
+                return evals;
+            } finally {
+                // the executor is reused by the next evaluations, only cancel the pending ones
+                for (final Future<double[]> future : futures) {
+                    future.cancel(true);
+                }
+            }
+
+        }
+
     }
 
 }
-
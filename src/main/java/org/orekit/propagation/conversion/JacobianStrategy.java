@@ -0,0 +1,59 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.conversion;
+
+/** Enumerate for the strategies used to compute Jacobians of the orbital state.
+ * <p>
+ * The Jacobians of the current orbital state with respect to the initial orbital
+ * state (i.e. the state transition matrix) and with respect to the propagation
+ * parameters are needed by orbit determination. Computing them accurately requires
+ * integrating the variational equations alongside the orbit, which is several times
+ * more expensive than the plain propagation. Less accurate strategies may be used
+ * to trade Jacobian accuracy for speed, typically for low accuracy screening or
+ * when the initial guess is already close to the solution. As the Jacobians only
+ * drive the corrections, the converged solution is not changed by the strategy as
+ * long as the iterations converge.
+ * </p>
+ * @see NumericalPropagatorBuilder#setJacobianStrategy(JacobianStrategy)
+ * @since 9.3
+ */
+public enum JacobianStrategy {
+
+    /** Integrate the full variational equations at each evaluation (default). */
+    VARIATIONAL_EQUATIONS,
+
+    /** Integrate the variational equations at first evaluation only.
+     * <p>
+     * The Jacobians computed at first evaluation are frozen and reused for
+     * all subsequent evaluations, which only perform plain propagations. All
+     * measurements enabled in subsequent evaluations must therefore already
+     * be enabled at first evaluation.
+     * </p>
+     */
+    FROZEN_VARIATIONAL_EQUATIONS,
+
+    /** Use an analytical Keplerian state transition matrix.
+     * <p>
+     * The state transition matrix is computed from the Keplerian motion linearized
+     * around the current orbits, without integrating any variational equations.
+     * As no Jacobians with respect to propagation parameters are available,
+     * estimating propagation parameters with this strategy triggers an error.
+     * </p>
+     */
+    KEPLERIAN;
+
+}
@@ -49,6 +49,9 @@ public class NumericalPropagatorBuilder extends AbstractPropagatorBuilder {
     /** Attitude provider. */
     private AttitudeProvider attProvider;
 
+    /** Strategy for Jacobians computation in orbit determination. */
+    private JacobianStrategy jacobianStrategy;
+
     /** Build a new instance.
      * <p>
      * The reference orbit is used as a model to {@link
@@ -72,10 +75,11 @@ public class NumericalPropagatorBuilder extends AbstractPropagatorBuilder {
                                       final double positionScale)
         throws OrekitException {
         super(referenceOrbit, positionAngle, positionScale, true);
-        this.builder     = builder;
-        this.forceModels = new ArrayList<ForceModel>();
-        this.mass        = Propagator.DEFAULT_MASS;
-        this.attProvider = Propagator.DEFAULT_LAW;
+        this.builder          = builder;
+        this.forceModels      = new ArrayList<ForceModel>();
+        this.mass             = Propagator.DEFAULT_MASS;
+        this.attProvider      = Propagator.DEFAULT_LAW;
+        this.jacobianStrategy = JacobianStrategy.VARIATIONAL_EQUATIONS;
     }
 
     /** Create a copy of a NumericalPropagatorBuilder object.
@@ -90,6 +94,7 @@ public class NumericalPropagatorBuilder extends AbstractPropagatorBuilder {
                                                        getPositionScale());
         copyBuilder.setAttitudeProvider(attProvider);
         copyBuilder.setMass(mass);
+        copyBuilder.setJacobianStrategy(jacobianStrategy);
         for (ForceModel model : forceModels) {
             copyBuilder.addForceModel(model);
         }
@@ -160,6 +165,27 @@ public class NumericalPropagatorBuilder extends AbstractPropagatorBuilder {
         this.attProvider = attitudeProvider;
     }
 
+    /** Get the strategy for Jacobians computation in orbit determination.
+     * @return strategy for Jacobians computation
+     * @since 9.3
+     */
+    public JacobianStrategy getJacobianStrategy() {
+        return jacobianStrategy;
+    }
+
+    /** Set the strategy for Jacobians computation in orbit determination.
+     * <p>
+     * The default strategy is {@link JacobianStrategy#VARIATIONAL_EQUATIONS}.
+     * This setting is used by {@link org.orekit.estimation.leastsquares.BatchLSEstimator
+     * batch least squares} orbit determination.
+     * </p>
+     * @param jacobianStrategy strategy for Jacobians computation
+     * @since 9.3
+     */
+    public void setJacobianStrategy(final JacobianStrategy jacobianStrategy) {
+        this.jacobianStrategy = jacobianStrategy;
+    }
+
     /** {@inheritDoc} */
     public NumericalPropagator buildPropagator(final double[] normalizedParameters)
         throws OrekitException {
@@ -350,15 +350,76 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
         integrator.addStepHandler(ephemeris);
     }
 
+    /** Set the propagator to compact ephemeris generation mode.
+     * <p>
+     * This mode is similar to the {@link #setEphemerisMode() ephemeris generation mode},
+     * but instead of keeping all integrator steps interpolators in memory, the steps are
+     * fitted with Chebyshev polynomials stored in primitive arrays, which can be spilled
+     * to disk. This is intended for very long ephemerides, or ephemerides including large
+     * additional states like partial derivatives. The generated ephemeris is available
+     * through {@link #getGeneratedEphemeris()} as in regular ephemeris generation mode.
+     * </p>
+     * <p>Note that this method has the side effect of replacing the step handlers
+     * of the underlying integrator set up in the {@link
+     * #AbstractIntegratedPropagator(ODEIntegrator, boolean) constructor}.</p>
+     * <p>
+     * The {@code store} parameter only defines the configuration (degree, page size,
+     * memory window and spill directory). Each propagation fills a new store with
+     * this configuration, which belongs to the generated ephemeris, so ephemerides
+     * generated by previous propagations remain valid. Stores that spill pages
+     * to disk should be released by {@link CompactIntegratedEphemeris#close() closing}
+     * the ephemeris once it is not needed anymore.
+     * </p>
+     * @param store configuration for the integration steps stores
+     * @since 9.3
+     */
+    public void setCompactEphemerisMode(final CompactStepsStore store) {
+        super.setEphemerisMode();
+        integrator.clearStepHandlers();
+        final CompactEphemerisModeHandler ephemeris = new CompactEphemerisModeHandler(store);
+        modeHandler = ephemeris;
+        integrator.addStepHandler(ephemeris);
+    }
+
     /** {@inheritDoc} */
     public BoundedPropagator getGeneratedEphemeris()
         throws IllegalStateException {
         if (getMode() != EPHEMERIS_GENERATION_MODE) {
             throw new OrekitIllegalStateException(OrekitMessages.PROPAGATOR_NOT_IN_EPHEMERIS_GENERATION_MODE);
         }
+        if (modeHandler instanceof CompactEphemerisModeHandler) {
+            return ((CompactEphemerisModeHandler) modeHandler).getEphemeris();
+        }
         return ((EphemerisModeHandler) modeHandler).getEphemeris();
     }
 
+    /** Get the initial additional states that are not managed.
+     * @return initial additional states that are not managed
+     * @exception OrekitException if initial state cannot be retrieved
+     */
+    private Map<String, double[]> getUnmanagedInitialStates() throws OrekitException {
+        final Map<String, double[]> unmanaged = new HashMap<String, double[]>();
+        for (final Map.Entry<String, double[]> initial : getInitialState().getAdditionalStates().entrySet()) {
+            if (!isAdditionalStateManaged(initial.getKey())) {
+                // this additional state was in the initial state, but is unknown to the propagator
+                // we simply copy its initial value as is
+                unmanaged.put(initial.getKey(), initial.getValue());
+            }
+        }
+        return unmanaged;
+    }
+
+    /** Get the names of additional states managed by differential equations.
+     * @return names of additional states managed by differential equations
+     */
+    private String[] getAdditionalEquationsNames() {
+        final String[] names = new String[additionalEquations.size()];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = additionalEquations.get(i).getName();
+        }
+        return names;
+    }
+
     /** Create a mapper between raw double components and spacecraft state.
     /** Simple constructor.
      * <p>
@@ -379,6 +440,22 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
                                                 OrbitType orbitType, PositionAngle positionAngleType,
                                                 AttitudeProvider attitudeProvider, Frame frame);
 
+    /** Get the attitude provider to use when computing main state derivatives.
+     * <p>
+     * The default implementation returns the regular attitude provider. Propagators
+     * whose main state derivatives do not depend on attitude can override this
+     * method and return a cheaper provider. The regular provider is still used for
+     * all states seen by users (step handlers, events detectors, additional equations
+     * and final state).
+     * </p>
+     * @param initialState initial state of the integration
+     * @return attitude provider to use when computing main state derivatives
+     * @since 9.3
+     */
+    protected AttitudeProvider getAttitudeProviderForDerivatives(final SpacecraftState initialState) {
+        return stateMapper.getAttitudeProvider();
+    }
+
     /** Get the differential equations to integrate (for main state only).
      * @param integ numerical integrator to use for propagation.
      * @return differential equations for main state
@@ -661,11 +738,15 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
         /** Main state equations. */
         private final MainStateEquations main;
 
+        /** Mapper to use when computing derivatives. */
+        private StateMapper derivativesMapper;
+
         /** Simple constructor.
          * @param main main state equations
          */
         ConvertedMainStateEquations(final MainStateEquations main) {
-            this.main = main;
+            this.main              = main;
+            this.derivativesMapper = stateMapper;
             calls = 0;
         }
 
@@ -682,6 +763,14 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
                 initialState = updateAdditionalStates(initialState);
                 final AbsoluteDate target = stateMapper.mapDoubleToDate(finalTime);
                 main.init(initialState, target);
+
+                // select the mapper to use when computing derivatives
+                final AttitudeProvider provider = getAttitudeProviderForDerivatives(initialState);
+                derivativesMapper = (provider == stateMapper.getAttitudeProvider()) ?
+                                    stateMapper :
+                                    createMapper(stateMapper.getReferenceDate(), stateMapper.getMu(),
+                                                 stateMapper.getOrbitType(), stateMapper.getPositionAngleType(),
+                                                 provider, stateMapper.getFrame());
             } catch (OrekitException oe) {
                 throw new OrekitExceptionWrapper(oe);
             }
@@ -696,7 +785,7 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
                 ++calls;
 
                 // update space dynamics view
-                SpacecraftState currentState = stateMapper.mapArrayToState(t, y, null, true);
+                SpacecraftState currentState = derivativesMapper.mapArrayToState(t, y, null, true);
                 currentState = updateAdditionalStates(currentState);
 
                 // compute main state differentials
@@ -1141,26 +1230,12 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
                             maxDate = finalDate;
                         }
 
-                        // get the initial additional states that are not managed
-                        final Map<String, double[]> unmanaged = new HashMap<String, double[]>();
-                        for (final Map.Entry<String, double[]> initial : getInitialState().getAdditionalStates().entrySet()) {
-                            if (!isAdditionalStateManaged(initial.getKey())) {
-                                // this additional state was in the initial state, but is unknown to the propagator
-                                // we simply copy its initial value as is
-                                unmanaged.put(initial.getKey(), initial.getValue());
-                            }
-                        }
-
-                        // get the names of additional states managed by differential equations
-                        final String[] names = new String[additionalEquations.size()];
-                        for (int i = 0; i < names.length; ++i) {
-                            names[i] = additionalEquations.get(i).getName();
-                        }
-
                         // create the ephemeris
                         ephemeris = new IntegratedEphemeris(startDate, minDate, maxDate,
-                                                            stateMapper, meanOrbit, model, unmanaged,
-                                                            getAdditionalStateProviders(), names);
+                                                            stateMapper, meanOrbit, model,
+                                                            getUnmanagedInitialStates(),
+                                                            getAdditionalStateProviders(),
+                                                            getAdditionalEquationsNames());
 
                     }
                 }
@@ -1179,4 +1254,118 @@ public abstract class AbstractIntegratedPropagator extends AbstractPropagator {
 
     }
 
+    /** Specialized step handler storing compact interpolators for ephemeris generation.
+     * @since 9.3
+     */
+    private class CompactEphemerisModeHandler implements ModeHandler, ODEStepHandler {
+
+        /** Configuration for the integration steps stores. */
+        private final CompactStepsStore prototype;
+
+        /** Store for the integration steps of the current propagation. */
+        private CompactStepsStore store;
+
+        /** Generated ephemeris. */
+        private BoundedPropagator ephemeris;
+
+        /** Flag for handler . */
+        private boolean activate;
+
+        /** the user supplied end date. Propagation may not end on this date. */
+        private AbsoluteDate endDate;
+
+        /** Offsets of additional states in complete state. */
+        private int[] offsets;
+
+        /** Dimensions of additional states. */
+        private int[] dimensions;
+
+        /** Dimension of primary state. */
+        private int primaryDimension;
+
+        /** Creates a new instance of CompactEphemerisModeHandler which must be
+         *  filled by the propagator.
+         * @param prototype configuration for the integration steps stores
+         */
+        CompactEphemerisModeHandler(final CompactStepsStore prototype) {
+            this.prototype = prototype;
+        }
+
+        /** {@inheritDoc} */
+        public void initialize(final boolean activateHandlers,
+                               final AbsoluteDate targetDate) {
+            this.activate = activateHandlers;
+            this.endDate  = targetDate;
+
+            // ephemeris will be generated when last step is processed
+            this.ephemeris = null;
+        }
+
+        /** Get the generated ephemeris.
+         * @return a new instance of the generated ephemeris
+         */
+        public BoundedPropagator getEphemeris() {
+            return ephemeris;
+        }
+
+        /** {@inheritDoc} */
+        public void init(final ODEStateAndDerivative s0, final double t) {
+
+            // set up the layout of the complete state
+            primaryDimension = s0.getPrimaryStateDimension();
+            offsets          = new int[additionalEquations.size()];
+            dimensions       = new int[additionalEquations.size()];
+            int offset = primaryDimension;
+            for (int i = 0; i < offsets.length; ++i) {
+                offsets[i]    = offset;
+                dimensions[i] = s0.getSecondaryStateDimension(i + 1);
+                offset       += dimensions[i];
+            }
+
+            // each propagation has its own store, owned by the ephemeris it generates
+            store = prototype.newStore(offset);
+
+        }
+
+        /** {@inheritDoc} */
+        public void handleStep(final ODEStateInterpolator interpolator, final boolean isLast)
+            throws OrekitExceptionWrapper {
+            try {
+                if (activate) {
+
+                    store.add(interpolator);
+                    if (isLast) {
+
+                        // set up the boundary dates
+                        final double tI = store.getStartTime();
+                        final double tF = store.getEndTime();
+                        final AbsoluteDate startDate = stateMapper.mapDoubleToDate(tI);
+                        final AbsoluteDate finalDate = stateMapper.mapDoubleToDate(tF, this.endDate);
+                        final AbsoluteDate minDate;
+                        final AbsoluteDate maxDate;
+                        if (tF < tI) {
+                            minDate = finalDate;
+                            maxDate = startDate;
+                        } else {
+                            minDate = startDate;
+                            maxDate = finalDate;
+                        }
+
+                        // create the ephemeris
+                        ephemeris = new CompactIntegratedEphemeris(minDate, maxDate, stateMapper, meanOrbit,
+                                                                   store, primaryDimension,
+                                                                   getUnmanagedInitialStates(),
+                                                                   getAdditionalStateProviders(),
+                                                                   getAdditionalEquationsNames(),
+                                                                   offsets, dimensions);
+
+                    }
+                }
+            } catch (OrekitException oe) {
+                throw new OrekitExceptionWrapper(oe);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,265 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.integration;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.orbits.Orbit;
+import org.orekit.propagation.AdditionalStateProvider;
+import org.orekit.propagation.BoundedPropagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.analytical.AbstractAnalyticalPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/** Ephemeris built from integration steps stored in a {@link CompactStepsStore}.
+ * <p>
+ * This class is the counterpart of {@link IntegratedEphemeris} for the {@link
+ * AbstractIntegratedPropagator#setCompactEphemerisMode(CompactStepsStore) compact
+ * ephemeris generation mode}. It is created by the propagator and provides the same
+ * services, but its memory footprint is bounded by the store settings. It is not
+ * serializable, as the store may be backed by a temporary file.
+ * </p>
+ * <p>
+ * Each ephemeris owns its store, so it remains valid when the propagator that
+ * generated it is used again. If the store spills pages to disk, the ephemeris
+ * should be {@link #close() closed} once it is not needed anymore, so the
+ * temporary file is deleted.
+ * </p>
+ * @see CompactStepsStore
+ * @see IntegratedEphemeris
+ * @since 9.3
+ */
+public class CompactIntegratedEphemeris
+    extends AbstractAnalyticalPropagator implements BoundedPropagator, Closeable {
+
+    /** Event detection requires evaluating the state slightly before / past an event. */
+    private static final double EXTRAPOLATION_TOLERANCE = 1.0;
+
+    /** Mapper between raw double components and spacecraft state. */
+    private final StateMapper mapper;
+
+    /** Output only the mean orbit. */
+    private final boolean meanOrbit;
+
+    /** First date of the range. */
+    private final AbsoluteDate minDate;
+
+    /** Last date of the range. */
+    private final AbsoluteDate maxDate;
+
+    /** Store for integration steps. */
+    private final CompactStepsStore store;
+
+    /** Dimension of the primary state. */
+    private final int primaryDimension;
+
+    /** Unmanaged additional states that must be simply copied. */
+    private final Map<String, double[]> unmanaged;
+
+    /** Creates a new instance of CompactIntegratedEphemeris.
+     * @param minDate first date of the range
+     * @param maxDate last date of the range
+     * @param mapper mapper between raw double components and spacecraft state
+     * @param meanOrbit output only the mean orbit
+     * @param store store for integration steps
+     * @param primaryDimension dimension of the primary state
+     * @param unmanaged unmanaged additional states that must be simply copied
+     * @param providers providers for pre-integrated states
+     * @param equations names of additional equations
+     * @param offsets offsets of additional equations in the complete state
+     * @param dimensions dimensions of additional equations
+     * @exception OrekitException if several providers have the same name
+     */
+    CompactIntegratedEphemeris(final AbsoluteDate minDate, final AbsoluteDate maxDate,
+                               final StateMapper mapper, final boolean meanOrbit,
+                               final CompactStepsStore store, final int primaryDimension,
+                               final Map<String, double[]> unmanaged,
+                               final List<AdditionalStateProvider> providers,
+                               final String[] equations, final int[] offsets, final int[] dimensions)
+        throws OrekitException {
+
+        super(mapper.getAttitudeProvider());
+
+        this.minDate          = minDate;
+        this.maxDate          = maxDate;
+        this.mapper           = mapper;
+        this.meanOrbit        = meanOrbit;
+        this.store            = store;
+        this.primaryDimension = primaryDimension;
+        this.unmanaged        = unmanaged;
+
+        // set up the pre-integrated providers
+        for (final AdditionalStateProvider provider : providers) {
+            addAdditionalStateProvider(provider);
+        }
+
+        // set up providers to map the final elements of the stored state to additional states
+        for (int i = 0; i < equations.length; ++i) {
+            addAdditionalStateProvider(new LocalProvider(equations[i], offsets[i], dimensions[i]));
+        }
+
+    }
+
+    /** Check a date is within the supported range.
+     * @param date date to check
+     * @return time corresponding to the date
+     * @exception OrekitException if specified date is outside of supported range
+     */
+    private double checkDate(final AbsoluteDate date) throws OrekitException {
+        if (date.compareTo(minDate.shiftedBy(-EXTRAPOLATION_TOLERANCE)) < 0 ||
+            date.compareTo(maxDate.shiftedBy(EXTRAPOLATION_TOLERANCE)) > 0 ) {
+            // date is outside of supported range
+            throw new OrekitException(OrekitMessages.OUT_OF_RANGE_EPHEMERIDES_DATE,
+                                      date, minDate, maxDate);
+        }
+        return mapper.mapDateToDouble(date);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected SpacecraftState basicPropagate(final AbsoluteDate date)
+        throws OrekitException {
+        final double   t    = checkDate(date);
+        final double[] y    = new double[primaryDimension];
+        final double[] yDot = new double[primaryDimension];
+        store.evaluate(t, 0, primaryDimension, y, yDot);
+        SpacecraftState state = mapper.mapArrayToState(mapper.mapDoubleToDate(t, date), y, yDot, meanOrbit);
+        for (Map.Entry<String, double[]> initial : unmanaged.entrySet()) {
+            state = state.addAdditionalState(initial.getKey(), initial.getValue());
+        }
+        return state;
+    }
+
+    /** {@inheritDoc} */
+    protected Orbit propagateOrbit(final AbsoluteDate date)
+        throws OrekitException {
+        return basicPropagate(date).getOrbit();
+    }
+
+    /** {@inheritDoc} */
+    protected double getMass(final AbsoluteDate date) throws OrekitException {
+        return basicPropagate(date).getMass();
+    }
+
+    /** {@inheritDoc} */
+    public TimeStampedPVCoordinates getPVCoordinates(final AbsoluteDate date, final Frame frame)
+        throws OrekitException {
+        return propagate(date).getPVCoordinates(frame);
+    }
+
+    /** Get the first date of the range.
+     * @return the first date of the range
+     */
+    public AbsoluteDate getMinDate() {
+        return minDate;
+    }
+
+    /** Get the last date of the range.
+     * @return the last date of the range
+     */
+    public AbsoluteDate getMaxDate() {
+        return maxDate;
+    }
+
+    @Override
+    public Frame getFrame() {
+        return this.mapper.getFrame();
+    }
+
+    /** Get the store holding the integration steps.
+     * @return store holding the integration steps
+     */
+    public CompactStepsStore getStore() {
+        return store;
+    }
+
+    /** Release the resources held by the underlying store.
+     * <p>
+     * The ephemeris cannot be used anymore after this call, any attempt
+     * to propagate it triggers an {@link org.orekit.errors.OrekitIllegalStateException}.
+     * </p>
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    /** {@inheritDoc} */
+    public void resetInitialState(final SpacecraftState state)
+        throws OrekitException {
+        throw new OrekitException(OrekitMessages.NON_RESETABLE_STATE);
+    }
+
+    /** {@inheritDoc} */
+    protected void resetIntermediateState(final SpacecraftState state, final boolean forward)
+        throws OrekitException {
+        throw new OrekitException(OrekitMessages.NON_RESETABLE_STATE);
+    }
+
+    /** {@inheritDoc} */
+    public SpacecraftState getInitialState() throws OrekitException {
+        return updateAdditionalStates(basicPropagate(getMinDate()));
+    }
+
+    /** Local provider for additional state data. */
+    private class LocalProvider implements AdditionalStateProvider {
+
+        /** Name of the additional state. */
+        private final String name;
+
+        /** Offset of the additional state in the complete state. */
+        private final int offset;
+
+        /** Dimension of the additional state. */
+        private final int dimension;
+
+        /** Simple constructor.
+         * @param name name of the additional state
+         * @param offset offset of the additional state in the complete state
+         * @param dimension dimension of the additional state
+         */
+        LocalProvider(final String name, final int offset, final int dimension) {
+            this.name      = name;
+            this.offset    = offset;
+            this.dimension = dimension;
+        }
+
+        /** {@inheritDoc} */
+        public String getName() {
+            return name;
+        }
+
+        /** {@inheritDoc} */
+        public double[] getAdditionalState(final SpacecraftState state)
+            throws OrekitException {
+
+            // extract the part of the stored state corresponding to the additional state
+            final double[] additional = new double[dimension];
+            store.evaluate(checkDate(state.getDate()), offset, dimension, additional, null);
+            return additional;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,444 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.integration;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.ode.sampling.ODEStateInterpolator;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitIllegalStateException;
+import org.orekit.errors.OrekitMessages;
+
+/** Memory-bounded store for integration steps, used in {@link
+ * AbstractIntegratedPropagator#setCompactEphemerisMode(CompactStepsStore)
+ * compact ephemeris generation mode}.
+ * <p>
+ * Instead of keeping the integrator step interpolators, with all their internal
+ * stage arrays, each step is fitted with Chebyshev polynomials at Chebyshev nodes,
+ * for all components of the integrated state, including additional equations
+ * like partial derivatives. Only the polynomials coefficients are kept, in
+ * primitive arrays gathered in pages. When the degree is at least the degree of
+ * the integrator dense output (7 for {@link
+ * org.hipparchus.ode.nonstiff.DormandPrince853Integrator Dormand-Prince 8(5,3)}),
+ * the fit reproduces the integrator interpolation up to numerical noise.
+ * </p>
+ * <p>
+ * If a spill directory is provided, at most a configured number of pages are
+ * kept in memory. Older pages are written to a temporary file and read back on
+ * demand, with a least recently used policy for the in-memory window. The
+ * temporary file is deleted when the store is {@link #close() closed}. A closed
+ * store cannot be used anymore, neither for storing nor for evaluating steps.
+ * </p>
+ * <p>
+ * The instance provided to the propagator is only used as a configuration: each
+ * propagation fills a new store with the same settings, which is owned by the
+ * generated ephemeris and can be retrieved using {@link
+ * CompactIntegratedEphemeris#getStore()}.
+ * </p>
+ * @see CompactIntegratedEphemeris
+ * @since 9.3
+ */
+public class CompactStepsStore implements Closeable {
+
+    /** Default number of steps per page. */
+    public static final int DEFAULT_STEPS_PER_PAGE = 256;
+
+    /** Number of Chebyshev nodes (degree + 1). */
+    private final int nbNodes;
+
+    /** Number of steps per page. */
+    private final int stepsPerPage;
+
+    /** Maximum number of pages kept in memory. */
+    private final int pagesInMemory;
+
+    /** Directory for spilled pages (null if pages are never spilled). */
+    private final File spillDirectory;
+
+    /** Chebyshev nodes on [-1, 1]. */
+    private final double[] nodes;
+
+    /** Fitting matrix: cos(π k (j + ½) / n) scaled by 1/n or 2/n. */
+    private final double[][] fit;
+
+    /** Dimension of the stored state. */
+    private int dimension;
+
+    /** Number of stored steps. */
+    private int nbSteps;
+
+    /** Start and end times of all steps. */
+    private double[] bounds;
+
+    /** Page currently filled. */
+    private double[] current;
+
+    /** Index of the page currently filled. */
+    private int currentIndex;
+
+    /** Full pages held in memory, in access order. */
+    private final Map<Integer, double[]> resident;
+
+    /** Indicator for pages already written to disk. */
+    private final BitSet onDisk;
+
+    /** Channel for spilled pages. */
+    private FileChannel channel;
+
+    /** Buffer for pages transfers. */
+    private ByteBuffer buffer;
+
+    /** Indicator for closed store. */
+    private boolean closed;
+
+    /** Simple constructor for a store that keeps all steps in memory.
+     * @param degree degree of the Chebyshev polynomials
+     */
+    public CompactStepsStore(final int degree) {
+        this(degree, DEFAULT_STEPS_PER_PAGE, Integer.MAX_VALUE, null);
+    }
+
+    /** Simple constructor.
+     * @param degree degree of the Chebyshev polynomials
+     * @param stepsPerPage number of steps per page
+     * @param pagesInMemory maximum number of pages kept in memory (ignored if
+     * {@code spillDirectory} is null)
+     * @param spillDirectory directory where to write pages that do not fit in memory
+     * (if null, all pages are kept in memory)
+     */
+    public CompactStepsStore(final int degree, final int stepsPerPage,
+                             final int pagesInMemory, final File spillDirectory) {
+
+        if (degree < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, degree, 1);
+        }
+        if (stepsPerPage < 1) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, stepsPerPage, 1);
+        }
+        if (pagesInMemory < 2) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.NUMBER_TOO_SMALL, pagesInMemory, 2);
+        }
+
+        this.nbNodes        = degree + 1;
+        this.stepsPerPage   = stepsPerPage;
+        this.pagesInMemory  = pagesInMemory;
+        this.spillDirectory = spillDirectory;
+        this.resident       = new LinkedHashMap<>(16, 0.75f, true);
+        this.onDisk         = new BitSet();
+
+        this.nodes = new double[nbNodes];
+        this.fit   = new double[nbNodes][nbNodes];
+        for (int j = 0; j < nbNodes; ++j) {
+            nodes[j] = FastMath.cos(FastMath.PI * (j + 0.5) / nbNodes);
+            for (int k = 0; k < nbNodes; ++k) {
+                fit[k][j] = (k == 0 ? 1.0 : 2.0) * FastMath.cos(FastMath.PI * k * (j + 0.5) / nbNodes) / nbNodes;
+            }
+        }
+
+        this.dimension = 0;
+        this.nbSteps   = 0;
+
+    }
+
+    /** Get the degree of the Chebyshev polynomials.
+     * @return degree of the Chebyshev polynomials
+     */
+    public int getDegree() {
+        return nbNodes - 1;
+    }
+
+    /** Get the number of stored steps.
+     * @return number of stored steps
+     */
+    public synchronized int getStepsNumber() {
+        return nbSteps;
+    }
+
+    /** Get the number of pages currently held in memory.
+     * @return number of pages currently held in memory
+     */
+    public synchronized int getResidentPagesNumber() {
+        return resident.size() + (current == null ? 0 : 1);
+    }
+
+    /** Get the number of pages written to disk.
+     * @return number of pages written to disk
+     */
+    public synchronized int getSpilledPagesNumber() {
+        return onDisk.cardinality();
+    }
+
+    /** Create a new empty store with the same configuration, for a new propagation.
+     * @param stateDimension dimension of the complete integrated state
+     * @return new empty store
+     */
+    CompactStepsStore newStore(final int stateDimension) {
+        final CompactStepsStore store =
+                        new CompactStepsStore(nbNodes - 1, stepsPerPage, pagesInMemory, spillDirectory);
+        store.dimension    = stateDimension;
+        store.bounds       = new double[2 * stepsPerPage];
+        store.currentIndex = -1;
+        return store;
+    }
+
+    /** Add one integration step.
+     * @param interpolator interpolator for the step
+     * @exception OrekitException if a page cannot be spilled to disk
+     */
+    synchronized void add(final ODEStateInterpolator interpolator) throws OrekitException {
+
+        checkNotClosed();
+
+        final double t0 = interpolator.getPreviousState().getTime();
+        final double t1 = interpolator.getCurrentState().getTime();
+        if (t1 == t0) {
+            // degenerate step, there is nothing to store
+            return;
+        }
+
+        // find room for the new step
+        final int indexInPage = nbSteps % stepsPerPage;
+        if (indexInPage == 0) {
+            if (current != null) {
+                resident.put(currentIndex, current);
+                evict();
+            }
+            current      = new double[stepsPerPage * dimension * nbNodes];
+            currentIndex = nbSteps / stepsPerPage;
+        }
+        if (2 * nbSteps + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+        }
+        bounds[2 * nbSteps]     = t0;
+        bounds[2 * nbSteps + 1] = t1;
+
+        // fit Chebyshev polynomials at nodes
+        final int    offset = indexInPage * dimension * nbNodes;
+        final double mid    = 0.5 * (t0 + t1);
+        final double half   = 0.5 * (t1 - t0);
+        for (int j = 0; j < nbNodes; ++j) {
+            final double[] y = interpolator.getInterpolatedState(mid + half * nodes[j]).getCompleteState();
+            for (int c = 0; c < dimension; ++c) {
+                final int base = offset + c * nbNodes;
+                for (int k = 0; k < nbNodes; ++k) {
+                    current[base + k] += fit[k][j] * y[c];
+                }
+            }
+        }
+
+        ++nbSteps;
+
+    }
+
+    /** Get the time of the first step start.
+     * @return time of the first step start
+     */
+    synchronized double getStartTime() {
+        return bounds[0];
+    }
+
+    /** Get the time of the last step end.
+     * @return time of the last step end
+     */
+    synchronized double getEndTime() {
+        return bounds[2 * nbSteps - 1];
+    }
+
+    /** Evaluate some components of the stored state.
+     * @param t time
+     * @param from index of the first component to evaluate
+     * @param length number of components to evaluate
+     * @param value placeholder for components values
+     * @param derivative placeholder for components time derivatives (may be null)
+     * @exception OrekitException if a spilled page cannot be read back
+     */
+    synchronized void evaluate(final double t, final int from, final int length,
+                               final double[] value, final double[] derivative)
+        throws OrekitException {
+
+        checkNotClosed();
+
+        // locate step, extrapolating slightly from first or last step if needed
+        final int    step   = locate(t);
+        final double t0     = bounds[2 * step];
+        final double t1     = bounds[2 * step + 1];
+        final double x      = (2 * t - (t0 + t1)) / (t1 - t0);
+        final double[] page = getPage(step / stepsPerPage);
+        final int    offset = (step % stepsPerPage) * dimension * nbNodes;
+
+        for (int i = 0; i < length; ++i) {
+            final int base = offset + (from + i) * nbNodes;
+
+            // Clenshaw recurrence for value
+            double b1 = 0;
+            double b2 = 0;
+            for (int k = nbNodes - 1; k > 0; --k) {
+                final double b0 = 2 * x * b1 - b2 + page[base + k];
+                b2 = b1;
+                b1 = b0;
+            }
+            value[i] = x * b1 - b2 + page[base];
+
+            if (derivative != null) {
+                // Clenshaw recurrence for derivative, as a series of second kind polynomials
+                double d1 = 0;
+                double d2 = 0;
+                for (int k = nbNodes - 2; k >= 0; --k) {
+                    final double d0 = 2 * x * d1 - d2 + (k + 1) * page[base + k + 1];
+                    d2 = d1;
+                    d1 = d0;
+                }
+                derivative[i] = 2 * d1 / (t1 - t0);
+            }
+
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                // the temporary file is marked for deletion on close, nothing more can be done
+            }
+            channel = null;
+            buffer  = null;
+        }
+    }
+
+    /** Check the store has not been closed.
+     * @exception OrekitIllegalStateException if the store has been closed
+     */
+    private void checkNotClosed() throws OrekitIllegalStateException {
+        if (closed) {
+            throw new OrekitIllegalStateException(OrekitMessages.STEPS_STORE_CLOSED);
+        }
+    }
+
+    /** Locate the step containing a time.
+     * @param t time
+     * @return index of the step
+     */
+    private int locate(final double t) {
+        final boolean forward = bounds[1] >= bounds[0];
+        int low  = 0;
+        int high = nbSteps - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            final double start = bounds[2 * middle];
+            if (forward ? start <= t : start >= t) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /** Get a page, reading it back from disk if needed.
+     * @param index index of the page
+     * @return page
+     * @exception OrekitException if page cannot be read back
+     */
+    private double[] getPage(final int index) throws OrekitException {
+
+        if (index == currentIndex) {
+            return current;
+        }
+
+        double[] page = resident.get(index);
+        if (page == null) {
+            page = new double[current.length];
+            try {
+                final long position = ((long) index) * buffer.capacity();
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                buffer.asDoubleBuffer().get(page);
+            } catch (IOException ioe) {
+                throw new OrekitException(ioe, LocalizedCoreFormats.SIMPLE_MESSAGE, ioe.getLocalizedMessage());
+            }
+            resident.put(index, page);
+            evict();
+        }
+
+        return page;
+
+    }
+
+    /** Evict least recently used pages, writing them to disk if needed.
+     * @exception OrekitException if a page cannot be written
+     */
+    private void evict() throws OrekitException {
+
+        if (spillDirectory == null) {
+            // all pages are kept in memory
+            return;
+        }
+
+        try {
+            final Iterator<Map.Entry<Integer, double[]>> iterator = resident.entrySet().iterator();
+            while (resident.size() + 1 > pagesInMemory) {
+                final Map.Entry<Integer, double[]> eldest = iterator.next();
+                final int index = eldest.getKey();
+                if (!onDisk.get(index)) {
+                    if (channel == null) {
+                        final File file = File.createTempFile("orekit-steps-", ".bin", spillDirectory);
+                        channel = FileChannel.open(file.toPath(),
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.DELETE_ON_CLOSE);
+                        buffer  = ByteBuffer.allocateDirect(8 * current.length).order(ByteOrder.nativeOrder());
+                    }
+                    final long position = ((long) index) * buffer.capacity();
+                    buffer.clear();
+                    buffer.asDoubleBuffer().put(eldest.getValue());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + buffer.position());
+                    }
+                    onDisk.set(index);
+                }
+                iterator.remove();
+            }
+        } catch (IOException ioe) {
+            throw new OrekitException(ioe, LocalizedCoreFormats.SIMPLE_MESSAGE, ioe.getLocalizedMessage());
+        }
+
+    }
+
+}
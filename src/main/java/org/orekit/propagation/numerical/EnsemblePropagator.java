@@ -0,0 +1,563 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.numerical;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.linear.MatrixUtils;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.util.FastMath;
+import org.orekit.attitudes.Attitude;
+import org.orekit.attitudes.AttitudeProvider;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.forces.ForceModel;
+import org.orekit.forces.gravity.NewtonianAttraction;
+import org.orekit.frames.Frame;
+import org.orekit.orbits.CartesianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/** Fixed step propagator for ensembles of spacecraft sharing the same dynamics.
+ * <p>
+ * This propagator is intended for Monte Carlo analyses (covariance realism,
+ * collision probability...) where thousands of perturbed initial states are
+ * propagated with the same force models. All samples are integrated with a
+ * classical fourth order Runge-Kutta scheme on a common time grid, in Cartesian
+ * parameters. Samples are partitioned in contiguous chunks, each chunk being
+ * handled by one thread, with its state stored in flat arrays. Within a chunk,
+ * all samples are evaluated at one stage date before switching to the next
+ * stage, so date-dependent quantities cached by the environment models (for
+ * example {@link org.orekit.bodies.CelestialBodyFactory#tabulateBody(String, Frame,
+ * AbsoluteDate, AbsoluteDate, double) tabulated celestial bodies} or frames using
+ * {@link org.orekit.frames.ChebyshevTransformProvider fitted transforms}) are
+ * shared by all samples.
+ * </p>
+ * <p>
+ * As force models and attitude providers may cache intermediate data (atmosphere
+ * models, maneuvers, attitudes laws switches...), each chunk uses its own set of force
+ * models and its own attitude provider, built by user-provided factories. The central
+ * attraction is added automatically, using the central attraction coefficient of the
+ * initial orbits (which must be the same for all samples), unless the factory already provides a
+ * {@link NewtonianAttraction} model. Events detectors from force models are
+ * <em>not</em> handled, so discontinuities (eclipses, maneuvers start and stop)
+ * are only resolved to the accuracy of the fixed step.
+ * </p>
+ * <p>
+ * Instead of full ephemerides, the propagator streams the mean and covariance
+ * of the samples position-velocity at each grid date to an optional {@link
+ * EnsembleStatisticsHandler statistics handler}.
+ * </p>
+ * @see org.orekit.propagation.PropagatorsParallelizer
+ * @since 9.3
+ */
+public class EnsemblePropagator {
+
+    /** Tolerance on the ratio between propagation duration and step, to avoid a spurious step. */
+    private static final double STEP_TOLERANCE = 1.0e-9;
+
+    /** Initial states. */
+    private final List<SpacecraftState> initialStates;
+
+    /** Maximum step of the time grid. */
+    private final double step;
+
+    /** Factory for force models. */
+    private final Supplier<List<ForceModel>> forceModelsFactory;
+
+    /** Factory for attitude providers. */
+    private final Supplier<AttitudeProvider> attitudeProviderFactory;
+
+    /** Number of threads. */
+    private final int nbThreads;
+
+    /** Statistics handler (may be null). */
+    private EnsembleStatisticsHandler handler;
+
+    /** Simple constructor.
+     * @param initialStates initial states of all samples, which must share
+     * the same date and the same frame
+     * @param step maximum step of the common time grid (s)
+     * @param forceModelsFactory factory for force models, called once for each chunk
+     * of samples and for each propagation, so independent instances are used by
+     * concurrent threads
+     * @param attitudeProviderFactory factory for attitude providers, called once for each
+     * chunk of samples and for each propagation, so independent instances are used by
+     * concurrent threads (it may return the same instance each time if this instance
+     * is thread-safe)
+     * @param nbThreads number of threads to use
+     * @exception OrekitException if there are no initial states, if their dates, frames
+     * or central attraction coefficients do not match, if step is not strictly positive
+     * or if the number of threads is less than 1
+     */
+    public EnsemblePropagator(final List<SpacecraftState> initialStates, final double step,
+                              final Supplier<List<ForceModel>> forceModelsFactory,
+                              final Supplier<AttitudeProvider> attitudeProviderFactory,
+                              final int nbThreads)
+        throws OrekitException {
+
+        if (initialStates.isEmpty()) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, 0, 1);
+        }
+        final SpacecraftState first = initialStates.get(0);
+        for (final SpacecraftState state : initialStates) {
+            if (!state.getDate().equals(first.getDate())) {
+                throw new OrekitException(OrekitMessages.INITIAL_STATES_DATES_MISMATCH,
+                                          state.getDate(), first.getDate());
+            }
+            if (state.getFrame() != first.getFrame()) {
+                throw new OrekitException(OrekitMessages.FRAMES_MISMATCH,
+                                          state.getFrame().getName(), first.getFrame().getName());
+            }
+            if (state.getMu() != first.getMu()) {
+                throw new OrekitException(OrekitMessages.INITIAL_STATES_MU_MISMATCH,
+                                          state.getMu(), first.getMu());
+            }
+        }
+        if (step <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, step, 0);
+        }
+        if (nbThreads < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, nbThreads, 1);
+        }
+
+        this.initialStates           = Collections.unmodifiableList(new ArrayList<>(initialStates));
+        this.step                    = step;
+        this.forceModelsFactory      = forceModelsFactory;
+        this.attitudeProviderFactory = attitudeProviderFactory;
+        this.nbThreads               = nbThreads;
+        this.handler                 = null;
+
+    }
+
+    /** Set the statistics handler.
+     * @param statisticsHandler statistics handler (may be null to remove handler)
+     */
+    public void setStatisticsHandler(final EnsembleStatisticsHandler statisticsHandler) {
+        this.handler = statisticsHandler;
+    }
+
+    /** Get the number of samples.
+     * @return number of samples
+     */
+    public int getSamplesNumber() {
+        return initialStates.size();
+    }
+
+    /** Get the maximum step of the time grid.
+     * @return maximum step of the time grid (s)
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /** Get the initial states.
+     * @return unmodifiable view of the initial states
+     */
+    public List<SpacecraftState> getInitialStates() {
+        return initialStates;
+    }
+
+    /** Propagate all samples.
+     * <p>
+     * Each call starts from the initial states. The time grid is regular,
+     * with a step slightly reduced with respect to the maximum step if
+     * needed so the grid ends exactly at target date. Propagation can
+     * be performed either forward or backward.
+     * </p>
+     * @param target target date
+     * @return samples states at target date, in the same order as initial states
+     * @exception OrekitException if force models cannot be evaluated or if
+     * statistics handler fails
+     */
+    public List<SpacecraftState> propagate(final AbsoluteDate target)
+        throws OrekitException {
+
+        final AbsoluteDate start    = initialStates.get(0).getDate();
+        final double       duration = target.durationFrom(start);
+        final int          nbSteps  = (int) FastMath.ceil(FastMath.abs(duration) / step - STEP_TOLERANCE);
+        final double       h        = nbSteps == 0 ? 0.0 : duration / nbSteps;
+
+        // partition samples in chunks, one per thread
+        final int n        = initialStates.size();
+        final int nbChunks = FastMath.min(nbThreads, n);
+        final List<Chunk> chunks = new ArrayList<>(nbChunks);
+        for (int i = 0; i < nbChunks; ++i) {
+            chunks.add(new Chunk(initialStates.subList((i * n) / nbChunks, ((i + 1) * n) / nbChunks), target));
+        }
+
+        final ExecutorService executorService = nbChunks > 1 ? Executors.newFixedThreadPool(nbChunks) : null;
+        try {
+
+            handleStatistics(start, chunks);
+            for (int k = 0; k < nbSteps; ++k) {
+                final AbsoluteDate t0 = start.shiftedBy(k * h);
+                if (executorService == null) {
+                    chunks.get(0).step(t0, h);
+                } else {
+                    final List<Future<Void>> futures = new ArrayList<>(nbChunks);
+                    for (final Chunk chunk : chunks) {
+                        futures.add(executorService.submit((Callable<Void>) () -> {
+                            chunk.step(t0, h);
+                            return null;
+                        }));
+                    }
+                    for (final Future<Void> future : futures) {
+                        waitFor(future);
+                    }
+                }
+                handleStatistics(start.shiftedBy((k + 1) * h), chunks);
+            }
+
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+
+        // build final states
+        final AbsoluteDate end = start.shiftedBy(nbSteps * h);
+        final List<SpacecraftState> finalStates = new ArrayList<>(n);
+        for (final Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; ++i) {
+                final Orbit orbit = chunk.orbit(end, chunk.y, i);
+                finalStates.add(new SpacecraftState(orbit,
+                                                    chunk.attitudeProvider.getAttitude(orbit, end, orbit.getFrame()),
+                                                    chunk.y[7 * i + 6]));
+            }
+        }
+        return finalStates;
+
+    }
+
+    /** Wait for a chunk step completion.
+     * @param future future representing chunk step
+     * @exception OrekitException if chunk step failed
+     */
+    private void waitFor(final Future<Void> future) throws OrekitException {
+        try {
+            future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e.getCause() instanceof OrekitException) {
+                // unwrap the original exception
+                throw (OrekitException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new OrekitException(e, LocalizedCoreFormats.SIMPLE_MESSAGE, e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /** Compute and handle statistics.
+     * @param date current grid date
+     * @param chunks samples chunks
+     * @exception OrekitException if statistics handler fails
+     */
+    private void handleStatistics(final AbsoluteDate date, final List<Chunk> chunks)
+        throws OrekitException {
+
+        if (handler == null) {
+            return;
+        }
+
+        // mean
+        final int n = initialStates.size();
+        final double[] mean = new double[6];
+        for (final Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; ++i) {
+                for (int j = 0; j < 6; ++j) {
+                    mean[j] += chunk.y[7 * i + j];
+                }
+            }
+        }
+        for (int j = 0; j < 6; ++j) {
+            mean[j] /= n;
+        }
+
+        // covariance
+        final RealMatrix covariance = MatrixUtils.createRealMatrix(6, 6);
+        if (n > 1) {
+            final double[] delta = new double[6];
+            for (final Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.size; ++i) {
+                    for (int j = 0; j < 6; ++j) {
+                        delta[j] = chunk.y[7 * i + j] - mean[j];
+                    }
+                    for (int j = 0; j < 6; ++j) {
+                        for (int l = 0; l <= j; ++l) {
+                            covariance.addToEntry(j, l, delta[j] * delta[l]);
+                        }
+                    }
+                }
+            }
+            for (int j = 0; j < 6; ++j) {
+                for (int l = 0; l <= j; ++l) {
+                    final double c = covariance.getEntry(j, l) / (n - 1);
+                    covariance.setEntry(j, l, c);
+                    covariance.setEntry(l, j, c);
+                }
+            }
+        }
+
+        handler.handleStatistics(new TimeStampedPVCoordinates(date,
+                                                              new Vector3D(mean[0], mean[1], mean[2]),
+                                                              new Vector3D(mean[3], mean[4], mean[5])),
+                                 covariance);
+
+    }
+
+    /** Local class for one chunk of samples. */
+    private class Chunk implements TimeDerivativesEquations {
+
+        /** Number of samples in the chunk. */
+        private final int size;
+
+        /** Propagation frame. */
+        private final Frame frame;
+
+        /** Central attraction coefficient. */
+        private final double mu;
+
+        /** Force models dedicated to this chunk. */
+        private final List<ForceModel> forceModels;
+
+        /** Attitude provider dedicated to this chunk. */
+        private final AttitudeProvider attitudeProvider;
+
+        /** Frozen rotations, if attitude is not needed for derivatives (null otherwise). */
+        private final Rotation[] frozen;
+
+        /** Current state (position, velocity and mass for each sample). */
+        private final double[] y;
+
+        /** Intermediate state. */
+        private final double[] yTmp;
+
+        /** Runge-Kutta stages derivatives. */
+        private final double[][] k;
+
+        /** Current position. */
+        private final double[] position;
+
+        /** Current acceleration. */
+        private final double[] acceleration;
+
+        /** Current mass derivative. */
+        private double massDerivative;
+
+        /** Simple constructor.
+         * @param states initial states of the chunk
+         * @param target target date of the propagation
+         * @exception OrekitException if force models cannot be initialized
+         */
+        Chunk(final List<SpacecraftState> states, final AbsoluteDate target)
+            throws OrekitException {
+
+            this.size  = states.size();
+            this.frame = states.get(0).getFrame();
+
+            // set up force models and attitude provider
+            this.attitudeProvider = attitudeProviderFactory.get();
+            this.forceModels      = new ArrayList<>(forceModelsFactory.get());
+            boolean hasCentralAttraction = false;
+            boolean attitudeNeeded       = false;
+            for (final ForceModel forceModel : forceModels) {
+                hasCentralAttraction |= forceModel instanceof NewtonianAttraction;
+                attitudeNeeded       |= forceModel.dependsOnAttitude();
+            }
+            if (!hasCentralAttraction) {
+                forceModels.add(new NewtonianAttraction(states.get(0).getMu()));
+            }
+            this.mu = states.get(0).getMu();
+            for (final ForceModel forceModel : forceModels) {
+                forceModel.init(states.get(0), target);
+            }
+
+            // set up arrays
+            this.frozen       = attitudeNeeded ? null : new Rotation[size];
+            this.y            = new double[7 * size];
+            this.yTmp         = new double[7 * size];
+            this.k            = new double[4][7 * size];
+            this.position     = new double[3];
+            this.acceleration = new double[3];
+            for (int i = 0; i < size; ++i) {
+                final SpacecraftState state = states.get(i);
+                final PVCoordinates   pv    = state.getPVCoordinates();
+                store(pv.getPosition(), 7 * i);
+                store(pv.getVelocity(), 7 * i + 3);
+                y[7 * i + 6] = state.getMass();
+                if (frozen != null) {
+                    frozen[i] = state.getAttitude().getRotation();
+                }
+            }
+
+        }
+
+        /** Store a vector in the state array.
+         * @param v vector to store
+         * @param index index of the first component
+         */
+        private void store(final Vector3D v, final int index) {
+            y[index]     = v.getX();
+            y[index + 1] = v.getY();
+            y[index + 2] = v.getZ();
+        }
+
+        /** Build the orbit of one sample.
+         * @param date current date
+         * @param state state array
+         * @param i index of the sample
+         * @return orbit of the sample
+         */
+        private Orbit orbit(final AbsoluteDate date, final double[] state, final int i) {
+            final int base = 7 * i;
+            return new CartesianOrbit(new PVCoordinates(new Vector3D(state[base],     state[base + 1], state[base + 2]),
+                                                        new Vector3D(state[base + 3], state[base + 4], state[base + 5])),
+                                      frame, date, mu);
+        }
+
+        /** Perform one Runge-Kutta step for all samples.
+         * @param t0 step start date
+         * @param h step size
+         * @exception OrekitException if force models cannot be evaluated
+         */
+        public void step(final AbsoluteDate t0, final double h)
+            throws OrekitException {
+
+            derivatives(t0, y, k[0]);
+
+            combine(y, 0.5 * h, k[0], yTmp);
+            derivatives(t0.shiftedBy(0.5 * h), yTmp, k[1]);
+
+            combine(y, 0.5 * h, k[1], yTmp);
+            derivatives(t0.shiftedBy(0.5 * h), yTmp, k[2]);
+
+            combine(y, h, k[2], yTmp);
+            derivatives(t0.shiftedBy(h), yTmp, k[3]);
+
+            final double h6 = h / 6;
+            for (int j = 0; j < y.length; ++j) {
+                y[j] += h6 * (k[0][j] + 2 * (k[1][j] + k[2][j]) + k[3][j]);
+            }
+
+        }
+
+        /** Compute a linear combination.
+         * @param a base array
+         * @param factor multiplication factor
+         * @param b array to multiply
+         * @param result placeholder for a + factor * b
+         */
+        private void combine(final double[] a, final double factor, final double[] b, final double[] result) {
+            for (int j = 0; j < a.length; ++j) {
+                result[j] = a[j] + factor * b[j];
+            }
+        }
+
+        /** Compute derivatives for all samples at one stage date.
+         * @param date stage date
+         * @param state state array
+         * @param stateDot placeholder for state derivatives
+         * @exception OrekitException if force models cannot be evaluated
+         */
+        private void derivatives(final AbsoluteDate date, final double[] state, final double[] stateDot)
+            throws OrekitException {
+            for (int i = 0; i < size; ++i) {
+
+                final int base = 7 * i;
+                final double mass = state[base + 6];
+                if (mass <= 0.0) {
+                    throw new OrekitException(OrekitMessages.SPACECRAFT_MASS_BECOMES_NEGATIVE, mass);
+                }
+
+                final Orbit    orbit    = orbit(date, state, i);
+                final Attitude attitude = (frozen == null) ?
+                                          attitudeProvider.getAttitude(orbit, date, frame) :
+                                          new Attitude(date, frame, frozen[i], Vector3D.ZERO, Vector3D.ZERO);
+                final SpacecraftState s = new SpacecraftState(orbit, attitude, mass);
+
+                position[0]     = state[base];
+                position[1]     = state[base + 1];
+                position[2]     = state[base + 2];
+                acceleration[0] = 0;
+                acceleration[1] = 0;
+                acceleration[2] = 0;
+                massDerivative  = 0;
+                for (final ForceModel forceModel : forceModels) {
+                    forceModel.addContribution(s, this);
+                }
+
+                stateDot[base]     = state[base + 3];
+                stateDot[base + 1] = state[base + 4];
+                stateDot[base + 2] = state[base + 5];
+                stateDot[base + 3] = acceleration[0];
+                stateDot[base + 4] = acceleration[1];
+                stateDot[base + 5] = acceleration[2];
+                stateDot[base + 6] = massDerivative;
+
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void addKeplerContribution(final double centralMu) {
+            final double r2 = position[0] * position[0] + position[1] * position[1] + position[2] * position[2];
+            final double f  = -centralMu / (r2 * FastMath.sqrt(r2));
+            acceleration[0] += f * position[0];
+            acceleration[1] += f * position[1];
+            acceleration[2] += f * position[2];
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void addNonKeplerianAcceleration(final Vector3D gamma) {
+            acceleration[0] += gamma.getX();
+            acceleration[1] += gamma.getY();
+            acceleration[2] += gamma.getZ();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void addMassDerivative(final double q) {
+            if (q > 0) {
+                throw new OrekitIllegalArgumentException(OrekitMessages.POSITIVE_FLOW_RATE, q);
+            }
+            massDerivative += q;
+        }
+
+    }
+
+}
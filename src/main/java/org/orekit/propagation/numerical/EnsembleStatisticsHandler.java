@@ -0,0 +1,42 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.numerical;
+
+import org.hipparchus.linear.RealMatrix;
+import org.orekit.errors.OrekitException;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/** Interface for handling ensemble statistics during {@link EnsemblePropagator ensemble propagation}.
+ * <p>
+ * The handler is called from the thread that called {@link EnsemblePropagator#propagate(org.orekit.time.AbsoluteDate)
+ * propagate}, at the initial date and at the end of each step of the common time grid.
+ * </p>
+ * @see EnsemblePropagator
+ * @since 9.3
+ */
+public interface EnsembleStatisticsHandler {
+
+    /** Handle the statistics of the ensemble at one grid date.
+     * @param mean mean position-velocity of the samples, in propagation frame
+     * @param covariance 6x6 sample covariance matrix of the position-velocity
+     * (zero if the ensemble contains only one sample)
+     * @exception OrekitException if the handler fails
+     */
+    void handleStatistics(TimeStampedPVCoordinates mean, RealMatrix covariance)
+        throws OrekitException;
+
+}
@@ -127,6 +127,11 @@ import org.orekit.utils.TimeStampedFieldPVCoordinates;
  * thus allowing a new propagation to be started from there without recomputing the part already performed.
  * This behaviour can be chenged by calling {@link #setResetAtEnd(boolean)}.
  * </p>
+ * <p>When only first order derivatives are needed (for example for linear covariance
+ * propagation or Jacobians computation), the {@link org.orekit.utils.Gradient Gradient}
+ * field should be preferred to {@link org.hipparchus.analysis.differentiation.DerivativeStructure
+ * DerivativeStructure} as it is much faster.
+ * </p>
  * <p>Beware the same instance cannot be used simultaneously by different threads, the class is <em>not</em>
  * thread-safe.</p>
 
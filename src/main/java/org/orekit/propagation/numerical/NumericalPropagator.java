@@ -23,11 +23,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.ode.ODEIntegrator;
 import org.hipparchus.util.FastMath;
 import org.orekit.attitudes.Attitude;
 import org.orekit.attitudes.AttitudeProvider;
+import org.orekit.attitudes.FieldAttitude;
 import org.orekit.errors.OrekitException;
 import org.orekit.errors.OrekitIllegalArgumentException;
 import org.orekit.errors.OrekitInternalError;
@@ -43,7 +46,10 @@ import org.orekit.propagation.events.EventDetector;
 import org.orekit.propagation.integration.AbstractIntegratedPropagator;
 import org.orekit.propagation.integration.StateMapper;
 import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.utils.FieldPVCoordinatesProvider;
 import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.PVCoordinatesProvider;
 import org.orekit.utils.ParameterDriver;
 import org.orekit.utils.ParameterObserver;
 import org.orekit.utils.TimeStampedPVCoordinates;
@@ -456,6 +462,27 @@ public class NumericalPropagator extends AbstractIntegratedPropagator {
         return new Main(integrator);
     }
 
+    /** {@inheritDoc}
+     * <p>
+     * If no force model {@link ForceModel#dependsOnAttitude() depends on attitude}
+     * and no additional state provider is registered, the attitude is frozen to
+     * the initial one when computing derivatives, thus avoiding calls to a potentially
+     * costly attitude provider.
+     * </p>
+     */
+    @Override
+    protected AttitudeProvider getAttitudeProviderForDerivatives(final SpacecraftState initialState) {
+        if (!getAdditionalStateProviders().isEmpty()) {
+            return super.getAttitudeProviderForDerivatives(initialState);
+        }
+        for (final ForceModel forceModel : forceModels) {
+            if (forceModel.dependsOnAttitude()) {
+                return super.getAttitudeProviderForDerivatives(initialState);
+            }
+        }
+        return new FrozenAttitudeProvider(initialState.getAttitude());
+    }
+
     /** Internal class for osculating parameters integration. */
     private class Main implements MainStateEquations, TimeDerivativesEquations {
 
@@ -506,7 +533,8 @@ public class NumericalPropagator extends AbstractIntegratedPropagator {
                 forceModel.addContribution(state, this);
             }
 
-            return yDot.clone();
+            // the array is reused from call to call, the integrator copies it
+            return yDot;
 
         }
 
@@ -616,5 +644,47 @@ public class NumericalPropagator extends AbstractIntegratedPropagator {
 
     }
 
+    /** Attitude provider always returning the same rotation. */
+    private static class FrozenAttitudeProvider implements AttitudeProvider {
+
+        /** Serializable UID. */
+        private static final long serialVersionUID = 20181018L;
+
+        /** Reference frame. */
+        private final Frame referenceFrame;
+
+        /** Frozen rotation. */
+        private final Rotation rotation;
+
+        /** Simple constructor.
+         * @param attitude attitude to freeze
+         */
+        FrozenAttitudeProvider(final Attitude attitude) {
+            this.referenceFrame = attitude.getReferenceFrame();
+            this.rotation       = attitude.getRotation();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Attitude getAttitude(final PVCoordinatesProvider pvProv, final AbsoluteDate date,
+                                    final Frame frame)
+            throws OrekitException {
+            final Attitude attitude = new Attitude(date, referenceFrame, rotation, Vector3D.ZERO, Vector3D.ZERO);
+            return frame == referenceFrame ? attitude : attitude.withReferenceFrame(frame);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public <T extends RealFieldElement<T>> FieldAttitude<T> getAttitude(final FieldPVCoordinatesProvider<T> pvProv,
+                                                                            final FieldAbsoluteDate<T> date,
+                                                                            final Frame frame)
+            throws OrekitException {
+            final FieldAttitude<T> attitude = new FieldAttitude<>(date, referenceFrame, rotation,
+                                                                  Vector3D.ZERO, Vector3D.ZERO, date.getField());
+            return frame == referenceFrame ? attitude : attitude.withReferenceFrame(frame);
+        }
+
+    }
+
 }
 
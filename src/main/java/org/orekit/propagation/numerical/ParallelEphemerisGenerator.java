@@ -0,0 +1,358 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.numerical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.orbits.CartesianOrbit;
+import org.orekit.propagation.BoundedPropagator;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.analytical.AggregateBoundedPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+
+/** Generator for long numerical ephemerides, using parallel integration of time chunks.
+ * <p>
+ * In {@link NumericalPropagator#setEphemerisMode() ephemeris generation mode}, a
+ * numerical propagator integrates one long arc sequentially. This generator splits
+ * the time range into chunks that are integrated concurrently, using the parareal
+ * algorithm to reach consistency between chunks:
+ * </p>
+ * <ol>
+ *   <li>a fast coarse propagator (typically {@link
+ *   org.orekit.propagation.analytical.EcksteinHechlerPropagator Eckstein-Hechler} or
+ *   {@link org.orekit.propagation.semianalytical.dsst.DSSTPropagator DSST}) provides
+ *   a first guess of the states at chunks boundaries,</li>
+ *   <li>all chunks that are not yet consistent are integrated in parallel by fine
+ *   numerical propagators, starting from the current boundaries states,</li>
+ *   <li>boundaries states are corrected sequentially, by adding to the coarse
+ *   propagation of the corrected previous boundary state the difference between
+ *   fine and coarse propagations of the previous boundary state,</li>
+ *   <li>iterations stop when the position mismatch between the end of each chunk
+ *   fine integration and the start of the next chunk is below a tolerance.</li>
+ * </ol>
+ * <p>
+ * At each iteration, at least one more chunk becomes exactly consistent with its
+ * predecessor, so the algorithm needs at most as many iterations as there are
+ * chunks, which corresponds to a sequential integration. When the coarse propagator
+ * is a good approximation of the fine one, a few iterations are sufficient and the
+ * wall clock time is reduced accordingly. Chunks that are already consistent are
+ * not integrated again.
+ * </p>
+ * <p>
+ * The fine ephemerides of all chunks are finally stitched together into a single
+ * {@link BoundedPropagator}. As each chunk is integrated with its own propagator,
+ * fine propagators are built by a user-provided factory, which must set up the
+ * integrator, force models and attitude provider; the factory step handlers and
+ * additional equations are ignored. The coarse propagator is reset at each chunk
+ * boundary, it must therefore accept osculating states in its {@link
+ * Propagator#resetInitialState(SpacecraftState) resetInitialState} method.
+ * Corrections are computed in Cartesian parameters in the frame of the initial
+ * state, so additional states are not supported.
+ * </p>
+ * @see NumericalPropagator
+ * @see AggregateBoundedPropagator
+ * @since 9.3
+ */
+public class ParallelEphemerisGenerator {
+
+    /** Coarse propagator. */
+    private final Propagator coarse;
+
+    /** Factory for fine propagators. */
+    private final Supplier<NumericalPropagator> fineFactory;
+
+    /** Number of time chunks. */
+    private final int nbChunks;
+
+    /** Number of threads. */
+    private final int nbThreads;
+
+    /** Position tolerance at chunks boundaries. */
+    private final double tolerance;
+
+    /** Number of iterations performed during last generation. */
+    private int iterations;
+
+    /** Simple constructor.
+     * @param coarse coarse propagator, used to predict boundaries states
+     * @param fineFactory factory for fine propagators, called once for each chunk
+     * and for each generation, so independent instances are used by concurrent threads
+     * @param nbChunks number of time chunks
+     * @param nbThreads number of threads to use
+     * @param tolerance position tolerance at chunks boundaries (m)
+     * @exception OrekitException if the number of chunks or the number of threads
+     * is less than 1, or if tolerance is not strictly positive
+     */
+    public ParallelEphemerisGenerator(final Propagator coarse,
+                                      final Supplier<NumericalPropagator> fineFactory,
+                                      final int nbChunks, final int nbThreads,
+                                      final double tolerance)
+        throws OrekitException {
+
+        if (nbChunks < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, nbChunks, 1);
+        }
+        if (nbThreads < 1) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL, nbThreads, 1);
+        }
+        if (tolerance <= 0) {
+            throw new OrekitException(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, tolerance, 0);
+        }
+
+        this.coarse      = coarse;
+        this.fineFactory = fineFactory;
+        this.nbChunks    = nbChunks;
+        this.nbThreads   = nbThreads;
+        this.tolerance   = tolerance;
+        this.iterations  = 0;
+
+    }
+
+    /** Get the number of time chunks.
+     * @return number of time chunks
+     */
+    public int getChunksNumber() {
+        return nbChunks;
+    }
+
+    /** Get the position tolerance at chunks boundaries.
+     * @return position tolerance at chunks boundaries (m)
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /** Get the number of iterations performed during last generation.
+     * @return number of iterations performed during last generation
+     * (0 if no generation has been performed yet)
+     */
+    public int getIterationsNumber() {
+        return iterations;
+    }
+
+    /** Generate an ephemeris.
+     * <p>
+     * Generation can be performed either forward or backward.
+     * </p>
+     * @param initial initial state
+     * @param target target date
+     * @return generated ephemeris, covering the range from initial state date to target
+     * @exception OrekitException if coarse or fine propagation fails
+     */
+    public BoundedPropagator generate(final SpacecraftState initial, final AbsoluteDate target)
+        throws OrekitException {
+
+        final Frame  frame    = initial.getFrame();
+        final double mu       = initial.getMu();
+        final double duration = target.durationFrom(initial.getDate());
+
+        // chunks boundaries
+        final AbsoluteDate[] dates = new AbsoluteDate[nbChunks + 1];
+        for (int k = 0; k < nbChunks; ++k) {
+            dates[k] = initial.getDate().shiftedBy((k * duration) / nbChunks);
+        }
+        dates[nbChunks] = target;
+
+        // first guess of boundaries states, from coarse propagator
+        final SpacecraftState[] starts     = new SpacecraftState[nbChunks];
+        final SpacecraftState[] coarseEnds = new SpacecraftState[nbChunks];
+        starts[0] = initial;
+        for (int k = 0; k < nbChunks - 1; ++k) {
+            coarseEnds[k] = coarsePropagate(starts[k], dates[k + 1]);
+            starts[k + 1] = toState(toArray(coarseEnds[k], frame), dates[k + 1], frame, mu);
+        }
+
+        final NumericalPropagator[] fines       = new NumericalPropagator[nbChunks];
+        final SpacecraftState[]     fineEnds    = new SpacecraftState[nbChunks];
+        final BoundedPropagator[]   ephemerides = new BoundedPropagator[nbChunks];
+        for (int k = 0; k < nbChunks; ++k) {
+            fines[k] = fineFactory.get();
+        }
+
+        final int nbWorkers = FastMath.min(nbThreads, nbChunks);
+        final ExecutorService executorService = nbWorkers > 1 ? Executors.newFixedThreadPool(nbWorkers) : null;
+        try {
+
+            iterations = 0;
+            int first  = 0;
+            while (first < nbChunks) {
+
+                ++iterations;
+
+                // fine integration of all chunks not yet consistent
+                if (executorService == null) {
+                    for (int k = first; k < nbChunks; ++k) {
+                        finePropagate(k, fines, starts, dates, fineEnds, ephemerides);
+                    }
+                } else {
+                    final List<Future<Void>> futures = new ArrayList<>(nbChunks - first);
+                    for (int k = first; k < nbChunks; ++k) {
+                        final int chunk = k;
+                        futures.add(executorService.submit((Callable<Void>) () -> {
+                            finePropagate(chunk, fines, starts, dates, fineEnds, ephemerides);
+                            return null;
+                        }));
+                    }
+                    for (final Future<Void> future : futures) {
+                        waitFor(future);
+                    }
+                }
+
+                // find the first inconsistent boundary
+                int bad = nbChunks;
+                for (int k = first + 1; k < nbChunks && bad == nbChunks; ++k) {
+                    final Vector3D pStart = starts[k].getPVCoordinates(frame).getPosition();
+                    final Vector3D pEnd   = fineEnds[k - 1].getPVCoordinates(frame).getPosition();
+                    if (Vector3D.distance(pStart, pEnd) > tolerance) {
+                        bad = k;
+                    }
+                }
+
+                if (bad < nbChunks) {
+                    // parareal correction of the boundaries states
+                    starts[bad] = fineEnds[bad - 1];
+                    for (int k = bad; k < nbChunks - 1; ++k) {
+                        final SpacecraftState g     = coarsePropagate(starts[k], dates[k + 1]);
+                        final double[]        newG  = toArray(g, frame);
+                        final double[]        fine  = toArray(fineEnds[k], frame);
+                        final double[]        oldG  = toArray(coarseEnds[k], frame);
+                        final double[]        state = new double[newG.length];
+                        for (int i = 0; i < state.length; ++i) {
+                            state[i] = newG[i] + (fine[i] - oldG[i]);
+                        }
+                        coarseEnds[k] = g;
+                        starts[k + 1] = toState(state, dates[k + 1], frame, mu);
+                    }
+                }
+
+                first = bad;
+
+            }
+
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+
+        // stitch chunks ephemerides together
+        return new AggregateBoundedPropagator(Arrays.asList(ephemerides));
+
+    }
+
+    /** Perform coarse propagation.
+     * @param start start state
+     * @param end end date
+     * @return coarse state at end date
+     * @exception OrekitException if coarse propagator cannot be reset or cannot propagate
+     */
+    private SpacecraftState coarsePropagate(final SpacecraftState start, final AbsoluteDate end)
+        throws OrekitException {
+        coarse.resetInitialState(start);
+        return coarse.propagate(end);
+    }
+
+    /** Perform fine propagation of one chunk.
+     * @param k index of the chunk
+     * @param fines fine propagators
+     * @param starts start states of chunks
+     * @param dates chunks boundaries
+     * @param fineEnds placeholder for fine end states of chunks
+     * @param ephemerides placeholder for ephemerides of chunks
+     * @exception OrekitException if fine propagation fails
+     */
+    private void finePropagate(final int k, final NumericalPropagator[] fines,
+                               final SpacecraftState[] starts, final AbsoluteDate[] dates,
+                               final SpacecraftState[] fineEnds, final BoundedPropagator[] ephemerides)
+        throws OrekitException {
+        final NumericalPropagator fine = fines[k];
+        fine.setEphemerisMode();
+        fine.setInitialState(starts[k]);
+        fineEnds[k]    = fine.propagate(dates[k + 1]);
+        ephemerides[k] = fine.getGeneratedEphemeris();
+    }
+
+    /** Convert a state to an array.
+     * @param state state to convert
+     * @param frame frame in which to express position-velocity
+     * @return array containing position, velocity and mass
+     * @exception OrekitException if state cannot be converted to frame
+     */
+    private static double[] toArray(final SpacecraftState state, final Frame frame)
+        throws OrekitException {
+        final PVCoordinates pv = state.getPVCoordinates(frame);
+        return new double[] {
+            pv.getPosition().getX(), pv.getPosition().getY(), pv.getPosition().getZ(),
+            pv.getVelocity().getX(), pv.getVelocity().getY(), pv.getVelocity().getZ(),
+            state.getMass()
+        };
+    }
+
+    /** Convert an array to a state.
+     * @param array array containing position, velocity and mass
+     * @param date state date
+     * @param frame frame in which position-velocity are expressed
+     * @param mu central attraction coefficient (m³/s²)
+     * @return state
+     */
+    private static SpacecraftState toState(final double[] array, final AbsoluteDate date,
+                                           final Frame frame, final double mu) {
+        final PVCoordinates pv = new PVCoordinates(new Vector3D(array[0], array[1], array[2]),
+                                                   new Vector3D(array[3], array[4], array[5]));
+        return new SpacecraftState(new CartesianOrbit(pv, frame, date, mu), array[6]);
+    }
+
+    /** Wait for a chunk propagation completion.
+     * @param future future representing chunk propagation
+     * @exception OrekitException if chunk propagation failed
+     * or if the calling thread is interrupted while waiting
+     */
+    private void waitFor(final Future<Void> future) throws OrekitException {
+        try {
+            future.get();
+        } catch (InterruptedException ie) {
+            // restore the interrupted status before bailing out
+            Thread.currentThread().interrupt();
+            throw new OrekitException(ie, LocalizedCoreFormats.SIMPLE_MESSAGE, ie.getLocalizedMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OrekitException) {
+                // unwrap the original exception
+                throw (OrekitException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new OrekitException(e, LocalizedCoreFormats.SIMPLE_MESSAGE, e.getLocalizedMessage());
+            }
+        }
+    }
+
+}
@@ -58,6 +58,15 @@ import org.orekit.utils.ParameterDriversList;
  * Newtonian attraction}, {@link org.orekit.forces.gravity.HolmesFeatherstoneAttractionModel
  * gravity field}, and {@link org.orekit.forces.gravity.Relativity relativity}.
  * </p>
+ * <p>
+ * The variational equations take sparsity into account. Each force model is differentiated
+ * only with respect to the parameters it manages and that are selected, and only with respect
+ * to position if it {@link ForceModel#dependsOnPositionOnly() depends on position only}. If
+ * no force model depends on velocity, the terms involving the Jacobian of acceleration with
+ * respect to velocity are not computed. Columns corresponding to parameters that have not yet
+ * influenced the orbit (for example maneuvers parameters before the maneuver occurs) remain
+ * zero and are not propagated.
+ * </p>
  * @author V&eacute;ronique Pommier-Maurussane
  * @author Luc Maisonobe
  */
@@ -72,6 +81,9 @@ public class PartialDerivativesEquations implements AdditionalEquations {
     /** Parameters map. */
     private Map<ParameterDriver, Integer> map;
 
+    /** Jacobian columns of the selected parameters managed by each force model. */
+    private Map<ForceModel, int[]> columns;
+
     /** Name. */
     private final String name;
 
@@ -94,6 +106,7 @@ public class PartialDerivativesEquations implements AdditionalEquations {
         this.name                   = name;
         this.selected               = null;
         this.map                    = null;
+        this.columns                = null;
         this.propagator             = propagator;
         this.initialized            = false;
         propagator.addAdditionalEquations(this);
@@ -142,9 +155,37 @@ public class PartialDerivativesEquations implements AdditionalEquations {
                 ++parameterIndex;
             }
 
+            // fifth pass: set up the columns each force model contributes to
+            columns = new IdentityHashMap<ForceModel, int[]>();
+
         }
     }
 
+    /** Get the Jacobian columns of the selected parameters managed by a force model.
+     * @param forceModel force model
+     * @return columns of the selected parameters, in force model drivers order
+     * (empty if the force model has no selected parameters)
+     */
+    private int[] getColumns(final ForceModel forceModel) {
+        return columns.computeIfAbsent(forceModel, model -> {
+            final ParameterDriver[] drivers = model.getParametersDrivers();
+            int nbSelected = 0;
+            for (final ParameterDriver driver : drivers) {
+                if (driver.isSelected()) {
+                    ++nbSelected;
+                }
+            }
+            final int[] modelColumns = new int[nbSelected];
+            int i = 0;
+            for (final ParameterDriver driver : drivers) {
+                if (driver.isSelected()) {
+                    modelColumns[i++] = map.get(driver);
+                }
+            }
+            return modelColumns;
+        });
+    }
+
     /** Get the selected parameters, in Jacobian matrix column order.
      * <p>
      * The force models parameters for which partial derivatives are desired,
@@ -305,13 +346,27 @@ public class PartialDerivativesEquations implements AdditionalEquations {
         final double[][] dAccdPos   = new double[dim][dim];
         final double[][] dAccdVel   = new double[dim][dim];
 
-        final DSConverter fullConverter    = new DSConverter(s, 6, propagator.getAttitudeProvider());
-        final DSConverter posOnlyConverter = new DSConverter(s, 3, propagator.getAttitudeProvider());
+        // converters are built only if some force model needs them
+        DSConverter fullConverter     = null;
+        DSConverter posOnlyConverter  = null;
+        boolean     velocityDependent = false;
 
         // compute acceleration Jacobians, finishing with the largest force: Newtonian attraction
         for (final ForceModel forceModel : propagator.getAllForceModels()) {
 
-            final DSConverter converter = forceModel.dependsOnPositionOnly() ? posOnlyConverter : fullConverter;
+            final DSConverter converter;
+            if (forceModel.dependsOnPositionOnly()) {
+                if (posOnlyConverter == null) {
+                    posOnlyConverter = new DSConverter(s, 3, propagator.getAttitudeProvider());
+                }
+                converter = posOnlyConverter;
+            } else {
+                if (fullConverter == null) {
+                    fullConverter = new DSConverter(s, 6, propagator.getAttitudeProvider());
+                }
+                converter         = fullConverter;
+                velocityDependent = true;
+            }
             final FieldSpacecraftState<DerivativeStructure> dsState = converter.getState(forceModel);
             final DerivativeStructure[] parameters = converter.getParameters(dsState, forceModel);
 
@@ -325,15 +380,13 @@ public class PartialDerivativesEquations implements AdditionalEquations {
             addToRow(derivativesY, 1, converter.getFreeStateParameters(), dAccdPos, dAccdVel);
             addToRow(derivativesZ, 2, converter.getFreeStateParameters(), dAccdPos, dAccdVel);
 
+            // update Jacobians with respect to the selected parameters managed by this force model only
             int index = converter.getFreeStateParameters();
-            for (ParameterDriver driver : forceModel.getParametersDrivers()) {
-                if (driver.isSelected()) {
-                    final int parameterIndex = map.get(driver);
-                    ++index;
-                    dAccdParam[0][parameterIndex] += derivativesX[index];
-                    dAccdParam[1][parameterIndex] += derivativesY[index];
-                    dAccdParam[2][parameterIndex] += derivativesZ[index];
-                }
+            for (final int parameterIndex : getColumns(forceModel)) {
+                ++index;
+                dAccdParam[0][parameterIndex] += derivativesX[index];
+                dAccdParam[1][parameterIndex] += derivativesY[index];
+                dAccdParam[2][parameterIndex] += derivativesZ[index];
             }
 
         }
@@ -367,14 +420,16 @@ public class PartialDerivativesEquations implements AdditionalEquations {
         final double[] p = s.getAdditionalState(getName());
         System.arraycopy(p, dim * stateDim, pDot, 0, dim * stateDim);
 
-        // compute Cdot and Ddot
+        // compute Cdot and Ddot, the dAcc/dVel terms vanish if no force model depends on velocity
         for (int i = 0; i < dim; ++i) {
             final double[] dAdPi = dAccdPos[i];
             final double[] dAdVi = dAccdVel[i];
             for (int j = 0; j < stateDim; ++j) {
-                pDot[(dim + i) * stateDim + j] =
-                    dAdPi[0] * p[j]                + dAdPi[1] * p[j +     stateDim] + dAdPi[2] * p[j + 2 * stateDim] +
-                    dAdVi[0] * p[j + 3 * stateDim] + dAdVi[1] * p[j + 4 * stateDim] + dAdVi[2] * p[j + 5 * stateDim];
+                double dot = dAdPi[0] * p[j] + dAdPi[1] * p[j + stateDim] + dAdPi[2] * p[j + 2 * stateDim];
+                if (velocityDependent) {
+                    dot += dAdVi[0] * p[j + 3 * stateDim] + dAdVi[1] * p[j + 4 * stateDim] + dAdVi[2] * p[j + 5 * stateDim];
+                }
+                pDot[(dim + i) * stateDim + j] = dot;
             }
         }
 
@@ -401,8 +456,14 @@ public class PartialDerivativesEquations implements AdditionalEquations {
             // (E, F) columns into the single dimension array p and of the mapping of the
             // (Edot, Fdot) columns into the single dimension array pDot.
 
-            // copy F into Edot
             final int columnTop = stateDim * stateDim + k;
+            if (isZeroColumn(dAccdParam, k, p, columnTop, paramDim)) {
+                // the parameter has not influenced the orbit yet,
+                // the column remains zero and pDot is already zero
+                continue;
+            }
+
+            // copy F into Edot
             pDot[columnTop]                = p[columnTop + 3 * paramDim];
             pDot[columnTop +     paramDim] = p[columnTop + 4 * paramDim];
             pDot[columnTop + 2 * paramDim] = p[columnTop + 5 * paramDim];
@@ -411,10 +472,12 @@ public class PartialDerivativesEquations implements AdditionalEquations {
             for (int i = 0; i < dim; ++i) {
                 final double[] dAdPi = dAccdPos[i];
                 final double[] dAdVi = dAccdVel[i];
-                pDot[columnTop + (dim + i) * paramDim] =
-                    dAccdParam[i][k] +
-                    dAdPi[0] * p[columnTop]                + dAdPi[1] * p[columnTop +     paramDim] + dAdPi[2] * p[columnTop + 2 * paramDim] +
-                    dAdVi[0] * p[columnTop + 3 * paramDim] + dAdVi[1] * p[columnTop + 4 * paramDim] + dAdVi[2] * p[columnTop + 5 * paramDim];
+                double dot = dAccdParam[i][k] +
+                             dAdPi[0] * p[columnTop] + dAdPi[1] * p[columnTop + paramDim] + dAdPi[2] * p[columnTop + 2 * paramDim];
+                if (velocityDependent) {
+                    dot += dAdVi[0] * p[columnTop + 3 * paramDim] + dAdVi[1] * p[columnTop + 4 * paramDim] + dAdVi[2] * p[columnTop + 5 * paramDim];
+                }
+                pDot[columnTop + (dim + i) * paramDim] = dot;
             }
 
         }
@@ -424,6 +487,27 @@ public class PartialDerivativesEquations implements AdditionalEquations {
 
     }
 
+    /** Check if a parameter Jacobian column and its derivative are both zero.
+     * @param dAccdParam Jacobian of acceleration with respect to parameters
+     * @param k index of the parameter
+     * @param p current value of the Jacobians
+     * @param columnTop index of the top element of the column in {@code p}
+     * @param paramDim number of parameters
+     * @return true if the column remains zero
+     */
+    private boolean isZeroColumn(final double[][] dAccdParam, final int k,
+                                 final double[] p, final int columnTop, final int paramDim) {
+        if (dAccdParam[0][k] != 0 || dAccdParam[1][k] != 0 || dAccdParam[2][k] != 0) {
+            return false;
+        }
+        for (int i = 0; i < 6; ++i) {
+            if (p[columnTop + i * paramDim] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** Fill Jacobians rows.
      * @param derivatives derivatives of a component of acceleration (along either x, y or z)
      * @param index component index (0 for x, 1 for y, 2 for z)
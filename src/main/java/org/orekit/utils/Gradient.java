@@ -0,0 +1,719 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.hipparchus.RealFieldElement;
+import org.hipparchus.analysis.differentiation.DSFactory;
+import org.hipparchus.analysis.differentiation.DerivativeStructure;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathArrays;
+import org.orekit.errors.OrekitIllegalArgumentException;
+
+/** Class representing a value with its first order partial derivatives.
+ * <p>
+ * This class is a specialization of {@link DerivativeStructure} restricted
+ * to first order derivatives. As there is no need for the generic derivation
+ * rules compilation used by {@link DerivativeStructure}, all operations are
+ * implemented directly using the chain rule on a simple gradient array, which
+ * is much faster. It is the recommended field for first order derivatives, as
+ * used for example for state transition matrices, orbit determination Jacobians
+ * or linear covariance propagation with {@link
+ * org.orekit.propagation.numerical.FieldNumericalPropagator FieldNumericalPropagator}.
+ * </p>
+ * <p>Instances of this class are guaranteed to be immutable.</p>
+ * @see GradientField
+ * @see DerivativeStructure
+ * @since 9.3
+ */
+public class Gradient implements RealFieldElement<Gradient>, Serializable {
+
+    /** Serializable UID. */
+    private static final long serialVersionUID = 20181018L;
+
+    /** Value of the function. */
+    private final double value;
+
+    /** Gradient of the function. */
+    private final double[] grad;
+
+    /** Build an instance with values and derivative.
+     * @param value value of the function
+     * @param gradient gradient of the function
+     */
+    public Gradient(final double value, final double... gradient) {
+        this.value = value;
+        this.grad  = gradient.clone();
+    }
+
+    /** Build an instance from a {@link DerivativeStructure}.
+     * <p>
+     * Only the value and the first order derivatives are used.
+     * </p>
+     * @param ds derivative structure to convert
+     */
+    public Gradient(final DerivativeStructure ds) {
+        this.value = ds.getValue();
+        this.grad  = new double[ds.getFreeParameters()];
+        if (ds.getOrder() > 0) {
+            final int[] orders = new int[grad.length];
+            for (int i = 0; i < grad.length; ++i) {
+                orders[i] = 1;
+                grad[i]   = ds.getPartialDerivative(orders);
+                orders[i] = 0;
+            }
+        }
+    }
+
+    /** Build an instance with values and unset derivatives.
+     * @param value value of the function
+     * @param freeParameters number of free parameters
+     */
+    private Gradient(final double value, final int freeParameters) {
+        this.value = value;
+        this.grad  = new double[freeParameters];
+    }
+
+    /** Build an instance representing a constant value.
+     * @param freeParameters number of free parameters
+     * @param value value of the constant
+     * @return a new instance
+     */
+    public static Gradient constant(final int freeParameters, final double value) {
+        return new Gradient(value, freeParameters);
+    }
+
+    /** Build an instance representing a variable.
+     * @param freeParameters number of free parameters
+     * @param index index of the variable (from 0 to {@code freeParameters - 1})
+     * @param value value of the variable
+     * @return a new instance
+     */
+    public static Gradient variable(final int freeParameters, final int index, final double value) {
+        final Gradient g = new Gradient(value, freeParameters);
+        g.grad[index] = 1.0;
+        return g;
+    }
+
+    /** Convert the instance to a {@link DerivativeStructure} of order 1.
+     * @return a new derivative structure with the same value and gradient
+     */
+    public DerivativeStructure toDerivativeStructure() {
+        final double[] all = new double[1 + grad.length];
+        all[0] = value;
+        System.arraycopy(grad, 0, all, 1, grad.length);
+        return new DSFactory(grad.length, 1).build(all);
+    }
+
+    /** Get the value of the function.
+     * @return value of the function
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /** Get the gradient of the function.
+     * @return a copy of the gradient of the function
+     */
+    public double[] getGradient() {
+        return grad.clone();
+    }
+
+    /** Get one partial derivative.
+     * @param n index of the parameter (counting from 0)
+     * @return partial derivative with respect to the n<sup>th</sup> parameter
+     */
+    public double getPartialDerivative(final int n) {
+        return grad[n];
+    }
+
+    /** Get the number of free parameters.
+     * @return number of free parameters
+     */
+    public int getFreeParameters() {
+        return grad.length;
+    }
+
+    /** {@inheritDoc} */
+    public GradientField getField() {
+        return GradientField.getField(grad.length);
+    }
+
+    /** {@inheritDoc} */
+    public double getReal() {
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient add(final Gradient a) {
+        checkCompatibility(a);
+        final Gradient result = new Gradient(value + a.value, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = grad[i] + a.grad[i];
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient add(final double a) {
+        return new Gradient(value + a, grad);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient subtract(final Gradient a) {
+        checkCompatibility(a);
+        final Gradient result = new Gradient(value - a.value, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = grad[i] - a.grad[i];
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient subtract(final double a) {
+        return new Gradient(value - a, grad);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient negate() {
+        return compose(-value, -1.0);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient multiply(final int n) {
+        return compose(n * value, n);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient multiply(final double a) {
+        return compose(a * value, a);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient multiply(final Gradient a) {
+        checkCompatibility(a);
+        final Gradient result = new Gradient(value * a.value, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = grad[i] * a.value + value * a.grad[i];
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient divide(final double a) {
+        final double inv = 1.0 / a;
+        return compose(value * inv, inv);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient divide(final Gradient a) {
+        checkCompatibility(a);
+        final double   inv    = 1.0 / a.value;
+        final Gradient result = new Gradient(value * inv, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = (grad[i] - result.value * a.grad[i]) * inv;
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient reciprocal() {
+        final double inv = 1.0 / value;
+        return compose(inv, -inv * inv);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient remainder(final double a) {
+        return new Gradient(FastMath.IEEEremainder(value, a), grad);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient remainder(final Gradient a) {
+        checkCompatibility(a);
+
+        // compute k such that lhs % rhs = lhs - k rhs
+        final double rem = FastMath.IEEEremainder(value, a.value);
+        final double k   = FastMath.rint((value - rem) / a.value);
+
+        final Gradient result = new Gradient(rem, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = grad[i] - k * a.grad[i];
+        }
+        return result;
+
+    }
+
+    /** {@inheritDoc} */
+    public Gradient abs() {
+        if (Double.doubleToLongBits(value) < 0) {
+            // we use the bits representation to also handle -0.0
+            return negate();
+        } else {
+            return this;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Gradient ceil() {
+        return new Gradient(FastMath.ceil(value), grad.length);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient floor() {
+        return new Gradient(FastMath.floor(value), grad.length);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient rint() {
+        return new Gradient(FastMath.rint(value), grad.length);
+    }
+
+    /** {@inheritDoc} */
+    public long round() {
+        return FastMath.round(value);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient signum() {
+        return new Gradient(FastMath.signum(value), grad.length);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient copySign(final Gradient sign) {
+        return copySign(sign.value);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient copySign(final double sign) {
+        final long m = Double.doubleToLongBits(value);
+        final long s = Double.doubleToLongBits(sign);
+        if ((m >= 0 && s >= 0) || (m < 0 && s < 0)) {
+            // sign is currently OK
+            return this;
+        }
+        // flip sign
+        return negate();
+    }
+
+    /** {@inheritDoc} */
+    public Gradient scalb(final int n) {
+        final Gradient result = new Gradient(FastMath.scalb(value, n), grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = FastMath.scalb(grad[i], n);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient hypot(final Gradient y) {
+
+        checkCompatibility(y);
+
+        if (Double.isInfinite(value) || Double.isInfinite(y.value)) {
+            return new Gradient(Double.POSITIVE_INFINITY, grad.length);
+        } else if (Double.isNaN(value) || Double.isNaN(y.value)) {
+            return new Gradient(Double.NaN, grad.length);
+        } else {
+
+            final int expX = FastMath.getExponent(value);
+            final int expY = FastMath.getExponent(y.value);
+            if (expX > expY + 27) {
+                // y is negligible with respect to x
+                return abs();
+            } else if (expY > expX + 27) {
+                // x is negligible with respect to y
+                return y.abs();
+            } else {
+
+                // find an intermediate scale to avoid both overflow and underflow
+                final int middleExp = (expX + expY) / 2;
+
+                // scale parameters without losing precision
+                final Gradient scaledX = scalb(-middleExp);
+                final Gradient scaledY = y.scalb(-middleExp);
+
+                // compute scaled hypotenuse
+                final Gradient scaledH =
+                        scaledX.multiply(scaledX).add(scaledY.multiply(scaledY)).sqrt();
+
+                // remove scaling
+                return scaledH.scalb(middleExp);
+
+            }
+
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Gradient sqrt() {
+        final double s = FastMath.sqrt(value);
+        return compose(s, 1.0 / (2.0 * s));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient cbrt() {
+        final double c = FastMath.cbrt(value);
+        return compose(c, 1.0 / (3.0 * c * c));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient rootN(final int n) {
+        if (n == 2) {
+            return sqrt();
+        } else if (n == 3) {
+            return cbrt();
+        } else {
+            final double r = FastMath.pow(value, 1.0 / n);
+            return compose(r, 1.0 / (n * FastMath.pow(r, n - 1)));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Gradient pow(final double p) {
+        if (p == 0) {
+            return new Gradient(1.0, grad.length);
+        } else {
+            // value and derivative are computed independently, so that
+            // a zero value with p < 1 does not lead to 0 * infinity
+            return compose(FastMath.pow(value, p), p * FastMath.pow(value, p - 1));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Gradient pow(final int n) {
+        if (n == 0) {
+            return new Gradient(1.0, grad.length);
+        } else {
+            // value and derivative are computed independently, so that
+            // a zero value with n < 0 does not lead to 0 * infinity
+            return compose(FastMath.pow(value, n), n * FastMath.pow(value, n - 1));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Gradient pow(final Gradient e) {
+        checkCompatibility(e);
+        return log().multiply(e).exp();
+    }
+
+    /** {@inheritDoc} */
+    public Gradient exp() {
+        final double exp = FastMath.exp(value);
+        return compose(exp, exp);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient expm1() {
+        return compose(FastMath.expm1(value), FastMath.exp(value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient log() {
+        return compose(FastMath.log(value), 1.0 / value);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient log1p() {
+        return compose(FastMath.log1p(value), 1.0 / (1.0 + value));
+    }
+
+    /** Base 10 logarithm.
+     * @return base 10 logarithm of the instance
+     */
+    public Gradient log10() {
+        return compose(FastMath.log10(value), 1.0 / (value * FastMath.log(10.0)));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient cos() {
+        return compose(FastMath.cos(value), -FastMath.sin(value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient sin() {
+        return compose(FastMath.sin(value), FastMath.cos(value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient tan() {
+        final double t = FastMath.tan(value);
+        return compose(t, 1 + t * t);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient acos() {
+        return compose(FastMath.acos(value), -1.0 / FastMath.sqrt(1 - value * value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient asin() {
+        return compose(FastMath.asin(value), 1.0 / FastMath.sqrt(1 - value * value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient atan() {
+        return compose(FastMath.atan(value), 1.0 / (1 + value * value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient atan2(final Gradient x) {
+        checkCompatibility(x);
+        final double   inv    = 1.0 / (value * value + x.value * x.value);
+        final Gradient result = new Gradient(FastMath.atan2(value, x.value), grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = (x.value * grad[i] - value * x.grad[i]) * inv;
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient cosh() {
+        return compose(FastMath.cosh(value), FastMath.sinh(value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient sinh() {
+        return compose(FastMath.sinh(value), FastMath.cosh(value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient tanh() {
+        final double t = FastMath.tanh(value);
+        return compose(t, 1 - t * t);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient acosh() {
+        return compose(FastMath.acosh(value), 1.0 / FastMath.sqrt(value * value - 1));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient asinh() {
+        return compose(FastMath.asinh(value), 1.0 / FastMath.sqrt(value * value + 1));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient atanh() {
+        return compose(FastMath.atanh(value), 1.0 / (1 - value * value));
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final Gradient[] a, final Gradient[] b) {
+
+        final int n = a.length;
+        if (b.length != n) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.DIMENSIONS_MISMATCH, n, b.length);
+        }
+
+        // value
+        final double[] aValues = new double[n];
+        final double[] bValues = new double[n];
+        for (int k = 0; k < n; ++k) {
+            a[k].checkCompatibility(b[k]);
+            aValues[k] = a[k].value;
+            bValues[k] = b[k].value;
+        }
+        final Gradient result = new Gradient(MathArrays.linearCombination(aValues, bValues), a[0].grad.length);
+
+        // gradient, using the product rule on each term
+        final double[] left  = new double[2 * n];
+        final double[] right = new double[2 * n];
+        for (int i = 0; i < result.grad.length; ++i) {
+            for (int k = 0; k < n; ++k) {
+                left[2 * k]      = aValues[k];
+                right[2 * k]     = b[k].grad[i];
+                left[2 * k + 1]  = a[k].grad[i];
+                right[2 * k + 1] = bValues[k];
+            }
+            result.grad[i] = MathArrays.linearCombination(left, right);
+        }
+
+        return result;
+
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final double[] a, final Gradient[] b) {
+
+        final int n = a.length;
+        if (b.length != n) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.DIMENSIONS_MISMATCH, n, b.length);
+        }
+
+        final double[] bComponents = new double[n];
+        for (int k = 0; k < n; ++k) {
+            b[0].checkCompatibility(b[k]);
+            bComponents[k] = b[k].value;
+        }
+        final Gradient result = new Gradient(MathArrays.linearCombination(a, bComponents), b[0].grad.length);
+
+        for (int i = 0; i < result.grad.length; ++i) {
+            for (int k = 0; k < n; ++k) {
+                bComponents[k] = b[k].grad[i];
+            }
+            result.grad[i] = MathArrays.linearCombination(a, bComponents);
+        }
+
+        return result;
+
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final Gradient a1, final Gradient b1,
+                                      final Gradient a2, final Gradient b2) {
+        return linearCombination(new Gradient[] {
+                                     a1, a2
+                                 }, new Gradient[] {
+                                     b1, b2
+                                 });
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final double a1, final Gradient b1,
+                                      final double a2, final Gradient b2) {
+        b1.checkCompatibility(b2);
+        final Gradient result = new Gradient(MathArrays.linearCombination(a1, b1.value, a2, b2.value),
+                                             b1.grad.length);
+        for (int i = 0; i < result.grad.length; ++i) {
+            result.grad[i] = MathArrays.linearCombination(a1, b1.grad[i], a2, b2.grad[i]);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final Gradient a1, final Gradient b1,
+                                      final Gradient a2, final Gradient b2,
+                                      final Gradient a3, final Gradient b3) {
+        return linearCombination(new Gradient[] {
+                                     a1, a2, a3
+                                 }, new Gradient[] {
+                                     b1, b2, b3
+                                 });
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final double a1, final Gradient b1,
+                                      final double a2, final Gradient b2,
+                                      final double a3, final Gradient b3) {
+        b1.checkCompatibility(b2);
+        b1.checkCompatibility(b3);
+        final Gradient result = new Gradient(MathArrays.linearCombination(a1, b1.value,
+                                                                          a2, b2.value,
+                                                                          a3, b3.value),
+                                             b1.grad.length);
+        for (int i = 0; i < result.grad.length; ++i) {
+            result.grad[i] = MathArrays.linearCombination(a1, b1.grad[i],
+                                                          a2, b2.grad[i],
+                                                          a3, b3.grad[i]);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final Gradient a1, final Gradient b1,
+                                      final Gradient a2, final Gradient b2,
+                                      final Gradient a3, final Gradient b3,
+                                      final Gradient a4, final Gradient b4) {
+        return linearCombination(new Gradient[] {
+                                     a1, a2, a3, a4
+                                 }, new Gradient[] {
+                                     b1, b2, b3, b4
+                                 });
+    }
+
+    /** {@inheritDoc} */
+    public Gradient linearCombination(final double a1, final Gradient b1,
+                                      final double a2, final Gradient b2,
+                                      final double a3, final Gradient b3,
+                                      final double a4, final Gradient b4) {
+        b1.checkCompatibility(b2);
+        b1.checkCompatibility(b3);
+        b1.checkCompatibility(b4);
+        final Gradient result = new Gradient(MathArrays.linearCombination(a1, b1.value,
+                                                                          a2, b2.value,
+                                                                          a3, b3.value,
+                                                                          a4, b4.value),
+                                             b1.grad.length);
+        for (int i = 0; i < result.grad.length; ++i) {
+            result.grad[i] = MathArrays.linearCombination(a1, b1.grad[i],
+                                                          a2, b2.grad[i],
+                                                          a3, b3.grad[i],
+                                                          a4, b4.grad[i]);
+        }
+        return result;
+    }
+
+    /** Test for the equality of two gradients.
+     * <p>
+     * Gradients are considered equal if they have the same value
+     * and the same partial derivatives.
+     * </p>
+     * @param other object to test for equality to this
+     * @return true if two gradients are equal
+     */
+    @Override
+    public boolean equals(final Object other) {
+
+        if (this == other) {
+            return true;
+        }
+
+        if (other instanceof Gradient) {
+            final Gradient rhs = (Gradient) other;
+            return Double.doubleToLongBits(value) == Double.doubleToLongBits(rhs.value) &&
+                   Arrays.equals(grad, rhs.grad);
+        }
+
+        return false;
+
+    }
+
+    /** Get a hashCode for the gradient.
+     * @return a hash code value for this object
+     */
+    @Override
+    public int hashCode() {
+        return 129 + 7 * Double.hashCode(value) - 15 * Arrays.hashCode(grad);
+    }
+
+    /** Compute composition of the instance by a univariate function.
+     * @param f0 value of the function at the current point
+     * @param f1 first derivative of the function at the current point
+     * @return f(this)
+     */
+    private Gradient compose(final double f0, final double f1) {
+        final Gradient result = new Gradient(f0, grad.length);
+        for (int i = 0; i < grad.length; ++i) {
+            result.grad[i] = f1 * grad[i];
+        }
+        return result;
+    }
+
+    /** Check compatibility with another instance.
+     * @param other other instance to check
+     */
+    private void checkCompatibility(final Gradient other) {
+        if (other.grad.length != grad.length) {
+            throw new OrekitIllegalArgumentException(LocalizedCoreFormats.DIMENSIONS_MISMATCH,
+                                                     grad.length, other.grad.length);
+        }
+    }
+
+}
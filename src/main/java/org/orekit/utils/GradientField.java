@@ -0,0 +1,91 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hipparchus.Field;
+
+/** Field for {@link Gradient} instances.
+ * <p>
+ * There is one field for each number of free parameters. Fields are
+ * cached, so they should be retrieved using {@link #getField(int)}.
+ * </p>
+ * @since 9.3
+ */
+public class GradientField implements Field<Gradient> {
+
+    /** Cached fields. */
+    private static final Map<Integer, GradientField> CACHE = new ConcurrentHashMap<>();
+
+    /** Zero constant. */
+    private final Gradient zero;
+
+    /** One constant. */
+    private final Gradient one;
+
+    /** Private constructor for the cached fields.
+     * @param parameters number of free parameters
+     */
+    private GradientField(final int parameters) {
+        this.zero = Gradient.constant(parameters, 0.0);
+        this.one  = Gradient.constant(parameters, 1.0);
+    }
+
+    /** Get the field for a number of free parameters.
+     * @param parameters number of free parameters
+     * @return cached field
+     */
+    public static GradientField getField(final int parameters) {
+        return CACHE.computeIfAbsent(parameters, GradientField::new);
+    }
+
+    /** {@inheritDoc} */
+    public Gradient getZero() {
+        return zero;
+    }
+
+    /** {@inheritDoc} */
+    public Gradient getOne() {
+        return one;
+    }
+
+    /** {@inheritDoc} */
+    public Class<Gradient> getRuntimeClass() {
+        return Gradient.class;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        } else if (other instanceof GradientField) {
+            return zero.getFreeParameters() == ((GradientField) other).zero.getFreeParameters();
+        } else {
+            return false;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 0x3a1c2d5b ^ zero.getFreeParameters();
+    }
+
+}
@@ -0,0 +1,168 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.attitudes;
+
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.RotationOrder;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.Decimal64;
+import org.hipparchus.util.Decimal64Field;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.FramesFactory;
+import org.orekit.frames.LOFType;
+import org.orekit.orbits.FieldKeplerianOrbit;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.analytical.KeplerianPropagator;
+import org.orekit.propagation.events.DateDetector;
+import org.orekit.propagation.events.handlers.ContinueOnEvent;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.AngularDerivativesFilter;
+import org.orekit.utils.Constants;
+import org.orekit.utils.FieldPVCoordinates;
+import org.orekit.utils.PVCoordinates;
+
+public class AttitudesTimelineTest {
+
+    private AbsoluteDate initialDate;
+    private Orbit        orbit;
+
+    @Test
+    public void testConsistencyWithSequence() throws OrekitException {
+
+        final AttitudeProvider[] laws = new AttitudeProvider[21];
+        for (int k = 0; k < laws.length; ++k) {
+            laws[k] = new LofOffset(orbit.getFrame(), LOFType.VVLH, RotationOrder.XYZ,
+                                    FastMath.toRadians(k % 2 == 0 ? 0.0 : 40.0), FastMath.toRadians(3.0 * k), 0.0);
+        }
+
+        final AttitudesSequence sequence = new AttitudesSequence();
+        final AttitudesTimeline timeline = new AttitudesTimeline(laws[0]);
+        for (int k = 1; k < laws.length; ++k) {
+            final AbsoluteDate switchDate = initialDate.shiftedBy(300.0 * k);
+            sequence.addSwitchingCondition(laws[k - 1], laws[k],
+                                           new DateDetector(switchDate).withHandler(new ContinueOnEvent<>()),
+                                           true, false, 60.0, AngularDerivativesFilter.USE_RR, null);
+            timeline.addSwitch(switchDate, laws[k], 60.0, AngularDerivativesFilter.USE_RR);
+        }
+        Assert.assertEquals(20, timeline.getSwitchesNumber());
+
+        final Propagator propagator = new KeplerianPropagator(orbit, sequence);
+        sequence.registerSwitchEvents(propagator);
+        final double[] maxError = new double[1];
+        propagator.setMasterMode(7.0, (state, isLast) -> {
+            final Attitude attitude = timeline.getAttitude(state.getOrbit(), state.getDate(), state.getFrame());
+            maxError[0] = FastMath.max(maxError[0],
+                                       Rotation.distance(state.getAttitude().getRotation(), attitude.getRotation()));
+        });
+        propagator.propagate(initialDate.shiftedBy(6600.0));
+        Assert.assertEquals(0.0, maxError[0], 1.0e-9);
+
+    }
+
+    @Test
+    public void testLaws() throws OrekitException {
+        final AttitudeProvider even = new InertialProvider(Rotation.IDENTITY);
+        final AttitudeProvider odd  = new LofOffset(orbit.getFrame(), LOFType.VVLH);
+        final AttitudesTimeline timeline = new AttitudesTimeline(even);
+        Assert.assertEquals(0, timeline.getSwitchesNumber());
+        Assert.assertSame(even, timeline.getLaw(initialDate));
+        for (int k = 1; k <= 5000; ++k) {
+            timeline.addSwitch(initialDate.shiftedBy(100.0 * k), k % 2 == 0 ? even : odd,
+                               10.0, AngularDerivativesFilter.USE_R);
+        }
+        Assert.assertEquals(5000, timeline.getSwitchesNumber());
+        Assert.assertSame(even, timeline.getLaw(initialDate.shiftedBy(-1.0e6)));
+        Assert.assertSame(even, timeline.getLaw(initialDate.shiftedBy(99.999)));
+        Assert.assertSame(odd,  timeline.getLaw(initialDate.shiftedBy(100.0)));
+        Assert.assertSame(odd,  timeline.getLaw(initialDate.shiftedBy(4321.0)));
+        Assert.assertSame(even, timeline.getLaw(initialDate.shiftedBy(123456.0)));
+        Assert.assertSame(even, timeline.getLaw(initialDate.shiftedBy(1.0e6)));
+
+        // outside of transitions, attitude is given by the active law
+        final AbsoluteDate date = initialDate.shiftedBy(4321.0);
+        Assert.assertEquals(0.0,
+                            Rotation.distance(odd.getAttitude(orbit, date, orbit.getFrame()).getRotation(),
+                                              timeline.getAttitude(orbit, date, orbit.getFrame()).getRotation()),
+                            1.0e-15);
+
+        // at transition start, attitude is still given by the preceding law
+        final AbsoluteDate switchDate = initialDate.shiftedBy(4400.0);
+        Assert.assertEquals(0.0,
+                            Rotation.distance(odd.getAttitude(orbit, switchDate, orbit.getFrame()).getRotation(),
+                                              timeline.getAttitude(orbit, switchDate, orbit.getFrame()).getRotation()),
+                            1.0e-15);
+
+    }
+
+    @Test
+    public void testField() throws OrekitException {
+        final AttitudeProvider first  = new InertialProvider(Rotation.IDENTITY);
+        final AttitudeProvider second = new LofOffset(orbit.getFrame(), LOFType.VVLH);
+        final AttitudesTimeline timeline = new AttitudesTimeline(first);
+        timeline.addSwitch(initialDate.shiftedBy(100.0), second, 50.0, AngularDerivativesFilter.USE_RR);
+        timeline.addSwitch(initialDate.shiftedBy(500.0), first,  50.0, AngularDerivativesFilter.USE_RR);
+
+        final Decimal64Field field = Decimal64Field.getInstance();
+        final FieldKeplerianOrbit<Decimal64> fieldOrbit =
+                        new FieldKeplerianOrbit<>(new FieldPVCoordinates<>(field, orbit.getPVCoordinates()),
+                                                  orbit.getFrame(), new FieldAbsoluteDate<>(field, initialDate),
+                                                  orbit.getMu());
+        for (double dt = 0; dt < 700.0; dt += 3.5) {
+            final AbsoluteDate date = initialDate.shiftedBy(dt);
+            final Attitude             expected = timeline.getAttitude(orbit, date, orbit.getFrame());
+            final FieldAttitude<Decimal64> actual =
+                            timeline.getAttitude(fieldOrbit, new FieldAbsoluteDate<>(field, date), orbit.getFrame());
+            Assert.assertEquals(0.0, Rotation.distance(expected.getRotation(), actual.toAttitude().getRotation()),
+                                1.0e-14);
+        }
+    }
+
+    @Test
+    public void testOverlappingSwitches() throws OrekitException {
+        final AttitudesTimeline timeline = new AttitudesTimeline(new InertialProvider(Rotation.IDENTITY));
+        timeline.addSwitch(initialDate, new InertialProvider(Rotation.IDENTITY), 60.0, AngularDerivativesFilter.USE_R);
+        try {
+            timeline.addSwitch(initialDate.shiftedBy(30.0), new InertialProvider(Rotation.IDENTITY),
+                               60.0, AngularDerivativesFilter.USE_R);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NON_CHRONOLOGICALLY_SORTED_ENTRIES, oe.getSpecifier());
+        }
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data");
+        initialDate = new AbsoluteDate(2004, 01, 01, 23, 30, 00.000, TimeScalesFactory.getUTC());
+        final Vector3D position = new Vector3D(-6142438.668, 3492467.560, -25767.25680);
+        final Vector3D velocity = new Vector3D(505.8479685, 942.7809215, 7435.922231);
+        orbit = new KeplerianOrbit(new PVCoordinates(position, velocity),
+                                   FramesFactory.getEME2000(), initialDate,
+                                   Constants.EIGEN5C_EARTH_MU);
+    }
+
+}
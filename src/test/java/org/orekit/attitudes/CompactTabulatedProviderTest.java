@@ -0,0 +1,279 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.attitudes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.RotationConvention;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.Decimal64;
+import org.hipparchus.util.Decimal64Field;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.CircularOrbit;
+import org.orekit.orbits.FieldOrbit;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.FieldSpacecraftState;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.analytical.KeplerianPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.DateComponents;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.time.TimeComponents;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.AngularDerivativesFilter;
+import org.orekit.utils.IERSConventions;
+import org.orekit.utils.TimeStampedAngularCoordinates;
+
+public class CompactTabulatedProviderTest {
+
+    private CircularOrbit    circOrbit;
+    private AttitudeProvider referenceProvider;
+
+    @Test
+    public void testSlerp() throws OrekitException {
+        final List<TimeStampedAngularCoordinates> sample = createSample(1.0);
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), sample, AngularDerivativesFilter.USE_R);
+        Assert.assertEquals(sample.size(), provider.getSamplesNumber());
+        Assert.assertEquals(sample.get(0).getDate(), provider.getReferenceDate());
+        checkError(provider, 0.1, 1.1e-9, 4.2e-9);
+    }
+
+    @Test
+    public void testHermite() throws OrekitException {
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), createSample(1.0),
+                                                     AngularDerivativesFilter.USE_RR);
+        checkError(provider, 0.1, 1.2e-13, 9.0e-13);
+    }
+
+    @Test
+    public void testConsistencyWithTabulatedProvider() throws OrekitException {
+        final List<TimeStampedAngularCoordinates> sample = createSample(1.0);
+        final CompactTabulatedProvider compact =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), sample, AngularDerivativesFilter.USE_RR);
+        final TabulatedProvider tabulated =
+                        new TabulatedProvider(circOrbit.getFrame(), sample, 2, AngularDerivativesFilter.USE_RR);
+        for (double dt = 0.05; dt < 600; dt += 0.37) {
+            final AbsoluteDate date = circOrbit.getDate().shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Rotation.distance(tabulated.getAttitude(circOrbit, date, circOrbit.getFrame()).getRotation(),
+                                                  compact.getAttitude(circOrbit, date, circOrbit.getFrame()).getRotation()),
+                                2.0e-12);
+        }
+    }
+
+    @Test
+    public void testBulk() throws OrekitException {
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), createSample(1.0),
+                                                     AngularDerivativesFilter.USE_RR);
+        final double last = provider.getSamplesNumber() - 1;
+
+        // increasing, decreasing and unsorted dates, including table boundaries
+        final double[][] allDates = {
+            { 0.0, 0.25, 0.5, 1.0, 1.7, 2.9, 3.0, 3.1, 10.0, 250.3, last - 0.5, last },
+            { last, last - 0.2, last - 1.0, 17.3, 16.9, 16.2, 0.0 },
+            { 1.2, 120.7, 0.4, last, 33.3, 33.2, 600.0 }
+        };
+        for (final double[] dates : allDates) {
+            final double[] quaternions = new double[4 * dates.length];
+            final double[] rates       = new double[3 * dates.length];
+            provider.getAttitudes(dates, quaternions, rates);
+            for (int j = 0; j < dates.length; ++j) {
+                final AbsoluteDate date = provider.getReferenceDate().shiftedBy(dates[j]);
+                final Attitude     a    = provider.getAttitude(circOrbit, date, circOrbit.getFrame());
+                final Rotation     r    = new Rotation(quaternions[4 * j],     quaternions[4 * j + 1],
+                                                       quaternions[4 * j + 2], quaternions[4 * j + 3],
+                                                       false);
+                Assert.assertEquals(0.0, Rotation.distance(a.getRotation(), r), 1.0e-15);
+                Assert.assertEquals(0.0,
+                                    Vector3D.distance(a.getSpin(),
+                                                      new Vector3D(rates[3 * j], rates[3 * j + 1], rates[3 * j + 2])),
+                                    1.0e-15);
+            }
+        }
+
+        // rates are optional
+        provider.getAttitudes(new double[] { 1.5, 2.5 }, new double[8], null);
+
+    }
+
+    @Test
+    public void testOutOfRange() throws OrekitException {
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), createSample(10.0),
+                                                     AngularDerivativesFilter.USE_R);
+        try {
+            provider.getAttitude(circOrbit, provider.getReferenceDate().shiftedBy(-0.001), circOrbit.getFrame());
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.UNABLE_TO_GENERATE_NEW_DATA_BEFORE, oe.getSpecifier());
+        }
+        try {
+            provider.getAttitudes(new double[] { 10.0, 1.0e6 }, new double[8], new double[6]);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.UNABLE_TO_GENERATE_NEW_DATA_AFTER, oe.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testWrongTables() {
+        final AbsoluteDate date = circOrbit.getDate();
+        try {
+            new CompactTabulatedProvider(circOrbit.getFrame(), date, new double[] { 0.0 },
+                                         new double[] { 1, 0, 0, 0 }, null, AngularDerivativesFilter.USE_R);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NOT_ENOUGH_DATA_FOR_INTERPOLATION, oe.getSpecifier());
+        }
+        try {
+            new CompactTabulatedProvider(circOrbit.getFrame(), date, new double[] { 0.0, 1.0 },
+                                         new double[] { 1, 0, 0, 0, 1, 0, 0, 0 }, new double[3],
+                                         AngularDerivativesFilter.USE_RR);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.DIMENSIONS_MISMATCH, oe.getSpecifier());
+        }
+        try {
+            new CompactTabulatedProvider(circOrbit.getFrame(), date, new double[] { 0.0, 0.0 },
+                                         new double[] { 1, 0, 0, 0, 1, 0, 0, 0 }, null,
+                                         AngularDerivativesFilter.USE_R);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NON_CHRONOLOGICALLY_SORTED_ENTRIES, oe.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testQuaternionsSign() throws OrekitException {
+        // opposite quaternions represent the same rotation
+        final Rotation r0 = Rotation.IDENTITY;
+        final Rotation r1 = new Rotation(Vector3D.PLUS_K, 0.2, RotationConvention.VECTOR_OPERATOR);
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), circOrbit.getDate(),
+                                                     new double[] { 0.0, 2.0 },
+                                                     new double[] {
+                                                         r0.getQ0(), r0.getQ1(), r0.getQ2(), r0.getQ3(),
+                                                         -r1.getQ0(), -r1.getQ1(), -r1.getQ2(), -r1.getQ3()
+                                                     }, null, AngularDerivativesFilter.USE_R);
+        final Attitude middle = provider.getAttitude(circOrbit, circOrbit.getDate().shiftedBy(1.0), circOrbit.getFrame());
+        Assert.assertEquals(0.1, Rotation.distance(r0, middle.getRotation()), 1.0e-15);
+        Assert.assertEquals(0.1, middle.getSpin().getNorm(), 1.0e-15);
+    }
+
+    @Test
+    public void testField() throws OrekitException {
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), createSample(1.0),
+                                                     AngularDerivativesFilter.USE_RR);
+        final AbsoluteDate date = circOrbit.getDate().shiftedBy(123.4);
+        final Attitude attitudeD = provider.getAttitude(circOrbit, date, circOrbit.getFrame());
+        final Decimal64Field field = Decimal64Field.getInstance();
+        final FieldOrbit<Decimal64> orbitF =
+                        new FieldSpacecraftState<>(field, new SpacecraftState(circOrbit)).getOrbit();
+        final FieldAttitude<Decimal64> attitudeF =
+                        provider.getAttitude(orbitF, new FieldAbsoluteDate<>(field, date), circOrbit.getFrame());
+        Assert.assertEquals(0.0, Rotation.distance(attitudeD.getRotation(), attitudeF.getRotation().toRotation()), 1.0e-15);
+        Assert.assertEquals(0.0, Vector3D.distance(attitudeD.getSpin(), attitudeF.getSpin().toVector3D()), 1.0e-15);
+    }
+
+    @Test
+    public void testSerialization() throws OrekitException, IOException, ClassNotFoundException {
+        final CompactTabulatedProvider provider =
+                        new CompactTabulatedProvider(circOrbit.getFrame(), createSample(10.0),
+                                                     AngularDerivativesFilter.USE_RR);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream    oos = new ObjectOutputStream(bos);
+        oos.writeObject(provider);
+
+        ByteArrayInputStream  bis = new ByteArrayInputStream(bos.toByteArray());
+        ObjectInputStream     ois = new ObjectInputStream(bis);
+        CompactTabulatedProvider deserialized  = (CompactTabulatedProvider) ois.readObject();
+
+        for (double dt = 0; dt < 600; dt += 7.3) {
+            final AbsoluteDate date = circOrbit.getDate().shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Rotation.distance(provider.getAttitude(circOrbit, date, circOrbit.getFrame()).getRotation(),
+                                                  deserialized.getAttitude(circOrbit, date, circOrbit.getFrame()).getRotation()),
+                                1.0e-20);
+        }
+
+    }
+
+    private List<TimeStampedAngularCoordinates> createSample(final double samplingRate)
+        throws OrekitException {
+        final KeplerianPropagator referencePropagator = new KeplerianPropagator(circOrbit);
+        referencePropagator.setAttitudeProvider(referenceProvider);
+        final List<TimeStampedAngularCoordinates> sample = new ArrayList<>();
+        referencePropagator.setMasterMode(samplingRate,
+                                          (state, isLast) -> sample.add(state.getAttitude().getOrientation()));
+        referencePropagator.propagate(circOrbit.getDate().shiftedBy(600.0));
+        return sample;
+    }
+
+    private void checkError(final CompactTabulatedProvider provider, final double checkingRate,
+                            final double maxRotationError, final double maxRateError)
+        throws OrekitException {
+        double rotationError = 0;
+        double rateError     = 0;
+        for (double dt = 0; dt <= 600.0; dt += checkingRate) {
+            final AbsoluteDate date        = circOrbit.getDate().shiftedBy(dt);
+            final Attitude     reference   = referenceProvider.getAttitude(circOrbit, date, circOrbit.getFrame());
+            final Attitude     interpolated = provider.getAttitude(circOrbit, date, circOrbit.getFrame());
+            rotationError = FastMath.max(rotationError,
+                                         Rotation.distance(reference.getRotation(), interpolated.getRotation()));
+            rateError     = FastMath.max(rateError,
+                                         Vector3D.distance(reference.getSpin(), interpolated.getSpin()));
+        }
+        Assert.assertEquals(0.0, rotationError, maxRotationError);
+        Assert.assertEquals(0.0, rateError,     maxRateError);
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data");
+        final AbsoluteDate date = new AbsoluteDate(new DateComponents(2008, 04, 07),
+                                                   TimeComponents.H00,
+                                                   TimeScalesFactory.getUTC());
+        circOrbit = new CircularOrbit(7178000.0, 0.5e-4, -0.5e-4, FastMath.toRadians(50.), FastMath.toRadians(270.),
+                                      FastMath.toRadians(5.300), PositionAngle.MEAN,
+                                      FramesFactory.getEME2000(), date, 3.9860047e14);
+        referenceProvider = new NadirPointing(circOrbit.getFrame(),
+                                              new OneAxisEllipsoid(6378136.460, 1 / 298.257222101,
+                                                                   FramesFactory.getITRF(IERSConventions.IERS_2010, true)));
+    }
+
+}
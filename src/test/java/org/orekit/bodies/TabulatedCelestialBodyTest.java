@@ -0,0 +1,170 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.bodies;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.Decimal64;
+import org.hipparchus.util.Decimal64Field;
+import org.hipparchus.util.FastMath;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import org.orekit.utils.IERSConventions;
+import org.orekit.utils.PVCoordinates;
+
+public class TabulatedCelestialBodyTest {
+
+    private Frame        gcrf;
+    private AbsoluteDate start;
+    private AbsoluteDate end;
+
+    @Test
+    public void testSun() throws OrekitException {
+        checkAccuracy(CelestialBodyFactory.getSun(),  3.0e-3, 1.0e-5, 1.0e-8);
+    }
+
+    @Test
+    public void testMoon() throws OrekitException {
+        checkAccuracy(CelestialBodyFactory.getMoon(), 1.0e-4, 4.0e-7, 3.0e-10);
+    }
+
+    @Test
+    public void testOtherFrame() throws OrekitException {
+        final CelestialBody moon = CelestialBodyFactory.getMoon();
+        final TabulatedCelestialBody tabulated = new TabulatedCelestialBody(moon, gcrf, start, end, 3600.0);
+        final Frame itrf = FramesFactory.getITRF(IERSConventions.IERS_2010, true);
+        for (double dt = 0; dt < end.durationFrom(start); dt += 1234.5) {
+            final AbsoluteDate date = start.shiftedBy(dt);
+            final PVCoordinates expected = moon.getPVCoordinates(date, itrf);
+            final PVCoordinates actual   = tabulated.getPVCoordinates(date, itrf);
+            Assert.assertEquals(0.0, Vector3D.distance(expected.getPosition(), actual.getPosition()), 1.0e-4);
+            Assert.assertEquals(0.0, Vector3D.distance(expected.getVelocity(), actual.getVelocity()), 4.0e-7);
+        }
+    }
+
+    @Test
+    public void testDelegation() throws OrekitException {
+        final CelestialBody sun = CelestialBodyFactory.getSun();
+        final TabulatedCelestialBody tabulated = new TabulatedCelestialBody(sun, gcrf, start, end, 3600.0);
+        Assert.assertSame(sun,  tabulated.getUnderlyingBody());
+        Assert.assertSame(gcrf, tabulated.getTabulationFrame());
+        Assert.assertEquals(start, tabulated.getStart());
+        Assert.assertEquals(0.0, end.durationFrom(tabulated.getEnd()), 1.0e-10);
+        Assert.assertEquals(3600.0, tabulated.getStep(), 1.0e-10);
+        Assert.assertEquals(sun.getName(), tabulated.getName());
+        Assert.assertEquals(sun.getGM(),   tabulated.getGM(), 0.0);
+        Assert.assertSame(sun.getInertiallyOrientedFrame(), tabulated.getInertiallyOrientedFrame());
+        Assert.assertSame(sun.getBodyOrientedFrame(),       tabulated.getBodyOrientedFrame());
+
+        // outside of tabulation window
+        final AbsoluteDate after = end.shiftedBy(Constants.JULIAN_DAY);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(sun.getPVCoordinates(after, gcrf).getPosition(),
+                                              tabulated.getPVCoordinates(after, gcrf).getPosition()),
+                            0.0);
+
+        // field dates
+        final FieldAbsoluteDate<Decimal64> date =
+                        new FieldAbsoluteDate<>(Decimal64Field.getInstance(), start.shiftedBy(1000.0));
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(sun.getPVCoordinates(date, gcrf).getPosition().toVector3D(),
+                                              tabulated.getPVCoordinates(date, gcrf).getPosition().toVector3D()),
+                            0.0);
+    }
+
+    @Test
+    public void testFactory() throws OrekitException {
+        final CelestialBody sun = CelestialBodyFactory.getSun();
+        final TabulatedCelestialBody tabulated =
+                        CelestialBodyFactory.tabulateBody(CelestialBodyFactory.SUN, gcrf, start, end, 3600.0);
+        Assert.assertSame(sun, tabulated.getUnderlyingBody());
+        Assert.assertSame(tabulated, CelestialBodyFactory.getSun());
+
+        // tabulating again replaces the table, without stacking tables
+        final TabulatedCelestialBody tabulated2 =
+                        CelestialBodyFactory.tabulateBody(CelestialBodyFactory.SUN, gcrf, start, end, 600.0);
+        Assert.assertSame(sun, tabulated2.getUnderlyingBody());
+        Assert.assertSame(tabulated2, CelestialBodyFactory.getSun());
+
+        // clearing the cache reverts to regular body
+        CelestialBodyFactory.clearCelestialBodyCache(CelestialBodyFactory.SUN);
+        Assert.assertFalse(CelestialBodyFactory.getSun() instanceof TabulatedCelestialBody);
+    }
+
+    @Test
+    public void testWrongSettings() throws OrekitException {
+        final CelestialBody sun = CelestialBodyFactory.getSun();
+        try {
+            new TabulatedCelestialBody(sun, gcrf, start, end, 0.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+        try {
+            new TabulatedCelestialBody(sun, gcrf, end, start, 3600.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+    }
+
+    private void checkAccuracy(final CelestialBody body, final double posTolerance,
+                               final double velTolerance, final double accTolerance)
+        throws OrekitException {
+        final TabulatedCelestialBody tabulated = new TabulatedCelestialBody(body, gcrf, start, end, 3600.0);
+        double maxP = 0;
+        double maxV = 0;
+        double maxA = 0;
+        for (double dt = 0; dt <= end.durationFrom(start); dt += 97.3) {
+            final AbsoluteDate  date     = start.shiftedBy(dt);
+            final PVCoordinates expected = body.getPVCoordinates(date, gcrf);
+            final PVCoordinates actual   = tabulated.getPVCoordinates(date, gcrf);
+            maxP = FastMath.max(maxP, Vector3D.distance(expected.getPosition(),     actual.getPosition()));
+            maxV = FastMath.max(maxV, Vector3D.distance(expected.getVelocity(),     actual.getVelocity()));
+            maxA = FastMath.max(maxA, Vector3D.distance(expected.getAcceleration(), actual.getAcceleration()));
+        }
+        Assert.assertEquals(0.0, maxP, posTolerance);
+        Assert.assertEquals(0.0, maxV, velTolerance);
+        Assert.assertEquals(0.0, maxA, accTolerance);
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data");
+        gcrf  = FramesFactory.getGCRF();
+        // the window is kept within one Chebyshev segment of the test ephemerides,
+        // as segments boundaries introduce small discontinuities in high order derivatives
+        start = new AbsoluteDate(2003, 3, 6, 0, 10, 0.0, TimeScalesFactory.getTDB());
+        end   = start.shiftedBy(3.5 * Constants.JULIAN_DAY);
+    }
+
+    @After
+    public void tearDown() {
+        CelestialBodyFactory.clearCelestialBodyCache();
+    }
+
+}
@@ -0,0 +1,231 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.iod;
+
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+import org.orekit.utils.PVCoordinates;
+
+public class BatchIodSolverTest {
+
+    private Frame  frame;
+    private double mu;
+
+    @Test
+    public void testLambertZeroRevolution() throws OrekitException {
+
+        final int n = 50;
+        final double[] p1  = new double[3 * n];
+        final double[] p2  = new double[3 * n];
+        final double[] tof = new double[n];
+        final Orbit[] orbits = new Orbit[n];
+        for (int k = 0; k < n; ++k) {
+            orbits[k] = new KeplerianOrbit(7000000.0 + 10000.0 * k, 0.001 * k, 0.1 + 0.02 * k, 0.3, 0.01 * k, 0.1 * k,
+                                           PositionAngle.MEAN, frame, AbsoluteDate.J2000_EPOCH, mu);
+            tof[k] = 0.3 * orbits[k].getKeplerianPeriod();
+            store(orbits[k].getPVCoordinates().getPosition(), p1, k);
+            store(orbits[k].shiftedBy(tof[k]).getPVCoordinates().getPosition(), p2, k);
+        }
+
+        final IodBatchResult result = new BatchIodSolver(frame, mu, 4).solveLambert(p1, p2, tof, 0);
+        Assert.assertEquals(n, result.getProblemsNumber());
+        Assert.assertEquals(2, result.getCandidatesNumber());
+        final double[] pv = new double[6];
+        for (int k = 0; k < n; ++k) {
+            Assert.assertEquals(IodBatchResult.Status.CONVERGED, result.getStatus(k, 0));
+            Assert.assertTrue(result.isPosigrade(k, 0));
+            Assert.assertEquals(0, result.getRevolutions(k, 0));
+            Assert.assertTrue(result.getResidual(k, 0) < 1.0e-9);
+            result.getPV(k, 0, pv, 0);
+            checkVelocity(orbits[k].getPVCoordinates(), pv, 1.0e-6);
+        }
+
+    }
+
+    @Test
+    public void testLambertMultiRevolutions() throws OrekitException {
+
+        final Orbit orbit = new KeplerianOrbit(26000000.0, 0.01, 0.2, 0.3, 0.4, 0.5,
+                                               PositionAngle.MEAN, frame, AbsoluteDate.J2000_EPOCH, mu);
+        final double tof = 1.7 * orbit.getKeplerianPeriod();
+        final double[] p1 = new double[3];
+        final double[] p2 = new double[3];
+        store(orbit.getPVCoordinates().getPosition(), p1, 0);
+        store(orbit.shiftedBy(tof).getPVCoordinates().getPosition(), p2, 0);
+
+        final int maxRev = 3;
+        final IodBatchResult result = new BatchIodSolver(frame, mu, 4).solveLambert(p1, p2, new double[] { tof }, maxRev);
+        Assert.assertEquals(BatchIodSolver.getLambertCandidatesNumber(maxRev), result.getCandidatesNumber());
+
+        // the true solution must be among the converged candidates
+        final double[] pv = new double[6];
+        boolean found = false;
+        for (int c = 0; c < result.getCandidatesNumber(); ++c) {
+            if (result.getStatus(0, c) == IodBatchResult.Status.CONVERGED) {
+                result.getPV(0, c, pv, 0);
+                final Vector3D v = new Vector3D(pv[3], pv[4], pv[5]);
+                if (Vector3D.distance(v, orbit.getPVCoordinates().getVelocity()) < 1.0e-3) {
+                    found = true;
+                    Assert.assertEquals(1, result.getRevolutions(0, c));
+                }
+            }
+        }
+        Assert.assertTrue(found);
+
+        // 3 revolutions cannot be achieved within 1.7 period, they are rejected early
+        for (int c = 2 + 4 * 2; c < result.getCandidatesNumber(); ++c) {
+            Assert.assertEquals(3, result.getRevolutions(0, c));
+            Assert.assertEquals(IodBatchResult.Status.REJECTED, result.getStatus(0, c));
+            Assert.assertTrue(Double.isNaN(result.getResidual(0, c)));
+        }
+
+    }
+
+    @Test
+    public void testAdmissibleRadii() throws OrekitException {
+
+        final Orbit orbit = new KeplerianOrbit(7000000.0, 0.01, 0.2, 0.3, 0.4, 0.5,
+                                               PositionAngle.MEAN, frame, AbsoluteDate.J2000_EPOCH, mu);
+        final double tof = 0.25 * orbit.getKeplerianPeriod();
+        final double[] p1 = new double[3];
+        final double[] p2 = new double[3];
+        store(orbit.getPVCoordinates().getPosition(), p1, 0);
+        store(orbit.shiftedBy(tof).getPVCoordinates().getPosition(), p2, 0);
+
+        final BatchIodSolver solver = new BatchIodSolver(frame, mu, 2);
+        Assert.assertEquals(IodBatchResult.Status.CONVERGED,
+                            solver.solveLambert(p1, p2, new double[] { tof }, 0).getStatus(0, 0));
+        Assert.assertEquals(IodBatchResult.Status.REJECTED,
+                            solver.withAdmissibleRadii(7000000.0, 8000000.0).
+                            solveLambert(p1, p2, new double[] { tof }, 0).getStatus(0, 0));
+
+    }
+
+    @Test
+    public void testGibbs() throws OrekitException {
+
+        final Orbit orbit = new KeplerianOrbit(7000000.0, 0.01, 0.2, 0.3, 0.4, 0.5,
+                                               PositionAngle.MEAN, frame, AbsoluteDate.J2000_EPOCH, mu);
+        final double[] p1 = new double[6];
+        final double[] p2 = new double[6];
+        final double[] p3 = new double[6];
+        store(orbit.getPVCoordinates().getPosition(), p1, 0);
+        store(orbit.shiftedBy(600.0).getPVCoordinates().getPosition(), p2, 0);
+        store(orbit.shiftedBy(1200.0).getPVCoordinates().getPosition(), p3, 0);
+
+        // second problem is not coplanar
+        store(orbit.getPVCoordinates().getPosition(), p1, 1);
+        store(orbit.shiftedBy(600.0).getPVCoordinates().getPosition(), p2, 1);
+        store(new Vector3D(0, 0, 7000000.0), p3, 1);
+
+        final IodBatchResult result = new BatchIodSolver(frame, mu, 2).solveGibbs(p1, p2, p3);
+        Assert.assertEquals(IodBatchResult.Status.CONVERGED, result.getStatus(0, 0));
+        Assert.assertEquals(IodBatchResult.Status.REJECTED,  result.getStatus(1, 0));
+        Assert.assertEquals(-1, result.getBestCandidate(1));
+        Assert.assertEquals(1, result.getConvergedNumber());
+        final double[] pv = new double[6];
+        result.getPV(0, result.getBestCandidate(0), pv, 0);
+        checkVelocity(orbit.shiftedBy(600.0).getPVCoordinates(), pv, 1.0e-3);
+
+    }
+
+    @Test
+    public void testGoodingSameAsSingleProblem() throws OrekitException {
+
+        final Orbit orbit = new KeplerianOrbit(13000000.0, 0.05, 0.2, 0.3, 0.4, 0.5,
+                                               PositionAngle.MEAN, frame, AbsoluteDate.J2000_EPOCH, mu);
+        final double[] observers    = new double[9];
+        final double[] linesOfSight = new double[9];
+        final double[] durations    = new double[] { 1200.0, 2400.0 };
+        final Vector3D[] p          = new Vector3D[3];
+        for (int i = 0; i < 3; ++i) {
+            p[i] = orbit.shiftedBy(i * 1200.0).getPVCoordinates().getPosition();
+            store(p[i].normalize(), linesOfSight, i);
+        }
+        final double[] guesses = new double[] { p[0].getNorm(), p[2].getNorm() };
+
+        final IodBatchResult result = new BatchIodSolver(frame, mu, 1).
+                                      withTolerances(BatchIodSolver.DEFAULT_LAMBERT_TOLERANCE, 1.0e-3).
+                                      solveGooding(observers, linesOfSight, durations, guesses);
+        Assert.assertEquals(IodBatchResult.Status.CONVERGED, result.getStatus(0, 0));
+
+        final AbsoluteDate t0 = AbsoluteDate.J2000_EPOCH;
+        final KeplerianOrbit reference = new IodGooding(frame, mu).estimate(Vector3D.ZERO, Vector3D.ZERO, Vector3D.ZERO,
+                                                                            p[0].normalize(), t0,
+                                                                            p[1].normalize(), t0.shiftedBy(1200.0),
+                                                                            p[2].normalize(), t0.shiftedBy(2400.0),
+                                                                            guesses[0], guesses[1]);
+        final double[] pv = new double[6];
+        result.getPV(0, 0, pv, 0);
+        checkVelocity(reference.getPVCoordinates(), pv, 1.0e-12);
+
+    }
+
+    @Test
+    public void testEarlyRejection() throws OrekitException {
+        final double[] p1 = new double[] { 7000000.0, 0, 0, 7000000.0, 0, 0 };
+        final double[] p2 = new double[] { 14000000.0, 0, 0, 0, 7000000.0, 0 };
+        final IodBatchResult result = new BatchIodSolver(frame, mu, 2).solveLambert(p1, p2, new double[] { 1000.0, -10.0 }, 0);
+        // collinear positions
+        Assert.assertEquals(IodBatchResult.Status.REJECTED, result.getStatus(0, 0));
+        Assert.assertEquals(IodBatchResult.Status.REJECTED, result.getStatus(0, 1));
+        // negative time of flight
+        Assert.assertEquals(IodBatchResult.Status.REJECTED, result.getStatus(1, 0));
+        Assert.assertEquals(IodBatchResult.Status.REJECTED, result.getStatus(1, 1));
+        Assert.assertEquals(-1, result.getBestCandidate(0));
+    }
+
+    @Test(expected = OrekitIllegalArgumentException.class)
+    public void testWrongThreadsNumber() {
+        new BatchIodSolver(frame, mu, 0);
+    }
+
+    private void store(final Vector3D v, final double[] array, final int index) {
+        array[3 * index]     = v.getX();
+        array[3 * index + 1] = v.getY();
+        array[3 * index + 2] = v.getZ();
+    }
+
+    private void checkVelocity(final PVCoordinates expected, final double[] pv, final double tolerance) {
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(expected.getPosition(), new Vector3D(pv[0], pv[1], pv[2])),
+                            tolerance * expected.getPosition().getNorm());
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(expected.getVelocity(), new Vector3D(pv[3], pv[4], pv[5])),
+                            tolerance * expected.getVelocity().getNorm());
+    }
+
+    @Before
+    public void setUp() {
+        Utils.setDataRoot("regular-data");
+        frame = FramesFactory.getEME2000();
+        mu    = Constants.EIGEN5C_EARTH_MU;
+    }
+
+}
@@ -17,17 +17,21 @@
 package org.orekit.estimation.leastsquares;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.hipparchus.exception.LocalizedCoreFormats;
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.linear.MatrixUtils;
 import org.hipparchus.linear.RealMatrix;
 import org.hipparchus.optim.nonlinear.vector.leastsquares.LeastSquaresProblem.Evaluation;
 import org.hipparchus.optim.nonlinear.vector.leastsquares.LevenbergMarquardtOptimizer;
+import org.hipparchus.util.FastMath;
 import org.junit.Assert;
 import org.junit.Test;
 import org.orekit.attitudes.LofOffset;
 import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalStateException;
 import org.orekit.errors.OrekitMessages;
 import org.orekit.estimation.Context;
 import org.orekit.estimation.EstimationTestUtils;
@@ -49,6 +53,7 @@ import org.orekit.orbits.OrbitType;
 import org.orekit.orbits.PositionAngle;
 import org.orekit.propagation.BoundedPropagator;
 import org.orekit.propagation.Propagator;
+import org.orekit.propagation.conversion.JacobianStrategy;
 import org.orekit.propagation.conversion.NumericalPropagatorBuilder;
 import org.orekit.time.AbsoluteDate;
 import org.orekit.utils.ParameterDriver;
@@ -853,6 +858,246 @@ public class BatchLSEstimatorTest {
                                      0.0, 2.7e-10);
     }
 
+    @Test
+    public void testSlidingWindow() throws OrekitException {
+
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, false,
+                                              1.0e-6, 60.0, 1.0);
+
+        // create perfect PV measurements on a first arc and range measurements on a second arc
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit,
+                                                                           propagatorBuilder);
+        final List<ObservedMeasurement<?>> first =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new PVMeasurementCreator(),
+                                                               0.0, 1.0, 300.0);
+        final List<ObservedMeasurement<?>> second =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new RangeMeasurementCreator(context),
+                                                               1.0, 1.5, 300.0);
+        final NumericalPropagatorBuilder wrongBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, false,
+                                              1.0e-6, 60.0, 1.0);
+
+        final BatchLSEstimator estimator = new BatchLSEstimator(new LevenbergMarquardtOptimizer(),
+                                                                wrongBuilder);
+        estimator.setParametersConvergenceThreshold(1.0e-3);
+        estimator.setMaxIterations(20);
+        estimator.setMaxEvaluations(40);
+        Assert.assertNull(estimator.getAPrioriInformation());
+
+        // first run
+        for (final ObservedMeasurement<?> measurement : first) {
+            estimator.addMeasurement(measurement);
+        }
+        estimator.estimate();
+        final APrioriInformation apriori = estimator.compressMeasurements(null);
+        Assert.assertSame(apriori, estimator.getAPrioriInformation());
+        Assert.assertEquals(6, apriori.getParametersNames().size());
+        Assert.assertEquals(0.0, apriori.getDate().durationFrom(first.get(first.size() - 1).getDate()), 1.0e-10);
+        Assert.assertTrue(estimator.getMeasurementsParametersDrivers(false).getNbParams() == 0);
+
+        // second run, only the new measurements are evaluated
+        for (final ObservedMeasurement<?> measurement : second) {
+            estimator.addMeasurement(measurement);
+        }
+        final Orbit estimated = estimator.estimate()[0].getInitialState().getOrbit();
+        Assert.assertEquals(second.size(), estimator.getLastEstimations().size());
+        // residuals include the a priori pseudo-measurements
+        Assert.assertEquals(second.size() + 6, estimator.getOptimum().getResiduals().getDimension());
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(context.initialOrbit.getPVCoordinates().getPosition(),
+                                              estimated.getPVCoordinates().getPosition()),
+                            1.0e-3);
+
+    }
+
+    @Test
+    public void testSlidingWindowNewEpoch() throws OrekitException {
+
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, true,
+                                              1.0e-6, 60.0, 1.0);
+
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit,
+                                                                           propagatorBuilder);
+        final List<ObservedMeasurement<?>> first =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new PVMeasurementCreator(),
+                                                               0.0, 1.0, 300.0);
+        final List<ObservedMeasurement<?>> second =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new RangeMeasurementCreator(context),
+                                                               1.0, 1.5, 300.0);
+        final NumericalPropagatorBuilder wrongBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, false,
+                                              1.0e-6, 60.0, 1.0);
+
+        final BatchLSEstimator estimator = new BatchLSEstimator(new LevenbergMarquardtOptimizer(),
+                                                                wrongBuilder);
+        estimator.setParametersConvergenceThreshold(1.0e-3);
+        estimator.setMaxIterations(20);
+        estimator.setMaxEvaluations(40);
+        for (final ObservedMeasurement<?> measurement : first) {
+            estimator.addMeasurement(measurement);
+        }
+        estimator.estimate();
+
+        // move epoch to the start of the second arc
+        final AbsoluteDate newEpoch = second.get(0).getDate();
+        estimator.compressMeasurements(newEpoch);
+        Assert.assertEquals(0.0, wrongBuilder.getInitialOrbitDate().durationFrom(newEpoch), 0.0);
+
+        for (final ObservedMeasurement<?> measurement : second) {
+            estimator.addMeasurement(measurement);
+        }
+        final Orbit estimated = estimator.estimate()[0].getInitialState().getOrbit();
+        Assert.assertEquals(0.0, estimated.getDate().durationFrom(newEpoch), 0.0);
+        final Vector3D reference = propagatorBuilder.
+                                   buildPropagator(propagatorBuilder.getSelectedNormalizedParameters()).
+                                   propagate(newEpoch).getPVCoordinates().getPosition();
+        Assert.assertEquals(0.0, Vector3D.distance(reference, estimated.getPVCoordinates().getPosition()), 1.0e-3);
+
+    }
+
+    @Test
+    public void testCompressBeforeEstimate() throws OrekitException {
+
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, false,
+                                              1.0e-6, 60.0, 1.0);
+        final BatchLSEstimator estimator = new BatchLSEstimator(new LevenbergMarquardtOptimizer(),
+                                                                propagatorBuilder);
+        try {
+            estimator.compressMeasurements(null);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalStateException oise) {
+            Assert.assertEquals(OrekitMessages.MEASUREMENTS_NOT_ESTIMATED, oise.getSpecifier());
+        }
+
+    }
+
+    @Test
+    public void testFadeAPriori() throws OrekitException {
+        final AbsoluteDate date = AbsoluteDate.J2000_EPOCH;
+        final APrioriInformation apriori =
+                        new APrioriInformation(date, Arrays.asList("p1", "p2"), new double[] { 1.0, 2.0 },
+                                               MatrixUtils.createRealDiagonalMatrix(new double[] { 4.0, 9.0 }));
+        Assert.assertEquals(1.0, apriori.fade(0.25).getInformationMatrix().getEntry(0, 0), 1.0e-15);
+        Assert.assertEquals(9.0 * FastMath.exp(-1.0),
+                            apriori.fade(date.shiftedBy(3600.0), 3600.0).getInformationMatrix().getEntry(1, 1),
+                            1.0e-15);
+        Assert.assertEquals(2.0, apriori.fade(0.0).getValues()[1], 0.0);
+        try {
+            apriori.fade(1.5);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.OUT_OF_RANGE_SIMPLE, oe.getSpecifier());
+        }
+        try {
+            apriori.fade(date.shiftedBy(-3600.0), 3600.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.OUT_OF_RANGE_SIMPLE, oe.getSpecifier());
+        }
+        try {
+            apriori.fade(date.shiftedBy(3600.0), 0.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+        try {
+            new APrioriInformation(date, Arrays.asList("p1", "p2"), new double[] { 1.0 },
+                                   MatrixUtils.createRealIdentityMatrix(2));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.DIMENSIONS_MISMATCH, oe.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testJacobianStrategies() throws OrekitException {
+
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, true,
+                                              1.0e-6, 60.0, 1.0, Force.POTENTIAL);
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit,
+                                                                           propagatorBuilder);
+        final List<ObservedMeasurement<?>> measurements =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new PVMeasurementCreator(),
+                                                               0.0, 1.0, 300.0);
+
+        for (final JacobianStrategy strategy : JacobianStrategy.values()) {
+            final NumericalPropagatorBuilder wrongBuilder =
+                            context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, false,
+                                                  1.0e-6, 60.0, 1.0, Force.POTENTIAL);
+            Assert.assertEquals(JacobianStrategy.VARIATIONAL_EQUATIONS, wrongBuilder.getJacobianStrategy());
+            final BatchLSEstimator estimator = new BatchLSEstimator(new LevenbergMarquardtOptimizer(),
+                                                                    wrongBuilder);
+            estimator.setJacobianStrategy(strategy);
+            Assert.assertEquals(strategy, wrongBuilder.getJacobianStrategy());
+            Assert.assertEquals(strategy, wrongBuilder.copy().getJacobianStrategy());
+            for (final ObservedMeasurement<?> measurement : measurements) {
+                estimator.addMeasurement(measurement);
+            }
+            estimator.setParametersConvergenceThreshold(1.0e-3);
+            estimator.setMaxIterations(30);
+            estimator.setMaxEvaluations(60);
+            final Orbit estimated = estimator.estimate()[0].getInitialState().getOrbit();
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(context.initialOrbit.getPVCoordinates().getPosition(),
+                                                  estimated.getPVCoordinates().getPosition()),
+                                5.0e-7);
+        }
+
+    }
+
+    @Test
+    public void testKeplerianStrategyWithPropagationParameters() throws OrekitException {
+
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, true,
+                                              1.0e-6, 60.0, 1.0, Force.POTENTIAL);
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit,
+                                                                           propagatorBuilder);
+        final List<ObservedMeasurement<?>> measurements =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new PVMeasurementCreator(),
+                                                               0.0, 1.0, 300.0);
+
+        final BatchLSEstimator estimator = new BatchLSEstimator(new LevenbergMarquardtOptimizer(),
+                                                                propagatorBuilder);
+        estimator.setJacobianStrategy(JacobianStrategy.KEPLERIAN);
+        propagatorBuilder.getPropagationParametersDrivers().getDrivers().get(0).setSelected(true);
+        for (final ObservedMeasurement<?> measurement : measurements) {
+            estimator.addMeasurement(measurement);
+        }
+        estimator.setParametersConvergenceThreshold(1.0e-3);
+        estimator.setMaxIterations(30);
+        estimator.setMaxEvaluations(60);
+        try {
+            estimator.estimate();
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.KEPLERIAN_JACOBIANS_WITH_PROPAGATION_PARAMETERS,
+                                oe.getSpecifier());
+            Assert.assertEquals(0, ((Integer) oe.getParts()[0]).intValue());
+        }
+
+    }
+
 }
 
 
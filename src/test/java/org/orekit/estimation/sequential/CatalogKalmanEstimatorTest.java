@@ -0,0 +1,247 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.linear.MatrixUtils;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.linear.RealVector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.estimation.Context;
+import org.orekit.estimation.EstimationTestUtils;
+import org.orekit.estimation.measurements.ObservedMeasurement;
+import org.orekit.estimation.measurements.PVMeasurementCreator;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.conversion.NumericalPropagatorBuilder;
+import org.orekit.utils.ParameterDriver;
+import org.orekit.utils.ParameterDriversList;
+
+public class CatalogKalmanEstimatorTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() throws OrekitException {
+        context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+    }
+
+    @Test
+    public void testSameResultsAsSequential() throws OrekitException {
+
+        final List<ObservedMeasurement<?>> m0 = createMeasurements(0.0, 1.0, 300.0);
+        final List<ObservedMeasurement<?>> m1 = createMeasurements(0.5, 1.5, 450.0);
+
+        // merge the measurements of both objects
+        final List<ObservedMeasurement<?>> all = new ArrayList<>(m0);
+        all.addAll(m1);
+        all.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+
+        final CatalogKalmanEstimator catalog =
+                        new CatalogKalmanEstimator(Arrays.asList(createKalman(0.0), createKalman(1.2)), 2, 5);
+        Assert.assertEquals(2, catalog.getObjectsNumber());
+        catalog.processMeasurements(all, m -> m0.contains(m) ? 0 : 1);
+        catalog.shutdown();
+
+        Assert.assertEquals(m0.size() + m1.size(), catalog.getProcessedMeasurements());
+        Assert.assertEquals(m0.size(), catalog.getProcessedMeasurements(0));
+        Assert.assertEquals(m1.size(), catalog.getProcessedMeasurements(1));
+        Assert.assertEquals(0, catalog.getPendingMeasurements());
+        Assert.assertEquals(0, catalog.getPendingMeasurements(0));
+        Assert.assertEquals(0, catalog.getDiscardedMeasurements(1));
+        Assert.assertNull(catalog.getError(0));
+        Assert.assertNull(catalog.getError(1));
+        Assert.assertTrue(catalog.getThroughput() > 0);
+
+        // concurrent processing must give exactly the same results as sequential processing
+        final KalmanEstimator sequential0 = createKalman(0.0);
+        sequential0.processMeasurements(m0);
+        checkSame(sequential0, catalog.getEstimators().get(0));
+        final KalmanEstimator sequential1 = createKalman(1.2);
+        sequential1.processMeasurements(m1);
+        checkSame(sequential1, catalog.getEstimators().get(1));
+
+    }
+
+    @Test
+    public void testFailureIsolation() throws OrekitException {
+
+        final List<ObservedMeasurement<?>> measurements = createMeasurements(0.0, 1.0, 300.0);
+
+        final KalmanEstimator failing = createKalman(0.0);
+        failing.setObserver(estimation -> {
+            if (estimation.getCurrentMeasurementNumber() == 3) {
+                throw new DummyException();
+            }
+        });
+        final CatalogKalmanEstimator catalog =
+                        new CatalogKalmanEstimator(Arrays.asList(failing, createKalman(0.0)), 2, 2);
+        for (final ObservedMeasurement<?> measurement : measurements) {
+            catalog.submit(0, measurement);
+            catalog.submit(1, measurement);
+        }
+        catalog.waitForCompletion();
+        catalog.shutdown();
+
+        Assert.assertTrue(catalog.getError(0) instanceof DummyException);
+        Assert.assertEquals(2, catalog.getProcessedMeasurements(0));
+        Assert.assertEquals(measurements.size() - 3, catalog.getDiscardedMeasurements(0));
+        Assert.assertNull(catalog.getError(1));
+        Assert.assertEquals(measurements.size(), catalog.getProcessedMeasurements(1));
+        Assert.assertEquals(0, catalog.getDiscardedMeasurements(1));
+
+    }
+
+    @Test
+    public void testRuntimeFailureIsolation() throws OrekitException {
+
+        final List<ObservedMeasurement<?>> measurements = createMeasurements(0.0, 1.0, 300.0);
+
+        final IllegalStateException failure = new IllegalStateException("dummy");
+        final KalmanEstimator failing = createKalman(0.0);
+        failing.setObserver(estimation -> {
+            if (estimation.getCurrentMeasurementNumber() == 2) {
+                throw failure;
+            }
+        });
+        final CatalogKalmanEstimator catalog =
+                        new CatalogKalmanEstimator(Arrays.asList(failing, createKalman(0.0)), 2, 2);
+        for (final ObservedMeasurement<?> measurement : measurements) {
+            catalog.submit(0, measurement);
+            catalog.submit(1, measurement);
+        }
+        catalog.waitForCompletion();
+        catalog.shutdown();
+
+        // the runtime exception is kept as the cause of the lane error
+        Assert.assertSame(failure, catalog.getError(0).getCause());
+        Assert.assertEquals(1, catalog.getProcessedMeasurements(0));
+        Assert.assertEquals(measurements.size() - 2, catalog.getDiscardedMeasurements(0));
+        Assert.assertNull(catalog.getError(1));
+        Assert.assertEquals(measurements.size(), catalog.getProcessedMeasurements(1));
+
+    }
+
+    @Test
+    public void testNonChronological() throws OrekitException {
+        final List<ObservedMeasurement<?>> measurements = createMeasurements(0.0, 1.0, 300.0);
+        final CatalogKalmanEstimator catalog =
+                        new CatalogKalmanEstimator(Arrays.asList(createKalman(0.0)), 1, 10);
+        catalog.submit(0, measurements.get(1));
+        try {
+            catalog.submit(0, measurements.get(0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NON_CHRONOLOGICAL_MEASUREMENTS, oe.getSpecifier());
+            Assert.assertEquals(0, ((Integer) oe.getParts()[0]).intValue());
+        }
+        catalog.waitForCompletion();
+        catalog.shutdown();
+        Assert.assertEquals(1, catalog.getProcessedMeasurements());
+    }
+
+    @Test
+    public void testWrongIndex() throws OrekitException {
+        final List<ObservedMeasurement<?>> measurements = createMeasurements(0.0, 1.0, 300.0);
+        final CatalogKalmanEstimator catalog =
+                        new CatalogKalmanEstimator(Arrays.asList(createKalman(0.0)), 1, 10);
+        try {
+            catalog.submit(1, measurements.get(0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(1, ((Integer) oe.getParts()[0]).intValue());
+        }
+        catalog.shutdown();
+        Assert.assertEquals(0.0, catalog.getThroughput(), 0.0);
+    }
+
+    @Test
+    public void testWrongSettings() throws OrekitException {
+        checkWrongSettings(0, 10);
+        checkWrongSettings(1, 0);
+    }
+
+    private void checkWrongSettings(final int threads, final int capacity) throws OrekitException {
+        try {
+            new CatalogKalmanEstimator(Arrays.asList(createKalman(0.0)), threads, capacity);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oiae.getSpecifier());
+            Assert.assertEquals(0, ((Integer) oiae.getParts()[0]).intValue());
+            Assert.assertEquals(1, ((Integer) oiae.getParts()[1]).intValue());
+        }
+    }
+
+    private List<ObservedMeasurement<?>> createMeasurements(final double startPeriod, final double endPeriod,
+                                                            final double step)
+        throws OrekitException {
+        final NumericalPropagatorBuilder builder = createBuilder();
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit, builder);
+        return EstimationTestUtils.createMeasurements(propagator, new PVMeasurementCreator(),
+                                                      startPeriod, endPeriod, step);
+    }
+
+    private NumericalPropagatorBuilder createBuilder() throws OrekitException {
+        return context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, true,
+                                     1.0e-6, 60.0, 1.0);
+    }
+
+    private KalmanEstimator createKalman(final double deltaA) throws OrekitException {
+        final NumericalPropagatorBuilder builder = createBuilder();
+        final ParameterDriver aDriver = builder.getOrbitalParametersDrivers().getDrivers().get(0);
+        aDriver.setValue(aDriver.getValue() + deltaA);
+        final RealMatrix initialP = MatrixUtils.createRealDiagonalMatrix(new double [] {
+            1e-2, 1e-2, 1e-2, 1e-5, 1e-5, 1e-5
+        });
+        final RealMatrix Q = MatrixUtils.createRealDiagonalMatrix(new double [] {
+            1.e-8, 1.e-8, 1.e-8, 1.e-8, 1.e-8, 1.e-8
+        });
+        return new KalmanEstimatorBuilder().
+                        addPropagationConfiguration(builder, new ConstantProcessNoise(initialP, Q)).
+                        estimatedMeasurementsParameters(new ParameterDriversList()).
+                        build();
+    }
+
+    private void checkSame(final KalmanEstimator expected, final KalmanEstimator actual) {
+        Assert.assertEquals(expected.getCurrentMeasurementNumber(), actual.getCurrentMeasurementNumber());
+        Assert.assertEquals(0.0, expected.getCurrentDate().durationFrom(actual.getCurrentDate()), 0.0);
+        final RealVector expectedState = expected.getPhysicalEstimatedState();
+        final RealVector actualState   = actual.getPhysicalEstimatedState();
+        Assert.assertEquals(0.0, expectedState.subtract(actualState).getNorm(), 0.0);
+        final RealMatrix expectedCovariance = expected.getPhysicalEstimatedCovarianceMatrix();
+        final RealMatrix actualCovariance   = actual.getPhysicalEstimatedCovarianceMatrix();
+        Assert.assertEquals(0.0, expectedCovariance.subtract(actualCovariance).getNorm(), 0.0);
+    }
+
+    private static class DummyException extends OrekitException {
+        private static final long serialVersionUID = 1L;
+        public DummyException() {
+            super(OrekitMessages.INTERNAL_ERROR);
+        }
+    }
+
+}
@@ -223,6 +223,101 @@ public class KalmanEstimatorTest {
                                            expectedSigmasVel, sigmaVelEps);
     }
 
+    /**
+     * Perfect range measurements with a biased start
+     * Keplerian formalism, in-place update mode
+     * @throws OrekitException
+     */
+    @Test
+    public void testKeplerianRangeInPlaceUpdate() throws OrekitException {
+
+        // Create context
+        Context context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+
+        // Create initial orbit and propagator builder
+        final OrbitType     orbitType     = OrbitType.KEPLERIAN;
+        final PositionAngle positionAngle = PositionAngle.TRUE;
+        final boolean       perfectStart  = true;
+        final double        minStep       = 1.e-6;
+        final double        maxStep       = 60.;
+        final double        dP            = 1.;
+        final NumericalPropagatorBuilder propagatorBuilder =
+                        context.createBuilder(orbitType, positionAngle, perfectStart,
+                                              minStep, maxStep, dP);
+
+        // Create perfect range measurements
+        final Propagator propagator = EstimationTestUtils.createPropagator(context.initialOrbit,
+                                                                           propagatorBuilder);
+        final List<ObservedMeasurement<?>> measurements =
+                        EstimationTestUtils.createMeasurements(propagator,
+                                                               new RangeMeasurementCreator(context),
+                                                               1.0, 4.0, 60.0);
+
+        // Reference propagator for estimation performances
+        final NumericalPropagator referencePropagator = propagatorBuilder.
+                        buildPropagator(propagatorBuilder.getSelectedNormalizedParameters());
+
+        // Reference position/velocity at last measurement date
+        final Orbit refOrbit = referencePropagator.
+                        propagate(measurements.get(measurements.size()-1).getDate()).getOrbit();
+
+        // Change semi-major axis of 1.2m as in the batch test
+        ParameterDriver aDriver = propagatorBuilder.getOrbitalParametersDrivers().getDrivers().get(0);
+        aDriver.setValue(aDriver.getValue() + 1.2);
+        aDriver.setReferenceDate(AbsoluteDate.GALILEO_EPOCH);
+
+        // Cartesian covariance matrix initialization
+        // 100m on position / 1e-2m/s on velocity
+        final RealMatrix cartesianP = MatrixUtils.createRealDiagonalMatrix(new double [] {
+            100., 100., 100., 1e-2, 1e-2, 1e-2
+        });
+
+        // Jacobian of the orbital parameters w/r to Cartesian
+        final Orbit initialOrbit = orbitType.convertType(context.initialOrbit);
+        final double[][] dYdC = new double[6][6];
+        initialOrbit.getJacobianWrtCartesian(PositionAngle.TRUE, dYdC);
+        final RealMatrix Jac = MatrixUtils.createRealMatrix(dYdC);
+
+        // Keplerian initial covariance matrix
+        final RealMatrix initialP = Jac.multiply(cartesianP.multiply(Jac.transpose()));
+
+        // Process noise matrix is set to 0 here
+        RealMatrix Q = MatrixUtils.createRealMatrix(6, 6);
+
+        // Build the Kalman filter
+        final KalmanEstimator kalman = new KalmanEstimatorBuilder().
+                        addPropagationConfiguration(propagatorBuilder, new ConstantProcessNoise(initialP, Q)).
+                        estimatedMeasurementsParameters(new ParameterDriversList()).
+                        inPlaceUpdate(true).
+                        build();
+
+        // Filter the measurements and check the results
+        // results are consistent with the regular update mode (see testKeplerianRange)
+        final double   expectedDeltaPos  = 0.;
+        final double   posEps            = 1.77e-4;
+        final double   expectedDeltaVel  = 0.;
+        final double   velEps            = 7.93e-8;
+        final double[] expectedSigmasPos = {0.742488, 0.281914, 0.563213};
+        final double   sigmaPosEps       = 1e-6;
+        final double[] expectedSigmasVel = {2.206636e-4, 1.306656e-4, 1.293981e-4};
+        final double   sigmaVelEps       = 1e-10;
+        EstimationTestUtils.checkKalmanFit(context, kalman, measurements,
+                                           refOrbit, positionAngle,
+                                           expectedDeltaPos, posEps,
+                                           expectedDeltaVel, velEps,
+                                           expectedSigmasPos, sigmaPosEps,
+                                           expectedSigmasVel, sigmaVelEps);
+
+        // the covariance must remain exactly symmetric
+        final RealMatrix covariance = kalman.getPhysicalEstimatedCovarianceMatrix();
+        for (int i = 0; i < covariance.getRowDimension(); ++i) {
+            for (int j = 0; j < i; ++j) {
+                Assert.assertEquals(covariance.getEntry(i, j), covariance.getEntry(j, i), 0.0);
+            }
+        }
+
+    }
+
     /**
      * Perfect range measurements with a biased start and an on-board antenna range offset
      * Keplerian formalism 
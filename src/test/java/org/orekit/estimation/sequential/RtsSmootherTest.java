@@ -0,0 +1,202 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.estimation.sequential;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.linear.MatrixUtils;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.linear.RealVector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.errors.OrekitException;
+import org.orekit.estimation.Context;
+import org.orekit.estimation.EstimationTestUtils;
+import org.orekit.estimation.measurements.ObservedMeasurement;
+import org.orekit.estimation.measurements.PVMeasurementCreator;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.conversion.NumericalPropagatorBuilder;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.ParameterDriver;
+import org.orekit.utils.ParameterDriversList;
+import org.orekit.utils.ParameterDriversList.DelegatingDriver;
+
+public class RtsSmootherTest {
+
+    private Context context;
+
+    private List<ObservedMeasurement<?>> measurements;
+
+    private Propagator referencePropagator;
+
+    @Before
+    public void setUp() throws OrekitException {
+        context = EstimationTestUtils.eccentricContext("regular-data:potential:tides");
+        final NumericalPropagatorBuilder builder = createBuilder();
+        referencePropagator = EstimationTestUtils.createPropagator(context.initialOrbit, builder);
+        measurements = EstimationTestUtils.createMeasurements(referencePropagator, new PVMeasurementCreator(),
+                                                              0.0, 1.0, 120.0);
+    }
+
+    @Test
+    public void testSmoothing() throws OrekitException {
+
+        final List<Estimate> filtered = new ArrayList<>();
+        final KalmanEstimator kalman = createKalman();
+        final RtsSmoother smoother = new RtsSmoother(1000, null, estimation ->
+            filtered.add(new Estimate(estimation.getCurrentDate(),
+                                      estimation.getPhysicalEstimatedState(),
+                                      estimation.getPhysicalEstimatedCovarianceMatrix())));
+        kalman.setObserver(smoother);
+        kalman.processMeasurements(measurements);
+        Assert.assertEquals(measurements.size(), smoother.getStepsNumber());
+        Assert.assertEquals(0, smoother.getSpilledStepsNumber());
+
+        final List<Estimate> smoothed = smooth(smoother);
+        Assert.assertEquals(filtered.size(), smoothed.size());
+
+        // at last date, smoothed and filtered estimates are the same
+        final Estimate lastFiltered = filtered.get(filtered.size() - 1);
+        final Estimate lastSmoothed = smoothed.get(smoothed.size() - 1);
+        Assert.assertEquals(0.0, lastFiltered.date.durationFrom(lastSmoothed.date), 0.0);
+        Assert.assertEquals(0.0, lastFiltered.state.subtract(lastSmoothed.state).getNorm(), 0.0);
+        Assert.assertEquals(0.0, lastFiltered.covariance.subtract(lastSmoothed.covariance).getNorm(), 0.0);
+
+        for (int k = 0; k < filtered.size() - 1; ++k) {
+            final Estimate f = filtered.get(k);
+            final Estimate s = smoothed.get(k);
+            Assert.assertEquals(0.0, f.date.durationFrom(s.date), 0.0);
+            // smoothing uses future measurements, so it can only reduce uncertainty
+            for (int i = 0; i < f.covariance.getRowDimension(); ++i) {
+                Assert.assertTrue(s.covariance.getEntry(i, i) <= f.covariance.getEntry(i, i));
+            }
+            Assert.assertTrue(s.covariance.getTrace() < f.covariance.getTrace());
+        }
+
+        // at first date, smoothed position is closer to reference than filtered position
+        final Estimate firstFiltered = filtered.get(0);
+        final Estimate firstSmoothed = smoothed.get(0);
+        final Vector3D reference = referencePropagator.propagate(firstFiltered.date).getPVCoordinates().getPosition();
+        final double filteredError = Vector3D.distance(reference, position(firstFiltered));
+        final double smoothedError = Vector3D.distance(reference, position(firstSmoothed));
+        Assert.assertTrue(smoothedError < filteredError);
+
+    }
+
+    @Test
+    public void testSpillToDisk() throws OrekitException {
+
+        final KalmanEstimator kalmanMemory = createKalman();
+        final RtsSmoother smootherMemory = new RtsSmoother(1000, null, null);
+        kalmanMemory.setObserver(smootherMemory);
+        kalmanMemory.processMeasurements(measurements);
+        final List<Estimate> inMemory = smooth(smootherMemory);
+
+        final KalmanEstimator kalmanDisk = createKalman();
+        final RtsSmoother smootherDisk = new RtsSmoother(5, null, null);
+        kalmanDisk.setObserver(smootherDisk);
+        kalmanDisk.processMeasurements(measurements);
+        Assert.assertEquals(measurements.size(), smootherDisk.getStepsNumber());
+        Assert.assertTrue(smootherDisk.getSpilledStepsNumber() > measurements.size() - 6);
+        final List<Estimate> onDisk = smooth(smootherDisk);
+
+        // disk round trip is exact
+        Assert.assertEquals(inMemory.size(), onDisk.size());
+        for (int k = 0; k < inMemory.size(); ++k) {
+            Assert.assertEquals(0.0, inMemory.get(k).date.durationFrom(onDisk.get(k).date), 0.0);
+            Assert.assertEquals(0.0, inMemory.get(k).state.subtract(onDisk.get(k).state).getNorm(), 0.0);
+            Assert.assertEquals(0.0, inMemory.get(k).covariance.subtract(onDisk.get(k).covariance).getNorm(), 0.0);
+        }
+
+        // history is preserved after smoothing, until it is cleared
+        Assert.assertEquals(onDisk.size(), smooth(smootherDisk).size());
+        smootherDisk.clear();
+        Assert.assertEquals(0, smootherDisk.getStepsNumber());
+        Assert.assertEquals(0, smootherDisk.getSpilledStepsNumber());
+        Assert.assertTrue(smooth(smootherDisk).isEmpty());
+
+    }
+
+    @Test
+    public void testWrongSize() {
+        try {
+            new RtsSmoother(0, null, null);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(0, ((Integer) oe.getParts()[0]).intValue());
+        }
+    }
+
+    private List<Estimate> smooth(final RtsSmoother smoother) throws OrekitException {
+        final List<Estimate> smoothed = new ArrayList<>();
+        smoother.smooth((date, state, covariance) -> smoothed.add(0, new Estimate(date, state, covariance)));
+        return smoothed;
+    }
+
+    private Vector3D position(final Estimate estimate) throws OrekitException {
+        // estimated state contains offsets with respect to drivers reference values
+        final double[] parameters = estimate.state.toArray();
+        final List<DelegatingDriver> drivers = createBuilder().getOrbitalParametersDrivers().getDrivers();
+        for (int i = 0; i < parameters.length; ++i) {
+            parameters[i] += drivers.get(i).getReferenceValue();
+        }
+        final Orbit orbit = OrbitType.KEPLERIAN.mapArrayToOrbit(parameters, null,
+                                                                PositionAngle.TRUE, estimate.date,
+                                                                context.initialOrbit.getMu(),
+                                                                context.initialOrbit.getFrame());
+        return orbit.getPVCoordinates().getPosition();
+    }
+
+    private NumericalPropagatorBuilder createBuilder() throws OrekitException {
+        return context.createBuilder(OrbitType.KEPLERIAN, PositionAngle.TRUE, true,
+                                     1.0e-6, 60.0, 1.0);
+    }
+
+    private KalmanEstimator createKalman() throws OrekitException {
+        final NumericalPropagatorBuilder builder = createBuilder();
+        final ParameterDriver aDriver = builder.getOrbitalParametersDrivers().getDrivers().get(0);
+        aDriver.setValue(aDriver.getValue() + 0.2);
+        final RealMatrix initialP = MatrixUtils.createRealDiagonalMatrix(new double [] {
+            1e-2, 1e-2, 1e-2, 1e-5, 1e-5, 1e-5
+        });
+        final RealMatrix Q = MatrixUtils.createRealDiagonalMatrix(new double [] {
+            1.e-8, 1.e-8, 1.e-8, 1.e-8, 1.e-8, 1.e-8
+        });
+        return new KalmanEstimatorBuilder().
+                        addPropagationConfiguration(builder, new ConstantProcessNoise(initialP, Q)).
+                        estimatedMeasurementsParameters(new ParameterDriversList()).
+                        build();
+    }
+
+    private static class Estimate {
+        private final AbsoluteDate date;
+        private final RealVector   state;
+        private final RealMatrix   covariance;
+        Estimate(final AbsoluteDate date, final RealVector state, final RealMatrix covariance) {
+            this.date       = date;
+            this.state      = state;
+            this.covariance = covariance;
+        }
+    }
+
+}
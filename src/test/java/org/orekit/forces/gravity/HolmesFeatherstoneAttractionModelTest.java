@@ -93,6 +93,8 @@ import org.orekit.time.TimeComponents;
 import org.orekit.time.TimeScalesFactory;
 import org.orekit.utils.Constants;
 import org.orekit.utils.FieldPVCoordinates;
+import org.orekit.utils.Gradient;
+import org.orekit.utils.GradientField;
 import org.orekit.utils.IERSConventions;
 import org.orekit.utils.PVCoordinates;
 import org.orekit.utils.PVCoordinatesProvider;
@@ -582,6 +584,106 @@ public class HolmesFeatherstoneAttractionModelTest extends AbstractLegacyForceMo
         }
     }
 
+    /** Testing that the first order specialized Gradient field gives the same results
+     * as DerivativeStructure in the FieldPropagation, and as the double-based propagation.*/
+    @Test
+    public void testGradientField() throws OrekitException {
+
+        final double[] elements = {
+            7201009.7124401, 1e-3, 98.7 * FastMath.PI / 180, 15.0 * 22.5 * FastMath.PI / 180, 93.0 * FastMath.PI / 180, 0.1
+        };
+        final DSFactory factory = new DSFactory(6, 1);
+        final DerivativeStructure[] ds = new DerivativeStructure[6];
+        final Gradient[]            g  = new Gradient[6];
+        for (int i = 0; i < 6; ++i) {
+            ds[i] = factory.variable(i, elements[i]);
+            g[i]  = Gradient.variable(6, i, elements[i]);
+        }
+
+        double[][] c = new double[3][1];
+        c[0][0] = 0.0;
+        c[2][0] = normalizedC20;
+        double[][] s = new double[3][1];
+        NormalizedSphericalHarmonicsProvider provider = GravityFieldFactory.getNormalizedProvider(6378136.460, mu,
+                                                                                                  TideSystem.UNKNOWN,
+                                                                                                  c, s);
+        HolmesFeatherstoneAttractionModel forceModel = new HolmesFeatherstoneAttractionModel(itrf, provider);
+
+        final OrbitType type = OrbitType.EQUINOCTIAL;
+        final FieldKeplerianOrbit<DerivativeStructure> dsOrbit =
+                new FieldKeplerianOrbit<>(ds[0], ds[1], ds[2], ds[3], ds[4], ds[5], PositionAngle.MEAN,
+                                          FramesFactory.getEME2000(),
+                                          new FieldAbsoluteDate<>(factory.getDerivativeField()),
+                                          Constants.EIGEN5C_EARTH_MU);
+        final FieldKeplerianOrbit<Gradient> gOrbit =
+                new FieldKeplerianOrbit<>(g[0], g[1], g[2], g[3], g[4], g[5], PositionAngle.MEAN,
+                                          FramesFactory.getEME2000(),
+                                          new FieldAbsoluteDate<>(GradientField.getField(6)),
+                                          Constants.EIGEN5C_EARTH_MU);
+        final double[][] tolerance = NumericalPropagator.tolerances(10.0, dsOrbit.toOrbit(), type);
+
+        final AdaptiveStepsizeFieldIntegrator<DerivativeStructure> dsIntegrator =
+                        new DormandPrince853FieldIntegrator<>(factory.getDerivativeField(), 0.001, 200,
+                                                              tolerance[0], tolerance[1]);
+        dsIntegrator.setInitialStepSize(factory.constant(60));
+        final FieldNumericalPropagator<DerivativeStructure> dsPropagator =
+                        new FieldNumericalPropagator<>(factory.getDerivativeField(), dsIntegrator);
+        dsPropagator.setOrbitType(type);
+        dsPropagator.setInitialState(new FieldSpacecraftState<>(dsOrbit));
+        dsPropagator.addForceModel(forceModel);
+
+        final AdaptiveStepsizeFieldIntegrator<Gradient> gIntegrator =
+                        new DormandPrince853FieldIntegrator<>(GradientField.getField(6), 0.001, 200,
+                                                              tolerance[0], tolerance[1]);
+        gIntegrator.setInitialStepSize(Gradient.constant(6, 60));
+        final FieldNumericalPropagator<Gradient> gPropagator =
+                        new FieldNumericalPropagator<>(GradientField.getField(6), gIntegrator);
+        gPropagator.setOrbitType(type);
+        gPropagator.setInitialState(new FieldSpacecraftState<>(gOrbit));
+        gPropagator.addForceModel(forceModel);
+
+        final AdaptiveStepsizeIntegrator integrator =
+                        new DormandPrince853Integrator(0.001, 200, tolerance[0], tolerance[1]);
+        integrator.setInitialStepSize(60);
+        final NumericalPropagator propagator = new NumericalPropagator(integrator);
+        propagator.setOrbitType(type);
+        propagator.setInitialState(new SpacecraftState(dsOrbit.toOrbit()));
+        propagator.addForceModel(forceModel);
+
+        final AbsoluteDate target = dsOrbit.getDate().toAbsoluteDate().shiftedBy(1005.0);
+        final FieldPVCoordinates<DerivativeStructure> dsPV =
+                        dsPropagator.propagate(new FieldAbsoluteDate<>(factory.getDerivativeField(), target)).getPVCoordinates();
+        final FieldPVCoordinates<Gradient> gPV =
+                        gPropagator.propagate(new FieldAbsoluteDate<>(GradientField.getField(6), target)).getPVCoordinates();
+        final PVCoordinates pv = propagator.propagate(target).getPVCoordinates();
+
+        final DerivativeStructure[] dsComponents = {
+            dsPV.getPosition().getX(), dsPV.getPosition().getY(), dsPV.getPosition().getZ(),
+            dsPV.getVelocity().getX(), dsPV.getVelocity().getY(), dsPV.getVelocity().getZ()
+        };
+        final Gradient[] gComponents = {
+            gPV.getPosition().getX(), gPV.getPosition().getY(), gPV.getPosition().getZ(),
+            gPV.getVelocity().getX(), gPV.getVelocity().getY(), gPV.getVelocity().getZ()
+        };
+        final double[] components = {
+            pv.getPosition().getX(), pv.getPosition().getY(), pv.getPosition().getZ(),
+            pv.getVelocity().getX(), pv.getVelocity().getY(), pv.getVelocity().getZ()
+        };
+        for (int i = 0; i < components.length; ++i) {
+            Assert.assertEquals(components[i], gComponents[i].getReal(), FastMath.abs(components[i]) * 1e-11);
+            Assert.assertEquals(dsComponents[i].getReal(), gComponents[i].getReal(), FastMath.abs(components[i]) * 1e-11);
+            final double[] dsDerivatives = dsComponents[i].getAllDerivatives();
+            double scale = 0;
+            for (int j = 0; j < 6; ++j) {
+                scale = FastMath.max(scale, FastMath.abs(dsDerivatives[j + 1]));
+            }
+            for (int j = 0; j < 6; ++j) {
+                Assert.assertEquals(dsDerivatives[j + 1], gComponents[i].getPartialDerivative(j), scale * 1e-8);
+            }
+        }
+
+    }
+
     /**Same test as the previous one but not adding the ForceModel to the NumericalPropagator
     it is a test to validate the previous test.
     (to test if the ForceModel it's actually
@@ -35,6 +35,7 @@ import org.orekit.forces.gravity.potential.FESCHatEpsilonReader;
 import org.orekit.forces.gravity.potential.GravityFieldFactory;
 import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider;
 import org.orekit.forces.gravity.potential.OceanLoadDeformationCoefficients;
+import org.orekit.forces.gravity.potential.SharedCachedNormalizedSphericalHarmonicsProvider;
 import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
 import org.orekit.orbits.KeplerianOrbit;
@@ -92,6 +93,78 @@ public class OceanTidesTest {
 
     }
 
+    @Test
+    public void testSharedField() throws OrekitException {
+
+        IERSConventions conventions = IERSConventions.IERS_2010;
+        Frame eme2000 = FramesFactory.getEME2000();
+        Frame itrf    = FramesFactory.getITRF(conventions, true);
+        TimeScale utc = TimeScalesFactory.getUTC();
+        UT1Scale  ut1 = TimeScalesFactory.getUT1(conventions, true);
+        AstronomicalAmplitudeReader aaReader =
+                new AstronomicalAmplitudeReader("hf-fes2004.dat", 5, 2, 3, 1.0);
+        DataProvidersManager.getInstance().feed(aaReader.getSupportedNames(), aaReader);
+        Map<Integer, Double> map = aaReader.getAstronomicalAmplitudesMap();
+        GravityFieldFactory.addOceanTidesReader(new FESCHatEpsilonReader("fes2004-7x7.dat",
+                                                                         0.01, FastMath.toRadians(1.0),
+                                                                         OceanLoadDeformationCoefficients.IERS_2010,
+                                                                         map));
+        NormalizedSphericalHarmonicsProvider gravityField =
+                GravityFieldFactory.getConstantNormalizedProvider(5, 5);
+
+        SharedCachedNormalizedSphericalHarmonicsProvider shared =
+                OceanTides.getSharedTidesField(gravityField.getAe(), gravityField.getMu(), true,
+                                               OceanTides.DEFAULT_STEP, OceanTides.DEFAULT_POINTS,
+                                               6, 6, conventions, ut1, 1000);
+        Assert.assertSame(shared,
+                          OceanTides.getSharedTidesField(gravityField.getAe(), gravityField.getMu(), true,
+                                                         OceanTides.DEFAULT_STEP, OceanTides.DEFAULT_POINTS,
+                                                         6, 6, conventions, ut1, 1000));
+        Assert.assertNotSame(shared,
+                             OceanTides.getSharedTidesField(gravityField.getAe(), gravityField.getMu(), false,
+                                                            OceanTides.DEFAULT_STEP, OceanTides.DEFAULT_POINTS,
+                                                            6, 6, conventions, ut1, 1000));
+        shared.clear();
+
+        // initialization
+        AbsoluteDate date = new AbsoluteDate(1970, 07, 01, 13, 59, 27.816, utc);
+        Orbit orbit = new KeplerianOrbit(7201009.7124401, 1e-3, FastMath.toRadians(98.7),
+                                         FastMath.toRadians(93.0), FastMath.toRadians(15.0 * 22.5),
+                                         0, PositionAngle.MEAN, eme2000, date,
+                                         gravityField.getMu());
+
+        AbsoluteDate target = date.shiftedBy(Constants.JULIAN_DAY);
+        ForceModel hf = new HolmesFeatherstoneAttractionModel(itrf, gravityField);
+        SpacecraftState reference = propagate(orbit, target, hf,
+                                              new OceanTides(itrf, gravityField.getAe(), gravityField.getMu(),
+                                                             6, 6, conventions, ut1));
+        SpacecraftState first  = propagate(orbit, target, hf, new OceanTides(itrf, shared));
+        long misses = shared.getMisses();
+        SpacecraftState second = propagate(orbit, target, hf, new OceanTides(itrf, shared));
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(reference.getPVCoordinates().getPosition(),
+                                              first.getPVCoordinates().getPosition()),
+                            1.0e-6);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(first.getPVCoordinates().getPosition(),
+                                              second.getPVCoordinates().getPosition()),
+                            0.0);
+
+        // the second propagation did not compute any new sample
+        Assert.assertEquals(misses, shared.getMisses());
+        Assert.assertTrue(shared.getHits() > 100 * misses);
+        Assert.assertEquals(misses, shared.getCachedSamples());
+
+        // after clearing, a new field is built
+        OceanTides.clearSharedTidesFields();
+        Assert.assertNotSame(shared,
+                             OceanTides.getSharedTidesField(gravityField.getAe(), gravityField.getMu(), true,
+                                                            OceanTides.DEFAULT_STEP, OceanTides.DEFAULT_POINTS,
+                                                            6, 6, conventions, ut1, 1000));
+        OceanTides.clearSharedTidesFields();
+
+    }
+
     @Test
     public void testTideEffect1996() throws OrekitException {
         doTestTideEffect(IERSConventions.IERS_1996, 3.66948, 0.00000);
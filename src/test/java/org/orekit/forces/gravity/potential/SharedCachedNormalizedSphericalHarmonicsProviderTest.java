@@ -0,0 +1,247 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.forces.gravity.potential;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.errors.OrekitException;
+import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider.NormalizedSphericalHarmonics;
+import org.orekit.time.AbsoluteDate;
+
+public class SharedCachedNormalizedSphericalHarmonicsProviderTest {
+
+    private static final AbsoluteDate date = AbsoluteDate.J2000_EPOCH.shiftedBy(12345.0);
+    private static final double step = 60 * 60;
+    private NormalizedSphericalHarmonicsProvider raw;
+    private SharedCachedNormalizedSphericalHarmonicsProvider cache;
+
+    @Before
+    public void setUp() throws OrekitException {
+        raw   = new QuadraticProvider(date);
+        cache = new SharedCachedNormalizedSphericalHarmonicsProvider(raw, step, 3, 10);
+    }
+
+    @Test
+    public void testDelegation() {
+        Assert.assertEquals(raw.getMaxDegree(),     cache.getMaxDegree());
+        Assert.assertEquals(raw.getMaxOrder(),      cache.getMaxOrder());
+        Assert.assertEquals(raw.getMu(),            cache.getMu(), 0.0);
+        Assert.assertEquals(raw.getAe(),            cache.getAe(), 0.0);
+        Assert.assertEquals(raw.getReferenceDate(), cache.getReferenceDate());
+        Assert.assertEquals(raw.getTideSystem(),    cache.getTideSystem());
+        Assert.assertEquals(100.0, cache.getOffset(date.shiftedBy(100.0)), 1.0e-12);
+    }
+
+    @Test
+    public void testInterpolation() throws OrekitException {
+        // quadratic variations are reproduced exactly by 3 points interpolation,
+        // whatever the position of the date with respect to the sampling grid
+        for (double dt = -5 * step; dt < 5 * step; dt += 0.37 * step) {
+            checkEqual(raw.onDate(date.shiftedBy(dt)), cache.onDate(date.shiftedBy(dt)), 1.0e-6);
+        }
+    }
+
+    @Test
+    public void testStatistics() throws OrekitException {
+        cache.onDate(date);
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+        Assert.assertEquals(3, cache.getCachedSamples());
+        Assert.assertEquals(3 * 2 * 6 * 8, cache.getMemoryFootprint());
+
+        // a date in the same grid interval reuses all samples
+        cache.onDate(date.shiftedBy(1.0));
+        Assert.assertEquals(3, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+
+        // a date in the next grid interval needs only one new sample
+        cache.onDate(date.shiftedBy(step));
+        Assert.assertEquals(5, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+        Assert.assertEquals(0, cache.getCachedSamples());
+    }
+
+    @Test
+    public void testBoundedCache() throws OrekitException {
+        for (int i = 0; i < 100; ++i) {
+            cache.onDate(date.shiftedBy(i * step));
+        }
+        Assert.assertEquals(10, cache.getCachedSamples());
+        Assert.assertEquals(102, cache.getMisses());
+
+        // recent samples are still available, old ones have been evicted
+        cache.onDate(date.shiftedBy(98 * step));
+        Assert.assertEquals(102, cache.getMisses());
+        cache.onDate(date);
+        Assert.assertEquals(105, cache.getMisses());
+    }
+
+    @Test
+    public void testMultiThreading() throws OrekitException, InterruptedException, ExecutionException {
+        // samples are computed at the same dates regardless of the calling sequence,
+        // so concurrent evaluations must give exactly the same results as sequential ones
+        final SharedCachedNormalizedSphericalHarmonicsProvider sequential =
+                        new SharedCachedNormalizedSphericalHarmonicsProvider(raw, step, 3, 10);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<Double>> results = new ArrayList<>();
+        for (int t = 0; t < 32; ++t) {
+            final double offset = t * 17.0;
+            results.add(executor.submit(() -> {
+                double maxError = 0;
+                for (int i = 0; i < 200; ++i) {
+                    final AbsoluteDate d = date.shiftedBy(offset + i * 0.1 * step);
+                    final NormalizedSphericalHarmonics actual = cache.onDate(d);
+                    final NormalizedSphericalHarmonics expected;
+                    synchronized (sequential) {
+                        expected = sequential.onDate(d);
+                    }
+                    for (int n = 0; n <= raw.getMaxDegree(); n++) {
+                        for (int m = 0; m <= n; m++) {
+                            maxError = Math.max(maxError,
+                                                Math.abs(expected.getNormalizedCnm(n, m) - actual.getNormalizedCnm(n, m)));
+                            maxError = Math.max(maxError,
+                                                Math.abs(expected.getNormalizedSnm(n, m) - actual.getNormalizedSnm(n, m)));
+                        }
+                    }
+                }
+                return maxError;
+            }));
+        }
+        for (final Future<Double> result : results) {
+            Assert.assertEquals(0.0, result.get(), 0.0);
+        }
+        executor.shutdown();
+        Assert.assertTrue(cache.getCachedSamples() <= 10);
+    }
+
+    @Test
+    public void testWrongSettings() {
+        try {
+            new SharedCachedNormalizedSphericalHarmonicsProvider(raw, 0.0, 3, 10);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+        try {
+            new SharedCachedNormalizedSphericalHarmonicsProvider(raw, step, 1, 10);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+        try {
+            new SharedCachedNormalizedSphericalHarmonicsProvider(raw, step, 3, 2);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+    }
+
+    private void checkEqual(final NormalizedSphericalHarmonics expected,
+                            final NormalizedSphericalHarmonics actual,
+                            final double relativeTolerance)
+        throws OrekitException {
+        Assert.assertEquals(expected.getDate(), actual.getDate());
+        for (int n = 0; n <= raw.getMaxDegree(); n++) {
+            for (int m = 0; m <= n; m++) {
+                Assert.assertEquals(expected.getNormalizedCnm(n, m), actual.getNormalizedCnm(n, m),
+                                    relativeTolerance * expected.getNormalizedCnm(n, m));
+                Assert.assertEquals(expected.getNormalizedSnm(n, m), actual.getNormalizedSnm(n, m),
+                                    relativeTolerance * expected.getNormalizedSnm(n, m));
+            }
+        }
+    }
+
+    private static class QuadraticProvider implements NormalizedSphericalHarmonicsProvider {
+
+        private final AbsoluteDate date;
+
+        private QuadraticProvider(AbsoluteDate date) {
+            this.date = date;
+        }
+
+        @Override
+        public NormalizedSphericalHarmonics onDate(final AbsoluteDate date) throws OrekitException {
+            final double t = date.durationFrom(this.date);
+            return new NormalizedSphericalHarmonics() {
+                @Override
+                public double getNormalizedCnm(int n, int m) throws OrekitException {
+                    return n + m + t * t;
+                }
+
+                @Override
+                public double getNormalizedSnm(int n, int m) throws OrekitException {
+                    return n + m + t * t + 1;
+                }
+
+                @Override
+                public AbsoluteDate getDate() {
+                    return date;
+                }
+            };
+        }
+
+        @Override
+        public int getMaxDegree() {
+            return 2;
+        }
+
+        @Override
+        public int getMaxOrder() {
+            return 2;
+        }
+
+        @Override
+        public double getMu() {
+            return 1;
+        }
+
+        @Override
+        public double getAe() {
+            return 1;
+        }
+
+        @Override
+        public AbsoluteDate getReferenceDate() {
+            return date;
+        }
+
+        @Override
+        public double getOffset(AbsoluteDate date) {
+            return date.durationFrom(this.date);
+        }
+
+        @Override
+        public TideSystem getTideSystem() {
+            return TideSystem.UNKNOWN;
+        }
+
+    }
+
+}
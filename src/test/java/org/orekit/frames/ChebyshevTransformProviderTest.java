@@ -0,0 +1,193 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.frames;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.Decimal64;
+import org.hipparchus.util.Decimal64Field;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import org.orekit.utils.IERSConventions;
+
+public class ChebyshevTransformProviderTest {
+
+    private Frame        gcrf;
+    private Frame        itrf;
+    private AbsoluteDate start;
+    private AbsoluteDate end;
+
+    @Test
+    public void testAccuracy() throws OrekitException {
+        final ChebyshevTransformProvider provider =
+                        new ChebyshevTransformProvider(gcrf, itrf, start, end, 21600.0, 14, 1.0e-10);
+        Assert.assertEquals(14, provider.getDegree());
+        Assert.assertEquals(28, provider.getSegmentsNumber());
+        Assert.assertEquals(0.0, provider.getMaxError(), 8.0e-13);
+        Assert.assertEquals(0.0, provider.getStart().durationFrom(start), 0.0);
+        Assert.assertEquals(0.0, provider.getEnd().durationFrom(end), 1.0e-10);
+
+        double maxAngle = 0;
+        double maxRate  = 0;
+        double maxAcc   = 0;
+        for (double dt = 0; dt <= end.durationFrom(start); dt += 137.0) {
+            final AbsoluteDate date = start.shiftedBy(dt);
+            final Transform expected = gcrf.getTransformTo(itrf, date);
+            final Transform fitted   = provider.getTransform(date);
+            maxAngle = FastMath.max(maxAngle, Rotation.distance(expected.getRotation(), fitted.getRotation()));
+            maxRate  = FastMath.max(maxRate,  Vector3D.distance(expected.getRotationRate(), fitted.getRotationRate()));
+            maxAcc   = FastMath.max(maxAcc,   Vector3D.distance(expected.getRotationAcceleration(),
+                                                                fitted.getRotationAcceleration()));
+        }
+        Assert.assertEquals(0.0, maxAngle, 6.0e-13);
+        Assert.assertEquals(0.0, maxRate,  2.0e-13);
+        Assert.assertEquals(0.0, maxAcc,   3.0e-17);
+    }
+
+    @Test
+    public void testFrame() throws OrekitException {
+        final Frame compiled = new Frame(gcrf,
+                                         new ChebyshevTransformProvider(gcrf, itrf, start, end,
+                                                                        21600.0, 14, 1.0e-10),
+                                         "compiled ITRF", false);
+        final Vector3D station = new Vector3D(4696990.0, 723994.0, 4239678.0);
+        double maxP = 0;
+        for (double dt = 0; dt <= end.durationFrom(start); dt += 611.0) {
+            final AbsoluteDate date = start.shiftedBy(dt);
+            final Vector3D expected = itrf.getTransformTo(FramesFactory.getEME2000(), date).transformPosition(station);
+            final Vector3D actual   = compiled.getTransformTo(FramesFactory.getEME2000(), date).transformPosition(station);
+            maxP = FastMath.max(maxP, Vector3D.distance(expected, actual));
+        }
+        Assert.assertEquals(0.0, maxP, 4.0e-6);
+    }
+
+    @Test
+    public void testSplits() throws OrekitException {
+        final ChebyshevTransformProvider provider =
+                        new ChebyshevTransformProvider(gcrf, itrf, start, end, Constants.JULIAN_DAY, 6, 1.0e-10);
+        Assert.assertEquals(56, provider.getSegmentsNumber());
+        Assert.assertTrue(provider.getMaxError() <= 1.0e-10);
+        for (double dt = 0; dt <= end.durationFrom(start); dt += 523.0) {
+            final AbsoluteDate date = start.shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Rotation.distance(gcrf.getTransformTo(itrf, date).getRotation(),
+                                                  provider.getTransform(date).getRotation()),
+                                1.0e-10);
+        }
+    }
+
+    @Test
+    public void testToleranceNotMet() throws OrekitException {
+        try {
+            new ChebyshevTransformProvider(gcrf, itrf, start, end, Constants.JULIAN_DAY, 1, 1.0e-10);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.CHEBYSHEV_FIT_TOLERANCE_NOT_MET, oe.getSpecifier());
+            Assert.assertEquals(1.0e-10, ((Double) oe.getParts()[1]).doubleValue(), 0.0);
+            Assert.assertTrue(((Double) oe.getParts()[2]).doubleValue() > 1.0e-10);
+        }
+    }
+
+    @Test
+    public void testDelegation() throws OrekitException {
+        final ChebyshevTransformProvider provider =
+                        new ChebyshevTransformProvider(gcrf, itrf, start, end, 21600.0, 14, 1.0e-10);
+
+        // outside of fitting window
+        final AbsoluteDate before = start.shiftedBy(-1000.0);
+        Assert.assertEquals(0.0,
+                            Rotation.distance(gcrf.getTransformTo(itrf, before).getRotation(),
+                                              provider.getTransform(before).getRotation()),
+                            0.0);
+
+        // field dates
+        final FieldAbsoluteDate<Decimal64> date =
+                        new FieldAbsoluteDate<>(Decimal64Field.getInstance(), start.shiftedBy(1000.0));
+        Assert.assertEquals(0.0,
+                            Rotation.distance(gcrf.getTransformTo(itrf, date).getRotation().toRotation(),
+                                              provider.getTransform(date).getRotation().toRotation()),
+                            0.0);
+    }
+
+    @Test
+    public void testWrongSettings() throws OrekitException {
+        checkWrongSettings(end, start, 21600.0, 14, 1.0e-10, LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED);
+        checkWrongSettings(start, end, 0.0, 14, 1.0e-10, LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED);
+        checkWrongSettings(start, end, 21600.0, 0, 1.0e-10, LocalizedCoreFormats.NUMBER_TOO_SMALL);
+        checkWrongSettings(start, end, 21600.0, 14, 0.0, LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED);
+    }
+
+    @Test
+    public void testSerialization() throws OrekitException, IOException, ClassNotFoundException {
+        final ChebyshevTransformProvider provider =
+                        new ChebyshevTransformProvider(gcrf, itrf, start, start.shiftedBy(Constants.JULIAN_DAY),
+                                                       21600.0, 14, 1.0e-10);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream    oos = new ObjectOutputStream(bos);
+        oos.writeObject(provider);
+
+        ByteArrayInputStream  bis = new ByteArrayInputStream(bos.toByteArray());
+        ObjectInputStream     ois = new ObjectInputStream(bis);
+        ChebyshevTransformProvider deserialized  = (ChebyshevTransformProvider) ois.readObject();
+        Assert.assertEquals(provider.getSegmentsNumber(), deserialized.getSegmentsNumber());
+        for (double dt = 0; dt <= Constants.JULIAN_DAY; dt += 3600.0) {
+            final AbsoluteDate date = start.shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Rotation.distance(provider.getTransform(date).getRotation(),
+                                                  deserialized.getTransform(date).getRotation()),
+                                0.0);
+        }
+    }
+
+    private void checkWrongSettings(final AbsoluteDate s, final AbsoluteDate e,
+                                    final double segmentDuration, final int degree, final double tolerance,
+                                    final LocalizedCoreFormats expected) {
+        try {
+            new ChebyshevTransformProvider(gcrf, itrf, s, e, segmentDuration, degree, tolerance);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(expected, oe.getSpecifier());
+        }
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data");
+        gcrf  = FramesFactory.getGCRF();
+        itrf  = FramesFactory.getITRF(IERSConventions.IERS_2010, true);
+        start = new AbsoluteDate(2004, 3, 1, 0, 0, 0.0, TimeScalesFactory.getUTC());
+        end   = start.shiftedBy(7 * Constants.JULIAN_DAY);
+    }
+
+}
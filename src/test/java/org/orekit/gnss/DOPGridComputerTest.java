@@ -0,0 +1,215 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.FramesFactory;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.analytical.gnss.GPSPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import org.orekit.utils.ElevationMask;
+import org.orekit.utils.IERSConventions;
+
+
+public class DOPGridComputerTest {
+
+    private static OneAxisEllipsoid earth;
+    private static List<GeodeticPoint> grid;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws OrekitException {
+        // Sets the root of data to read
+        Utils.setDataRoot("gnss");
+        // Defines the Earth shape
+        earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS,
+                                     Constants.WGS84_EARTH_FLATTENING,
+                                     FramesFactory.getITRF(IERSConventions.IERS_2010, true));
+        // Defines the grid where to compute the DOP
+        grid = new ArrayList<>();
+        for (double lat = -80.0; lat <= 80.0; lat += 20.0) {
+            for (double lon = -180.0; lon < 180.0; lon += 30.0) {
+                grid.add(new GeodeticPoint(FastMath.toRadians(lat), FastMath.toRadians(lon), 100.0));
+            }
+        }
+    }
+
+    @Test
+    public void testConsistencyMinElevation() throws OrekitException {
+        final DOPGridComputer computer = DOPGridComputer.create(earth, grid)
+                                         .withMinElevation(FastMath.toRadians(10.));
+        Assert.assertEquals(FastMath.toRadians(10.), computer.getMinElevation(), 0.);
+        Assert.assertNull(computer.getElevationMask());
+        checkConsistency(computer, new AbsoluteDate(2016, 3, 31, 13, 0, 0., TimeScalesFactory.getUTC()));
+    }
+
+    @Test
+    public void testConsistencyElevationMask() throws OrekitException {
+        final DOPGridComputer computer = DOPGridComputer.create(earth, grid).withElevationMask(getMask());
+        Assert.assertEquals(DOPComputer.DOP_MIN_ELEVATION, computer.getMinElevation(), 0.);
+        Assert.assertNotNull(computer.getElevationMask());
+        checkConsistency(computer, new AbsoluteDate(2016, 3, 31, 7, 0, 0., TimeScalesFactory.getUTC()));
+    }
+
+    @Test
+    public void testTimeSeries() throws OrekitException {
+        final AbsoluteDate start = new AbsoluteDate(2016, 3, 31, 0, 0, 0., TimeScalesFactory.getUTC());
+        final AbsoluteDate end   = start.shiftedBy(3600.0);
+        final List<AbsoluteDate> dates = new ArrayList<>();
+        final DOPGridComputer computer = DOPGridComputer.create(earth, grid.subList(0, 5));
+        computer.compute(start, end, 600.0, getGpsPropagators(),
+                         (date, gnssNb, gdop, pdop, hdop, vdop, tdop) -> {
+                             Assert.assertEquals(5, gnssNb.length);
+                             dates.add(date);
+                         });
+        Assert.assertEquals(7, dates.size());
+        Assert.assertEquals(0.0, dates.get(0).durationFrom(start), 1.0e-15);
+        Assert.assertEquals(0.0, dates.get(6).durationFrom(end), 1.0e-15);
+    }
+
+    @Test
+    public void testThreadsIndependence() throws OrekitException {
+        final AbsoluteDate date = new AbsoluteDate(2016, 3, 31, 2, 0, 0., TimeScalesFactory.getUTC());
+        final List<Propagator> gps = getGpsPropagators();
+        final double[] single = new double[grid.size()];
+        DOPGridComputer.create(earth, grid).withThreads(1).
+        compute(date, gps, (d, gnssNb, gdop, pdop, hdop, vdop, tdop) -> System.arraycopy(gdop, 0, single, 0, gdop.length));
+        final double[] multi = new double[grid.size()];
+        DOPGridComputer computer = DOPGridComputer.create(earth, grid).withThreads(7);
+        Assert.assertEquals(7, computer.getThreads());
+        computer.compute(date, gps, (d, gnssNb, gdop, pdop, hdop, vdop, tdop) -> System.arraycopy(gdop, 0, multi, 0, gdop.length));
+        for (int i = 0; i < grid.size(); ++i) {
+            Assert.assertEquals(single[i], multi[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testWrongThreads() {
+        try {
+            DOPGridComputer.create(earth, grid).withThreads(0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testWrongStep() throws OrekitException {
+        final AbsoluteDate start = new AbsoluteDate(2016, 3, 31, 0, 0, 0., TimeScalesFactory.getUTC());
+        for (final double step : new double[] { 0.0, -600.0 }) {
+            try {
+                DOPGridComputer.create(earth, grid.subList(0, 5)).
+                compute(start, start.shiftedBy(3600.0), step, getGpsPropagators(),
+                        (date, gnssNb, gdop, pdop, hdop, vdop, tdop) -> Assert.fail("no DOP should be computed"));
+                Assert.fail("an exception should have been thrown");
+            } catch (OrekitException oe) {
+                Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+            }
+        }
+    }
+
+    @Test
+    public void testNotEnoughSV() throws OrekitException {
+        try {
+            DOPGridComputer.create(earth, grid).
+            compute(new AbsoluteDate(2016, 3, 31, 2, 0, 0., TimeScalesFactory.getUTC()),
+                    getGpsPropagators().subList(0, 3),
+                    (date, gnssNb, gdop, pdop, hdop, vdop, tdop) -> Assert.fail("no DOP should be computed"));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NOT_ENOUGH_GNSS_FOR_DOP, oe.getSpecifier());
+        }
+    }
+
+    private void checkConsistency(final DOPGridComputer computer, final AbsoluteDate date)
+        throws OrekitException {
+        final List<Propagator> gps = getGpsPropagators();
+        final int[] count = new int[2];
+        computer.compute(date, gps, (d, gnssNb, gdop, pdop, hdop, vdop, tdop) -> {
+            Assert.assertEquals(0.0, d.durationFrom(date), 1.0e-15);
+            for (int i = 0; i < gnssNb.length; ++i) {
+                DOPComputer single = DOPComputer.create(earth, computer.getPoints().get(i));
+                single = computer.getElevationMask() == null ?
+                         single.withMinElevation(computer.getMinElevation()) :
+                         single.withElevationMask(computer.getElevationMask());
+                final DOP dop = single.compute(date, gps);
+                Assert.assertEquals(dop.getGnssNb(), gnssNb[i]);
+                if (gnssNb[i] < 4) {
+                    Assert.assertTrue(Double.isNaN(gdop[i]));
+                    Assert.assertTrue(Double.isNaN(pdop[i]));
+                    Assert.assertTrue(Double.isNaN(hdop[i]));
+                    Assert.assertTrue(Double.isNaN(vdop[i]));
+                    Assert.assertTrue(Double.isNaN(tdop[i]));
+                    ++count[0];
+                } else {
+                    // relative accuracy degrades with ill-conditioned geometries
+                    final double tol = 1.0e-10 * dop.getGdop() * dop.getGdop();
+                    Assert.assertEquals(dop.getGdop(), gdop[i], tol * dop.getGdop());
+                    Assert.assertEquals(dop.getPdop(), pdop[i], tol * dop.getPdop());
+                    Assert.assertEquals(dop.getHdop(), hdop[i], tol * dop.getHdop());
+                    Assert.assertEquals(dop.getVdop(), vdop[i], tol * dop.getVdop());
+                    Assert.assertEquals(dop.getTdop(), tdop[i], tol * dop.getTdop());
+                    ++count[1];
+                }
+            }
+        });
+        Assert.assertEquals(grid.size(), count[0] + count[1]);
+        Assert.assertTrue(count[1] > 0);
+    }
+
+    private List<Propagator> getGpsPropagators() throws OrekitException {
+        // Gets the GPS almanacs from the Yuma file
+        final YUMAParser reader = new YUMAParser(null);
+        reader.loadData();
+        final List<GPSAlmanac> almanacs = reader.getAlmanacs();
+
+        // Creates the GPS propagators from the almanacs
+        final List<Propagator> propagators = new ArrayList<Propagator>();
+        for (GPSAlmanac almanac: almanacs) {
+            propagators.add(new GPSPropagator.Builder(almanac).build());
+        }
+        return propagators;
+    }
+
+    private ElevationMask getMask() {
+        final double [][] mask = {
+            {FastMath.toRadians(0.),   FastMath.toRadians(5.00)},
+            {FastMath.toRadians(45.),  FastMath.toRadians(50.00)},
+            {FastMath.toRadians(90.),  FastMath.toRadians(5.00)},
+            {FastMath.toRadians(135.), FastMath.toRadians(50.00)},
+            {FastMath.toRadians(180.), FastMath.toRadians(5.00)},
+            {FastMath.toRadians(225.), FastMath.toRadians(50.00)},
+            {FastMath.toRadians(270.), FastMath.toRadians(5.00)},
+            {FastMath.toRadians(315.), FastMath.toRadians(50.00)}
+        };
+        return new ElevationMask(mask);
+    }
+
+}
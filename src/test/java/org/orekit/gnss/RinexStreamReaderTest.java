@@ -0,0 +1,216 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+
+public class RinexStreamReaderTest {
+
+    @Before
+    public void setUp() throws OrekitException {
+        // Sets the root of data to read
+        Utils.setDataRoot("gnss:rinex");
+    }
+
+    @Test
+    public void testRinex2() throws OrekitException, IOException {
+        checkConsistency("jnu10110.17o");
+        checkConsistency("aiub0000.00o");
+    }
+
+    @Test
+    public void testRinex3() throws OrekitException, IOException {
+        checkConsistency("aaaa0000.00o");
+        checkConsistency("bbbb0000.00o");
+        checkConsistency("bbbb0000.01o");
+        checkConsistency("dcbs.00o");
+        checkConsistency("pcvs.00o");
+    }
+
+    @Test
+    public void testGzip() throws OrekitException, IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream is = open("bbbb0000.00o");
+             GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+            final byte[] buffer = new byte[4096];
+            for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+                gzos.write(buffer, 0, n);
+            }
+        }
+        try (RinexStreamReader raw = new RinexStreamReader(open("bbbb0000.00o"), "bbbb0000.00o");
+             RinexStreamReader gz  = new RinexStreamReader(new ByteArrayInputStream(baos.toByteArray()),
+                                                           "bbbb0000.00o.gz")) {
+            Assert.assertEquals(raw.getHeader().getMarkerName(), gz.getHeader().getMarkerName());
+            for (RinexEpoch epoch = raw.next(); epoch != null; epoch = raw.next()) {
+                final List<ObservationDataSet> expected = epoch.toObservationDataSets();
+                final List<ObservationDataSet> actual   = gz.next().toObservationDataSets();
+                checkSame(expected, actual);
+            }
+            Assert.assertNull(gz.next());
+        }
+    }
+
+    @Test
+    public void testFilter() throws OrekitException, IOException {
+        final List<ObservationDataSet> all = loadAll("bbbb0000.00o");
+        try (RinexStreamReader reader = new RinexStreamReader(open("bbbb0000.00o"), "bbbb0000.00o",
+                                                              EnumSet.of(SatelliteSystem.GPS, SatelliteSystem.GLONASS),
+                                                              new HashSet<>(Arrays.asList(ObservationType.C1C,
+                                                                                          ObservationType.S1C)))) {
+            Assert.assertEquals(Arrays.asList(ObservationType.C1C, ObservationType.S1C),
+                                reader.getObservationTypes(SatelliteSystem.GPS));
+            Assert.assertEquals(Arrays.asList(ObservationType.C1C, ObservationType.S1C),
+                                reader.getObservationTypes(SatelliteSystem.GLONASS));
+            Assert.assertTrue(reader.getObservationTypes(SatelliteSystem.GALILEO).isEmpty());
+            int index = 0;
+            int count = 0;
+            for (RinexEpoch epoch = reader.next(); epoch != null; epoch = reader.next()) {
+                for (int k = 0; k < epoch.getSatellitesNumber(); ++k) {
+                    // find the corresponding unfiltered data set
+                    ObservationDataSet ref = all.get(index++);
+                    while (ref.getSatelliteSystem() != epoch.getSatelliteSystem(k) ||
+                           ref.getPrnNumber() != epoch.getPrnNumber(k)) {
+                        Assert.assertFalse(ref.getSatelliteSystem() == SatelliteSystem.GPS ||
+                                           ref.getSatelliteSystem() == SatelliteSystem.GLONASS);
+                        ref = all.get(index++);
+                    }
+                    Assert.assertEquals(0.0, ref.getDate().durationFrom(epoch.getDate()), 0.0);
+                    for (int j = 0; j < epoch.getObservationTypes(k).size(); ++j) {
+                        for (final ObservationData od : ref.getObservationData()) {
+                            if (od.getObservationType() == epoch.getObservationTypes(k).get(j)) {
+                                Assert.assertEquals(od.getValue(), epoch.getValue(k, j), 0.0);
+                                ++count;
+                            }
+                        }
+                    }
+                }
+            }
+            Assert.assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void testEpochReuse() throws OrekitException, IOException {
+        try (RinexStreamReader reader = new RinexStreamReader(open("aaaa0000.00o"), "aaaa0000.00o")) {
+            final RinexEpoch first  = reader.next();
+            final RinexEpoch second = reader.next();
+            Assert.assertSame(first, second);
+        }
+    }
+
+    @Test
+    public void testInconsistentNumSatellites() throws IOException {
+        try (RinexStreamReader reader = new RinexStreamReader(open("inconsistent-satsnum.00o"),
+                                                              "inconsistent-satsnum.00o")) {
+            while (reader.next() != null) {
+                // nothing to do
+            }
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.INCONSISTENT_NUMBER_OF_SATS, oe.getSpecifier());
+            Assert.assertEquals(25, oe.getParts()[3]);
+            Assert.assertEquals(26, oe.getParts()[2]);
+        }
+    }
+
+    @Test
+    public void testInconsistentSatSystem() throws IOException {
+        try (RinexStreamReader reader = new RinexStreamReader(open("inconsistent-satsystem.00o"),
+                                                              "inconsistent-satsystem.00o")) {
+            while (reader.next() != null) {
+                // nothing to do
+            }
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.INCONSISTENT_SATELLITE_SYSTEM, oe.getSpecifier());
+            Assert.assertEquals(SatelliteSystem.GPS, oe.getParts()[2]);
+            Assert.assertEquals(SatelliteSystem.GLONASS, oe.getParts()[3]);
+        }
+    }
+
+    @Test
+    public void testMissingHeaderLabel() throws IOException {
+        try (RinexStreamReader reader = new RinexStreamReader(open("missing-label.00o"), "missing-label.00o")) {
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.INCOMPLETE_HEADER, oe.getSpecifier());
+        }
+    }
+
+    private void checkConsistency(final String name) throws OrekitException, IOException {
+        final List<ObservationDataSet> expected = loadAll(name);
+        final List<ObservationDataSet> actual   = new ArrayList<>();
+        try (RinexStreamReader reader = new RinexStreamReader(open(name), name)) {
+            for (RinexEpoch epoch = reader.next(); epoch != null; epoch = reader.next()) {
+                actual.addAll(epoch.toObservationDataSets());
+            }
+        }
+        checkSame(expected, actual);
+    }
+
+    private void checkSame(final List<ObservationDataSet> expected, final List<ObservationDataSet> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            final ObservationDataSet e = expected.get(i);
+            final ObservationDataSet a = actual.get(i);
+            Assert.assertEquals(e.getSatelliteSystem(), a.getSatelliteSystem());
+            Assert.assertEquals(e.getPrnNumber(), a.getPrnNumber());
+            Assert.assertEquals(0.0, e.getDate().durationFrom(a.getDate()), 0.0);
+            Assert.assertEquals(e.getRcvrClkOffset(), a.getRcvrClkOffset(), 0.0);
+            Assert.assertEquals(e.getObservationData().size(), a.getObservationData().size());
+            for (int j = 0; j < e.getObservationData().size(); ++j) {
+                final ObservationData eo = e.getObservationData().get(j);
+                final ObservationData ao = a.getObservationData().get(j);
+                Assert.assertEquals(eo.getObservationType(), ao.getObservationType());
+                if (Double.isNaN(eo.getValue())) {
+                    Assert.assertTrue(Double.isNaN(ao.getValue()));
+                } else {
+                    Assert.assertEquals(eo.getValue(), ao.getValue(), 0.0);
+                }
+                Assert.assertEquals(eo.getLossOfLockIndicator(), ao.getLossOfLockIndicator());
+                Assert.assertEquals(eo.getSignalStrength(), ao.getSignalStrength());
+            }
+        }
+    }
+
+    private List<ObservationDataSet> loadAll(final String name) throws OrekitException {
+        final RinexLoader loader = new RinexLoader("^" + name.replace(".", "\\.") + "$");
+        Assert.assertEquals(1, loader.getObservations().size());
+        return loader.getObservations().values().iterator().next();
+    }
+
+    private InputStream open(final String name) {
+        return RinexStreamReaderTest.class.getResourceAsStream("/rinex/" + name);
+    }
+
+}
@@ -0,0 +1,192 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.gnss.attitude;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.Decimal64;
+import org.hipparchus.util.Decimal64Field;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.attitudes.Attitude;
+import org.orekit.bodies.CelestialBody;
+import org.orekit.bodies.CelestialBodyFactory;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.CartesianOrbit;
+import org.orekit.orbits.FieldCartesianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.propagation.analytical.KeplerianPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import org.orekit.utils.FieldPVCoordinates;
+import org.orekit.utils.PVCoordinates;
+
+public class GNSSAttitudeTimelineTest {
+
+    private Frame         eme2000;
+    private CelestialBody sun;
+    private AbsoluteDate  start;
+    private AbsoluteDate  end;
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data:gnss");
+        eme2000 = FramesFactory.getEME2000();
+        sun     = CelestialBodyFactory.getSun();
+        start   = new AbsoluteDate(2003, 3, 21, 0, 0, 0.0, TimeScalesFactory.getGPS());
+        end     = start.shiftedBy(Constants.JULIAN_DAY);
+    }
+
+    @Test
+    public void testGPSBlockIIA() throws OrekitException {
+        doTestConsistency(new GPSBlockIIA(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                          sun, eme2000, 7),
+                          1.0e-5);
+    }
+
+    @Test
+    public void testGPSBlockIIF() throws OrekitException {
+        doTestConsistency(new GPSBlockIIF(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                          sun, eme2000),
+                          2.0e-5);
+    }
+
+    @Test
+    public void testGPSBlockIIR() throws OrekitException {
+        doTestConsistency(new GPSBlockIIR(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                          sun, eme2000),
+                          2.0e-5);
+    }
+
+    @Test
+    public void testGalileo() throws OrekitException {
+        doTestConsistency(new Galileo(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                      sun, eme2000),
+                          1.0e-7);
+    }
+
+    @Test
+    public void testGlonass() throws OrekitException {
+        doTestConsistency(new Glonass(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                      sun, eme2000),
+                          5.0e-4);
+    }
+
+    @Test
+    public void testBeidouMeo() throws OrekitException {
+        doTestConsistency(new BeidouMeo(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                        sun, eme2000),
+                          3.0e-4);
+    }
+
+    @Test
+    public void testOutsideWindowAndField() throws OrekitException {
+        final GPSBlockIIR provider = new GPSBlockIIR(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                                     sun, eme2000);
+        final Orbit orbit = createOrbit(FastMath.toRadians(1.0));
+        final KeplerianPropagator propagator = new KeplerianPropagator(orbit);
+        final GNSSAttitudeTimeline timeline = new GNSSAttitudeTimeline(provider, propagator, start, end,
+                                                                       60.0, 10.0);
+        Assert.assertEquals(AbsoluteDate.PAST_INFINITY,   timeline.validityStart());
+        Assert.assertEquals(AbsoluteDate.FUTURE_INFINITY, timeline.validityEnd());
+
+        // outside of processing window, computation is delegated
+        final AbsoluteDate after = end.shiftedBy(7200.0);
+        Assert.assertEquals(0.0,
+                            Rotation.distance(provider.getAttitude(propagator, after, eme2000).getRotation(),
+                                              timeline.getAttitude(propagator, after, eme2000).getRotation()),
+                            1.0e-15);
+
+        // field computation is delegated
+        final FieldAbsoluteDate<Decimal64> date =
+                        new FieldAbsoluteDate<>(Decimal64Field.getInstance(), start.shiftedBy(3600.0));
+        final FieldCartesianOrbit<Decimal64> fieldOrbit =
+                        new FieldCartesianOrbit<>(new FieldPVCoordinates<>(Decimal64Field.getInstance(),
+                                                                           orbit.getPVCoordinates()),
+                                                  eme2000, new FieldAbsoluteDate<>(Decimal64Field.getInstance(), start),
+                                                  orbit.getMu());
+        Assert.assertEquals(0.0,
+                            Rotation.distance(provider.getAttitude(fieldOrbit, date, eme2000).toAttitude().getRotation(),
+                                              timeline.getAttitude(fieldOrbit, date, eme2000).toAttitude().getRotation()),
+                            1.0e-15);
+
+    }
+
+    @Test
+    public void testWrongSteps() throws OrekitException {
+        final GPSBlockIIR provider = new GPSBlockIIR(AbsoluteDate.PAST_INFINITY, AbsoluteDate.FUTURE_INFINITY,
+                                                     sun, eme2000);
+        final KeplerianPropagator propagator = new KeplerianPropagator(createOrbit(FastMath.toRadians(1.0)));
+        try {
+            new GNSSAttitudeTimeline(provider, propagator, start, end, 0.0, 10.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+        try {
+            new GNSSAttitudeTimeline(provider, propagator, end, start, 60.0, 10.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+    }
+
+    private void doTestConsistency(final AbstractGNSSAttitudeProvider provider, final double tolerance)
+        throws OrekitException {
+
+        final KeplerianPropagator propagator = new KeplerianPropagator(createOrbit(FastMath.toRadians(1.0)));
+        final GNSSAttitudeTimeline timeline = new GNSSAttitudeTimeline(provider, propagator, start, end,
+                                                                       60.0, 10.0);
+        Assert.assertTrue(timeline.getNonNominalIntervalsNumber() > 0);
+
+        double maxError = 0;
+        for (double dt = 0; dt <= end.durationFrom(start); dt += 17.0) {
+            final AbsoluteDate date     = start.shiftedBy(dt);
+            final Attitude     expected = provider.getAttitude(propagator, date, eme2000);
+            final Attitude     actual   = timeline.getAttitude(propagator, date, eme2000);
+            maxError = FastMath.max(maxError, Rotation.distance(expected.getRotation(), actual.getRotation()));
+        }
+        Assert.assertEquals(0.0, maxError, tolerance);
+
+    }
+
+    /** Create a GPS-like orbit with a small Sun elevation above orbital plane.
+     * @param beta Sun elevation above orbital plane at start date
+     * @return orbit
+     * @exception OrekitException if Sun position cannot be computed
+     */
+    private Orbit createOrbit(final double beta) throws OrekitException {
+        final Vector3D s  = sun.getPVCoordinates(start, eme2000).getPosition().normalize();
+        final Vector3D n0 = Vector3D.crossProduct(s, Vector3D.PLUS_K).normalize();
+        final Vector3D n  = new Vector3D(FastMath.cos(beta), n0, FastMath.sin(beta), s);
+        final Vector3D u  = Vector3D.crossProduct(n, s).normalize();
+        final double   a  = 26560.0e3;
+        final Vector3D p  = new Vector3D(a, u);
+        final Vector3D v  = new Vector3D(FastMath.sqrt(Constants.EIGEN5C_EARTH_MU / a),
+                                         Vector3D.crossProduct(n, u));
+        return new CartesianOrbit(new PVCoordinates(p, v), eme2000, start, Constants.EIGEN5C_EARTH_MU);
+    }
+
+}
@@ -22,8 +22,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.util.FastMath;
@@ -312,6 +317,61 @@ public class GeoMagneticFieldTest {
         Assert.assertEquals(2017, transformedModel.getEpoch(), 1e0);
     }
 
+    @Test
+    public void testBatchEvaluation() throws Exception {
+        final GeoMagneticField model = GeoMagneticFieldFactory.getWMM(2017.5);
+        final int n = 200;
+        final double[] lat = new double[n];
+        final double[] lon = new double[n];
+        final double[] alt = new double[n];
+        for (int i = 0; i < n; ++i) {
+            lat[i] = -90.0 + 180.0 * i / (n - 1);
+            lon[i] = -180.0 + 7.3 * i;
+            alt[i] = 5.0 * (i % 20);
+        }
+        final double[] field = new double[3 * n];
+        model.calculateField(lat, lon, alt, field);
+        for (int i = 0; i < n; ++i) {
+            final Vector3D b = model.calculateField(lat[i], lon[i], alt[i]).getFieldVector();
+            Assert.assertEquals(b.getX(), field[3 * i],     0.0);
+            Assert.assertEquals(b.getY(), field[3 * i + 1], 0.0);
+            Assert.assertEquals(b.getZ(), field[3 * i + 2], 0.0);
+        }
+    }
+
+    @Test
+    public void testThreadsIndependence() throws Exception {
+        final GeoMagneticField model = GeoMagneticFieldFactory.getIGRF(2012.3);
+        final Vector3D reference = model.calculateField(45.0, 5.0, 400.0).getFieldVector();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Vector3D>> results = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                final double lat = -60.0 + i;
+                results.add(executor.submit(() -> {
+                    model.calculateField(lat, -lat, 100.0);
+                    return model.calculateField(45.0, 5.0, 400.0).getFieldVector();
+                }));
+            }
+            for (final Future<Vector3D> result : results) {
+                Assert.assertEquals(0.0, Vector3D.distance(reference, result.get()), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTransformedModelsCache() throws Exception {
+        final GeoMagneticField wmm1 = GeoMagneticFieldFactory.getWMM(2016.25);
+        final GeoMagneticField wmm2 = GeoMagneticFieldFactory.getField(FieldModel.WMM, 2016.25);
+        Assert.assertSame(wmm1, wmm2);
+        Assert.assertEquals(2016.25, wmm1.getEpoch(), 1.0e-15);
+        Assert.assertNotSame(wmm1, GeoMagneticFieldFactory.getWMM(2016.5));
+        Assert.assertNotSame(wmm1, GeoMagneticFieldFactory.getIGRF(2016.25));
+        Assert.assertSame(GeoMagneticFieldFactory.getIGRF(2007.5), GeoMagneticFieldFactory.getIGRF(2007.5));
+    }
+
     @Test
     public void testLoadOriginalWMMModel() throws Exception {
         GeoMagneticModelLoader loader = new GeoMagneticModelLoader();
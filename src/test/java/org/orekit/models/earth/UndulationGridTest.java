@@ -0,0 +1,175 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.models.earth;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.random.RandomGenerator;
+import org.hipparchus.random.Well19937a;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.orekit.Utils;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.forces.gravity.potential.EGMFormatReader;
+import org.orekit.forces.gravity.potential.GravityFieldFactory;
+import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider;
+import org.orekit.frames.FramesFactory;
+import org.orekit.models.earth.UndulationGrid.Interpolation;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.IERSConventions;
+
+public class UndulationGridTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Geoid        geoid;
+    private AbsoluteDate date;
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data:potential");
+        GravityFieldFactory.addPotentialCoefficientsReader(new EGMFormatReader("egm96_to5.ascii", true));
+        final NormalizedSphericalHarmonicsProvider potential = GravityFieldFactory.getConstantNormalizedProvider(5, 5);
+        geoid = new Geoid(potential,
+                          ReferenceEllipsoid.getWgs84(FramesFactory.getITRF(IERSConventions.IERS_2010, true)));
+        date  = potential.getReferenceDate();
+    }
+
+    @Test
+    public void testNodes() throws OrekitException {
+        final UndulationGrid grid = UndulationGrid.compute(geoid, FastMath.toRadians(10.0), date,
+                                                           Interpolation.BICUBIC);
+        Assert.assertEquals(FastMath.toRadians(10.0), grid.getLatitudeStep(),  1.0e-15);
+        Assert.assertEquals(FastMath.toRadians(10.0), grid.getLongitudeStep(), 1.0e-15);
+        Assert.assertEquals(Interpolation.BICUBIC, grid.getInterpolation());
+        for (double lat = -80.0; lat <= 80.0; lat += 10.0) {
+            for (double lon = -180.0; lon < 180.0; lon += 10.0) {
+                final double phi    = FastMath.toRadians(lat);
+                final double lambda = FastMath.toRadians(lon);
+                Assert.assertEquals(geoid.getUndulation(phi, lambda, date),
+                                    grid.getUndulation(phi, lambda),
+                                    1.0e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testInterpolationError() throws OrekitException {
+        final double step = FastMath.toRadians(5.0);
+        final double bilinear = maxError(UndulationGrid.compute(geoid, step, date, Interpolation.BILINEAR));
+        final double bicubic  = maxError(UndulationGrid.compute(geoid, step, date, Interpolation.BICUBIC));
+        Assert.assertEquals(0.0, bilinear, 0.78);
+        Assert.assertEquals(0.0, bicubic,  0.032);
+        Assert.assertTrue(bicubic < 0.05 * bilinear);
+    }
+
+    @Test
+    public void testGriddedGeoid() throws OrekitException {
+        final UndulationGrid grid   = UndulationGrid.compute(geoid, FastMath.toRadians(2.0), date,
+                                                             Interpolation.BICUBIC);
+        final Geoid          gridded = geoid.withUndulationGrid(grid);
+        Assert.assertNull(geoid.getUndulationGrid());
+        Assert.assertSame(grid, gridded.getUndulationGrid());
+        Assert.assertSame(geoid.getEllipsoid(), gridded.getEllipsoid());
+        Assert.assertNull(gridded.withUndulationGrid(null).getUndulationGrid());
+
+        final double phi    = FastMath.toRadians(43.6);
+        final double lambda = FastMath.toRadians(1.44);
+        Assert.assertEquals(grid.getUndulation(phi, lambda), gridded.getUndulation(phi, lambda, date), 0.0);
+        Assert.assertEquals(geoid.getUndulation(phi, lambda, date), gridded.getUndulation(phi, lambda, date), 1.0e-3);
+
+        // round trip through Cartesian coordinates
+        final GeodeticPoint gp = new GeodeticPoint(phi, lambda, 250.0);
+        final Vector3D      p  = gridded.transform(gp);
+        final GeodeticPoint back = gridded.transform(p, gridded.getBodyFrame(), date);
+        Assert.assertEquals(gp.getAltitude(), back.getAltitude(), 1.0e-6);
+        Assert.assertEquals(gp.getAltitude(), geoid.transform(p, geoid.getBodyFrame(), date).getAltitude(), 1.0e-3);
+    }
+
+    @Test
+    public void testWriteLoad() throws OrekitException, IOException {
+        final UndulationGrid grid = UndulationGrid.compute(geoid, FastMath.toRadians(7.0), date,
+                                                           Interpolation.BILINEAR);
+        final File file = tempFolder.newFile("undulations.bin");
+        grid.write(file);
+        final long nLat = FastMath.round(FastMath.PI / grid.getLatitudeStep()) + 1;
+        final long nLon = FastMath.round(2 * FastMath.PI / grid.getLongitudeStep());
+        Assert.assertEquals(16 + 8 * nLat * nLon, file.length());
+        final UndulationGrid loaded = UndulationGrid.load(file, Interpolation.BILINEAR);
+        Assert.assertEquals(grid.getLatitudeStep(),  loaded.getLatitudeStep(),  0.0);
+        Assert.assertEquals(grid.getLongitudeStep(), loaded.getLongitudeStep(), 0.0);
+        final RandomGenerator random = new Well19937a(0x5e3a6c0ef10ad2bdl);
+        for (int i = 0; i < 1000; ++i) {
+            final double phi    = FastMath.PI * (random.nextDouble() - 0.5);
+            final double lambda = 4 * FastMath.PI * (random.nextDouble() - 0.5);
+            Assert.assertEquals(grid.getUndulation(phi, lambda), loaded.getUndulation(phi, lambda), 0.0);
+        }
+    }
+
+    @Test
+    public void testCorruptedFile() throws OrekitException, IOException {
+        final File file = tempFolder.newFile("corrupted.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {
+                0x4F, 0x47, 0x55, 0x47, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x03, 0x00, 0x00, 0x00, 0x04,
+                0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+            });
+        }
+        try {
+            UndulationGrid.load(file, Interpolation.BICUBIC);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NOT_A_SUPPORTED_UNDULATION_GRID_FILE, oe.getSpecifier());
+            Assert.assertEquals(file.getAbsolutePath(), oe.getParts()[0]);
+        }
+    }
+
+    @Test
+    public void testWrongStep() {
+        try {
+            UndulationGrid.compute(geoid, 0.0, date, Interpolation.BICUBIC);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+    }
+
+    private double maxError(final UndulationGrid grid) throws OrekitException {
+        final RandomGenerator random = new Well19937a(0x8b3c5e9f1d2a4b07l);
+        double max = 0;
+        for (int i = 0; i < 2000; ++i) {
+            final double phi    = FastMath.PI * (random.nextDouble() - 0.5);
+            final double lambda = 2 * FastMath.PI * (random.nextDouble() - 0.5);
+            max = FastMath.max(max, FastMath.abs(geoid.getUndulation(phi, lambda, date) -
+                                                 grid.getUndulation(phi, lambda)));
+        }
+        return max;
+    }
+
+}
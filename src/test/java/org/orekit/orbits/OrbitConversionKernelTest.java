@@ -0,0 +1,214 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.orbits;
+
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+import org.orekit.utils.PVCoordinates;
+
+public class OrbitConversionKernelTest {
+
+    private Frame        frame;
+    private AbsoluteDate date;
+    private double       mu;
+
+    @Test
+    public void testConversionsConsistency() {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final Orbit[] orbits = new Orbit[] {
+            new KeplerianOrbit(7200000.0, 0.012, 1.3, 0.4, 2.1, 0.7, PositionAngle.MEAN, frame, date, mu),
+            new KeplerianOrbit(24396159.0, 0.72831215, 0.12, 3.1, 5.2, 2.4, PositionAngle.TRUE, frame, date, mu),
+            new KeplerianOrbit(-7200000.0, 1.4, 0.4, 0.3, 1.7, 0.2, PositionAngle.TRUE, frame, date, mu)
+        };
+        final double[] in  = new double[6];
+        final double[] out = new double[6];
+        for (final Orbit orbit : orbits) {
+            for (final OrbitType inType : OrbitType.values()) {
+                if (orbit.getA() < 0 && (inType == OrbitType.CIRCULAR || inType == OrbitType.EQUINOCTIAL)) {
+                    continue;
+                }
+                for (final OrbitType outType : OrbitType.values()) {
+                    if (orbit.getA() < 0 && (outType == OrbitType.CIRCULAR || outType == OrbitType.EQUINOCTIAL)) {
+                        continue;
+                    }
+                    for (final PositionAngle inAngle : PositionAngle.values()) {
+                        for (final PositionAngle outAngle : PositionAngle.values()) {
+                            inType.mapOrbitToArray(orbit, inAngle, in, null);
+                            kernel.convert(inType, inAngle, in, 0, outType, outAngle, mu, out, 0);
+                            final Orbit converted = outType.mapArrayToOrbit(out, null, outAngle, date, mu, frame);
+                            final double dP = Vector3D.distance(orbit.getPVCoordinates().getPosition(),
+                                                                converted.getPVCoordinates().getPosition());
+                            final double dV = Vector3D.distance(orbit.getPVCoordinates().getVelocity(),
+                                                                converted.getPVCoordinates().getVelocity());
+                            Assert.assertEquals(0.0, dP, 2.0e-8 * orbit.getPVCoordinates().getPosition().getNorm());
+                            Assert.assertEquals(0.0, dV, 2.0e-8 * orbit.getPVCoordinates().getVelocity().getNorm());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsOrbitClasses() {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final Orbit reference = new EquinoctialOrbit(42166712.0, 0.1e-3, -0.3e-3, 0.02, -0.01, 1.7,
+                                                     PositionAngle.MEAN, frame, date, mu);
+        final double[] pv       = new double[6];
+        final double[] expected = new double[6];
+        final double[] actual   = new double[6];
+        OrbitType.CARTESIAN.mapOrbitToArray(reference, PositionAngle.MEAN, pv, null);
+        for (final OrbitType type : OrbitType.values()) {
+            for (final PositionAngle angle : PositionAngle.values()) {
+                type.mapOrbitToArray(reference, angle, expected, null);
+                kernel.fromCartesian(type, angle, pv, 0, mu, actual, 0);
+                for (int i = 0; i < 6; ++i) {
+                    if (type != OrbitType.CARTESIAN && i == 0) {
+                        Assert.assertEquals(expected[i], actual[i], 1.0e-15 * FastMath.abs(expected[i]) + 1.0e-6);
+                    } else if (type == OrbitType.CARTESIAN) {
+                        Assert.assertEquals(expected[i], actual[i], 1.0e-15 * FastMath.abs(expected[i]));
+                    } else {
+                        Assert.assertEquals(0.0, MathUtils.normalizeAngle(actual[i] - expected[i], 0.0), 1.0e-10);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkConversion() {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final KeplerianOrbit initial = new KeplerianOrbit(7200000.0, 0.05, 1.3, 0.4, 2.1, 0.7,
+                                                          PositionAngle.MEAN, frame, date, mu);
+        final int count = 500;
+        final double[] in  = new double[6 * count];
+        final double[] out = new double[6 * count];
+        final double[] one = new double[6];
+        for (int k = 0; k < count; ++k) {
+            OrbitType.KEPLERIAN.mapOrbitToArray(initial.shiftedBy(10.0 * k), PositionAngle.MEAN, one, null);
+            System.arraycopy(one, 0, in, 6 * k, 6);
+        }
+        kernel.convert(count, OrbitType.KEPLERIAN, PositionAngle.MEAN, in,
+                       OrbitType.CARTESIAN, PositionAngle.TRUE, mu, out);
+        for (int k = 0; k < count; ++k) {
+            final PVCoordinates pv = initial.shiftedBy(10.0 * k).getPVCoordinates();
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(pv.getPosition(), new Vector3D(out[6 * k], out[6 * k + 1], out[6 * k + 2])),
+                                1.0e-6);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(pv.getVelocity(), new Vector3D(out[6 * k + 3], out[6 * k + 4], out[6 * k + 5])),
+                                1.0e-9);
+        }
+    }
+
+    @Test
+    public void testWarmStart() {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final double ex = 0.3;
+        final double ey = -0.2;
+        for (double lM = -20.0; lM < 20.0; lM += 0.01) {
+            final double lE = kernel.meanToEccentric(lM, ex, ey);
+            Assert.assertEquals(lM, EquinoctialOrbit.eccentricToMean(lE, ex, ey), 1.0e-12);
+        }
+        kernel.resetWarmStart();
+        for (double M = -20.0; M < 20.0; M += 0.1) {
+            final double E = kernel.meanToEllipticEccentric(M, 0.9);
+            Assert.assertEquals(M, KeplerianOrbit.ellipticEccentricToMean(E, 0.9), 1.0e-12);
+        }
+    }
+
+    @Test
+    public void testJacobians() throws OrekitException {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final Orbit reference = new KeplerianOrbit(7200000.0, 0.012, 1.3, 0.4, 2.1, 0.7,
+                                                   PositionAngle.MEAN, frame, date, mu);
+        final double[] pv = new double[6];
+        OrbitType.CARTESIAN.mapOrbitToArray(reference, PositionAngle.MEAN, pv, null);
+        final double[][] expected = new double[6][6];
+        final double[][] actual   = new double[6][6];
+        final double[] bulk       = new double[36];
+        for (final OrbitType type : OrbitType.values()) {
+            final Orbit orbit = type.convertType(reference);
+            for (final PositionAngle angle : PositionAngle.values()) {
+
+                orbit.getJacobianWrtCartesian(angle, expected);
+                kernel.getJacobianWrtCartesian(type, angle, pv, 0, mu, actual);
+                checkMatrix(expected, actual, 1.0e-10);
+
+                kernel.getJacobiansWrtCartesian(1, type, angle, pv, mu, bulk);
+                for (int i = 0; i < 6; ++i) {
+                    for (int j = 0; j < 6; ++j) {
+                        Assert.assertEquals(actual[i][j], bulk[6 * i + j], 0.0);
+                    }
+                }
+
+                orbit.getJacobianWrtParameters(angle, expected);
+                kernel.getJacobianWrtParameters(type, angle, pv, 0, mu, actual);
+                checkMatrix(expected, actual, 1.0e-9);
+
+            }
+        }
+    }
+
+    @Test
+    public void testHyperbolicJacobian() {
+        final OrbitConversionKernel kernel = new OrbitConversionKernel();
+        final Orbit hyperbolic = new KeplerianOrbit(-7200000.0, 1.4, 0.4, 0.3, 1.7, 0.2,
+                                                    PositionAngle.TRUE, frame, date, mu);
+        final double[] pv = new double[6];
+        OrbitType.CARTESIAN.mapOrbitToArray(hyperbolic, PositionAngle.MEAN, pv, null);
+        try {
+            kernel.getJacobianWrtCartesian(OrbitType.KEPLERIAN, PositionAngle.MEAN, pv, 0, mu, new double[6][6]);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(OrekitMessages.HYPERBOLIC_ORBIT_NOT_HANDLED_AS, oiae.getSpecifier());
+        }
+    }
+
+    private void checkMatrix(final double[][] expected, final double[][] actual, final double relativeTolerance) {
+        for (int i = 0; i < 6; ++i) {
+            double rowNorm = 0;
+            for (int j = 0; j < 6; ++j) {
+                rowNorm = FastMath.max(rowNorm, FastMath.abs(expected[i][j]));
+            }
+            for (int j = 0; j < 6; ++j) {
+                Assert.assertEquals(expected[i][j], actual[i][j], relativeTolerance * rowNorm);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Utils.setDataRoot("regular-data");
+        frame = FramesFactory.getEME2000();
+        date  = AbsoluteDate.J2000_EPOCH;
+        mu    = Constants.EIGEN5C_EARTH_MU;
+    }
+
+}
@@ -0,0 +1,197 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.analytical;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.forces.maneuvers.SmallManeuverAnalyticalModel;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.CircularOrbit;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+
+public class CumulativeManeuversEffectTest {
+
+    private Orbit leo;
+
+    @Test
+    public void testManeuversOnly() throws OrekitException {
+
+        final Propagator reference = new KeplerianPropagator(leo);
+        final AdapterPropagator sequential = new AdapterPropagator(reference);
+        final AdapterPropagator cumulative = new AdapterPropagator(reference);
+        final CumulativeManeuversEffect plan = new CumulativeManeuversEffect();
+        cumulative.addEffect(plan);
+        for (final SmallManeuverAnalyticalModel maneuver : createManeuvers(reference, 100)) {
+            sequential.addEffect(maneuver);
+            plan.addManeuver(maneuver);
+        }
+        Assert.assertEquals(100, plan.getEffectsNumber());
+
+        checkSame(sequential, cumulative, 1.0e-5, 1.0e-12);
+
+    }
+
+    @Test
+    public void testManeuversAndJ2() throws OrekitException {
+
+        final Propagator reference = new KeplerianPropagator(leo);
+        final AdapterPropagator sequential = new AdapterPropagator(reference);
+        final AdapterPropagator cumulative = new AdapterPropagator(reference);
+        final CumulativeManeuversEffect plan = new CumulativeManeuversEffect();
+        cumulative.addEffect(plan);
+        for (final SmallManeuverAnalyticalModel maneuver : createManeuvers(reference, 50)) {
+            final J2DifferentialEffect j2 =
+                    new J2DifferentialEffect(reference.propagate(maneuver.getDate()), maneuver, false,
+                                             Constants.EIGEN5C_EARTH_EQUATORIAL_RADIUS,
+                                             Constants.EIGEN5C_EARTH_MU,
+                                             -Constants.EIGEN5C_EARTH_C20 * FastMath.sqrt(5.0));
+            sequential.addEffect(maneuver);
+            sequential.addEffect(j2);
+            plan.addManeuver(maneuver);
+            plan.addJ2Effect(j2);
+        }
+        Assert.assertEquals(100, plan.getEffectsNumber());
+
+        // J2 drifts and maneuvers are not interleaved, which is a second order effect
+        checkSame(sequential, cumulative, 1.0, 1.0e-12);
+
+    }
+
+    @Test
+    public void testPartialInvalidation() throws OrekitException {
+
+        final Propagator reference = new KeplerianPropagator(leo);
+        final AdapterPropagator cumulative = new AdapterPropagator(reference);
+        final CumulativeManeuversEffect plan = new CumulativeManeuversEffect();
+        cumulative.addEffect(plan);
+        final List<SmallManeuverAnalyticalModel> maneuvers = createManeuvers(reference, 20);
+
+        // add maneuvers in reverse chronological order, the plan sorts them
+        for (int i = maneuvers.size() - 1; i >= 0; --i) {
+            plan.addManeuver(maneuvers.get(i));
+        }
+        for (int i = 0; i < maneuvers.size(); ++i) {
+            Assert.assertSame(maneuvers.get(i), plan.getEffects().get(i));
+        }
+        Assert.assertEquals(0, plan.getCachedNumber());
+
+        // cumulative sums are computed only up to requested date
+        cumulative.propagate(maneuvers.get(5).getDate().shiftedBy(1.0));
+        Assert.assertEquals(6, plan.getCachedNumber());
+        cumulative.propagate(maneuvers.get(19).getDate().shiftedBy(1.0));
+        Assert.assertEquals(20, plan.getCachedNumber());
+
+        // removing a maneuver invalidates only the later cumulative sums
+        Assert.assertTrue(plan.removeManeuver(maneuvers.get(12)));
+        Assert.assertFalse(plan.removeManeuver(maneuvers.get(12)));
+        Assert.assertEquals(12, plan.getCachedNumber());
+        cumulative.propagate(maneuvers.get(3).getDate().shiftedBy(1.0));
+        Assert.assertEquals(12, plan.getCachedNumber());
+
+        // adding a maneuver at the end does not invalidate anything
+        final SmallManeuverAnalyticalModel last =
+                createManeuvers(new KeplerianPropagator(leo.shiftedBy(30 * 3600.0)), 1).get(0);
+        plan.addManeuver(last);
+        Assert.assertEquals(12, plan.getCachedNumber());
+
+        // the updated plan is consistent with sequential application
+        final AdapterPropagator updated = new AdapterPropagator(reference);
+        for (final SmallManeuverAnalyticalModel maneuver : maneuvers) {
+            if (maneuver != maneuvers.get(12)) {
+                updated.addEffect(maneuver);
+            }
+        }
+        updated.addEffect(last);
+        checkSame(updated, cumulative, 1.0e-5, 1.0e-12);
+        Assert.assertEquals(20, plan.getCachedNumber());
+
+    }
+
+    @Test
+    public void testEccentricOrbitFallback() throws OrekitException {
+
+        final Orbit heo = new KeplerianOrbit(90000000.0, 0.92, FastMath.toRadians(98.0),
+                                             FastMath.toRadians(12.3456), FastMath.toRadians(123.456),
+                                             FastMath.toRadians(1.23456), PositionAngle.MEAN,
+                                             leo.getFrame(), leo.getDate(), Constants.EIGEN5C_EARTH_MU);
+        final Propagator reference = new KeplerianPropagator(heo);
+        final AdapterPropagator sequential = new AdapterPropagator(reference);
+        final AdapterPropagator cumulative = new AdapterPropagator(reference);
+        final CumulativeManeuversEffect plan = new CumulativeManeuversEffect();
+        cumulative.addEffect(plan);
+        for (final SmallManeuverAnalyticalModel maneuver : createManeuvers(reference, 5)) {
+            sequential.addEffect(maneuver);
+            plan.addManeuver(maneuver);
+        }
+
+        // effects are applied one at a time, so results are identical
+        checkSame(sequential, cumulative, 0.0, 0.0);
+
+    }
+
+    private List<SmallManeuverAnalyticalModel> createManeuvers(final Propagator reference, final int n)
+        throws OrekitException {
+        final List<SmallManeuverAnalyticalModel> maneuvers = new ArrayList<SmallManeuverAnalyticalModel>(n);
+        final AbsoluteDate start = reference.getInitialState().getDate();
+        for (int i = 0; i < n; ++i) {
+            final SpacecraftState state0 = reference.propagate(start.shiftedBy(1000.0 + 3600.0 * i));
+            final Vector3D dV = new Vector3D(0.01 * FastMath.cos(i), 0.02 * FastMath.sin(i), 0.005);
+            maneuvers.add(new SmallManeuverAnalyticalModel(state0, state0.getFrame(), dV, 300.0));
+        }
+        return maneuvers;
+    }
+
+    private void checkSame(final AdapterPropagator expected, final AdapterPropagator actual,
+                           final double positionTolerance, final double massTolerance)
+        throws OrekitException {
+        final AbsoluteDate start = expected.getInitialState().getDate();
+        for (double dt = 0; dt < 5 * 24 * 3600.0; dt += 1234.5) {
+            final SpacecraftState e = expected.propagate(start.shiftedBy(dt));
+            final SpacecraftState a = actual.propagate(start.shiftedBy(dt));
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(e.getPVCoordinates().getPosition(),
+                                                  a.getPVCoordinates().getPosition()),
+                                positionTolerance);
+            Assert.assertEquals(e.getMass(), a.getMass(), massTolerance * e.getMass());
+            Assert.assertEquals(e.getOrbit().getType(), a.getOrbit().getType());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Utils.setDataRoot("regular-data");
+        leo = new CircularOrbit(7200000.0, -1.0e-5, 2.0e-4,
+                                FastMath.toRadians(98.0), FastMath.toRadians(123.456),
+                                0.0, PositionAngle.MEAN, FramesFactory.getEME2000(),
+                                AbsoluteDate.J2000_EPOCH, Constants.EIGEN5C_EARTH_MU);
+    }
+
+}
@@ -0,0 +1,165 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.conversion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.Propagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.analytical.KeplerianPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+
+public class BatchPropagatorConverterTest {
+
+    private List<Orbit> orbits;
+
+    @Test
+    public void testBatch() throws OrekitException {
+
+        final BatchPropagatorConverter batch = new BatchPropagatorConverter(3);
+        for (final Orbit orbit : orbits) {
+            batch.addObject(buildConverter(orbit), buildSample(orbit), false);
+        }
+        Assert.assertEquals(orbits.size(), batch.getObjectsNumber());
+
+        final AtomicInteger calls = new AtomicInteger(0);
+        final List<Propagator> adapted = batch.convert((index, converter, error) -> {
+            Assert.assertNull(error);
+            Assert.assertTrue(converter.getRMS() < 1.0e-6);
+            calls.incrementAndGet();
+        });
+
+        Assert.assertEquals(orbits.size(), calls.get());
+        Assert.assertEquals(orbits.size(), batch.getCompletedNumber());
+        Assert.assertEquals(orbits.size(), adapted.size());
+        for (int i = 0; i < orbits.size(); ++i) {
+            Assert.assertNull(batch.getError(i));
+            final Orbit fitted = adapted.get(i).getInitialState().getOrbit();
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(orbits.get(i).getPVCoordinates().getPosition(),
+                                                  fitted.getPVCoordinates().getPosition()),
+                                1.0e-5);
+        }
+
+    }
+
+    @Test
+    public void testFailureIsolation() throws OrekitException {
+
+        final BatchPropagatorConverter batch = new BatchPropagatorConverter(2);
+        batch.addObject(buildConverter(orbits.get(0)), buildSample(orbits.get(0)), false);
+        final int failing = batch.addObject(buildConverter(orbits.get(1)), buildSample(orbits.get(1)), false, "toto");
+        batch.addObject(buildConverter(orbits.get(2)), buildSample(orbits.get(2)), true);
+
+        final boolean[] reported = new boolean[3];
+        final List<Propagator> adapted = batch.convert((index, converter, error) -> {
+            synchronized (reported) {
+                reported[index] = true;
+            }
+            Assert.assertEquals(index == failing, error != null);
+        });
+
+        Assert.assertEquals(3, batch.getCompletedNumber());
+        for (int i = 0; i < reported.length; ++i) {
+            Assert.assertTrue(reported[i]);
+        }
+        Assert.assertNotNull(adapted.get(0));
+        Assert.assertNull(adapted.get(failing));
+        Assert.assertNotNull(adapted.get(2));
+        Assert.assertNull(batch.getError(0));
+        Assert.assertEquals(OrekitMessages.UNSUPPORTED_PARAMETER_NAME, batch.getError(failing).getSpecifier());
+        Assert.assertNull(batch.getError(2));
+
+    }
+
+    @Test
+    public void testRuntimeFailureIsolation() throws OrekitException {
+
+        final BatchPropagatorConverter batch = new BatchPropagatorConverter(2);
+        batch.addObject(buildConverter(orbits.get(0)), buildSample(orbits.get(0)), false);
+        // an empty sample triggers an unchecked exception deep in the conversion
+        final int failing = batch.addObject(buildConverter(orbits.get(1)), new ArrayList<>(), false);
+        batch.addObject(buildConverter(orbits.get(2)), buildSample(orbits.get(2)), false);
+
+        final List<Propagator> adapted = batch.convert(null);
+
+        Assert.assertEquals(3, batch.getCompletedNumber());
+        Assert.assertNotNull(adapted.get(0));
+        Assert.assertNull(adapted.get(failing));
+        Assert.assertNotNull(adapted.get(2));
+        Assert.assertNull(batch.getError(0));
+        Assert.assertTrue(batch.getError(failing).getCause() instanceof IndexOutOfBoundsException);
+        Assert.assertNull(batch.getError(2));
+
+    }
+
+    @Test
+    public void testEmptyBatch() throws OrekitException {
+        final BatchPropagatorConverter batch = new BatchPropagatorConverter(4);
+        Assert.assertTrue(batch.convert(null).isEmpty());
+        Assert.assertEquals(0, batch.getCompletedNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongThreadsNumber() {
+        new BatchPropagatorConverter(0);
+    }
+
+    private FiniteDifferencePropagatorConverter buildConverter(final Orbit orbit) throws OrekitException {
+        return new FiniteDifferencePropagatorConverter(new KeplerianPropagatorBuilder(OrbitType.KEPLERIAN.convertType(orbit),
+                                                                                      PositionAngle.MEAN, 1.0),
+                                                       1.0e-3, 1000);
+    }
+
+    private List<SpacecraftState> buildSample(final Orbit orbit) throws OrekitException {
+        final Propagator p = new KeplerianPropagator(orbit);
+        final List<SpacecraftState> sample = new ArrayList<SpacecraftState>();
+        for (double dt = 0; dt < 7200; dt += 300) {
+            sample.add(p.propagate(orbit.getDate().shiftedBy(dt)));
+        }
+        return sample;
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data");
+        orbits = new ArrayList<>();
+        for (int i = 0; i < 6; ++i) {
+            orbits.add(new KeplerianOrbit(7.0e6 + 1.0e5 * i, 0.001 * (i + 1), FastMath.toRadians(50 + 10 * i),
+                                          0.3 * i, 0.2 * i, 0.1 * i, PositionAngle.MEAN,
+                                          FramesFactory.getEME2000(), AbsoluteDate.J2000_EPOCH.shiftedBy(600.0 * i),
+                                          Constants.EIGEN5C_EARTH_MU));
+        }
+    }
+
+}
@@ -59,6 +59,44 @@ public class KeplerianConverterTest {
         checkFit(orbit, 86400, 300, 1.0e-3, true, 2.65e-8, "toto");
     }
 
+    @Test
+    public void testParallelJacobian() throws OrekitException {
+        final Propagator p = new KeplerianPropagator(orbit);
+        final List<SpacecraftState> sample = new ArrayList<SpacecraftState>();
+        for (double dt = 0; dt < 86400; dt += 300) {
+            sample.add(p.propagate(orbit.getDate().shiftedBy(dt)));
+        }
+
+        final FiniteDifferencePropagatorConverter sequential =
+                        new FiniteDifferencePropagatorConverter(new KeplerianPropagatorBuilder(OrbitType.KEPLERIAN.convertType(orbit),
+                                                                                               PositionAngle.MEAN, 1.0),
+                                                                1.0e-3, 1000);
+        Assert.assertEquals(1, sequential.getThreads());
+        final FiniteDifferencePropagatorConverter parallel =
+                        new FiniteDifferencePropagatorConverter(new KeplerianPropagatorBuilder(OrbitType.KEPLERIAN.convertType(orbit),
+                                                                                               PositionAngle.MEAN, 1.0),
+                                                                1.0e-3, 1000, 4);
+        Assert.assertEquals(4, parallel.getThreads());
+
+        final Orbit o1 = sequential.convert(sample, false).getInitialState().getOrbit();
+        final Orbit o2 = parallel.convert(sample, false).getInitialState().getOrbit();
+        Assert.assertEquals(sequential.getEvaluations(), parallel.getEvaluations());
+        Assert.assertEquals(sequential.getRMS(), parallel.getRMS(), 0.0);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(o1.getPVCoordinates().getPosition(), o2.getPVCoordinates().getPosition()),
+                            0.0);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(o1.getPVCoordinates().getVelocity(), o2.getPVCoordinates().getVelocity()),
+                            0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongThreadsNumber() throws OrekitException {
+        new FiniteDifferencePropagatorConverter(new KeplerianPropagatorBuilder(OrbitType.KEPLERIAN.convertType(orbit),
+                                                                               PositionAngle.MEAN, 1.0),
+                                                1.0e-3, 1000, 0);
+    }
+
     protected void checkFit(final Orbit orbit,
                             final double duration,
                             final double stepSize,
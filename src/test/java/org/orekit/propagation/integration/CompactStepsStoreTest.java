@@ -0,0 +1,294 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.integration;
+
+import java.io.IOException;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.ode.nonstiff.AdaptiveStepsizeIntegrator;
+import org.hipparchus.ode.nonstiff.DormandPrince853Integrator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.errors.OrekitIllegalStateException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.EquinoctialOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.propagation.BoundedPropagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.numerical.NumericalPropagator;
+import org.orekit.propagation.numerical.PartialDerivativesEquations;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+import org.orekit.utils.PVCoordinates;
+
+public class CompactStepsStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testConsistencyWithRegularEphemeris() throws OrekitException, IOException {
+
+        final AbsoluteDate finalDate = initialOrbit.getDate().shiftedBy(Constants.JULIAN_DAY);
+
+        // reference ephemeris
+        final NumericalPropagator regular = buildPropagator();
+        regular.setEphemerisMode();
+        regular.setInitialState(new SpacecraftState(initialOrbit));
+        regular.propagate(finalDate);
+        final BoundedPropagator reference = regular.getGeneratedEphemeris();
+
+        // compact ephemeris, with pages spilled to disk
+        final NumericalPropagator compact = buildPropagator();
+        compact.setCompactEphemerisMode(new CompactStepsStore(7, 8, 2, tempFolder.newFolder()));
+        compact.setInitialState(new SpacecraftState(initialOrbit));
+        compact.propagate(finalDate);
+        final CompactIntegratedEphemeris ephemeris = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        final CompactStepsStore store = ephemeris.getStore();
+        Assert.assertEquals(7, store.getDegree());
+        Assert.assertTrue(store.getStepsNumber() > 100);
+        Assert.assertTrue(store.getSpilledPagesNumber() > 10);
+        Assert.assertTrue(store.getResidentPagesNumber() <= 2);
+
+        Assert.assertEquals(0.0, ephemeris.getMinDate().durationFrom(reference.getMinDate()), 1.0e-10);
+        Assert.assertEquals(0.0, ephemeris.getMaxDate().durationFrom(reference.getMaxDate()), 1.0e-10);
+        Assert.assertSame(reference.getFrame(), ephemeris.getFrame());
+        for (double dt = 0; dt <= Constants.JULIAN_DAY; dt += 97.0) {
+            final AbsoluteDate date = initialOrbit.getDate().shiftedBy(dt);
+            final PVCoordinates expected = reference.propagate(date).getPVCoordinates();
+            final PVCoordinates actual   = ephemeris.propagate(date).getPVCoordinates();
+            Assert.assertEquals(0.0, Vector3D.distance(expected.getPosition(), actual.getPosition()), 1.0e-4);
+            Assert.assertEquals(0.0, Vector3D.distance(expected.getVelocity(), actual.getVelocity()), 1.0e-7);
+            Assert.assertTrue(store.getResidentPagesNumber() <= 2);
+        }
+
+        try {
+            ephemeris.propagate(finalDate.shiftedBy(10.0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.OUT_OF_RANGE_EPHEMERIDES_DATE, oe.getSpecifier());
+        }
+
+        try {
+            ephemeris.resetInitialState(new SpacecraftState(initialOrbit));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.NON_RESETABLE_STATE, oe.getSpecifier());
+        }
+
+        ephemeris.close();
+
+    }
+
+    @Test
+    public void testBackwardInMemory() throws OrekitException {
+
+        final AbsoluteDate finalDate = initialOrbit.getDate().shiftedBy(-6 * 3600.0);
+
+        final NumericalPropagator regular = buildPropagator();
+        regular.setEphemerisMode();
+        regular.setInitialState(new SpacecraftState(initialOrbit));
+        regular.propagate(finalDate);
+        final BoundedPropagator reference = regular.getGeneratedEphemeris();
+
+        // without spill directory, all pages remain in memory
+        final NumericalPropagator compact = buildPropagator();
+        compact.setCompactEphemerisMode(new CompactStepsStore(7, 4, 2, null));
+        compact.setInitialState(new SpacecraftState(initialOrbit));
+        compact.propagate(finalDate);
+        final CompactIntegratedEphemeris ephemeris = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        final CompactStepsStore store = ephemeris.getStore();
+        Assert.assertEquals(0, store.getSpilledPagesNumber());
+        Assert.assertTrue(store.getResidentPagesNumber() > 2);
+
+        Assert.assertEquals(0.0, ephemeris.getMinDate().durationFrom(finalDate), 1.0e-10);
+        Assert.assertEquals(0.0, ephemeris.getMaxDate().durationFrom(initialOrbit.getDate()), 1.0e-10);
+        for (double dt = 0; dt >= -6 * 3600.0; dt -= 61.0) {
+            final AbsoluteDate date = initialOrbit.getDate().shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(reference.propagate(date).getPVCoordinates().getPosition(),
+                                                  ephemeris.propagate(date).getPVCoordinates().getPosition()),
+                                1.0e-4);
+        }
+
+        ephemeris.close();
+
+    }
+
+    @Test
+    public void testRepropagation() throws OrekitException, IOException {
+
+        final NumericalPropagator compact = buildPropagator();
+        compact.setCompactEphemerisMode(new CompactStepsStore(7, 4, 2, tempFolder.newFolder()));
+
+        // first propagation
+        compact.setInitialState(new SpacecraftState(initialOrbit));
+        compact.propagate(initialOrbit.getDate().shiftedBy(3 * 3600.0));
+        final CompactIntegratedEphemeris first = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        Assert.assertTrue(first.getStore().getSpilledPagesNumber() > 0);
+        final AbsoluteDate date = initialOrbit.getDate().shiftedBy(1234.0);
+        final Vector3D before = first.propagate(date).getPVCoordinates().getPosition();
+
+        // second propagation, from a different orbit, with the same propagator
+        final Orbit shifted = new EquinoctialOrbit(new PVCoordinates(new Vector3D(7.1e6, 1.0e6, 4.0e6),
+                                                                     new Vector3D(-500.0, 7900.0, 1000.0)),
+                                                   initialOrbit.getFrame(), initialOrbit.getDate(),
+                                                   initialOrbit.getMu());
+        compact.setInitialState(new SpacecraftState(shifted));
+        compact.propagate(initialOrbit.getDate().shiftedBy(2 * 3600.0));
+        final CompactIntegratedEphemeris second = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        Assert.assertNotSame(first.getStore(), second.getStore());
+
+        // the first ephemeris still holds the first propagation data
+        Assert.assertEquals(0.0, first.getMaxDate().durationFrom(initialOrbit.getDate().shiftedBy(3 * 3600.0)), 1.0e-10);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(before, first.propagate(date).getPVCoordinates().getPosition()),
+                            1.0e-15);
+        Assert.assertTrue(Vector3D.distance(before, second.propagate(date).getPVCoordinates().getPosition()) > 1.0e3);
+
+        first.close();
+        second.close();
+
+    }
+
+    @Test
+    public void testPartialDerivatives() throws OrekitException, IOException {
+
+        final String eqName = "derivatives";
+        final AbsoluteDate finalDate = initialOrbit.getDate().shiftedBy(3600.0);
+
+        final NumericalPropagator regular = buildPropagator();
+        regular.setOrbitType(OrbitType.CARTESIAN);
+        regular.setEphemerisMode();
+        final PartialDerivativesEquations regularPDE = new PartialDerivativesEquations(eqName, regular);
+        regular.setInitialState(regularPDE.setInitialJacobians(new SpacecraftState(initialOrbit)));
+        regular.propagate(finalDate);
+        final BoundedPropagator reference = regular.getGeneratedEphemeris();
+
+        final NumericalPropagator compact = buildPropagator();
+        compact.setOrbitType(OrbitType.CARTESIAN);
+        compact.setCompactEphemerisMode(new CompactStepsStore(7, 4, 2, tempFolder.newFolder()));
+        final PartialDerivativesEquations compactPDE = new PartialDerivativesEquations(eqName, compact);
+        compact.setInitialState(compactPDE.setInitialJacobians(new SpacecraftState(initialOrbit)));
+        compact.propagate(finalDate);
+        final CompactIntegratedEphemeris ephemeris = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        Assert.assertTrue(ephemeris.getStore().getSpilledPagesNumber() > 0);
+
+        for (double dt = 0; dt <= 3600.0; dt += 113.0) {
+            final AbsoluteDate date = initialOrbit.getDate().shiftedBy(dt);
+            final double[] expected = reference.propagate(date).getAdditionalState(eqName);
+            final double[] actual   = ephemeris.propagate(date).getAdditionalState(eqName);
+            Assert.assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; ++i) {
+                Assert.assertEquals(expected[i], actual[i], 1.0e-8 * (1.0 + Math.abs(expected[i])));
+            }
+        }
+
+        ephemeris.close();
+
+    }
+
+    @Test
+    public void testPropagateAfterClose() throws OrekitException, IOException {
+
+        final NumericalPropagator compact = buildPropagator();
+        compact.setCompactEphemerisMode(new CompactStepsStore(7, 4, 2, tempFolder.newFolder()));
+        compact.setInitialState(new SpacecraftState(initialOrbit));
+        compact.propagate(initialOrbit.getDate().shiftedBy(10800.0));
+        final CompactIntegratedEphemeris ephemeris = (CompactIntegratedEphemeris) compact.getGeneratedEphemeris();
+        Assert.assertTrue(ephemeris.getStore().getSpilledPagesNumber() > 0);
+        ephemeris.close();
+
+        try {
+            ephemeris.propagate(initialOrbit.getDate().shiftedBy(10.0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalStateException oise) {
+            Assert.assertEquals(OrekitMessages.STEPS_STORE_CLOSED, oise.getSpecifier());
+        }
+
+    }
+
+    @Test
+    public void testWrongDegree() {
+        try {
+            new CompactStepsStore(0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oiae.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testWrongStepsPerPage() {
+        try {
+            new CompactStepsStore(7, 0, 2, null);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oiae.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testWrongPagesInMemory() {
+        try {
+            new CompactStepsStore(7, 16, 1, null);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oiae.getSpecifier());
+        }
+    }
+
+    private NumericalPropagator buildPropagator() {
+        double[] absTolerance = {
+            0.0001, 1.0e-11, 1.0e-11, 1.0e-8, 1.0e-8, 1.0e-8, 0.001
+        };
+        double[] relTolerance = {
+            1.0e-8, 1.0e-8, 1.0e-8, 1.0e-9, 1.0e-9, 1.0e-9, 1.0e-7
+        };
+        AdaptiveStepsizeIntegrator integrator =
+            new DormandPrince853Integrator(0.001, 500, absTolerance, relTolerance);
+        integrator.setInitialStepSize(100);
+        return new NumericalPropagator(integrator);
+    }
+
+    @Before
+    public void setUp() {
+
+        Utils.setDataRoot("regular-data");
+
+        Vector3D position = new Vector3D(7.0e6, 1.0e6, 4.0e6);
+        Vector3D velocity = new Vector3D(-500.0, 8000.0, 1000.0);
+        double mu = 3.9860047e14;
+
+        AbsoluteDate initDate = AbsoluteDate.J2000_EPOCH.shiftedBy(584.);
+        initialOrbit = new EquinoctialOrbit(new PVCoordinates(position, velocity),
+                                            FramesFactory.getEME2000(), initDate, mu);
+
+    }
+
+    private Orbit initialOrbit;
+
+}
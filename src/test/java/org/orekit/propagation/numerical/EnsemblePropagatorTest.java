@@ -0,0 +1,324 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.numerical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.linear.RealMatrix;
+import org.hipparchus.ode.nonstiff.ClassicalRungeKuttaIntegrator;
+import org.hipparchus.random.GaussianRandomGenerator;
+import org.hipparchus.random.Well19937a;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.attitudes.AttitudeProvider;
+import org.orekit.attitudes.BodyCenterPointing;
+import org.orekit.bodies.CelestialBodyFactory;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.errors.OrekitException;
+import org.orekit.errors.OrekitMessages;
+import org.orekit.forces.ForceModel;
+import org.orekit.forces.gravity.HolmesFeatherstoneAttractionModel;
+import org.orekit.forces.gravity.ThirdBodyAttraction;
+import org.orekit.forces.gravity.potential.GravityFieldFactory;
+import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.CartesianOrbit;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.DateComponents;
+import org.orekit.time.TimeComponents;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import org.orekit.utils.IERSConventions;
+import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+public class EnsemblePropagatorTest {
+
+    private NormalizedSphericalHarmonicsProvider gravityField;
+    private OneAxisEllipsoid                     earth;
+    private Orbit                                orbit;
+    private AttitudeProvider                     attitudeLaw;
+
+    @Test
+    public void testConsistencyWithNumericalPropagator() throws OrekitException {
+
+        final List<SpacecraftState> initialStates = buildSamples(5, 1.0);
+        final AbsoluteDate target = orbit.getDate().shiftedBy(3600.0);
+        final EnsemblePropagator ensemble =
+                        new EnsemblePropagator(initialStates, 60.0, () -> buildForceModels(), () -> attitudeLaw, 1);
+        Assert.assertEquals(5, ensemble.getSamplesNumber());
+        Assert.assertEquals(60.0, ensemble.getStep(), 0.0);
+        final List<SpacecraftState> finalStates = ensemble.propagate(target);
+
+        Assert.assertEquals(initialStates.size(), finalStates.size());
+        for (int i = 0; i < initialStates.size(); ++i) {
+            final NumericalPropagator numerical = new NumericalPropagator(new ClassicalRungeKuttaIntegrator(60.0));
+            numerical.setOrbitType(OrbitType.CARTESIAN);
+            numerical.setAttitudeProvider(attitudeLaw);
+            for (final ForceModel forceModel : buildForceModels()) {
+                numerical.addForceModel(forceModel);
+            }
+            numerical.setInitialState(initialStates.get(i));
+            final SpacecraftState expected = numerical.propagate(target);
+            final SpacecraftState actual   = finalStates.get(i);
+            Assert.assertEquals(0.0, actual.getDate().durationFrom(target), 1.0e-15);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(expected.getPVCoordinates().getPosition(),
+                                                  actual.getPVCoordinates().getPosition()),
+                                1.0e-6);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(expected.getPVCoordinates().getVelocity(),
+                                                  actual.getPVCoordinates().getVelocity()),
+                                1.0e-9);
+            Assert.assertEquals(0.0,
+                                Vector3D.angle(expected.getAttitude().getRotation().applyTo(Vector3D.PLUS_K),
+                                               actual.getAttitude().getRotation().applyTo(Vector3D.PLUS_K)),
+                                1.0e-12);
+            Assert.assertEquals(expected.getMass(), actual.getMass(), 0.0);
+        }
+
+    }
+
+    @Test
+    public void testStatistics() throws OrekitException {
+
+        final List<SpacecraftState> initialStates = buildSamples(40, 100.0);
+        final AbsoluteDate target = orbit.getDate().shiftedBy(-1000.0);
+        final EnsemblePropagator ensemble =
+                        new EnsemblePropagator(initialStates, 60.0, () -> buildForceModels(),
+                                               () -> new BodyCenterPointing(orbit.getFrame(), earth), 3);
+        final List<TimeStampedPVCoordinates> means       = new ArrayList<>();
+        final List<RealMatrix>               covariances = new ArrayList<>();
+        ensemble.setStatisticsHandler((mean, covariance) -> {
+            means.add(mean);
+            covariances.add(covariance);
+        });
+        final List<SpacecraftState> finalStates = ensemble.propagate(target);
+
+        // backward propagation, with step reduced to 1000 / 17
+        Assert.assertEquals(18, means.size());
+        Assert.assertEquals(0.0, means.get(0).getDate().durationFrom(orbit.getDate()), 1.0e-15);
+        Assert.assertEquals(0.0, means.get(1).getDate().durationFrom(orbit.getDate().shiftedBy(-1000.0 / 17)), 1.0e-12);
+        Assert.assertEquals(0.0, means.get(17).getDate().durationFrom(target), 1.0e-12);
+
+        // initial statistics
+        checkStatistics(initialStates, means.get(0), covariances.get(0));
+
+        // final statistics
+        checkStatistics(finalStates, means.get(17), covariances.get(17));
+
+    }
+
+    @Test
+    public void testMultiThreadedMatchesMonoThreaded() throws OrekitException {
+        final List<SpacecraftState> initialStates = buildSamples(11, 10.0);
+        final AbsoluteDate target = orbit.getDate().shiftedBy(900.0);
+        final List<SpacecraftState> mono =
+                        new EnsemblePropagator(initialStates, 30.0, () -> buildForceModels(), () -> attitudeLaw, 1).
+                        propagate(target);
+        final List<SpacecraftState> multi =
+                        new EnsemblePropagator(initialStates, 30.0, () -> buildForceModels(), () -> attitudeLaw, 4).
+                        propagate(target);
+        for (int i = 0; i < initialStates.size(); ++i) {
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(mono.get(i).getPVCoordinates().getPosition(),
+                                                  multi.get(i).getPVCoordinates().getPosition()),
+                                0.0);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(mono.get(i).getPVCoordinates().getVelocity(),
+                                                  multi.get(i).getPVCoordinates().getVelocity()),
+                                0.0);
+        }
+    }
+
+    @Test
+    public void testSingleSample() throws OrekitException {
+        final List<SpacecraftState> initialStates = buildSamples(1, 10.0);
+        final EnsemblePropagator ensemble =
+                        new EnsemblePropagator(initialStates, 30.0, () -> buildForceModels(), () -> attitudeLaw, 8);
+        final List<RealMatrix> covariances = new ArrayList<>();
+        ensemble.setStatisticsHandler((mean, covariance) -> covariances.add(covariance));
+        ensemble.propagate(orbit.getDate().shiftedBy(90.0));
+        Assert.assertEquals(4, covariances.size());
+        for (final RealMatrix covariance : covariances) {
+            Assert.assertEquals(0.0, covariance.getNorm(), 0.0);
+        }
+    }
+
+    @Test
+    public void testHandlerException() throws OrekitException {
+        final EnsemblePropagator ensemble =
+                        new EnsemblePropagator(buildSamples(4, 10.0), 30.0, () -> buildForceModels(), () -> attitudeLaw, 2);
+        ensemble.setStatisticsHandler((mean, covariance) -> {
+            if (mean.getDate().durationFrom(orbit.getDate()) > 45.0) {
+                throw new OrekitException(LocalizedCoreFormats.SIMPLE_MESSAGE, "stop");
+            }
+        });
+        try {
+            ensemble.propagate(orbit.getDate().shiftedBy(300.0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.SIMPLE_MESSAGE, oe.getSpecifier());
+            Assert.assertEquals("stop", oe.getParts()[0]);
+        }
+    }
+
+    @Test
+    public void testWrongSettings() throws OrekitException {
+
+        final List<SpacecraftState> samples = buildSamples(3, 10.0);
+        final Supplier<List<ForceModel>> factory = () -> buildForceModels();
+
+        try {
+            new EnsemblePropagator(new ArrayList<>(), 60.0, factory, () -> attitudeLaw, 1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+
+        try {
+            new EnsemblePropagator(Arrays.asList(samples.get(0), samples.get(1).shiftedBy(1.0)),
+                                   60.0, factory, () -> attitudeLaw, 1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.INITIAL_STATES_DATES_MISMATCH, oe.getSpecifier());
+        }
+
+        try {
+            final Orbit other = new CartesianOrbit(samples.get(1).getPVCoordinates(FramesFactory.getGCRF()),
+                                                   FramesFactory.getGCRF(), orbit.getDate(), orbit.getMu());
+            new EnsemblePropagator(Arrays.asList(samples.get(0), new SpacecraftState(other)),
+                                   60.0, factory, () -> attitudeLaw, 1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.FRAMES_MISMATCH, oe.getSpecifier());
+        }
+
+        try {
+            final Orbit other = new CartesianOrbit(samples.get(1).getPVCoordinates(),
+                                                   orbit.getFrame(), orbit.getDate(), 1.001 * orbit.getMu());
+            new EnsemblePropagator(Arrays.asList(samples.get(0), new SpacecraftState(other)),
+                                   60.0, factory, () -> attitudeLaw, 1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(OrekitMessages.INITIAL_STATES_MU_MISMATCH, oe.getSpecifier());
+        }
+
+        try {
+            new EnsemblePropagator(samples, 0.0, factory, () -> attitudeLaw, 1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+
+        try {
+            new EnsemblePropagator(samples, 60.0, factory, () -> attitudeLaw, 0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+
+    }
+
+    private void checkStatistics(final List<SpacecraftState> states,
+                                 final TimeStampedPVCoordinates mean, final RealMatrix covariance) {
+
+        final int n = states.size();
+        final double[][] samples = new double[n][];
+        final double[] m = new double[6];
+        for (int i = 0; i < n; ++i) {
+            final PVCoordinates pv = states.get(i).getPVCoordinates();
+            samples[i] = new double[] {
+                pv.getPosition().getX(), pv.getPosition().getY(), pv.getPosition().getZ(),
+                pv.getVelocity().getX(), pv.getVelocity().getY(), pv.getVelocity().getZ()
+            };
+            for (int j = 0; j < 6; ++j) {
+                m[j] += samples[i][j] / n;
+            }
+        }
+        Assert.assertEquals(0.0, Vector3D.distance(new Vector3D(m[0], m[1], m[2]), mean.getPosition()), 1.0e-7);
+        Assert.assertEquals(0.0, Vector3D.distance(new Vector3D(m[3], m[4], m[5]), mean.getVelocity()), 1.0e-10);
+
+        for (int j = 0; j < 6; ++j) {
+            for (int l = 0; l < 6; ++l) {
+                double c = 0;
+                for (int i = 0; i < n; ++i) {
+                    c += (samples[i][j] - m[j]) * (samples[i][l] - m[l]);
+                }
+                c /= n - 1;
+                Assert.assertEquals(c, covariance.getEntry(j, l), 1.0e-9 * FastMath.max(1.0, FastMath.abs(c)));
+            }
+        }
+
+    }
+
+    private List<ForceModel> buildForceModels() {
+        try {
+            return Arrays.asList(new HolmesFeatherstoneAttractionModel(earth.getBodyFrame(), gravityField),
+                                 new ThirdBodyAttraction(CelestialBodyFactory.getSun()));
+        } catch (OrekitException oe) {
+            throw new RuntimeException(oe);
+        }
+    }
+
+    private List<SpacecraftState> buildSamples(final int n, final double sigma) throws OrekitException {
+        final GaussianRandomGenerator random = new GaussianRandomGenerator(new Well19937a(0x8a4e2f1c3d7b9061l));
+        final List<SpacecraftState> samples = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            final PVCoordinates pv = orbit.getPVCoordinates();
+            final Vector3D dP = new Vector3D(random.nextNormalizedDouble(), random.nextNormalizedDouble(),
+                                             random.nextNormalizedDouble()).scalarMultiply(sigma);
+            final Vector3D dV = new Vector3D(random.nextNormalizedDouble(), random.nextNormalizedDouble(),
+                                             random.nextNormalizedDouble()).scalarMultiply(sigma * 1.0e-3);
+            final Orbit sample = new CartesianOrbit(new PVCoordinates(pv.getPosition().add(dP),
+                                                                      pv.getVelocity().add(dV)),
+                                                    orbit.getFrame(), orbit.getDate(), orbit.getMu());
+            samples.add(new SpacecraftState(sample,
+                                            attitudeLaw.getAttitude(sample, sample.getDate(), sample.getFrame()),
+                                            1000.0));
+        }
+        return samples;
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data:potential/icgem-format");
+        gravityField = GravityFieldFactory.getNormalizedProvider(8, 8);
+        earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS,
+                                     Constants.WGS84_EARTH_FLATTENING,
+                                     FramesFactory.getITRF(IERSConventions.IERS_2010, true));
+        final AbsoluteDate date = new AbsoluteDate(new DateComponents(2004, 1, 1), TimeComponents.H00,
+                                                   TimeScalesFactory.getUTC());
+        orbit = new KeplerianOrbit(7187990.0, 0.5e-4, 1.71, 1.97, FastMath.toRadians(261), 0.0,
+                                   PositionAngle.TRUE, FramesFactory.getEME2000(), date, gravityField.getMu());
+        attitudeLaw = new BodyCenterPointing(orbit.getFrame(), earth);
+    }
+
+}
@@ -31,6 +31,7 @@ import org.hipparchus.Field;
 import org.hipparchus.RealFieldElement;
 import org.hipparchus.exception.LocalizedCoreFormats;
 import org.hipparchus.geometry.euclidean.threed.FieldVector3D;
+import org.hipparchus.geometry.euclidean.threed.Rotation;
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.ode.ODEIntegrator;
 import org.hipparchus.ode.nonstiff.AdaptiveStepsizeIntegrator;
@@ -43,6 +44,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.orekit.OrekitMatchers;
 import org.orekit.Utils;
+import org.orekit.attitudes.Attitude;
+import org.orekit.attitudes.AttitudeProvider;
+import org.orekit.attitudes.FieldAttitude;
+import org.orekit.attitudes.LofOffset;
 import org.orekit.bodies.CelestialBodyFactory;
 import org.orekit.bodies.OneAxisEllipsoid;
 import org.orekit.data.DataProvidersManager;
@@ -63,6 +68,7 @@ import org.orekit.forces.radiation.IsotropicRadiationSingleCoefficient;
 import org.orekit.forces.radiation.SolarRadiationPressure;
 import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
+import org.orekit.frames.LOFType;
 import org.orekit.orbits.CartesianOrbit;
 import org.orekit.orbits.EquinoctialOrbit;
 import org.orekit.orbits.KeplerianOrbit;
@@ -89,11 +95,14 @@ import org.orekit.propagation.sampling.OrekitFixedStepHandler;
 import org.orekit.propagation.sampling.OrekitStepHandler;
 import org.orekit.propagation.sampling.OrekitStepInterpolator;
 import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
 import org.orekit.time.TimeScale;
 import org.orekit.time.TimeScalesFactory;
 import org.orekit.utils.Constants;
+import org.orekit.utils.FieldPVCoordinatesProvider;
 import org.orekit.utils.IERSConventions;
 import org.orekit.utils.PVCoordinates;
+import org.orekit.utils.PVCoordinatesProvider;
 import org.orekit.utils.ParameterDriver;
 import org.orekit.utils.TimeStampedPVCoordinates;
 
@@ -1501,6 +1510,75 @@ public class NumericalPropagatorTest {
         return new CartesianOrbit(pv, frame, mu);
     }
 
+    @Test
+    public void testAttitudeNotNeededForDerivatives() throws OrekitException {
+
+        Utils.setDataRoot("regular-data:atmosphere:potential/grgs-format");
+        GravityFieldFactory.addPotentialCoefficientsReader(new GRGSFormatReader("grim4s4_gr", true));
+        final SpacecraftState state = new SpacecraftState(createEllipticOrbit());
+        final AbsoluteDate    target = state.getDate().shiftedBy(3600.0);
+        final int[] calls = new int[1];
+        final AttitudeProvider lof = new LofOffset(state.getFrame(), LOFType.VNC);
+        final AttitudeProvider counting = new AttitudeProvider() {
+            private static final long serialVersionUID = 20181018L;
+            @Override
+            public Attitude getAttitude(PVCoordinatesProvider pvProv, AbsoluteDate date, Frame frame)
+                throws OrekitException {
+                ++calls[0];
+                return lof.getAttitude(pvProv, date, frame);
+            }
+            @Override
+            public <T extends RealFieldElement<T>> FieldAttitude<T> getAttitude(FieldPVCoordinatesProvider<T> pvProv,
+                                                                                FieldAbsoluteDate<T> date,
+                                                                                Frame frame)
+                throws OrekitException {
+                ++calls[0];
+                return lof.getAttitude(pvProv, date, frame);
+            }
+        };
+
+        // gravity, isotropic drag and isotropic radiation pressure do not depend on attitude
+        final NumericalPropagator np1 = createPropagator(state, OrbitType.CARTESIAN, PositionAngle.TRUE);
+        np1.setAttitudeProvider(counting);
+        for (final ForceModel forceModel : np1.getAllForceModels()) {
+            Assert.assertFalse(forceModel.dependsOnAttitude());
+        }
+        calls[0] = 0;
+        final SpacecraftState final1 = np1.propagate(target);
+        final int calls1 = calls[0];
+
+        // an additional state provider may depend on attitude, so derivatives use the full attitude
+        final NumericalPropagator np2 = createPropagator(state, OrbitType.CARTESIAN, PositionAngle.TRUE);
+        np2.setAttitudeProvider(counting);
+        np2.addAdditionalStateProvider(new AdditionalStateProvider() {
+            public String getName() {
+                return "dummy";
+            }
+            public double[] getAdditionalState(SpacecraftState s) {
+                return new double[1];
+            }
+        });
+        calls[0] = 0;
+        final SpacecraftState final2 = np2.propagate(target);
+        final int calls2 = calls[0];
+
+        // derivatives are not affected by attitude, but attitude is not computed anymore
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(final1.getPVCoordinates().getPosition(),
+                                              final2.getPVCoordinates().getPosition()),
+                            0.0);
+        Assert.assertEquals(0.0,
+                            Rotation.distance(final1.getAttitude().getRotation(),
+                                              final2.getAttitude().getRotation()),
+                            0.0);
+        Assert.assertEquals(np1.getCalls(), np2.getCalls());
+        Assert.assertEquals(np2.getCalls(), calls2 - calls1);
+
+        // force models default to a conservative behavior
+        Assert.assertTrue(new ForceModelAdapter().dependsOnAttitude());
+
+    }
+
     @Before
     public void setUp() throws OrekitException {
         Utils.setDataRoot("regular-data:potential/shm-format");
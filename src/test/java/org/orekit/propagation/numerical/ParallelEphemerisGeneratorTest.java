@@ -0,0 +1,192 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.propagation.numerical;
+
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.ode.nonstiff.AdaptiveStepsizeIntegrator;
+import org.hipparchus.ode.nonstiff.DormandPrince853Integrator;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitException;
+import org.orekit.forces.gravity.HolmesFeatherstoneAttractionModel;
+import org.orekit.forces.gravity.potential.GravityFieldFactory;
+import org.orekit.forces.gravity.potential.NormalizedSphericalHarmonicsProvider;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.Orbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.BoundedPropagator;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.propagation.analytical.EcksteinHechlerPropagator;
+import org.orekit.propagation.analytical.KeplerianPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.DateComponents;
+import org.orekit.time.TimeComponents;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.IERSConventions;
+
+public class ParallelEphemerisGeneratorTest {
+
+    private NormalizedSphericalHarmonicsProvider gravityField;
+    private Orbit                                orbit;
+
+    @Test
+    public void testConsistencyWithSequentialGeneration() throws OrekitException {
+
+        final AbsoluteDate target = orbit.getDate().shiftedBy(12 * 3600.0);
+
+        // reference sequential generation
+        final NumericalPropagator sequential = buildFine(true);
+        sequential.setEphemerisMode();
+        sequential.setInitialState(new SpacecraftState(orbit, 1000.0));
+        sequential.propagate(target);
+        final BoundedPropagator reference = sequential.getGeneratedEphemeris();
+
+        // parallel generation, seeded by Eckstein-Hechler
+        final ParallelEphemerisGenerator generator =
+                new ParallelEphemerisGenerator(new EcksteinHechlerPropagator(orbit,
+                                                                             GravityFieldFactory.getUnnormalizedProvider(6, 0)),
+                                               () -> buildFine(true), 6, 3, 1.0e-3);
+        Assert.assertEquals(6, generator.getChunksNumber());
+        Assert.assertEquals(1.0e-3, generator.getTolerance(), 0.0);
+        Assert.assertEquals(0, generator.getIterationsNumber());
+        final BoundedPropagator ephemeris = generator.generate(new SpacecraftState(orbit, 1000.0), target);
+        Assert.assertTrue(generator.getIterationsNumber() >= 1);
+        Assert.assertTrue(generator.getIterationsNumber() <= 6);
+
+        Assert.assertEquals(0.0, ephemeris.getMinDate().durationFrom(orbit.getDate()), 1.0e-10);
+        Assert.assertEquals(0.0, ephemeris.getMaxDate().durationFrom(target), 1.0e-10);
+        for (double dt = 0; dt <= target.durationFrom(orbit.getDate()); dt += 300.0) {
+            final AbsoluteDate date = orbit.getDate().shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(reference.getPVCoordinates(date, orbit.getFrame()).getPosition(),
+                                                  ephemeris.getPVCoordinates(date, orbit.getFrame()).getPosition()),
+                                0.5);
+            Assert.assertEquals(1000.0, ephemeris.propagate(date).getMass(), 1.0e-10);
+        }
+
+    }
+
+    @Test
+    public void testSingleChunk() throws OrekitException {
+        final ParallelEphemerisGenerator generator =
+                new ParallelEphemerisGenerator(new KeplerianPropagator(orbit), () -> buildFine(true), 1, 4, 1.0e-3);
+        final AbsoluteDate target = orbit.getDate().shiftedBy(3600.0);
+        final BoundedPropagator ephemeris = generator.generate(new SpacecraftState(orbit), target);
+        Assert.assertEquals(1, generator.getIterationsNumber());
+
+        final NumericalPropagator sequential = buildFine(true);
+        sequential.setInitialState(new SpacecraftState(orbit));
+        final SpacecraftState expected = sequential.propagate(target);
+        Assert.assertEquals(0.0,
+                            Vector3D.distance(expected.getPVCoordinates().getPosition(),
+                                              ephemeris.propagate(target).getPVCoordinates().getPosition()),
+                            1.0e-6);
+    }
+
+    @Test
+    public void testAccurateCoarseBackward() throws OrekitException {
+
+        // when coarse propagator is as accurate as fine propagator, chunks are consistent immediately
+        final ParallelEphemerisGenerator generator =
+                new ParallelEphemerisGenerator(new KeplerianPropagator(orbit), () -> buildFine(false), 8, 4, 0.1);
+        final AbsoluteDate target = orbit.getDate().shiftedBy(-6 * 3600.0);
+        final BoundedPropagator ephemeris = generator.generate(new SpacecraftState(orbit), target);
+        Assert.assertTrue(generator.getIterationsNumber() <= 2);
+
+        Assert.assertEquals(0.0, ephemeris.getMinDate().durationFrom(target), 1.0e-10);
+        Assert.assertEquals(0.0, ephemeris.getMaxDate().durationFrom(orbit.getDate()), 1.0e-10);
+        final KeplerianPropagator keplerian = new KeplerianPropagator(orbit);
+        for (double dt = 0; dt >= target.durationFrom(orbit.getDate()); dt -= 300.0) {
+            final AbsoluteDate date = orbit.getDate().shiftedBy(dt);
+            Assert.assertEquals(0.0,
+                                Vector3D.distance(keplerian.getPVCoordinates(date, orbit.getFrame()).getPosition(),
+                                                  ephemeris.getPVCoordinates(date, orbit.getFrame()).getPosition()),
+                                0.5);
+        }
+
+    }
+
+    @Test
+    public void testInterrupted() throws OrekitException {
+        final ParallelEphemerisGenerator generator =
+                new ParallelEphemerisGenerator(new KeplerianPropagator(orbit), () -> buildFine(false), 8, 4, 0.1);
+        Thread.currentThread().interrupt();
+        try {
+            generator.generate(new SpacecraftState(orbit), orbit.getDate().shiftedBy(6 * 3600.0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertTrue(oe.getCause() instanceof InterruptedException);
+        } finally {
+            // check and clear the interrupted status
+            Assert.assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testWrongChunksNumber() {
+        try {
+            new ParallelEphemerisGenerator(new KeplerianPropagator(orbit), () -> buildFine(false), 0, 4, 0.1);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL, oe.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testWrongTolerance() {
+        try {
+            new ParallelEphemerisGenerator(new KeplerianPropagator(orbit), () -> buildFine(false), 4, 4, 0.0);
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitException oe) {
+            Assert.assertEquals(LocalizedCoreFormats.NUMBER_TOO_SMALL_BOUND_EXCLUDED, oe.getSpecifier());
+        }
+    }
+
+    private NumericalPropagator buildFine(final boolean withGravityField) {
+        final double[][] tolerances = NumericalPropagator.tolerances(0.001, orbit, OrbitType.CARTESIAN);
+        final AdaptiveStepsizeIntegrator integrator =
+                new DormandPrince853Integrator(0.001, 300, tolerances[0], tolerances[1]);
+        final NumericalPropagator propagator = new NumericalPropagator(integrator);
+        propagator.setOrbitType(OrbitType.CARTESIAN);
+        if (withGravityField) {
+            try {
+                propagator.addForceModel(new HolmesFeatherstoneAttractionModel(FramesFactory.getITRF(IERSConventions.IERS_2010, true),
+                                                                               gravityField));
+            } catch (OrekitException oe) {
+                throw new RuntimeException(oe);
+            }
+        }
+        return propagator;
+    }
+
+    @Before
+    public void setUp() throws OrekitException {
+        Utils.setDataRoot("regular-data:potential/icgem-format");
+        gravityField = GravityFieldFactory.getNormalizedProvider(8, 8);
+        final AbsoluteDate date = new AbsoluteDate(new DateComponents(2004, 1, 1), TimeComponents.H00,
+                                                   TimeScalesFactory.getUTC());
+        orbit = new KeplerianOrbit(7187990.0, 0.5e-3, 1.71, 1.97, FastMath.toRadians(261), 0.0,
+                                   PositionAngle.TRUE, FramesFactory.getEME2000(), date, gravityField.getMu());
+    }
+
+}
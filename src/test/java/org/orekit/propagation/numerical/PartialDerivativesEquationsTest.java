@@ -28,14 +28,19 @@ import org.hipparchus.geometry.euclidean.threed.FieldRotation;
 import org.hipparchus.geometry.euclidean.threed.FieldVector3D;
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.ode.nonstiff.DormandPrince54Integrator;
+import org.hipparchus.ode.nonstiff.DormandPrince853Integrator;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.orekit.errors.OrekitException;
 import org.orekit.forces.AbstractForceModel;
 import org.orekit.forces.ForceModel;
+import org.orekit.forces.gravity.NewtonianAttraction;
+import org.orekit.forces.maneuvers.ConstantThrustManeuver;
 import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
 import org.orekit.orbits.CartesianOrbit;
+import org.orekit.orbits.OrbitType;
 import org.orekit.propagation.FieldSpacecraftState;
 import org.orekit.propagation.SpacecraftState;
 import org.orekit.propagation.events.EventDetector;
@@ -106,6 +111,60 @@ public class PartialDerivativesEquationsTest {
 
     }
 
+    /**
+     * check a selected parameter that does not influence the orbit yet leaves
+     * its Jacobian column to zero and does not change the state Jacobian.
+     *
+     * @throws OrekitException on error
+     */
+    @Test
+    public void testInactiveParameterColumn() throws OrekitException {
+
+        final SpacecraftState initial = new SpacecraftState(new CartesianOrbit(pv, eci, date, gm), 1000.0);
+        final AbsoluteDate    target  = date.shiftedBy(3000.0);
+
+        // reference propagation without maneuver
+        final NumericalPropagator reference = buildPropagator(initial);
+        final PartialDerivativesEquations referencePDE = new PartialDerivativesEquations("pde", reference);
+        reference.setInitialState(referencePDE.setInitialJacobians(initial));
+        final SpacecraftState referenceFinal = reference.propagate(target);
+        final double[][] referenceDYDY0 = new double[6][6];
+        referencePDE.getMapper().getStateJacobian(referenceFinal, referenceDYDY0);
+
+        // propagation with a maneuver occurring after target date
+        final NumericalPropagator withManeuver = buildPropagator(initial);
+        final ConstantThrustManeuver maneuver =
+                new ConstantThrustManeuver(date.shiftedBy(10000.0), 60.0, 400.0, 300.0, Vector3D.PLUS_I);
+        maneuver.getParameterDriver(ConstantThrustManeuver.THRUST).setSelected(true);
+        withManeuver.addForceModel(maneuver);
+        final PartialDerivativesEquations maneuverPDE = new PartialDerivativesEquations("pde", withManeuver);
+        withManeuver.setInitialState(maneuverPDE.setInitialJacobians(initial));
+        final SpacecraftState maneuverFinal = withManeuver.propagate(target);
+        Assert.assertEquals(1, maneuverPDE.getSelectedParameters().getNbParams());
+        final double[][] maneuverDYDY0 = new double[6][6];
+        final double[][] maneuverDYDP  = new double[6][1];
+        maneuverPDE.getMapper().getStateJacobian(maneuverFinal, maneuverDYDY0);
+        maneuverPDE.getMapper().getParametersJacobian(maneuverFinal, maneuverDYDP);
+
+        for (int i = 0; i < 6; ++i) {
+            Assert.assertEquals(0.0, maneuverDYDP[i][0], 0.0);
+            for (int j = 0; j < 6; ++j) {
+                Assert.assertEquals(referenceDYDY0[i][j], maneuverDYDY0[i][j],
+                                    1.0e-12 * (1.0 + Math.abs(referenceDYDY0[i][j])));
+            }
+        }
+
+    }
+
+    private NumericalPropagator buildPropagator(final SpacecraftState initial) throws OrekitException {
+        final double[][] tolerances = NumericalPropagator.tolerances(0.001, initial.getOrbit(), OrbitType.CARTESIAN);
+        final NumericalPropagator numerical =
+                new NumericalPropagator(new DormandPrince853Integrator(0.001, 300, tolerances[0], tolerances[1]));
+        numerical.setOrbitType(OrbitType.CARTESIAN);
+        numerical.addForceModel(new NewtonianAttraction(gm));
+        return numerical;
+    }
+
     /** Mock {@link ForceModel}. */
     private static class MockForceModel extends AbstractForceModel {
 
@@ -0,0 +1,234 @@
+/* Copyright 2002-2018 CS Systèmes d'Information
+ * Licensed to CS Systèmes d'Information (CS) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * CS licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.orekit.utils;
+
+import java.util.function.Function;
+
+import org.hipparchus.analysis.differentiation.DSFactory;
+import org.hipparchus.analysis.differentiation.DerivativeStructure;
+import org.hipparchus.exception.LocalizedCoreFormats;
+import org.hipparchus.geometry.euclidean.threed.FieldVector3D;
+import org.hipparchus.util.FastMath;
+import org.junit.Assert;
+import org.junit.Test;
+import org.orekit.Utils;
+import org.orekit.errors.OrekitIllegalArgumentException;
+import org.orekit.frames.FramesFactory;
+import org.orekit.orbits.FieldKeplerianOrbit;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.FieldAbsoluteDate;
+
+public class GradientTest {
+
+    @Test
+    public void testUnivariateFunctions() {
+        checkUnivariate(0.3, x -> x.negate(),    x -> x.negate());
+        checkUnivariate(0.3, x -> x.reciprocal(), x -> x.reciprocal());
+        checkUnivariate(0.3, x -> x.sqrt(),      x -> x.sqrt());
+        checkUnivariate(0.3, x -> x.cbrt(),      x -> x.cbrt());
+        checkUnivariate(0.3, x -> x.rootN(5),    x -> x.rootN(5));
+        checkUnivariate(0.3, x -> x.pow(2.7),    x -> x.pow(2.7));
+        checkUnivariate(0.3, x -> x.pow(-3),     x -> x.pow(-3));
+        checkUnivariate(0.3, x -> x.exp(),       x -> x.exp());
+        checkUnivariate(0.3, x -> x.expm1(),     x -> x.expm1());
+        checkUnivariate(0.3, x -> x.log(),       x -> x.log());
+        checkUnivariate(0.3, x -> x.log1p(),     x -> x.log1p());
+        checkUnivariate(0.3, x -> x.log10(),     x -> x.log10());
+        checkUnivariate(0.3, x -> x.cos(),       x -> x.cos());
+        checkUnivariate(0.3, x -> x.sin(),       x -> x.sin());
+        checkUnivariate(0.3, x -> x.tan(),       x -> x.tan());
+        checkUnivariate(0.3, x -> x.acos(),      x -> x.acos());
+        checkUnivariate(0.3, x -> x.asin(),      x -> x.asin());
+        checkUnivariate(0.3, x -> x.atan(),      x -> x.atan());
+        checkUnivariate(0.3, x -> x.cosh(),      x -> x.cosh());
+        checkUnivariate(0.3, x -> x.sinh(),      x -> x.sinh());
+        checkUnivariate(0.3, x -> x.tanh(),      x -> x.tanh());
+        checkUnivariate(1.3, x -> x.acosh(),     x -> x.acosh());
+        checkUnivariate(0.3, x -> x.asinh(),     x -> x.asinh());
+        checkUnivariate(0.3, x -> x.atanh(),     x -> x.atanh());
+        checkUnivariate(-0.3, x -> x.abs(),      x -> x.abs());
+        checkUnivariate(0.3, x -> x.scalb(3),    x -> x.scalb(3));
+        checkUnivariate(7.3, x -> x.remainder(2.0), x -> x.remainder(2.0));
+    }
+
+    @Test
+    public void testPowAtZero() {
+        final Gradient zero = Gradient.variable(2, 0, 0.0);
+        Assert.assertEquals(0.0, zero.pow(0.5).getValue(), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, zero.pow(0.5).getPartialDerivative(0), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, zero.pow(-1.0).getValue(), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, zero.pow(-1).getValue(), 0.0);
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, zero.pow(-1).getPartialDerivative(0), 0.0);
+        checkUnivariate(0.0, x -> x.pow(2.5), x -> x.pow(2.5));
+        checkUnivariate(0.0, x -> x.pow(3),   x -> x.pow(3));
+    }
+
+    @Test
+    public void testBivariateFunctions() {
+        checkBivariate(0.3, -1.7, (x, y) -> x.add(y),       (x, y) -> x.add(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.subtract(y),  (x, y) -> x.subtract(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.multiply(y),  (x, y) -> x.multiply(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.divide(y),    (x, y) -> x.divide(y));
+        checkBivariate(0.3, 1.7,  (x, y) -> x.pow(y),       (x, y) -> x.pow(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.atan2(y),     (x, y) -> x.atan2(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.hypot(y),     (x, y) -> x.hypot(y));
+        checkBivariate(7.3, 2.1,  (x, y) -> x.remainder(y), (x, y) -> x.remainder(y));
+        checkBivariate(0.3, -1.7, (x, y) -> x.linearCombination(x, y, y, x),
+                                  (x, y) -> x.linearCombination(x, y, y, x));
+        checkBivariate(0.3, -1.7, (x, y) -> x.linearCombination(2.0, x, -3.0, y, 0.5, x),
+                                  (x, y) -> x.linearCombination(2.0, x, -3.0, y, 0.5, x));
+        checkBivariate(0.3, -1.7, (x, y) -> x.linearCombination(x, x, y, y, x, y, y, x),
+                                  (x, y) -> x.linearCombination(x, x, y, y, x, y, y, x));
+    }
+
+    @Test
+    public void testConstantAndVariable() {
+        final Gradient c = Gradient.constant(3, 2.5);
+        Assert.assertEquals(2.5, c.getValue(), 0.0);
+        Assert.assertEquals(3, c.getFreeParameters());
+        Assert.assertArrayEquals(new double[3], c.getGradient(), 0.0);
+        final Gradient v = Gradient.variable(3, 1, 2.5);
+        Assert.assertEquals(2.5, v.getReal(), 0.0);
+        Assert.assertEquals(0.0, v.getPartialDerivative(0), 0.0);
+        Assert.assertEquals(1.0, v.getPartialDerivative(1), 0.0);
+        Assert.assertEquals(0.0, v.getPartialDerivative(2), 0.0);
+        Assert.assertNotEquals(c, v);
+        Assert.assertEquals(v, new Gradient(2.5, 0.0, 1.0, 0.0));
+        Assert.assertEquals(v.hashCode(), new Gradient(2.5, 0.0, 1.0, 0.0).hashCode());
+    }
+
+    @Test
+    public void testDerivativeStructureConversion() {
+        final DSFactory factory = new DSFactory(3, 2);
+        final DerivativeStructure ds = factory.variable(0, 0.5).multiply(factory.variable(2, 3.0)).sin();
+        final Gradient g = new Gradient(ds);
+        Assert.assertEquals(ds.getValue(), g.getValue(), 1.0e-15);
+        Assert.assertEquals(ds.getPartialDerivative(1, 0, 0), g.getPartialDerivative(0), 1.0e-15);
+        Assert.assertEquals(ds.getPartialDerivative(0, 1, 0), g.getPartialDerivative(1), 1.0e-15);
+        Assert.assertEquals(ds.getPartialDerivative(0, 0, 1), g.getPartialDerivative(2), 1.0e-15);
+        final DerivativeStructure back = g.toDerivativeStructure();
+        Assert.assertEquals(1, back.getOrder());
+        Assert.assertEquals(3, back.getFreeParameters());
+        Assert.assertEquals(g, new Gradient(back));
+    }
+
+    @Test
+    public void testField() {
+        final GradientField field = GradientField.getField(4);
+        Assert.assertSame(field, GradientField.getField(4));
+        Assert.assertNotEquals(field, GradientField.getField(5));
+        Assert.assertSame(field, Gradient.variable(4, 2, 1.0).getField());
+        Assert.assertEquals(0.0, field.getZero().getValue(), 0.0);
+        Assert.assertEquals(1.0, field.getOne().getValue(), 0.0);
+        Assert.assertEquals(4, field.getOne().getFreeParameters());
+        Assert.assertEquals(Gradient.class, field.getRuntimeClass());
+    }
+
+    @Test
+    public void testDimensionMismatch() {
+        try {
+            Gradient.variable(3, 0, 1.0).add(Gradient.variable(4, 0, 1.0));
+            Assert.fail("an exception should have been thrown");
+        } catch (OrekitIllegalArgumentException oiae) {
+            Assert.assertEquals(LocalizedCoreFormats.DIMENSIONS_MISMATCH, oiae.getSpecifier());
+        }
+    }
+
+    @Test
+    public void testKeplerianOrbitConsistency() {
+
+        Utils.setDataRoot("regular-data");
+
+        // same orbit, with derivatives computed either with Gradient or with DerivativeStructure
+        final DSFactory factory = new DSFactory(6, 1);
+        final double[] elements = { 7201009.7124401, 1e-3, FastMath.toRadians(98.7),
+                                    FastMath.toRadians(337.5), FastMath.toRadians(93.0), 0.1 };
+        final DerivativeStructure[] ds = new DerivativeStructure[6];
+        final Gradient[]            g  = new Gradient[6];
+        for (int i = 0; i < 6; ++i) {
+            ds[i] = factory.variable(i, elements[i]);
+            g[i]  = Gradient.variable(6, i, elements[i]);
+        }
+        final FieldKeplerianOrbit<DerivativeStructure> dsOrbit =
+                new FieldKeplerianOrbit<>(ds[0], ds[1], ds[2], ds[3], ds[4], ds[5], PositionAngle.MEAN,
+                                          FramesFactory.getEME2000(),
+                                          new FieldAbsoluteDate<>(factory.getDerivativeField()),
+                                          Constants.EIGEN5C_EARTH_MU);
+        final FieldKeplerianOrbit<Gradient> gOrbit =
+                new FieldKeplerianOrbit<>(g[0], g[1], g[2], g[3], g[4], g[5], PositionAngle.MEAN,
+                                          FramesFactory.getEME2000(),
+                                          new FieldAbsoluteDate<>(GradientField.getField(6)),
+                                          Constants.EIGEN5C_EARTH_MU);
+
+        for (double dt = 0; dt < 6000; dt += 600) {
+            final FieldVector3D<DerivativeStructure> pDS = dsOrbit.shiftedBy(dt).getPVCoordinates().getPosition();
+            final FieldVector3D<Gradient>            pG  = gOrbit.shiftedBy(dt).getPVCoordinates().getPosition();
+            checkSame(pDS.getX(), pG.getX(), 1.0e-12);
+            checkSame(pDS.getY(), pG.getY(), 1.0e-12);
+            checkSame(pDS.getZ(), pG.getZ(), 1.0e-12);
+        }
+
+        // the values are the same as the double-based orbit
+        final KeplerianOrbit orbit = new KeplerianOrbit(elements[0], elements[1], elements[2],
+                                                        elements[3], elements[4], elements[5],
+                                                        PositionAngle.MEAN, FramesFactory.getEME2000(),
+                                                        AbsoluteDate.J2000_EPOCH, Constants.EIGEN5C_EARTH_MU);
+        Assert.assertEquals(0.0,
+                            gOrbit.getPVCoordinates().getPosition().toVector3D().
+                            distance(orbit.getPVCoordinates().getPosition()),
+                            1.0e-8);
+
+    }
+
+    private void checkUnivariate(final double x,
+                                 final Function<DerivativeStructure, DerivativeStructure> fDS,
+                                 final Function<Gradient, Gradient> fG) {
+        final DSFactory factory = new DSFactory(2, 1);
+        final DerivativeStructure xDS = factory.variable(0, x).multiply(factory.variable(1, 2.0));
+        final Gradient            xG  = Gradient.variable(2, 0, x).multiply(Gradient.variable(2, 1, 2.0));
+        checkSame(fDS.apply(xDS), fG.apply(xG), 1.0e-14);
+    }
+
+    private void checkBivariate(final double x, final double y,
+                                final Bivariate<DerivativeStructure> fDS,
+                                final Bivariate<Gradient> fG) {
+        final DSFactory factory = new DSFactory(2, 1);
+        final DerivativeStructure xDS = factory.variable(0, x);
+        final DerivativeStructure yDS = factory.variable(1, y).multiply(factory.variable(0, x));
+        final Gradient            xG  = Gradient.variable(2, 0, x);
+        final Gradient            yG  = Gradient.variable(2, 1, y).multiply(Gradient.variable(2, 0, x));
+        checkSame(fDS.apply(xDS, yDS), fG.apply(xG, yG), 1.0e-14);
+    }
+
+    private void checkSame(final DerivativeStructure expected, final Gradient actual, final double relTol) {
+        Assert.assertEquals(expected.getValue(), actual.getValue(),
+                            relTol * FastMath.max(1.0, FastMath.abs(expected.getValue())));
+        for (int i = 0; i < actual.getFreeParameters(); ++i) {
+            final int[] orders = new int[actual.getFreeParameters()];
+            orders[i] = 1;
+            final double d = expected.getPartialDerivative(orders);
+            Assert.assertEquals(d, actual.getPartialDerivative(i), relTol * FastMath.max(1.0, FastMath.abs(d)));
+        }
+    }
+
+    private interface Bivariate<T> {
+        T apply(T x, T y);
+    }
+
+}